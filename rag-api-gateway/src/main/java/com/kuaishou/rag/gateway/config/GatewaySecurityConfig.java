@@ -0,0 +1,60 @@
+package com.kuaishou.rag.gateway.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * 网关认证：JWT 资源服务器
+ *
+ * /api/** 必须携带有效的 Bearer 令牌（签名按 spring.security.oauth2.resourceserver.jwt.jwk-set-uri 校验），
+ * 认证主体名称取令牌中的租户声明 gateway.tenant.claim，缺少该声明的令牌按无效令牌拒绝（401）。
+ * TenantResolutionFilter 据此重写租户头，限流与缓存按租户区分；只有健康检查与指标接口允许匿名访问。
+ */
+@Configuration
+@EnableWebFluxSecurity
+public class GatewaySecurityConfig {
+
+    /**
+     * 令牌中表示租户的声明
+     */
+    @Value("${gateway.tenant.claim:tenant_id}")
+    private String tenantClaim;
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        return http
+            .csrf(ServerHttpSecurity.CsrfSpec::disable)
+            .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+            .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+            .authorizeExchange(exchanges -> exchanges
+                .pathMatchers("/actuator/health/**", "/actuator/prometheus").permitAll()
+                .anyExchange().authenticated())
+            .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt.jwtAuthenticationConverter(tenantConverter())))
+            .build();
+    }
+
+    /**
+     * 主体名称取租户声明；没有租户声明的令牌不能代表任何租户，直接拒绝
+     */
+    private Converter<Jwt, Mono<AbstractAuthenticationToken>> tenantConverter() {
+        JwtAuthenticationConverter delegate = new JwtAuthenticationConverter();
+        delegate.setPrincipalClaimName(tenantClaim);
+        return jwt -> {
+            String tenant = jwt.getClaimAsString(tenantClaim);
+            if (tenant == null || tenant.isBlank()) {
+                return Mono.error(new InvalidBearerTokenException("令牌缺少租户声明: " + tenantClaim));
+            }
+            return Mono.just(delegate.convert(jwt));
+        };
+    }
+}
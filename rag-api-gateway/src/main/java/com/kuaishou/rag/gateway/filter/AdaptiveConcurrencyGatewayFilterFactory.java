@@ -0,0 +1,102 @@
+package com.kuaishou.rag.gateway.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kuaishou.rag.gateway.limit.AdaptiveLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+
+/**
+ * 按租户的自适应并发限制（路由过滤器 AdaptiveConcurrency）
+ *
+ * 每个租户一个 {@link AdaptiveLimiter}，上限随下游延迟自动调整，而不是固定的令牌桶速率：
+ * 下游变慢时各租户的上限收缩，单个租户的突发只会耗尽自己的名额。超过上限时直接返回 429 + Retry-After。
+ *
+ * 每次 apply 一套独立的限制器，流式与非流式路由分开配置，流式请求的长耗时不会拉低非流式的上限。
+ * 租户长时间无请求后其限制器被回收。租户取认证主体或客户端 IP（见 {@link Tenants}），轮换请求头不会得到新的名额。
+ */
+@Component
+public class AdaptiveConcurrencyGatewayFilterFactory
+    extends AbstractGatewayFilterFactory<AdaptiveConcurrencyGatewayFilterFactory.Config> {
+
+    private final Counter rejected;
+
+    public AdaptiveConcurrencyGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.rejected = Counter.builder("gateway.concurrency.rejected").register(meterRegistry);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Cache<String, AdaptiveLimiter> limiters = Caffeine.newBuilder()
+            .maximumSize(config.getMaxTenants())
+            .expireAfterAccess(Duration.ofMinutes(config.getIdleMinutes()))
+            .build();
+        return (exchange, chain) -> {
+            String tenant = Tenants.resolve(exchange);
+            AdaptiveLimiter limiter = limiters.get(tenant, k -> new AdaptiveLimiter(config.getInitialLimit(),
+                config.getMinLimit(), config.getMaxLimit(), config.getAlpha(), config.getBeta(), config.getRttWindowMs()));
+            if (!limiter.tryAcquire()) {
+                rejected.increment();
+                exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                return exchange.getResponse().setComplete();
+            }
+            long start = System.nanoTime();
+            return chain.filter(exchange).doFinally(signal -> {
+                if (signal == SignalType.CANCEL) {
+                    limiter.cancel();
+                    return;
+                }
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                boolean success = signal == SignalType.ON_COMPLETE && (status == null || !status.is5xxServerError());
+                limiter.release(System.nanoTime() - start, success);
+            });
+        };
+    }
+
+    @Data
+    public static class Config {
+
+        private int initialLimit = 20;
+
+        private int minLimit = 2;
+
+        private int maxLimit = 200;
+
+        /**
+         * 估计排队数低于该值时上限 +1
+         */
+        private int alpha = 3;
+
+        /**
+         * 估计排队数高于该值时上限 -1
+         */
+        private int beta = 6;
+
+        /**
+         * 最小延迟基线的取样窗口（毫秒）
+         */
+        private long rttWindowMs = 10000;
+
+        /**
+         * 同时跟踪的租户数上限
+         */
+        private long maxTenants = 10000;
+
+        /**
+         * 租户空闲多久后回收其限制器（分钟）
+         */
+        private long idleMinutes = 10;
+    }
+}
@@ -0,0 +1,352 @@
+package com.kuaishou.rag.gateway.filter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询响应缓存与请求合并（路由过滤器 QueryCache）
+ *
+ * 缓存键 = 租户 + Authorization + 路径 + Accept-Encoding + 规范化后的请求体：JSON 按键排序、去掉 null 字段，
+ * 问题字段做 NFKC 归一、小写并合并空白，措辞相同的问题命中同一条缓存。
+ * 租户取认证主体或客户端 IP（见 {@link Tenants}），不同凭证即使落在同一租户也不会共用缓存。
+ *
+ * - 命中：直接返回缓存的响应，X-Cache: HIT
+ * - 未命中：同一个键只有第一个请求（leader）转发到下游，其余请求等待 leader 的响应，X-Cache: COALESCED；
+ *   leader 失败、被取消或响应无法缓冲（流式、过大）时，等待者各自转发到下游
+ * - 下游 Cache-Control：no-store / private / no-cache 不缓存，s-maxage / max-age 决定存活时间（不超过 max-ttl），
+ *   未声明时使用 default-ttl；只缓存 200 且不带 Set-Cookie 的响应
+ * - 客户端 Cache-Control: no-cache 跳过缓存读取，但仍参与合并并刷新缓存
+ *
+ * 只处理带 Content-Length 且不超过 max-body-bytes 的 POST 请求，其余请求原样转发
+ */
+@Slf4j
+@Component
+public class QueryCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<QueryCacheGatewayFilterFactory.Config> {
+
+    private static final ObjectMapper CANONICAL = JsonMapper.builder()
+        .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+        .build();
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    /**
+     * 缓存响应时保留的响应头
+     */
+    private static final List<String> REPLAYED_HEADERS = List.of(
+        HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_ENCODING, HttpHeaders.CACHE_CONTROL, HttpHeaders.VARY);
+
+    private static final String X_CACHE = "X-Cache";
+
+    private final MeterRegistry meterRegistry;
+
+    public QueryCacheGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Cache<String, CachedResponse> cache = Caffeine.newBuilder()
+            .maximumWeight(config.getMaxCacheBytes())
+            .<String, CachedResponse>weigher((key, value) -> value.body().length + key.length())
+            .expireAfter(new Expiry<String, CachedResponse>() {
+                @Override
+                public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+                    return value.ttlNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+                    return value.ttlNanos();
+                }
+
+                @Override
+                public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+        ConcurrentMap<String, CompletableFuture<CachedResponse>> inflight = new ConcurrentHashMap<>();
+
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            long length = request.getHeaders().getContentLength();
+            if (request.getMethod() != HttpMethod.POST || length < 0 || length > config.getMaxBodyBytes()) {
+                count("bypass");
+                return chain.filter(exchange);
+            }
+            return DataBufferUtils.join(request.getBody())
+                .map(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    return bytes;
+                })
+                .defaultIfEmpty(new byte[0])
+                .flatMap(body -> handle(exchange, chain, replay(exchange, body), body, config, cache, inflight));
+        };
+    }
+
+    private Mono<Void> handle(ServerWebExchange exchange, GatewayFilterChain chain, ServerWebExchange replay, byte[] body,
+                              Config config, Cache<String, CachedResponse> cache,
+                              ConcurrentMap<String, CompletableFuture<CachedResponse>> inflight) {
+        String key = cacheKey(exchange, body, config);
+        if (key == null) {
+            count("bypass");
+            return chain.filter(replay);
+        }
+
+        List<String> clientCacheControl = exchange.getRequest().getHeaders().getOrEmpty(HttpHeaders.CACHE_CONTROL);
+        boolean noCache = clientCacheControl.stream().anyMatch(v -> v.toLowerCase(Locale.ROOT).contains("no-cache"));
+        if (!noCache) {
+            CachedResponse hit = cache.getIfPresent(key);
+            if (hit != null) {
+                count("hit");
+                return write(exchange, hit, "HIT");
+            }
+        }
+
+        CompletableFuture<CachedResponse> mine = new CompletableFuture<>();
+        CompletableFuture<CachedResponse> leader = inflight.putIfAbsent(key, mine);
+        if (leader != null) {
+            count("coalesced");
+            return Mono.fromFuture(leader, true)
+                .flatMap(response -> write(exchange, response, "COALESCED"))
+                .onErrorResume(e -> chain.filter(replay));
+        }
+
+        count("miss");
+        ServerHttpResponse capturing = capture(replay.getResponse(), key, mine, config, cache);
+        return chain.filter(replay.mutate().response(capturing).build())
+            .doFinally(signal -> {
+                inflight.remove(key, mine);
+                // 响应未被缓冲（空响应、流式、出错或取消）时让等待者自行转发
+                mine.completeExceptionally(new CancellationException("leader finished without a buffered response"));
+            });
+    }
+
+    /**
+     * 请求体已被读取，包装一个可重复读取的请求交给下游
+     */
+    private static ServerWebExchange replay(ServerWebExchange exchange, byte[] body) {
+        ServerHttpRequest decorated = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return Flux.defer(() -> Flux.just(exchange.getResponse().bufferFactory().wrap(body)));
+            }
+        };
+        return exchange.mutate().request(decorated).build();
+    }
+
+    /**
+     * 缓冲 leader 的响应体：交给等待者，按下游 Cache-Control 决定是否写入缓存，再原样写回客户端
+     */
+    private static ServerHttpResponse capture(ServerHttpResponse original, String key, CompletableFuture<CachedResponse> mine,
+                                              Config config, Cache<String, CachedResponse> cache) {
+        return new ServerHttpResponseDecorator(original) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                MediaType contentType = getHeaders().getContentType();
+                long length = getHeaders().getContentLength();
+                if ((contentType != null && MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType))
+                    || length > config.getMaxResponseBytes()) {
+                    return super.writeWith(body);
+                }
+                return DataBufferUtils.join(Flux.from(body))
+                    .flatMap(joined -> {
+                        byte[] bytes = new byte[joined.readableByteCount()];
+                        joined.read(bytes);
+                        DataBufferUtils.release(joined);
+
+                        HttpStatusCode status = getStatusCode();
+                        HttpHeaders headers = new HttpHeaders();
+                        for (String name : REPLAYED_HEADERS) {
+                            List<String> values = getHeaders().get(name);
+                            if (values != null) {
+                                headers.put(name, values);
+                            }
+                        }
+                        boolean cacheable = status != null && status.value() == 200 && bytes.length <= config.getMaxResponseBytes()
+                            && !getHeaders().containsKey(HttpHeaders.SET_COOKIE);
+                        long ttlNanos = cacheable ? ttlNanos(getHeaders().getCacheControl(), config) : 0;
+                        CachedResponse response = new CachedResponse(status == null ? 200 : status.value(), headers, bytes, ttlNanos);
+                        mine.complete(response);
+                        if (ttlNanos > 0) {
+                            cache.put(key, response);
+                        }
+
+                        getHeaders().set(X_CACHE, "MISS");
+                        return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                    });
+            }
+        };
+    }
+
+    /**
+     * 按下游 Cache-Control 计算缓存存活时间，0 表示不缓存
+     */
+    static long ttlNanos(String cacheControl, Config config) {
+        long seconds = config.getDefaultTtlSeconds();
+        if (cacheControl != null && !cacheControl.isBlank()) {
+            Long maxAge = null;
+            Long sMaxAge = null;
+            for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+                String d = directive.trim();
+                if (d.equals("no-store") || d.equals("private") || d.equals("no-cache")) {
+                    return 0;
+                }
+                try {
+                    if (d.startsWith("s-maxage=")) {
+                        sMaxAge = Long.parseLong(d.substring("s-maxage=".length()).trim());
+                    } else if (d.startsWith("max-age=")) {
+                        maxAge = Long.parseLong(d.substring("max-age=".length()).trim());
+                    }
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+            if (sMaxAge != null) {
+                seconds = sMaxAge;
+            } else if (maxAge != null) {
+                seconds = maxAge;
+            }
+        }
+        return TimeUnit.SECONDS.toNanos(Math.max(0, Math.min(seconds, config.getMaxTtlSeconds())));
+    }
+
+    private static Mono<Void> write(ServerWebExchange exchange, CachedResponse cached, String tag) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatusCode.valueOf(cached.status()));
+        response.getHeaders().putAll(cached.headers());
+        response.getHeaders().setContentLength(cached.body().length);
+        response.getHeaders().set(X_CACHE, tag);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.body())));
+    }
+
+    /**
+     * 计算缓存键，请求体不是 JSON 对象时返回 null（不缓存）
+     */
+    private static String cacheKey(ServerWebExchange exchange, byte[] body, Config config) {
+        Map<String, Object> json;
+        try {
+            json = CANONICAL.readValue(body, MAP_TYPE);
+        } catch (Exception e) {
+            return null;
+        }
+        if (json == null) {
+            return null;
+        }
+        json.values().removeIf(Objects::isNull);
+        if (json.get(config.getQueryField()) instanceof String query) {
+            json.put(config.getQueryField(), normalize(query));
+        }
+
+        try {
+            ServerHttpRequest request = exchange.getRequest();
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Tenants.resolve(exchange).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(String.valueOf(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION)).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(request.getPath().value().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(String.valueOf(request.getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING)).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(CANONICAL.writeValueAsBytes(json));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            log.warn("Failed to compute query cache key: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    static String normalize(String query) {
+        return Normalizer.normalize(query, Normalizer.Form.NFKC)
+            .toLowerCase(Locale.ROOT)
+            .replaceAll("\\s+", " ")
+            .trim();
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("gateway.query_cache.requests", "result", result).increment();
+    }
+
+    /**
+     * 缓冲下来的下游响应
+     */
+    record CachedResponse(int status, HttpHeaders headers, byte[] body, long ttlNanos) {
+    }
+
+    @Data
+    public static class Config {
+
+        /**
+         * 需要归一化的问题字段
+         */
+        private String queryField = "query";
+
+        /**
+         * 下游未声明 Cache-Control 时的缓存时间（秒）
+         */
+        private long defaultTtlSeconds = 60;
+
+        /**
+         * 缓存时间上限（秒）
+         */
+        private long maxTtlSeconds = 600;
+
+        /**
+         * 参与缓存的请求体大小上限（字节）
+         */
+        private long maxBodyBytes = 64 * 1024;
+
+        /**
+         * 可缓存的响应体大小上限（字节），声明的 Content-Length 超过时直接透传
+         */
+        private int maxResponseBytes = 1024 * 1024;
+
+        /**
+         * 缓存总大小上限（字节）
+         */
+        private long maxCacheBytes = 64L * 1024 * 1024;
+    }
+}
@@ -0,0 +1,55 @@
+package com.kuaishou.rag.gateway.filter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.security.Principal;
+
+/**
+ * 租户解析（全局过滤器，先于所有路由过滤器执行）
+ *
+ * - 去掉客户端传入的租户请求头，下游看到的租户头只可能由网关写入
+ * - 请求已认证时（GatewaySecurityConfig 校验 JWT，主体名称为令牌中的租户声明）记录主体名称（供限流与缓存键使用），
+ *   并以主体名称重写租户头转发给下游
+ * - 未认证的请求只有放行的健康检查 / 指标接口，不写租户头，按客户端 IP 区分
+ */
+@Component
+public class TenantResolutionFilter implements GlobalFilter, Ordered {
+
+    /**
+     * 租户请求头，客户端传入的值会被丢弃
+     */
+    @Value("${gateway.tenant.header:X-Tenant-Id}")
+    private String tenantHeader;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        return exchange.getPrincipal()
+            .map(Principal::getName)
+            .defaultIfEmpty("")
+            .flatMap(principal -> {
+                ServerWebExchange mutated = exchange.mutate()
+                    .request(request -> request.headers(headers -> {
+                        headers.remove(tenantHeader);
+                        if (!principal.isBlank()) {
+                            headers.set(tenantHeader, principal);
+                        }
+                    }))
+                    .build();
+                if (!principal.isBlank()) {
+                    mutated.getAttributes().put(Tenants.PRINCIPAL_ATTR, principal);
+                }
+                return chain.filter(mutated);
+            });
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,31 @@
+package com.kuaishou.rag.gateway.filter;
+
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 请求所属租户：取认证后的主体（JWT 租户声明），未认证（仅放行的健康检查 / 指标接口）时按客户端 IP 区分
+ *
+ * 客户端自带的租户请求头不参与判定，否则随意轮换请求头就能绕过按租户限流、读到其他租户的缓存。
+ * 主体由 {@link TenantResolutionFilter} 在路由过滤器之前解析并放入 exchange 属性。
+ */
+final class Tenants {
+
+    /**
+     * 认证主体名称的 exchange 属性
+     */
+    static final String PRINCIPAL_ATTR = Tenants.class.getName() + ".principal";
+
+    private Tenants() {
+    }
+
+    static String resolve(ServerWebExchange exchange) {
+        String principal = exchange.getAttribute(PRINCIPAL_ATTR);
+        if (principal != null && !principal.isBlank()) {
+            return "tenant:" + principal;
+        }
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        return remote == null || remote.getAddress() == null ? "anonymous" : "ip:" + remote.getAddress().getHostAddress();
+    }
+}
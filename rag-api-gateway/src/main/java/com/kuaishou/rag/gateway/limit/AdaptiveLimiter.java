@@ -0,0 +1,61 @@
+package com.kuaishou.rag.gateway.limit;
+
+import com.kuaishou.rag.common.limit.VegasLimit;
+
+/**
+ * 租户级自适应并发上限：在途计数 + {@link VegasLimit}
+ *
+ * 上限随下游延迟自动调整（见 VegasLimit），达到上限时 tryAcquire 立即返回 false，由调用方拒绝请求。
+ * 线程安全，acquire 与 release 可以并发调用
+ */
+public class AdaptiveLimiter {
+
+    private final VegasLimit limit;
+
+    private int inflight;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, int alpha, int beta, long rttWindowMs) {
+        this.limit = new VegasLimit(initialLimit, minLimit, maxLimit, alpha, beta, rttWindowMs);
+    }
+
+    /**
+     * 占用一个并发名额，已达上限时返回 false
+     */
+    public synchronized boolean tryAcquire() {
+        if (inflight >= limit.getLimit()) {
+            return false;
+        }
+        inflight++;
+        return true;
+    }
+
+    /**
+     * 释放名额并记录本次延迟
+     *
+     * @param rttNanos 请求耗时
+     * @param success  是否成功；失败（5xx、超时）时乘性下降
+     */
+    public synchronized void release(long rttNanos, boolean success) {
+        if (success) {
+            limit.onSample(rttNanos, inflight);
+        } else {
+            limit.onDrop();
+        }
+        inflight--;
+    }
+
+    /**
+     * 释放名额，不记录延迟（请求被取消）
+     */
+    public synchronized void cancel() {
+        inflight--;
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public synchronized int getInflight() {
+        return inflight;
+    }
+}
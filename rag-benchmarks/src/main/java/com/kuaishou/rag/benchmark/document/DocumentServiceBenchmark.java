@@ -0,0 +1,164 @@
+package com.kuaishou.rag.benchmark.document;
+
+import com.kuaishou.rag.document.DocumentServiceApplication;
+import com.kuaishou.rag.document.dto.DocumentCursor;
+import com.kuaishou.rag.document.dto.DocumentListRequest;
+import com.kuaishou.rag.document.service.DocumentService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * DocumentService 基准（H2 内存库，MySQL 兼容模式）
+ *
+ * - listByKbId：知识库下 documentsPerKb 篇文档的游标分页查询（首页与中间一页，默认列）
+ * - uploadDocument：流式写入对象存储（本地文件系统替身）+ 元数据写入 + 提交入库流水线（流水线异步执行，不在测量范围）
+ *
+ * 启动完整的文档服务上下文：向量引擎使用进程内 HNSW，Embedding 使用哈希替身，
+ * Kafka / Redis / 注册中心等自动配置关闭。
+ * 每轮迭代结束后清理上传产生的文档行与对象文件，避免数据库与临时目录随迭代无限增长。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DocumentServiceBenchmark {
+
+    private static final String KB_ID = "kb-bench";
+
+    private static final String UPLOAD_KB_ID = KB_ID + "-upload";
+
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Param({"100", "10000"})
+    private int documentsPerKb;
+
+    private ConfigurableApplicationContext context;
+
+    private JdbcTemplate jdbc;
+
+    private Path objectDir;
+
+    private DocumentService documentService;
+
+    private MockMultipartFile file;
+
+    private DocumentListRequest firstPage;
+
+    private DocumentListRequest middlePage;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        objectDir = Files.createTempDirectory("rag-bench-objects");
+        context = new SpringApplicationBuilder(DocumentServiceApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:rag_documents;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.sql.init.mode=always",
+                "spring.sql.init.schema-locations=classpath:bench-schema.sql",
+                "spring.cloud.discovery.enabled=false",
+                "vector.engine=local",
+                "embedding.service.provider=hash",
+                "milvus.collection.dimension=256",
+                "storage.type=filesystem",
+                "storage.filesystem.base-dir=" + objectDir,
+                "spring.cloud.consul.enabled=false",
+                "spring.autoconfigure.exclude="
+                    + "org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration,"
+                    + "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration,"
+                    + "org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration",
+                "logging.level.com.kuaishou.rag=WARN")
+            .run();
+        documentService = context.getBean(DocumentService.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+        seed(jdbc);
+        file = new MockMultipartFile("file", "handbook.pdf", "application/pdf", new byte[64 * 1024]);
+        firstPage = new DocumentListRequest();
+        firstPage.setKbId(KB_ID);
+        middlePage = new DocumentListRequest();
+        middlePage.setKbId(KB_ID);
+        int middle = documentsPerKb / 2;
+        middlePage.setCursor(new DocumentCursor(BASE_TIME.plusSeconds(middle), "doc-" + middle).encode());
+    }
+
+    /**
+     * 清理本轮上传的文档：元数据、分块映射、墓碑与对象文件
+     */
+    @TearDown(Level.Iteration)
+    public void cleanUploads() {
+        jdbc.update("DELETE FROM document_chunk WHERE kb_id = ?", UPLOAD_KB_ID);
+        jdbc.update("DELETE FROM document_tombstone WHERE kb_id = ?", UPLOAD_KB_ID);
+        jdbc.update("DELETE FROM document WHERE kb_id = ?", UPLOAD_KB_ID);
+        deleteRecursively(objectDir.resolve("docs").resolve(UPLOAD_KB_ID));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        deleteRecursively(objectDir);
+    }
+
+    @Benchmark
+    public Object listByKbId() {
+        return documentService.listByKbId(firstPage);
+    }
+
+    @Benchmark
+    public Object listByKbIdMiddlePage() {
+        return documentService.listByKbId(middlePage);
+    }
+
+    @Benchmark
+    public Object uploadDocument() {
+        return documentService.uploadDocument(file, UPLOAD_KB_ID);
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        jdbc.update("DELETE FROM document");
+        List<Object[]> rows = new ArrayList<>(documentsPerKb);
+        for (int i = 0; i < documentsPerKb; i++) {
+            Timestamp time = Timestamp.valueOf(BASE_TIME.plusSeconds(i));
+            rows.add(new Object[]{"doc-" + i, KB_ID, "doc-" + i + ".pdf", "pdf", 65536L, 2,
+                "minio://rag-documents/doc-" + i, time, time});
+        }
+        jdbc.batchUpdate("INSERT INTO document (id, kb_id, name, type, size, status, storage_path, create_time, update_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    private static void deleteRecursively(Path root) {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.kuaishou.rag.benchmark.support;
+
+import java.lang.reflect.Field;
+
+/**
+ * 在没有 Spring 容器时为 @Autowired / @Value 字段赋值
+ */
+public final class Beans {
+
+    private Beans() {
+    }
+
+    public static <T> T inject(T target, String fieldName, Object value) {
+        Class<?> type = target.getClass();
+        while (type != null) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return target;
+            } catch (NoSuchFieldException e) {
+                type = type.getSuperclass();
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + fieldName + " on " + target.getClass().getName());
+    }
+}
@@ -0,0 +1,17 @@
+package com.kuaishou.rag.benchmark.support;
+
+import com.kuaishou.rag.vector.metrics.VectorMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 基准测试用的指标组件：记录到进程内 SimpleMeterRegistry，计入与线上相同的埋点开销
+ */
+public final class BenchMetrics {
+
+    private BenchMetrics() {
+    }
+
+    public static VectorMetrics vectorMetrics() {
+        return Beans.inject(new VectorMetrics(), "meterRegistry", new SimpleMeterRegistry());
+    }
+}
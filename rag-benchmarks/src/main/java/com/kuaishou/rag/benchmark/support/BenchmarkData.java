@@ -0,0 +1,92 @@
+package com.kuaishou.rag.benchmark.support;
+
+import io.milvus.grpc.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 基准测试数据构造（固定随机种子，结果可复现）
+ */
+public final class BenchmarkData {
+
+    private static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 随机单位向量
+     */
+    public static List<float[]> vectors(int count, int dimension) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] v = new float[dimension];
+            double norm = 0;
+            for (int d = 0; d < dimension; d++) {
+                v[d] = (float) (random.nextDouble() * 2 - 1);
+                norm += v[d] * v[d];
+            }
+            float inv = (float) (1.0 / Math.sqrt(norm));
+            for (int d = 0; d < dimension; d++) {
+                v[d] *= inv;
+            }
+            vectors.add(v);
+        }
+        return vectors;
+    }
+
+    public static List<String> ids(String prefix, int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(prefix + "-" + i);
+        }
+        return ids;
+    }
+
+    /**
+     * 模拟 Milvus 返回的 SearchResults：numQueries 个查询，每个 topK 行，
+     * 输出字段 content / doc_id / metadata，content 长度为 contentLength
+     */
+    public static SearchResults searchResults(int numQueries, int topK, int contentLength) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        String content = "x".repeat(contentLength);
+        SearchResultData.Builder data = SearchResultData.newBuilder()
+            .setNumQueries(numQueries)
+            .setTopK(topK);
+        StringArray.Builder ids = StringArray.newBuilder();
+        StringArray.Builder contents = StringArray.newBuilder();
+        StringArray.Builder docIds = StringArray.newBuilder();
+        StringArray.Builder metadata = StringArray.newBuilder();
+        for (int q = 0; q < numQueries; q++) {
+            data.addTopks(topK);
+            float score = 1.0f;
+            for (int k = 0; k < topK; k++) {
+                score -= (float) random.nextDouble() * 0.01f;
+                ids.addData("chunk-" + q + "-" + k);
+                data.addScores(score);
+                contents.addData(content);
+                docIds.addData("doc-" + (k % 16));
+                metadata.addData("{\"page\":" + k + "}");
+            }
+        }
+        data.setIds(IDs.newBuilder().setStrId(ids));
+        data.addFieldsData(stringField("content", contents));
+        data.addFieldsData(stringField("doc_id", docIds));
+        data.addFieldsData(stringField("metadata", metadata));
+        return SearchResults.newBuilder()
+            .setStatus(Status.newBuilder().setErrorCode(ErrorCode.Success))
+            .setResults(data)
+            .build();
+    }
+
+    private static FieldData stringField(String name, StringArray.Builder values) {
+        return FieldData.newBuilder()
+            .setFieldName(name)
+            .setType(DataType.VarChar)
+            .setScalars(ScalarField.newBuilder().setStringData(values))
+            .build();
+    }
+}
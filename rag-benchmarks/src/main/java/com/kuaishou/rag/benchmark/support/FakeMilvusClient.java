@@ -0,0 +1,65 @@
+package com.kuaishou.rag.benchmark.support;
+
+import io.milvus.client.MilvusClient;
+import io.milvus.grpc.*;
+import io.milvus.param.R;
+import io.milvus.param.RpcStatus;
+import io.milvus.param.dml.InsertParam;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 基准测试用的假 MilvusClient（动态代理，不发起网络请求）
+ *
+ * - search：返回预先构造好的 SearchResults，只测客户端侧的请求组装与结果解码
+ * - insert / delete：返回成功的 MutationResult，并记录最后一次参数，防止被 JIT 消除
+ * - flush：返回空 FlushResponse
+ * - describeCollection：返回空 schema（不带 partition_key 字段）
+ * - 其余方法：返回成功的 RpcStatus
+ */
+public final class FakeMilvusClient {
+
+    private FakeMilvusClient() {
+    }
+
+    /**
+     * @param searchResults search 调用返回的结果
+     * @param lastParam     记录最后一次调用的参数（可为 null）
+     */
+    public static MilvusClient create(SearchResults searchResults, AtomicReference<Object> lastParam) {
+        return (MilvusClient) Proxy.newProxyInstance(
+            MilvusClient.class.getClassLoader(),
+            new Class<?>[]{MilvusClient.class},
+            (proxy, method, args) -> {
+                if (lastParam != null && args != null && args.length == 1) {
+                    lastParam.set(args[0]);
+                }
+                switch (method.getName()) {
+                    case "search":
+                        return R.success(searchResults);
+                    case "insert":
+                        return R.success(insertResult((InsertParam) args[0]));
+                    case "delete":
+                        return R.success(MutationResult.newBuilder().setDeleteCnt(1).build());
+                    case "flush":
+                        return R.success(FlushResponse.getDefaultInstance());
+                    case "describeCollection":
+                        return R.success(DescribeCollectionResponse.getDefaultInstance());
+                    case "hasCollection":
+                        return R.success(Boolean.TRUE);
+                    case "close":
+                    case "withTimeout":
+                        return method.getReturnType() == void.class ? null : proxy;
+                    default:
+                        return R.success(new RpcStatus(RpcStatus.SUCCESS_MSG));
+                }
+            });
+    }
+
+    private static MutationResult insertResult(InsertParam param) {
+        return MutationResult.newBuilder()
+            .setInsertCnt(param.getRowCount())
+            .build();
+    }
+}
@@ -0,0 +1,51 @@
+package com.kuaishou.rag.benchmark.vector;
+
+import com.kuaishou.rag.benchmark.support.BenchmarkData;
+import com.kuaishou.rag.benchmark.support.BenchMetrics;
+import com.kuaishou.rag.benchmark.support.Beans;
+import com.kuaishou.rag.benchmark.support.FakeMilvusClient;
+import com.kuaishou.rag.vector.store.MilvusVectorStore;
+import io.milvus.grpc.SearchResults;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * deleteByIds 过滤表达式构造基准（按 1000 个值拆分的 id in [...] 拼接 + DeleteParam 校验）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeleteExprBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int idCount;
+
+    private List<String> ids;
+
+    private MilvusVectorStore store;
+
+    private final AtomicReference<Object> lastParam = new AtomicReference<>();
+
+    @Setup
+    public void setup() {
+        ids = BenchmarkData.ids("3f2a9c1e7b4d4e0a8c6f5b2d1e0a9c8b", idCount);
+        store = Beans.inject(new MilvusVectorStore(), "milvusClient",
+            FakeMilvusClient.create(SearchResults.getDefaultInstance(), lastParam));
+        Beans.inject(store, "metrics", BenchMetrics.vectorMetrics());
+        Beans.inject(store, "maxDeleteExprValues", 1000);
+        Beans.inject(store, "schemaCacheTtlSeconds", 60L);
+        store.init();
+    }
+
+    @Benchmark
+    public Object deleteByIds() {
+        store.deleteByIds("bench", ids);
+        return lastParam.get();
+    }
+}
@@ -0,0 +1,104 @@
+package com.kuaishou.rag.benchmark.vector;
+
+import com.kuaishou.rag.benchmark.support.BenchmarkData;
+import com.kuaishou.rag.benchmark.support.BenchMetrics;
+import com.kuaishou.rag.benchmark.support.Beans;
+import com.kuaishou.rag.benchmark.support.FakeMilvusClient;
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.store.MilvusVectorStore;
+import com.kuaishou.rag.vector.util.FloatVectors;
+import io.milvus.grpc.FloatArray;
+import io.milvus.grpc.SearchResults;
+import io.milvus.param.dml.InsertParam;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * batchInsert 字段组装基准
+ *
+ * - boxedVectors：先把 float[] 整批装箱为 List&lt;List&lt;Float&gt;&gt;（原实现的数据形态）
+ * - primitiveViews：FloatVectors.asLists 只读视图
+ * 两者都按 SDK 的方式把向量写入 FloatArray，模拟序列化时的逐元素读取。
+ * - storeInsert：MilvusVectorStore.insert 全流程（假客户端，不含序列化与网络）
+ *
+ * 建议加 -prof gc 观察每次操作的分配量。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class InsertAssemblyBenchmark {
+
+    @Param({"100", "2000"})
+    private int rows;
+
+    @Param({"768", "1536"})
+    private int dimension;
+
+    private InsertRequest request;
+
+    private MilvusVectorStore store;
+
+    @Setup
+    public void setup() {
+        request = new InsertRequest();
+        request.setIds(BenchmarkData.ids("chunk", rows));
+        request.setVectors(BenchmarkData.vectors(rows, dimension));
+        request.setContents(Collections.nCopies(rows, "x".repeat(512)));
+        request.setDocIds(Collections.nCopies(rows, "doc-0"));
+        request.setMetadataList(Collections.nCopies(rows, "{}"));
+
+        store = Beans.inject(new MilvusVectorStore(), "milvusClient",
+            FakeMilvusClient.create(SearchResults.getDefaultInstance(), null));
+        Beans.inject(store, "metrics", BenchMetrics.vectorMetrics());
+        Beans.inject(store, "schemaCacheTtlSeconds", 60L);
+        store.init();
+    }
+
+    @Benchmark
+    public void boxedVectors(Blackhole bh) {
+        List<List<Float>> boxed = new ArrayList<>(rows);
+        for (float[] vector : request.getVectors()) {
+            List<Float> list = new ArrayList<>(vector.length);
+            for (float v : vector) {
+                list.add(v);
+            }
+            boxed.add(list);
+        }
+        assembleAndSerialize(boxed, bh);
+    }
+
+    @Benchmark
+    public void primitiveViews(Blackhole bh) {
+        assembleAndSerialize(FloatVectors.asLists(request.getVectors()), bh);
+    }
+
+    @Benchmark
+    public Object storeInsert() {
+        return store.insert("bench", request);
+    }
+
+    private void assembleAndSerialize(List<List<Float>> vectors, Blackhole bh) {
+        InsertParam param = InsertParam.newBuilder()
+            .withCollectionName("bench")
+            .withFields(Arrays.asList(
+                new InsertParam.Field("id", request.getIds()),
+                new InsertParam.Field("embedding", vectors),
+                new InsertParam.Field("content", request.getContents()),
+                new InsertParam.Field("doc_id", request.getDocIds()),
+                new InsertParam.Field("metadata", request.getMetadataList())))
+            .build();
+        bh.consume(param);
+        for (List<Float> vector : vectors) {
+            bh.consume(FloatArray.newBuilder().addAllData(vector).build());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.kuaishou.rag.benchmark.vector;
+
+import com.kuaishou.rag.benchmark.support.BenchmarkData;
+import com.kuaishou.rag.benchmark.support.BenchMetrics;
+import com.kuaishou.rag.benchmark.support.Beans;
+import com.kuaishou.rag.benchmark.support.FakeMilvusClient;
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import com.kuaishou.rag.vector.store.MilvusResultDecoder;
+import com.kuaishou.rag.vector.store.MilvusVectorStore;
+import io.milvus.grpc.SearchResultData;
+import io.milvus.grpc.SearchResults;
+import io.milvus.response.SearchResultsWrapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 搜索结果解析基准
+ *
+ * - legacyWrapper：SearchResultsWrapper.getIDScore 逐行构造 IDScore（原实现）
+ * - columnarDecoder：MilvusResultDecoder 按列读取
+ * - storeSearch：MilvusVectorStore.search 全流程（组装 SearchParam + 假客户端 + 解码），不含网络
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchResultParseBenchmark {
+
+    @Param({"1", "32"})
+    private int numQueries;
+
+    @Param({"10", "100"})
+    private int topK;
+
+    @Param({"512"})
+    private int contentLength;
+
+    private SearchResultData resultData;
+
+    private MilvusVectorStore store;
+
+    private List<SearchRequest> requests;
+
+    @Setup
+    public void setup() {
+        SearchResults results = BenchmarkData.searchResults(numQueries, topK, contentLength);
+        resultData = results.getResults();
+        store = Beans.inject(new MilvusVectorStore(), "milvusClient", FakeMilvusClient.create(results, null));
+        Beans.inject(store, "metrics", BenchMetrics.vectorMetrics());
+        Beans.inject(store, "schemaCacheTtlSeconds", 60L);
+        store.init();
+
+        requests = new ArrayList<>(numQueries);
+        for (float[] vector : BenchmarkData.vectors(numQueries, 768)) {
+            SearchRequest request = new SearchRequest();
+            request.setVector(vector);
+            request.setTopK(topK);
+            request.setEf(Math.max(topK * 10, 64));
+            requests.add(request);
+        }
+    }
+
+    @Benchmark
+    public void legacyWrapper(Blackhole bh) {
+        SearchResultsWrapper wrapper = new SearchResultsWrapper(resultData);
+        for (int i = 0; i < numQueries; i++) {
+            for (SearchResultsWrapper.IDScore score : wrapper.getIDScore(i)) {
+                bh.consume(score.getStrID());
+                bh.consume(score.getScore());
+                bh.consume(score.get("content"));
+                bh.consume(score.get("doc_id"));
+                bh.consume(score.get("metadata"));
+            }
+        }
+    }
+
+    @Benchmark
+    public void columnarDecoder(Blackhole bh) {
+        MilvusResultDecoder decoder = new MilvusResultDecoder(resultData);
+        for (int i = 0; i < numQueries; i++) {
+            consume(decoder.results(i), bh);
+        }
+    }
+
+    @Benchmark
+    public void storeSearch(Blackhole bh) {
+        for (SearchResponse response : store.search("bench", requests)) {
+            consume(response.getResults(), bh);
+        }
+    }
+
+    private static void consume(List<SearchResponse.SearchResult> results, Blackhole bh) {
+        for (SearchResponse.SearchResult result : results) {
+            bh.consume(result.getId());
+            bh.consume(result.getScore());
+            bh.consume(result.getContent());
+            bh.consume(result.getDocId());
+            bh.consume(result.getMetadata());
+        }
+    }
+}
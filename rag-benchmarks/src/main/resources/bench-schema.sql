@@ -0,0 +1,56 @@
+-- DocumentServiceBenchmark 使用的 H2 表结构（MySQL 兼容模式），与 Document 实体对应
+CREATE TABLE IF NOT EXISTS document (
+    id            VARCHAR(64)  PRIMARY KEY,
+    kb_id         VARCHAR(64),
+    name          VARCHAR(255),
+    type          VARCHAR(32),
+    size          BIGINT,
+    content_hash  VARCHAR(64),
+    storage_path  VARCHAR(512),
+    status        INT,
+    progress      INT,
+    chunk_count   INT,
+    user_id       BIGINT,
+    tenant_id     VARCHAR(64),
+    error_msg     VARCHAR(1024),
+    metadata      VARCHAR(4096),
+    deleted       INT DEFAULT 0,
+    create_time   TIMESTAMP,
+    update_time   TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_document_kb_time ON document (kb_id, create_time, id);
+
+CREATE TABLE IF NOT EXISTS chunk_embedding (
+    chunk_hash    VARCHAR(64)  NOT NULL,
+    model         VARCHAR(64)  NOT NULL,
+    dimension     INT,
+    embedding     VARBINARY(65536),
+    create_time   TIMESTAMP,
+    PRIMARY KEY (chunk_hash, model)
+);
+
+CREATE TABLE IF NOT EXISTS document_chunk (
+    id            BIGINT AUTO_INCREMENT PRIMARY KEY,
+    doc_id        VARCHAR(64),
+    kb_id         VARCHAR(64),
+    chunk_index   INT,
+    chunk_hash    VARCHAR(64),
+    vector_id     VARCHAR(64),
+    create_time   TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_document_chunk_vector ON document_chunk (vector_id);
+CREATE INDEX IF NOT EXISTS idx_document_chunk_doc ON document_chunk (doc_id);
+
+CREATE TABLE IF NOT EXISTS document_tombstone (
+    doc_id           VARCHAR(64)  PRIMARY KEY,
+    kb_id            VARCHAR(64),
+    name             VARCHAR(255),
+    attempts         INT,
+    next_retry_time  TIMESTAMP,
+    last_error       VARCHAR(1024),
+    create_time      TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_document_tombstone_retry ON document_tombstone (next_retry_time);
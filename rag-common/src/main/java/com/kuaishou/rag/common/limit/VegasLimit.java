@@ -0,0 +1,80 @@
+package com.kuaishou.rag.common.limit;
+
+/**
+ * 基于延迟的自适应并发上限（Vegas 风格），只负责计算上限，名额计数与排队由调用方维护
+ *
+ * 不设固定速率，而是根据观测到的延迟估计下游排队：
+ * - minRtt：窗口内最小延迟，近似无排队时的处理时间，每 rttWindowMs 重新取样，跟随下游的真实变化
+ * - queue = limit * (1 - minRtt / rtt)：当前上限下估计排队的请求数
+ * - queue < alpha：下游有余量，上限 +1（在途数接近上限一半以上时才增长，避免空闲期无限膨胀）；
+ *   queue > beta：下游开始排队，上限 -1；失败/超时时上限乘以 0.9
+ *
+ * 上限限制在 [minLimit, maxLimit] 内。线程安全；使用方：网关 AdaptiveLimiter、向量服务 AdmissionController
+ */
+public class VegasLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final int alpha;
+
+    private final int beta;
+
+    private final long rttWindowNanos;
+
+    private double limit;
+
+    private long minRttNanos = Long.MAX_VALUE;
+
+    private long windowMinRttNanos = Long.MAX_VALUE;
+
+    private long windowStart = System.nanoTime();
+
+    public VegasLimit(int initialLimit, int minLimit, int maxLimit, int alpha, int beta, long rttWindowMs) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.rttWindowNanos = rttWindowMs * 1_000_000;
+    }
+
+    /**
+     * 记录一次成功请求的延迟并调整上限
+     *
+     * @param rttNanos 请求耗时
+     * @param inflight 该请求完成时的在途请求数（含该请求）
+     */
+    public synchronized void onSample(long rttNanos, int inflight) {
+        long now = System.nanoTime();
+        windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+        minRttNanos = Math.min(minRttNanos, rttNanos);
+        if (now - windowStart > rttWindowNanos) {
+            // 新窗口：用上个窗口的最小值替换历史最小值，下游变慢/变快后基线随之更新
+            minRttNanos = windowMinRttNanos;
+            windowMinRttNanos = Long.MAX_VALUE;
+            windowStart = now;
+        }
+
+        double queue = limit * (1 - (double) minRttNanos / Math.max(rttNanos, 1));
+        if (queue < alpha) {
+            if (inflight >= limit / 2) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        } else if (queue > beta) {
+            limit = Math.max(minLimit, limit - 1);
+        }
+    }
+
+    /**
+     * 请求失败（5xx、超时、引擎错误），上限乘性下降
+     */
+    public synchronized void onDrop() {
+        limit = Math.max(minLimit, limit * 0.9);
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+}
@@ -0,0 +1,44 @@
+package com.kuaishou.rag.common.result;
+
+import lombok.Data;
+
+/**
+ * 统一接口响应
+ *
+ * code = 0 表示成功，其余为失败，message 为面向用户的提示
+ */
+@Data
+public class Result<T> {
+
+    public static final int SUCCESS = 0;
+    public static final int ERROR = 500;
+
+    private int code;
+
+    private String message;
+
+    private T data;
+
+    public boolean isSuccess() {
+        return code == SUCCESS;
+    }
+
+    public static <T> Result<T> success() {
+        return success(null);
+    }
+
+    public static <T> Result<T> success(T data) {
+        Result<T> result = new Result<>();
+        result.setCode(SUCCESS);
+        result.setMessage("success");
+        result.setData(data);
+        return result;
+    }
+
+    public static <T> Result<T> error(String message) {
+        Result<T> result = new Result<>();
+        result.setCode(ERROR);
+        result.setMessage(message);
+        return result;
+    }
+}
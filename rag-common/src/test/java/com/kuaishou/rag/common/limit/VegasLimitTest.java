@@ -0,0 +1,97 @@
+package com.kuaishou.rag.common.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * VegasLimit 测试：无排队且接近满载时增长、空闲不增长、排队时下降、失败乘性下降、上下限、基线按窗口更新
+ */
+class VegasLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void growsWhenNoQueueAndNearCapacity() {
+        VegasLimit limit = new VegasLimit(10, 2, 20, 3, 6, 60_000);
+
+        limit.onSample(FAST, 10);
+        limit.onSample(FAST, 10);
+
+        assertEquals(12, limit.getLimit());
+    }
+
+    @Test
+    void doesNotGrowWhenIdle() {
+        VegasLimit limit = new VegasLimit(10, 2, 20, 3, 6, 60_000);
+
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(FAST, 1);
+        }
+
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    void shrinksWhenQueueExceedsBeta() {
+        VegasLimit limit = new VegasLimit(10, 2, 20, 3, 6, 60_000);
+        limit.onSample(FAST, 1);
+
+        // queue = 10 * (1 - 10 / 100) = 9 > beta
+        limit.onSample(SLOW, 10);
+
+        assertEquals(9, limit.getLimit());
+    }
+
+    @Test
+    void keepsLimitBetweenAlphaAndBeta() {
+        VegasLimit limit = new VegasLimit(10, 2, 20, 3, 6, 60_000);
+        limit.onSample(FAST, 1);
+
+        // queue = 10 * (1 - 10 / 20) = 5
+        limit.onSample(2 * FAST, 10);
+
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    void dropIsMultiplicative() {
+        VegasLimit limit = new VegasLimit(100, 2, 200, 3, 6, 60_000);
+
+        limit.onDrop();
+        assertEquals(90, limit.getLimit());
+        limit.onDrop();
+        assertEquals(81, limit.getLimit());
+    }
+
+    @Test
+    void staysWithinBounds() {
+        VegasLimit limit = new VegasLimit(10, 4, 12, 3, 6, 60_000);
+
+        for (int i = 0; i < 50; i++) {
+            limit.onDrop();
+        }
+        assertEquals(4, limit.getLimit());
+
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(FAST, 12);
+        }
+        assertEquals(12, limit.getLimit());
+    }
+
+    @Test
+    void baselineFollowsDownstreamAfterWindow() throws InterruptedException {
+        VegasLimit limit = new VegasLimit(10, 2, 20, 3, 6, 0);
+        limit.onSample(FAST, 1);
+        Thread.sleep(1);
+
+        // 窗口已过期：最小延迟基线换成新窗口的取样，整体变慢不再被当作排队
+        limit.onSample(SLOW, 1);
+
+        assertEquals(10, limit.getLimit());
+    }
+}
@@ -1,8 +1,11 @@
 package com.kuaishou.rag.document;
 
+import com.kuaishou.rag.vector.config.VectorStoreConfiguration;
+import com.kuaishou.rag.vector.controller.CollectionMigrationController;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.context.annotation.Import;
 
 /**
  * 文档服务 - 处理文档上传、解析、分块、向量化全流程
@@ -12,9 +15,13 @@ import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
  * 2. 内容提取（PDF/DOCX/TXT等）
  * 3. 智能分块
  * 4. 调用 Embedding Service 生成向量
- * 5. 存储到 Milvus
+ * 5. 存储到 Milvus（复用 rag-vector-service 的 VectorStoreService）
+ *
+ * 向量存储只导入 VectorStoreConfiguration，不扫描 rag-vector-service 的 controller；
+ * 例外是 Collection 在线迁移接口：迁移须在负责写入、且提供 VectorTransform 的进程内发起，即本服务
  */
 @SpringBootApplication
+@Import({VectorStoreConfiguration.class, CollectionMigrationController.class})
 @EnableDiscoveryClient
 public class DocumentServiceApplication {
     public static void main(String[] args) {
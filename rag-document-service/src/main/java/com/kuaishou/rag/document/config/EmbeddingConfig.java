@@ -0,0 +1,127 @@
+package com.kuaishou.rag.document.config;
+
+import com.kuaishou.rag.document.embedding.EmbeddingClient;
+import com.kuaishou.rag.document.embedding.HashEmbeddingClient;
+import com.kuaishou.rag.document.embedding.HttpEmbeddingClient;
+import com.kuaishou.rag.document.embedding.MigratingEmbeddingClient;
+import com.kuaishou.rag.vector.migration.VectorTransform;
+import com.kuaishou.rag.vector.store.VectorStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Embedding 客户端配置
+ */
+@Slf4j
+@Configuration
+public class EmbeddingConfig {
+
+    /**
+     * http：调用 Embedding 服务；hash：进程内特征哈希（本地开发/压测）
+     */
+    @Value("${embedding.service.provider:http}")
+    private String provider;
+
+    @Value("${embedding.service.url:http://localhost:8082}")
+    private String url;
+
+    /**
+     * 模型标识，分块 embedding 缓存按模型隔离
+     */
+    @Value("${embedding.service.model:default}")
+    private String model;
+
+    /**
+     * 单次调用超时（毫秒）
+     */
+    @Value("${embedding.service.timeout:30000}")
+    private long timeoutMs;
+
+    @Value("${milvus.collection.dimension:1536}")
+    private int dimension;
+
+    /**
+     * 单次调用的文本数
+     */
+    @Value("${embedding.service.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 在线迁移目标模型的服务地址（更换模型 / 维度时使用）
+     */
+    @Value("${embedding.migration.url:${embedding.service.url:http://localhost:8082}}")
+    private String migrationUrl;
+
+    /**
+     * 在线迁移目标模型的向量维度
+     */
+    @Value("${embedding.migration.dimension:${milvus.collection.dimension:1536}}")
+    private int migrationDimension;
+
+    /**
+     * 在线迁移目标模型标识，须与 embedding.service.model 不同，切换后去重缓存不会复用原模型的 embedding
+     */
+    @Value("${embedding.migration.model:${embedding.service.model:default}-migration}")
+    private String migrationModel;
+
+    /**
+     * 分块写入的 Collection，迁移完成事件按该名称匹配
+     */
+    @Value("${milvus.collection.name:document_chunks}")
+    private String collectionName;
+
+    /**
+     * 开启在线迁移时，迁移切换到目标维度后写入改用目标模型（见 MigratingEmbeddingClient）
+     */
+    @Bean
+    public EmbeddingClient embeddingClient(WebClient.Builder webClientBuilder,
+                                           @Value("${embedding.migration.enabled:false}") boolean migrationEnabled,
+                                           VectorStore vectorStore) {
+        EmbeddingClient source = client(webClientBuilder, url, dimension, model);
+        if ("hash".equalsIgnoreCase(provider)) {
+            log.info("使用进程内哈希向量替身，维度: {}", dimension);
+        }
+        if (!migrationEnabled) {
+            return source;
+        }
+        return new MigratingEmbeddingClient(collectionName, source,
+            client(webClientBuilder, migrationUrl, migrationDimension, migrationModel), vectorStore);
+    }
+
+    /**
+     * 在线迁移时用目标模型对分块内容重新向量化（embedding.migration.enabled=true 时启用）
+     */
+    @Bean
+    @ConditionalOnProperty(name = "embedding.migration.enabled", havingValue = "true")
+    public VectorTransform migrationVectorTransform(WebClient.Builder webClientBuilder) {
+        EmbeddingClient target = client(webClientBuilder, migrationUrl, migrationDimension, migrationModel);
+        log.info("在线迁移重新向量化已启用，目标维度: {}", migrationDimension);
+        return rows -> {
+            List<String> contents = rows.getContents();
+            List<float[]> vectors = new ArrayList<>(contents.size());
+            for (int from = 0; from < contents.size(); from += batchSize) {
+                vectors.addAll(target.embed(contents.subList(from, Math.min(contents.size(), from + batchSize))));
+            }
+            return vectors;
+        };
+    }
+
+    private EmbeddingClient client(WebClient.Builder webClientBuilder, String baseUrl, int clientDimension,
+                                   String clientModel) {
+        if ("hash".equalsIgnoreCase(provider)) {
+            return new HashEmbeddingClient(clientDimension, clientModel);
+        }
+        return new HttpEmbeddingClient(webClientBuilder.clone().baseUrl(baseUrl)
+            // 单批 100 条 1536 维向量的响应约 2 MB，放宽默认 256 KB 限制
+            .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+            .build(), Duration.ofMillis(timeoutMs), clientDimension, clientModel);
+    }
+}
@@ -0,0 +1,69 @@
+package com.kuaishou.rag.document.config;
+
+import com.kuaishou.rag.document.storage.FileSystemObjectStorage;
+import com.kuaishou.rag.document.storage.MinioObjectStorage;
+import com.kuaishou.rag.document.storage.ObjectStorage;
+import io.minio.MinioClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * 对象存储配置
+ */
+@Slf4j
+@Configuration
+public class ObjectStorageConfig {
+
+    /**
+     * minio：MinIO / S3 兼容存储；filesystem：本地目录（开发/测试）
+     */
+    @Value("${storage.type:minio}")
+    private String type;
+
+    @Value("${minio.endpoint:http://localhost:9000}")
+    private String endpoint;
+
+    @Value("${minio.access-key:minioadmin}")
+    private String accessKey;
+
+    @Value("${minio.secret-key:minioadmin}")
+    private String secretKey;
+
+    @Value("${minio.bucket-name:rag-documents}")
+    private String bucketName;
+
+    /**
+     * 分片大小（字节），S3 协议要求不小于 5 MB；每个上传中的文件最多占用一个分片的内存
+     */
+    @Value("${storage.part-size:16777216}")
+    private long partSize;
+
+    /**
+     * 单个对象大小上限（字节）
+     */
+    @Value("${storage.max-object-size:2147483648}")
+    private long maxObjectSize;
+
+    @Value("${storage.filesystem.base-dir:./data/objects}")
+    private String baseDir;
+
+    @Bean
+    public ObjectStorage objectStorage() throws IOException {
+        if ("filesystem".equalsIgnoreCase(type)) {
+            log.info("使用本地文件系统对象存储: {}", baseDir);
+            return new FileSystemObjectStorage(Paths.get(baseDir), maxObjectSize);
+        }
+        MinioClient client = MinioClient.builder()
+            .endpoint(endpoint)
+            .credentials(accessKey, secretKey)
+            .build();
+        MinioObjectStorage storage = new MinioObjectStorage(client, bucketName, partSize, maxObjectSize);
+        storage.ensureBucket();
+        return storage;
+    }
+}
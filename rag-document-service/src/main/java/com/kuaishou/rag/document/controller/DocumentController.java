@@ -0,0 +1,112 @@
+package com.kuaishou.rag.document.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.kuaishou.rag.common.result.Result;
+import com.kuaishou.rag.document.dto.DocumentListRequest;
+import com.kuaishou.rag.document.dto.DocumentPage;
+import com.kuaishou.rag.document.entity.Document;
+import com.kuaishou.rag.document.service.DocumentService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * 文档接口
+ */
+@RestController
+@RequestMapping("/api/v1/documents")
+@RequiredArgsConstructor
+public class DocumentController {
+
+    private final DocumentService documentService;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 表单上传（multipart/form-data），文件由容器先落盘再读取，适合小文件
+     */
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Result<Document> upload(@RequestParam("file") MultipartFile file, @RequestParam("kbId") String kbId) {
+        return documentService.uploadDocument(file, kbId);
+    }
+
+    /**
+     * 流式上传：请求体即文件内容，直接按分片写入对象存储，不落本地盘、不占堆，适合大文件
+     *
+     * 示例：curl -X PUT -T big.pdf "http://host/api/v1/documents/stream?kbId=kb1&fileName=big.pdf"
+     */
+    @PutMapping("/stream")
+    public Result<Document> uploadStream(@RequestParam("kbId") String kbId,
+                                         @RequestParam("fileName") String fileName,
+                                         HttpServletRequest request) throws IOException {
+        try (InputStream input = request.getInputStream()) {
+            return documentService.uploadDocument(input, fileName, request.getContentType(), kbId);
+        }
+    }
+
+    /**
+     * 分页列表，示例：GET /api/v1/documents?kbId=kb1&limit=50&fields=name,status&cursor=...
+     */
+    @GetMapping
+    public Result<DocumentPage> list(@Valid DocumentListRequest request) {
+        return documentService.listByKbId(request);
+    }
+
+    /**
+     * 导出知识库下的全部文档，每行一个 JSON（NDJSON），边查边写
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public StreamingResponseBody export(@RequestParam("kbId") String kbId,
+                                        @RequestParam(value = "fields", required = false) List<String> fields) {
+        return output -> {
+            // 生成器自带缓冲，逐行写入但不逐行 flush
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                documentService.exportByKbId(kbId, fields, document -> {
+                    try {
+                        writer.writeValue(generator, document);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+    @DeleteMapping("/{docId}")
+    public Result<Void> delete(@PathVariable String docId) {
+        return documentService.deleteDocument(docId);
+    }
+
+    /**
+     * 批量删除，请求体为文档ID数组；向量与原始文件异步清理
+     */
+    @PostMapping("/batch-delete")
+    public Result<Integer> batchDelete(@RequestBody List<String> docIds) {
+        return documentService.deleteDocuments(docIds);
+    }
+
+    /**
+     * 删除知识库下的全部文档：DELETE /api/v1/documents?kbId=kb1
+     */
+    @DeleteMapping(params = "kbId")
+    public Result<Integer> deleteKnowledgeBase(@RequestParam("kbId") String kbId) {
+        return documentService.deleteKnowledgeBase(kbId);
+    }
+}
@@ -0,0 +1,215 @@
+package com.kuaishou.rag.document.dedup;
+
+import com.kuaishou.rag.document.entity.ChunkEmbedding;
+import com.kuaishou.rag.document.entity.DocumentChunk;
+import com.kuaishou.rag.document.mapper.ChunkEmbeddingMapper;
+import com.kuaishou.rag.document.mapper.DocumentChunkMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 分块级内容寻址去重
+ *
+ * 以规范化分块文本的 SHA-256 为键复用 embedding（chunk_embedding 表，按模型隔离）：
+ * 1. 任一文档/知识库用同一模型算过相同内容的 embedding 时直接复用，不再调用模型
+ * 2. 没有时才调用 Embedding 模型，结果写回 chunk_embedding
+ *
+ * 向量行不跨文档共用：每个分块写入本文档自己的一行（docId_分块序号），行上的 doc_id、chunk_index
+ * 始终是本文档的，引用、按 doc_id 过滤与删除都不受其他文档影响。向量写入远比模型调用便宜，
+ * 重新上传的文档只有新增/修改的分块会调用模型。document_chunk 记录每个分块所用的向量行。
+ * ingestion.dedup.enabled=false 时不查不写，行为与去重前一致。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChunkDeduplicator {
+
+    private final ChunkEmbeddingMapper embeddingMapper;
+
+    private final DocumentChunkMapper chunkMapper;
+
+    @Value("${ingestion.dedup.enabled:true}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 为一批分块查找可复用的 embedding
+     *
+     * @param texts     分块文本
+     * @param model     当前实际使用的模型（EmbeddingClient.active()），缓存按模型隔离；在线迁移切换模型后随之切换
+     * @param dimension 当前模型维度，维度不符的缓存不使用
+     */
+    public Resolution resolve(List<String> texts, String model, int dimension) {
+        List<String> hashes = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            hashes.add(ChunkHashes.hash(text));
+        }
+        Resolution resolution = new Resolution(hashes, model, enabled);
+        if (!enabled) {
+            return resolution;
+        }
+
+        Map<String, float[]> embeddings = new HashMap<>();
+        for (ChunkEmbedding cached : embeddingMapper.selectByHashes(model, new LinkedHashSet<>(hashes))) {
+            if (cached.getDimension() != null && cached.getDimension() == dimension) {
+                embeddings.put(cached.getChunkHash(), ChunkHashes.decode(cached.getEmbedding()));
+            }
+        }
+        for (int i = 0; i < hashes.size(); i++) {
+            resolution.embeddings[i] = embeddings.get(hashes.get(i));
+        }
+        return resolution;
+    }
+
+    /**
+     * 保存新算出的 embedding 供后续复用
+     *
+     * @param indices {@link Resolution#toEmbed()} 返回的下标
+     */
+    public void saveEmbeddings(Resolution resolution, List<Integer> indices) {
+        if (!enabled || indices.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<ChunkEmbedding> rows = new ArrayList<>(indices.size());
+        for (Integer index : indices) {
+            float[] vector = resolution.embeddings[index];
+            ChunkEmbedding row = new ChunkEmbedding();
+            row.setChunkHash(resolution.hashes.get(index));
+            row.setModel(resolution.model);
+            row.setDimension(vector.length);
+            row.setEmbedding(ChunkHashes.encode(vector));
+            row.setCreateTime(now);
+            rows.add(row);
+        }
+        embeddingMapper.insertIgnoreBatch(rows);
+    }
+
+    /**
+     * 记录文档各分块所用的向量行，向量写入成功后调用
+     *
+     * @param offset 批内第一个分块在文档中的序号
+     */
+    public void recordChunks(String docId, String kbId, int offset, Resolution resolution) {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<DocumentChunk> rows = new ArrayList<>(resolution.size());
+        for (int i = 0; i < resolution.size(); i++) {
+            DocumentChunk row = new DocumentChunk();
+            row.setDocId(docId);
+            row.setKbId(kbId);
+            row.setChunkIndex(offset + i);
+            row.setChunkHash(resolution.hashes.get(i));
+            row.setVectorId(resolution.vectorIds[i]);
+            row.setCreateTime(now);
+            rows.add(row);
+        }
+        chunkMapper.insertBatch(rows);
+    }
+
+    /**
+     * 删除文档的分块记录（入库中途文档被删除时）
+     */
+    public void deleteChunks(String docId) {
+        chunkMapper.deleteByDocIds(List.of(docId));
+    }
+
+    /**
+     * 一批分块的去重结果
+     *
+     * 由 embed 阶段补全 embedding、insert 阶段分配向量行 ID，两阶段之间经队列交接，不并发访问
+     */
+    public static final class Resolution {
+
+        private final List<String> hashes;
+
+        /**
+         * 查找缓存时的模型，新算出的 embedding 按同一模型写回
+         */
+        private final String model;
+
+        private final String[] vectorIds;
+
+        private final float[][] embeddings;
+
+        /**
+         * 关闭去重时批内相同内容也各自 embedding
+         */
+        private final boolean dedup;
+
+        private Resolution(List<String> hashes, String model, boolean dedup) {
+            this.hashes = hashes;
+            this.model = model;
+            this.dedup = dedup;
+            this.vectorIds = new String[hashes.size()];
+            this.embeddings = new float[hashes.size()][];
+        }
+
+        public int size() {
+            return hashes.size();
+        }
+
+        /**
+         * 需要调用 Embedding 模型的分块下标：没有缓存的 embedding，批内内容相同的分块只取第一个
+         */
+        public List<Integer> toEmbed() {
+            List<Integer> indices = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < hashes.size(); i++) {
+                if (embeddings[i] == null && (!dedup || seen.add(hashes.get(i)))) {
+                    indices.add(i);
+                }
+            }
+            return indices;
+        }
+
+        /**
+         * 填入模型返回的 embedding，批内内容相同的分块一并填入
+         *
+         * @param indices {@link #toEmbed()} 返回的下标
+         * @param vectors 与 indices 一一对应的向量
+         */
+        public void fill(List<Integer> indices, List<float[]> vectors) {
+            Map<String, float[]> byHash = new HashMap<>();
+            for (int i = 0; i < indices.size(); i++) {
+                embeddings[indices.get(i)] = vectors.get(i);
+                byHash.put(hashes.get(indices.get(i)), vectors.get(i));
+            }
+            for (int i = 0; i < hashes.size(); i++) {
+                if (embeddings[i] == null) {
+                    embeddings[i] = byHash.get(hashes.get(i));
+                }
+            }
+        }
+
+        /**
+         * 为每个分块分配本文档的向量行 ID（docId_分块序号）；内容相同的分块也各自成行，
+         * 行上的 chunk_index 与引用位置一致
+         *
+         * @param offset 批内第一个分块在文档中的序号
+         */
+        public void assignVectorIds(String docId, int offset) {
+            for (int i = 0; i < hashes.size(); i++) {
+                vectorIds[i] = docId + "_" + (offset + i);
+            }
+        }
+
+        public String vectorId(int index) {
+            return vectorIds[index];
+        }
+
+        public float[] embedding(int index) {
+            return embeddings[index];
+        }
+    }
+}
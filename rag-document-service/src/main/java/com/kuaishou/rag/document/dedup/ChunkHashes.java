@@ -0,0 +1,57 @@
+package com.kuaishou.rag.document.dedup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * 分块内容哈希与 embedding 编解码
+ */
+public final class ChunkHashes {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private ChunkHashes() {
+    }
+
+    /**
+     * 规范化：NFKC（全角/半角、兼容字符统一），连续空白合并为一个空格，去掉首尾空白。
+     * 只改变排版差异，不改大小写和标点，规范化后相同的文本 embedding 视为相同
+     */
+    public static String normalize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(normalized).replaceAll(" ").strip();
+    }
+
+    /**
+     * 规范化文本的 SHA-256（十六进制，64 字符）
+     */
+    public static String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalize(text).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * float[] 编码为 float32 小端序字节
+     */
+    public static byte[] encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    public static float[] decode(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
@@ -0,0 +1,87 @@
+package com.kuaishou.rag.document.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文档列表请求 DTO
+ *
+ * 按 (create_time DESC, id DESC) 游标分页，走 (kb_id, create_time, id) 索引，翻页代价与页码无关
+ */
+@Data
+public class DocumentListRequest {
+
+    /**
+     * 支持投影的列
+     */
+    public static final List<String> PROJECTABLE_FIELDS = List.of(
+        "id", "kb_id", "name", "type", "size", "content_hash", "storage_path", "status", "progress",
+        "chunk_count", "user_id", "tenant_id", "error_msg", "metadata", "create_time", "update_time");
+
+    /**
+     * 未指定输出列时的默认列：不含 metadata / error_msg / storage_path 等大字段
+     */
+    public static final List<String> DEFAULT_FIELDS = List.of(
+        "id", "kb_id", "name", "type", "size", "status", "progress", "chunk_count", "create_time", "update_time");
+
+    /**
+     * 每页最大条数
+     */
+    public static final int MAX_LIMIT = 200;
+
+    /**
+     * 游标字段，总是输出
+     */
+    private static final List<String> CURSOR_FIELDS = List.of("id", "create_time");
+
+    /**
+     * 知识库ID（必须）
+     */
+    @NotBlank(message = "kbId 不能为空")
+    private String kbId;
+
+    /**
+     * 上一页返回的 nextCursor，为空时从最新的文档开始
+     */
+    private String cursor;
+
+    /**
+     * 每页条数，默认 20，最大 200
+     */
+    @Min(value = 1, message = "limit 至少为 1")
+    @Max(value = MAX_LIMIT, message = "limit 最大为 200")
+    private Integer limit = 20;
+
+    /**
+     * 输出列（可选），可选值见 PROJECTABLE_FIELDS
+     * 为空时输出 DEFAULT_FIELDS；id 与 create_time 用于生成游标，总是输出
+     */
+    private List<String> fields;
+
+    /**
+     * 实际每页条数，限制在 [1, MAX_LIMIT]
+     */
+    public int resolveLimit() {
+        return limit == null ? 20 : Math.max(1, Math.min(MAX_LIMIT, limit));
+    }
+
+    /**
+     * 实际查询的列
+     */
+    public List<String> resolveFields() {
+        if (fields == null || fields.isEmpty()) {
+            return DEFAULT_FIELDS;
+        }
+        List<String> resolved = new ArrayList<>(CURSOR_FIELDS);
+        fields.stream()
+            .filter(PROJECTABLE_FIELDS::contains)
+            .filter(field -> !resolved.contains(field))
+            .forEach(resolved::add);
+        return resolved;
+    }
+}
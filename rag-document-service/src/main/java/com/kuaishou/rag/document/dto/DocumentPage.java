@@ -0,0 +1,27 @@
+package com.kuaishou.rag.document.dto;
+
+import com.kuaishou.rag.document.entity.Document;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 文档列表分页结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentPage {
+
+    /**
+     * 本页文档，只填充请求的列
+     */
+    private List<Document> items;
+
+    /**
+     * 下一页游标，没有更多数据时为 null
+     */
+    private String nextCursor;
+}
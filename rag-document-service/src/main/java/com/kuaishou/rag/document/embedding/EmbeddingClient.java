@@ -0,0 +1,40 @@
+package com.kuaishou.rag.document.embedding;
+
+import java.util.List;
+
+/**
+ * 文本向量化客户端
+ *
+ * 实现：
+ * - HttpEmbeddingClient：调用 Embedding 服务（默认）
+ * - HashEmbeddingClient：进程内特征哈希向量，本地开发/压测用，不依赖外部服务
+ *
+ * 由 embedding.service.provider 选择（http / hash）
+ */
+public interface EmbeddingClient {
+
+    /**
+     * 批量向量化
+     *
+     * @return 与 texts 顺序一一对应的向量
+     */
+    List<float[]> embed(List<String> texts);
+
+    /**
+     * 向量维度
+     */
+    int dimension();
+
+    /**
+     * 模型标识，分块 embedding 缓存按模型隔离
+     */
+    String model();
+
+    /**
+     * 当前实际使用的客户端；会切换模型的实现（MigratingEmbeddingClient）返回切换时刻的快照，
+     * 调用方一批内的 model / dimension / embed 都取自同一个快照，不会跨越切换混用两个模型
+     */
+    default EmbeddingClient active() {
+        return this;
+    }
+}
@@ -0,0 +1,63 @@
+package com.kuaishou.rag.document.embedding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 进程内特征哈希向量（本地替身）
+ *
+ * 按字符二元组做特征哈希并归一化：相同文本得到相同向量，字面相近的文本余弦相似度较高。
+ * 不具备语义能力，只用于本地开发、联调和压测。
+ */
+public class HashEmbeddingClient implements EmbeddingClient {
+
+    private final int dimension;
+
+    private final String model;
+
+    public HashEmbeddingClient(int dimension, String model) {
+        this.dimension = dimension;
+        this.model = model;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embed(text));
+        }
+        return vectors;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    private float[] embed(String text) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i + 1 < text.length(); i++) {
+            int hash = text.charAt(i) * 31 + text.charAt(i + 1);
+            hash ^= hash >>> 7;
+            hash *= 0x9E3779B1;
+            int index = Math.floorMod(hash, dimension);
+            vector[index] += (hash & 1) == 0 ? 1 : -1;
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dimension; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+}
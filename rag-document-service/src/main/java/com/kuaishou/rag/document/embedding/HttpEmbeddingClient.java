@@ -0,0 +1,63 @@
+package com.kuaishou.rag.document.embedding;
+
+import lombok.Data;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 调用 Embedding 服务的客户端
+ *
+ * POST {url}/api/v1/embeddings，请求 {"texts": [...]}，响应 {"embeddings": [[...], ...]}
+ */
+public class HttpEmbeddingClient implements EmbeddingClient {
+
+    private final WebClient webClient;
+
+    private final Duration timeout;
+
+    private final int dimension;
+
+    private final String model;
+
+    public HttpEmbeddingClient(WebClient webClient, Duration timeout, int dimension, String model) {
+        this.webClient = webClient;
+        this.timeout = timeout;
+        this.dimension = dimension;
+        this.model = model;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        EmbeddingResponse response = webClient.post()
+            .uri("/api/v1/embeddings")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(Map.of("texts", texts))
+            .retrieve()
+            .bodyToMono(EmbeddingResponse.class)
+            .block(timeout);
+        if (response == null || response.getEmbeddings() == null || response.getEmbeddings().size() != texts.size()) {
+            throw new IllegalStateException("Embedding 服务返回数量与请求不一致");
+        }
+        return response.getEmbeddings();
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    @Data
+    static class EmbeddingResponse {
+
+        private List<float[]> embeddings;
+    }
+}
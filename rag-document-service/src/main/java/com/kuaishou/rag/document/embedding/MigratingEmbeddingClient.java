@@ -0,0 +1,82 @@
+package com.kuaishou.rag.document.embedding;
+
+import com.kuaishou.rag.vector.migration.CollectionMigratedEvent;
+import com.kuaishou.rag.vector.store.VectorStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.util.List;
+
+/**
+ * 随 Collection 在线迁移切换模型的 EmbeddingClient（embedding.migration.enabled=true 时使用）
+ *
+ * 迁移把别名切换到目标模型维度的 Collection 后，继续用原模型写入会因维度不符失败：
+ * - 本进程发起的迁移完成时（CollectionMigratedEvent），新维度与目标模型一致则改用目标模型
+ * - 启动时按 Collection 现有向量的维度选择，迁移后重启（配置尚未改为目标模型）或迁移由其他实例完成时也能对上
+ */
+@Slf4j
+public class MigratingEmbeddingClient implements EmbeddingClient {
+
+    private final String collectionName;
+
+    private final EmbeddingClient target;
+
+    private final VectorStore vectorStore;
+
+    private volatile EmbeddingClient current;
+
+    public MigratingEmbeddingClient(String collectionName, EmbeddingClient source, EmbeddingClient target,
+                                    VectorStore vectorStore) {
+        this.collectionName = collectionName;
+        this.target = target;
+        this.vectorStore = vectorStore;
+        this.current = source;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        return current.embed(texts);
+    }
+
+    @Override
+    public int dimension() {
+        return current.dimension();
+    }
+
+    @Override
+    public String model() {
+        return current.model();
+    }
+
+    @Override
+    public EmbeddingClient active() {
+        return current;
+    }
+
+    @EventListener
+    public void onMigrated(CollectionMigratedEvent event) {
+        if (collectionName.equals(event.collection()) && event.dimension() == target.dimension()) {
+            switchToTarget("迁移完成，别名已指向 " + event.target());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void detect() {
+        if (current == target) {
+            return;
+        }
+        try {
+            if (vectorStore.dimension(collectionName) == target.dimension()) {
+                switchToTarget("Collection 现有向量已是目标维度");
+            }
+        } catch (Exception e) {
+            log.warn("读取 Collection {} 的向量维度失败，继续使用原模型: {}", collectionName, e.getMessage());
+        }
+    }
+
+    private void switchToTarget(String reason) {
+        current = target;
+        log.info("{}，向量化改用迁移目标模型，维度: {}（请将 embedding.service 配置改为目标模型）", reason, target.dimension());
+    }
+}
@@ -0,0 +1,41 @@
+package com.kuaishou.rag.document.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 分块 embedding 缓存
+ *
+ * 以规范化分块文本的 SHA-256 为键，跨文档、跨知识库复用，主键为 (chunk_hash, model)
+ */
+@Data
+@TableName("chunk_embedding")
+public class ChunkEmbedding {
+
+    /**
+     * 规范化分块文本的 SHA-256（十六进制）
+     */
+    private String chunkHash;
+
+    /**
+     * Embedding 模型标识，更换模型后旧缓存自然失效
+     */
+    private String model;
+
+    /**
+     * 向量维度
+     */
+    private Integer dimension;
+
+    /**
+     * 向量，float32 小端序
+     */
+    private byte[] embedding;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+}
@@ -2,6 +2,7 @@ package com.kuaishou.rag.document.entity;
 
 import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableLogic;
 import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.Data;
 
@@ -16,70 +17,112 @@ import java.time.LocalDateTime;
  * 3. 考虑分库分表策略（按 user_id 或 tenant_id）
  */
 @Data
-@TableName("documents")
+@TableName("document")
 public class Document {
-    
-    @TableId(type = IdType.ASSIGN_ID)
-    private Long id;
-    
+
+    /**
+     * 状态：待处理
+     */
+    public static final int STATUS_PENDING = 0;
+
+    /**
+     * 状态：处理中（解析/分块/向量化）
+     */
+    public static final int STATUS_PROCESSING = 1;
+
+    /**
+     * 状态：已完成
+     */
+    public static final int STATUS_COMPLETED = 2;
+
+    /**
+     * 状态：失败
+     */
+    public static final int STATUS_FAILED = 3;
+
     /**
      * 文档唯一标识
      */
-    private String docId;
-    
+    @TableId(type = IdType.INPUT)
+    private String id;
+
+    /**
+     * 所属知识库ID
+     */
+    private String kbId;
+
     /**
      * 文档名称
      */
-    private String docName;
-    
+    private String name;
+
     /**
      * 文档类型：pdf/doc/docx/txt/md
      */
-    private String docType;
-    
+    private String type;
+
+    /**
+     * 文档大小（字节）
+     */
+    private Long size;
+
+    /**
+     * 文件内容 SHA-256（上传时流式计算）
+     */
+    private String contentHash;
+
     /**
      * 存储路径
-     * TODO: 对接对象存储（S3/MinIO/KS3）
-     * 格式：s3://bucket/path/to/file.pdf
+     * 格式：minio://bucket/docs/{kbId}/{docId}/{文件名}，本地存储为 file:///path
      */
     private String storagePath;
-    
+
     /**
-     * 文档大小（字节）
+     * 文档状态，见 STATUS_* 常量
+     */
+    private Integer status;
+
+    /**
+     * 处理进度（0-100）
      */
-    private Long fileSize;
-    
+    private Integer progress;
+
     /**
-     * 文档状态
-     * pending/processing/completed/failed
+     * 分块数
      */
-    private String status;
-    
+    private Integer chunkCount;
+
     /**
      * 所属用户/租户
      * TODO: 多租户隔离
      */
     private Long userId;
     private String tenantId;
-    
+
     /**
      * 处理错误信息
      */
     private String errorMsg;
-    
+
     /**
      * 元数据 JSON
      * TODO: 使用 JSON 类型字段
      */
     private String metadata;
-    
+
+    /**
+     * 逻辑删除标记
+     */
+    @TableLogic
+    private Integer deleted;
+
     /**
      * 创建时间
      */
-    private LocalDateTime createdAt;
-    
+    private LocalDateTime createTime;
+
     /**
      * 更新时间
      */
-    private LocalDateTime updatedAt;
+    private LocalDateTime updateTime;
 }
@@ -0,0 +1,52 @@
+package com.kuaishou.rag.document.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文档分块与向量行的对应关系
+ *
+ * 每个分块对应本文档自己的向量行（docId_分块序号）。早期版本在知识库内共用内容相同的向量行，
+ * 历史数据里 vector_id 可能指向其他文档的行，删除文档时仍只删除不再被其他文档引用的向量行。
+ */
+@Data
+@TableName("document_chunk")
+public class DocumentChunk {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 文档ID
+     */
+    private String docId;
+
+    /**
+     * 知识库ID
+     */
+    private String kbId;
+
+    /**
+     * 分块序号
+     */
+    private Integer chunkIndex;
+
+    /**
+     * 规范化分块文本的 SHA-256（十六进制）
+     */
+    private String chunkHash;
+
+    /**
+     * 向量库中的行 ID
+     */
+    private String vectorId;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,54 @@
+package com.kuaishou.rag.document.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 已删除文档的待清理记录
+ *
+ * 与文档逻辑删除在同一事务中写入，向量与对象存储由 DocumentCleanupReconciler 异步清理，清理完成后删除本记录
+ */
+@Data
+@TableName("document_tombstone")
+public class DocumentTombstone {
+
+    /**
+     * 文档ID
+     */
+    @TableId(type = IdType.INPUT)
+    private String docId;
+
+    /**
+     * 所属知识库ID
+     */
+    private String kbId;
+
+    /**
+     * 文档名称（用于还原对象名）
+     */
+    private String name;
+
+    /**
+     * 已失败的清理次数
+     */
+    private Integer attempts;
+
+    /**
+     * 下次清理时间，失败后按指数退避推迟
+     */
+    private LocalDateTime nextRetryTime;
+
+    /**
+     * 最近一次清理失败原因
+     */
+    private String lastError;
+
+    /**
+     * 删除时间
+     */
+    private LocalDateTime createTime;
+}
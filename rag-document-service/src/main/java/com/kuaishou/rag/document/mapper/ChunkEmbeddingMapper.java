@@ -0,0 +1,38 @@
+package com.kuaishou.rag.document.mapper;
+
+import com.kuaishou.rag.document.entity.ChunkEmbedding;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 分块 embedding 缓存数据访问层
+ */
+@Mapper
+public interface ChunkEmbeddingMapper {
+
+    /**
+     * 按内容哈希批量查询指定模型的 embedding
+     */
+    @Select({"<script>",
+        "SELECT chunk_hash, model, dimension, embedding FROM chunk_embedding",
+        "WHERE model = #{model} AND chunk_hash IN",
+        "<foreach collection='hashes' item='hash' open='(' separator=',' close=')'>#{hash}</foreach>",
+        "</script>"})
+    List<ChunkEmbedding> selectByHashes(@Param("model") String model, @Param("hashes") Collection<String> hashes);
+
+    /**
+     * 批量写入，已存在的 (chunk_hash, model) 忽略（并发入库相同内容时不报错）
+     */
+    @Insert({"<script>",
+        "INSERT IGNORE INTO chunk_embedding (chunk_hash, model, dimension, embedding, create_time) VALUES",
+        "<foreach collection='embeddings' item='e' separator=','>",
+        "(#{e.chunkHash}, #{e.model}, #{e.dimension}, #{e.embedding}, #{e.createTime})",
+        "</foreach>",
+        "</script>"})
+    int insertIgnoreBatch(@Param("embeddings") List<ChunkEmbedding> embeddings);
+}
@@ -0,0 +1,45 @@
+package com.kuaishou.rag.document.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.kuaishou.rag.document.entity.DocumentChunk;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 文档分块数据访问层
+ */
+@Mapper
+public interface DocumentChunkMapper extends BaseMapper<DocumentChunk> {
+
+    /**
+     * 批量写入
+     */
+    @Insert({"<script>",
+        "INSERT INTO document_chunk (doc_id, kb_id, chunk_index, chunk_hash, vector_id, create_time) VALUES",
+        "<foreach collection='chunks' item='c' separator=','>",
+        "(#{c.docId}, #{c.kbId}, #{c.chunkIndex}, #{c.chunkHash}, #{c.vectorId}, #{c.createTime})",
+        "</foreach>",
+        "</script>"})
+    int insertBatch(@Param("chunks") List<DocumentChunk> chunks);
+
+    /**
+     * 文档的分块（只取 doc_id / vector_id）
+     */
+    @Select({"<script>",
+        "SELECT doc_id, vector_id FROM document_chunk WHERE doc_id IN",
+        "<foreach collection='docIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+        "</script>"})
+    List<DocumentChunk> selectByDocIds(@Param("docIds") Collection<String> docIds);
+
+    @Delete({"<script>",
+        "DELETE FROM document_chunk WHERE doc_id IN",
+        "<foreach collection='docIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+        "</script>"})
+    int deleteByDocIds(@Param("docIds") Collection<String> docIds);
+}
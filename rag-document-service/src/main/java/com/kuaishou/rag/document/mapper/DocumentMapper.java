@@ -3,7 +3,12 @@ package com.kuaishou.rag.document.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.kuaishou.rag.document.entity.Document;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.util.List;
 
@@ -19,14 +24,19 @@ import java.util.List;
 public interface DocumentMapper extends BaseMapper<Document> {
 
     /**
-     * 根据知识库ID查询文档列表
+     * 流式读取知识库下的全部文档（导出用），逐行交给 handler，不在内存中组装列表
+     *
+     * columns 只能来自 DocumentListRequest.PROJECTABLE_FIELDS；MySQL 需在连接串开启 useCursorFetch，
+     * 按 fetchSize 分批从服务端拉取
      */
-    @Select("SELECT * FROM document WHERE kb_id = #{kbId} AND deleted = 0 ORDER BY create_time DESC")
-    List<Document> selectByKbId(String kbId);
+    @Select("SELECT ${columns} FROM document WHERE kb_id = #{kbId} AND deleted = 0 ORDER BY create_time DESC, id DESC")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    @ResultType(Document.class)
+    void streamByKbId(@Param("kbId") String kbId, @Param("columns") String columns, ResultHandler<Document> handler);
 
     /**
      * 根据状态查询待处理的文档
      */
     @Select("SELECT * FROM document WHERE status = #{status} AND deleted = 0 LIMIT #{limit}")
-    List<Document> selectByStatusWithLimit(String status, Integer limit);
+    List<Document> selectByStatusWithLimit(Integer status, Integer limit);
 }
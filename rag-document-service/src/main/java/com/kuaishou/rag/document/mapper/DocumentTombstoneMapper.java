@@ -0,0 +1,38 @@
+package com.kuaishou.rag.document.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.kuaishou.rag.document.entity.DocumentTombstone;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 文档清理记录数据访问层
+ *
+ * 写入均为 INSERT ... SELECT：只为未删除的文档生成记录，重复删除时忽略
+ */
+@Mapper
+public interface DocumentTombstoneMapper extends BaseMapper<DocumentTombstone> {
+
+    @Insert({"<script>",
+        "INSERT IGNORE INTO document_tombstone (doc_id, kb_id, name, attempts, next_retry_time, create_time)",
+        "SELECT id, kb_id, name, 0, #{now}, #{now} FROM document WHERE deleted = 0 AND id IN",
+        "<foreach collection='docIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+        "</script>"})
+    int insertByDocIds(@Param("docIds") Collection<String> docIds, @Param("now") LocalDateTime now);
+
+    @Insert("INSERT IGNORE INTO document_tombstone (doc_id, kb_id, name, attempts, next_retry_time, create_time) "
+        + "SELECT id, kb_id, name, 0, #{now}, #{now} FROM document WHERE kb_id = #{kbId} AND deleted = 0")
+    int insertByKbId(@Param("kbId") String kbId, @Param("now") LocalDateTime now);
+
+    /**
+     * 到期待清理的记录，走 next_retry_time 索引
+     */
+    @Select("SELECT * FROM document_tombstone WHERE next_retry_time <= #{now} ORDER BY next_retry_time LIMIT #{limit}")
+    List<DocumentTombstone> selectDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -0,0 +1,95 @@
+package com.kuaishou.rag.document.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * SQL 指标（MyBatis 插件，由 mybatis-plus-boot-starter 自动注册）
+ *
+ * 每个 Mapper 方法：
+ * - document.db.statement：执行耗时，标签 statement（Mapper.方法）、command（SELECT/INSERT/UPDATE/DELETE）、outcome
+ * - document.db.rows：查询返回行数 / 更新影响行数；流式查询（ResultHandler）逐行交给调用方，不计行数
+ *
+ * 计时包含 JDBC 执行与结果映射，不含事务提交
+ */
+@Component
+@RequiredArgsConstructor
+@Intercepts({
+    @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+    @Signature(type = Executor.class, method = "query",
+        args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+    @Signature(type = Executor.class, method = "query",
+        args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
+})
+public class SqlMetricsInterceptor implements Interceptor {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        Tags tags = Tags.of("statement", shortId(statement.getId()),
+            "command", statement.getSqlCommandType().name());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean success = false;
+        try {
+            Object result = invocation.proceed();
+            success = true;
+            recordRows(invocation, tags, result);
+            return result;
+        } finally {
+            sample.stop(Timer.builder("document.db.statement")
+                .tags(tags.and("outcome", success ? "success" : "failure"))
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry));
+        }
+    }
+
+    private void recordRows(Invocation invocation, Tags tags, Object result) {
+        Object[] args = invocation.getArgs();
+        boolean streaming = args.length > 3 && args[3] != Executor.NO_RESULT_HANDLER;
+        double rows;
+        if (result instanceof List<?> list && !streaming) {
+            rows = list.size();
+        } else if (result instanceof Integer count) {
+            rows = count;
+        } else {
+            return;
+        }
+        DistributionSummary.builder("document.db.rows")
+            .tags(tags)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(1.0)
+            .maximumExpectedValue(100_000.0)
+            .register(meterRegistry)
+            .record(rows);
+    }
+
+    /**
+     * com.kuaishou.rag.document.mapper.DocumentMapper.selectList -> DocumentMapper.selectList
+     */
+    private static String shortId(String id) {
+        int method = id.lastIndexOf('.');
+        int type = method > 0 ? id.lastIndexOf('.', method - 1) : -1;
+        return id.substring(type + 1);
+    }
+}
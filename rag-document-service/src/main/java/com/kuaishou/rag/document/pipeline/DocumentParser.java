@@ -0,0 +1,39 @@
+package com.kuaishou.rag.document.pipeline;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.tika.Tika;
+import org.apache.tika.exception.TikaException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 文档内容提取（Tika 自动识别 PDF/DOCX/TXT 等格式）
+ */
+@Component
+public class DocumentParser {
+
+    /**
+     * 单个文档最多提取的字符数，超出部分截断，限制单文档内存占用
+     */
+    @Value("${ingestion.parse.max-chars:10000000}")
+    private int maxChars;
+
+    private Tika tika;
+
+    @PostConstruct
+    public void init() {
+        tika = new Tika();
+        tika.setMaxStringLength(maxChars);
+    }
+
+    public String parse(InputStream input) throws IOException {
+        try {
+            return tika.parseToString(input);
+        } catch (TikaException e) {
+            throw new IOException("文档解析失败: " + e.getMessage(), e);
+        }
+    }
+}
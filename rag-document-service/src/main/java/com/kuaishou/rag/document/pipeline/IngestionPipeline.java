@@ -0,0 +1,412 @@
+package com.kuaishou.rag.document.pipeline;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kuaishou.rag.document.dedup.ChunkDeduplicator;
+import com.kuaishou.rag.document.embedding.EmbeddingClient;
+import com.kuaishou.rag.document.entity.Document;
+import com.kuaishou.rag.document.mapper.DocumentMapper;
+import com.kuaishou.rag.document.storage.ObjectStorage;
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.dto.InsertResponse;
+import com.kuaishou.rag.vector.service.VectorStoreService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 文档入库流水线
+ *
+ * parse → chunk → embed（按批）→ batchInsert，各阶段独立的有界队列与并行度：
+ * 1. parse：从对象存储流式读取并用 Tika 提取文本（I/O，可用虚拟线程）
+ * 2. chunk：分块并按 embedding 批大小拆成批次（CPU，平台线程）
+ * 3. embed：按内容哈希去重后调用 Embedding 服务（I/O，可用虚拟线程）
+ * 4. insert：每个分块写入本文档自己的向量行（I/O，可用虚拟线程）
+ *
+ * 去重见 ChunkDeduplicator：缓存过 embedding 的分块不再调用模型，只写向量行。
+ *
+ * 任一队列满时上游阻塞，内存占用上限由各队列容量决定；提交方在入口队列满时最多等待 submit-timeout-ms。
+ * 入库中途被删除的文档：写入前发现已删除则停止；写入后再检查一次，删除期间写入的向量行与分块记录由本流水线删掉，
+ * 不依赖已可能结束的后台清理。
+ * 每个批次写入后通过 ProgressListener 回写进度，全部批次成功后文档置为已完成，任一批次失败
+ * （包括阶段内未捕获的异常）则置为失败。进程退出时仍在处理中的文档由 IngestionRecovery 在启动时重新入队。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IngestionPipeline {
+
+    private final ObjectStorage objectStorage;
+
+    private final DocumentParser parser;
+
+    private final TextChunker chunker;
+
+    private final EmbeddingClient embeddingClient;
+
+    private final ChunkDeduplicator deduplicator;
+
+    private final VectorStoreService vectorStoreService;
+
+    private final DocumentMapper documentMapper;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 分块写入的 Collection
+     */
+    @Value("${milvus.collection.name:document_chunks}")
+    private String collectionName;
+
+    /**
+     * 单次 Embedding 调用的文本数
+     */
+    @Value("${embedding.service.batch-size:100}")
+    private int embedBatchSize;
+
+    /**
+     * 入口队列容量（文档数）
+     */
+    @Value("${ingestion.queue-capacity:256}")
+    private int queueCapacity;
+
+    /**
+     * 阶段间队列容量（文档数 / 批次数）
+     */
+    @Value("${ingestion.stage-capacity:64}")
+    private int stageCapacity;
+
+    @Value("${ingestion.parallelism.parse:4}")
+    private int parseParallelism;
+
+    @Value("${ingestion.parallelism.chunk:2}")
+    private int chunkParallelism;
+
+    @Value("${ingestion.parallelism.embed:8}")
+    private int embedParallelism;
+
+    @Value("${ingestion.parallelism.insert:4}")
+    private int insertParallelism;
+
+    /**
+     * I/O 阶段是否使用虚拟线程（需 JDK 21+，否则回退为平台线程）
+     */
+    @Value("${ingestion.virtual-threads:true}")
+    private boolean virtualThreads;
+
+    /**
+     * 入口队列满时提交方最长等待时间（毫秒）
+     */
+    @Value("${ingestion.submit-timeout-ms:30000}")
+    private long submitTimeoutMs;
+
+    private final AtomicBoolean collectionReady = new AtomicBoolean();
+
+    private PipelineStage<IngestionTask> parseStage;
+
+    private PipelineStage<ParsedDocument> chunkStage;
+
+    private PipelineStage<EmbedBatch> embedStage;
+
+    private PipelineStage<EmbedBatch> insertStage;
+
+    @PostConstruct
+    public void init() {
+        // 下游先启动；阶段内未捕获的异常把文档置为失败，避免停留在处理中
+        insertStage = new PipelineStage<>("insert", stageCapacity, insertParallelism, virtualThreads, this::insert,
+            (batch, e) -> fail(batch.progress(), "向量写入失败: " + e.getMessage()));
+        embedStage = new PipelineStage<>("embed", stageCapacity, embedParallelism, virtualThreads, this::embed,
+            (batch, e) -> fail(batch.progress(), "向量化失败: " + e.getMessage()));
+        chunkStage = new PipelineStage<>("chunk", stageCapacity, chunkParallelism, false, this::chunk,
+            (parsed, e) -> fail(new DocumentProgress(parsed.task()), "文档分块失败: " + e.getMessage()));
+        parseStage = new PipelineStage<>("parse", queueCapacity, parseParallelism, virtualThreads, this::parse,
+            (task, e) -> fail(new DocumentProgress(task), "文档解析失败: " + e.getMessage()));
+        insertStage.start();
+        embedStage.start();
+        chunkStage.start();
+        parseStage.start();
+        log.info("入库流水线已启动，并行度 parse/chunk/embed/insert = {}/{}/{}/{}",
+            parseParallelism, chunkParallelism, embedParallelism, insertParallelism);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        // 上游先停，下游把已接收的任务处理完
+        parseStage.shutdown(30_000);
+        chunkStage.shutdown(30_000);
+        embedStage.shutdown(60_000);
+        insertStage.shutdown(60_000);
+    }
+
+    /**
+     * 提交一个文档
+     *
+     * @return false 表示入口队列在超时时间内一直是满的
+     */
+    public boolean submit(IngestionTask task) {
+        try {
+            return parseStage.offer(task, submitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 各阶段积压量：parse / chunk / embed / insert
+     */
+    public int[] backlog() {
+        return new int[]{parseStage.backlog(), chunkStage.backlog(), embedStage.backlog(), insertStage.backlog()};
+    }
+
+    // ==================== 各阶段 ====================
+
+    private void parse(IngestionTask task) {
+        task.listener().onProgress(task.docId(), Document.STATUS_PROCESSING, 0, null, null);
+        String text;
+        try (InputStream input = objectStorage.getObject(task.objectName())) {
+            text = parser.parse(input);
+        } catch (Exception e) {
+            fail(new DocumentProgress(task), "文档解析失败: " + e.getMessage());
+            return;
+        }
+        putQuietly(chunkStage, new ParsedDocument(task, text));
+    }
+
+    private void chunk(ParsedDocument parsed) {
+        DocumentProgress progress = new DocumentProgress(parsed.task());
+        try {
+            List<String> chunks = chunker.chunk(parsed.text());
+            if (chunks.isEmpty()) {
+                fail(progress, "文档没有可提取的文本");
+                return;
+            }
+            int batches = (chunks.size() + embedBatchSize - 1) / embedBatchSize;
+            progress.start(chunks.size(), batches);
+            for (int from = 0; from < chunks.size() && !progress.failed(); from += embedBatchSize) {
+                int to = Math.min(chunks.size(), from + embedBatchSize);
+                // 复制子列表，避免批次持有整篇文档的分块列表
+                putQuietly(embedStage, new EmbedBatch(progress, from, new ArrayList<>(chunks.subList(from, to)), null));
+            }
+        } catch (RuntimeException e) {
+            // 已入队的批次与本文档共用 progress，置为失败后随之跳过
+            fail(progress, "文档分块失败: " + e.getMessage());
+        }
+    }
+
+    private void embed(EmbedBatch batch) {
+        if (batch.progress().failed()) {
+            return;
+        }
+        ChunkDeduplicator.Resolution resolution;
+        try {
+            // 整批使用同一个模型快照：迁移切换发生在批内时，缓存查找、写回与向量化不会混用两个模型
+            EmbeddingClient client = embeddingClient.active();
+            resolution = deduplicator.resolve(batch.texts(), client.model(), client.dimension());
+            List<Integer> missing = resolution.toEmbed();
+            if (!missing.isEmpty()) {
+                List<String> texts = new ArrayList<>(missing.size());
+                for (Integer index : missing) {
+                    texts.add(batch.texts().get(index));
+                }
+                resolution.fill(missing, client.embed(texts));
+                deduplicator.saveEmbeddings(resolution, missing);
+            }
+        } catch (Exception e) {
+            fail(batch.progress(), "向量化失败: " + e.getMessage());
+            return;
+        }
+        putQuietly(insertStage, new EmbedBatch(batch.progress(), batch.offset(), batch.texts(), resolution));
+    }
+
+    private void insert(EmbedBatch batch) {
+        DocumentProgress progress = batch.progress();
+        if (progress.failed()) {
+            return;
+        }
+        IngestionTask task = progress.task();
+        ChunkDeduplicator.Resolution resolution = batch.resolution();
+        resolution.assignVectorIds(task.docId(), batch.offset());
+        int rows = resolution.size();
+        ensureCollection();
+        List<String> ids = new ArrayList<>(rows);
+        List<float[]> vectors = new ArrayList<>(rows);
+        List<String> metadataList = new ArrayList<>(rows);
+        for (int index = 0; index < rows; index++) {
+            ids.add(resolution.vectorId(index));
+            vectors.add(resolution.embedding(index));
+            metadataList.add(metadata(task.kbId(), batch.offset() + index));
+        }
+        InsertRequest request = new InsertRequest();
+        request.setIds(ids);
+        request.setVectors(vectors);
+        request.setContents(batch.texts());
+        request.setDocIds(Collections.nCopies(rows, task.docId()));
+        request.setMetadataList(metadataList);
+        // 按知识库路由到 partition key 分区
+        request.setPartitionKeys(Collections.nCopies(rows, task.kbId()));
+
+        if (abandonIfDeleted(progress)) {
+            return;
+        }
+        InsertResponse response = vectorStoreService.batchInsert(collectionName, request);
+        if (!response.isSuccess()) {
+            fail(progress, "向量写入失败: " + response.getMessage());
+            return;
+        }
+        try {
+            deduplicator.recordChunks(task.docId(), task.kbId(), batch.offset(), resolution);
+        } catch (Exception e) {
+            fail(progress, "分块记录写入失败: " + e.getMessage());
+            return;
+        }
+        // 写入期间文档被删除时，后台清理可能已读过分块记录，本批写入的内容由这里删除
+        if (abandonIfDeleted(progress)) {
+            if (!vectorStoreService.deleteByIds(collectionName, ids)) {
+                throw new IllegalStateException("已删除文档的向量行删除失败: docId=" + task.docId());
+            }
+            deduplicator.deleteChunks(task.docId());
+            return;
+        }
+        log.debug("批次写入: docId={}, chunks={}", task.docId(), rows);
+        progress.batchDone();
+    }
+
+    /**
+     * 分块元数据 JSON；kbId 来自请求参数，必须经序列化转义
+     */
+    private String metadata(String kbId, int chunkIndex) {
+        try {
+            return objectMapper.writeValueAsString(objectMapper.createObjectNode()
+                .put("kb_id", kbId)
+                .put("chunk_index", chunkIndex));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("分块元数据序列化失败", e);
+        }
+    }
+
+    private void ensureCollection() {
+        if (collectionReady.get()) {
+            return;
+        }
+        synchronized (collectionReady) {
+            if (!collectionReady.get()) {
+                collectionReady.set(vectorStoreService.createCollection(
+                    collectionName, embeddingClient.dimension(), "RAG document chunks"));
+            }
+        }
+    }
+
+    /**
+     * 文档已被删除时停止其后续批次，不再回写状态
+     */
+    private boolean abandonIfDeleted(DocumentProgress progress) {
+        String docId = progress.task().docId();
+        if (documentMapper.exists(Wrappers.<Document>lambdaQuery().eq(Document::getId, docId))) {
+            return false;
+        }
+        if (progress.markFailed()) {
+            log.info("文档已删除，停止入库: docId={}", docId);
+        }
+        return true;
+    }
+
+    private void fail(DocumentProgress progress, String errorMsg) {
+        if (progress.markFailed()) {
+            log.warn("文档入库失败: docId={}, reason={}", progress.task().docId(), errorMsg);
+            progress.report(Document.STATUS_FAILED, errorMsg);
+        }
+    }
+
+    private static <T> void putQuietly(PipelineStage<T> stage, T item) {
+        try {
+            stage.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("流水线已停止", e);
+        }
+    }
+
+    // ==================== 阶段间数据 ====================
+
+    private record ParsedDocument(IngestionTask task, String text) {
+    }
+
+    /**
+     * 一批分块；embed 阶段之后 resolution 非空
+     */
+    private record EmbedBatch(DocumentProgress progress, int offset, List<String> texts,
+                              ChunkDeduplicator.Resolution resolution) {
+    }
+
+    /**
+     * 单个文档的进度，批次完成时按 10% 步长回写
+     */
+    private static final class DocumentProgress {
+
+        private final IngestionTask task;
+
+        private final AtomicInteger doneBatches = new AtomicInteger();
+
+        private final AtomicBoolean failed = new AtomicBoolean();
+
+        private volatile int totalBatches;
+
+        private volatile int chunks;
+
+        private volatile int reportedPercent;
+
+        private DocumentProgress(IngestionTask task) {
+            this.task = task;
+        }
+
+        IngestionTask task() {
+            return task;
+        }
+
+        void start(int chunks, int batches) {
+            this.chunks = chunks;
+            this.totalBatches = batches;
+            task.listener().onProgress(task.docId(), Document.STATUS_PROCESSING, 0, chunks, null);
+        }
+
+        void batchDone() {
+            int done = doneBatches.incrementAndGet();
+            if (done == totalBatches) {
+                report(Document.STATUS_COMPLETED, null);
+                log.info("文档入库完成: docId={}, chunks={}", task.docId(), chunks);
+                return;
+            }
+            int percent = done * 100 / totalBatches;
+            if (percent - reportedPercent >= 10) {
+                reportedPercent = percent;
+                task.listener().onProgress(task.docId(), Document.STATUS_PROCESSING, percent, chunks, null);
+            }
+        }
+
+        boolean failed() {
+            return failed.get();
+        }
+
+        boolean markFailed() {
+            return failed.compareAndSet(false, true);
+        }
+
+        void report(int status, String errorMsg) {
+            int percent = status == Document.STATUS_COMPLETED ? 100 : reportedPercent;
+            task.listener().onProgress(task.docId(), status, percent, chunks > 0 ? chunks : null, errorMsg);
+        }
+    }
+}
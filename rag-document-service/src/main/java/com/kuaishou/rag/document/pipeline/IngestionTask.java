@@ -0,0 +1,28 @@
+package com.kuaishou.rag.document.pipeline;
+
+/**
+ * 一个待入库的文档
+ *
+ * @param docId      文档ID
+ * @param kbId       知识库ID
+ * @param fileName   原始文件名
+ * @param objectName 文件在对象存储中的对象名
+ * @param listener   进度回调
+ */
+public record IngestionTask(String docId, String kbId, String fileName, String objectName, ProgressListener listener) {
+
+    /**
+     * 处理进度回调
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * @param status   文档状态（Document.STATUS_*）
+         * @param progress 进度 0-100
+         * @param chunks   分块数，未知时为 null
+         * @param errorMsg 失败原因，成功时为 null
+         */
+        void onProgress(String docId, int status, int progress, Integer chunks, String errorMsg);
+    }
+}
@@ -0,0 +1,123 @@
+package com.kuaishou.rag.document.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 流水线中的一个阶段：有界输入队列 + 固定数量的工作线程
+ *
+ * 队列满时 put 阻塞，上游工作线程随之停下，背压逐级传回提交方。
+ * I/O 阶段可使用虚拟线程（运行在 JDK 21+ 时），否则使用平台线程。
+ * handler 抛出的异常交给 onError，由调用方把对应文档置为失败，工作线程继续处理下一项。
+ */
+@Slf4j
+final class PipelineStage<T> {
+
+    private final String name;
+
+    private final BlockingQueue<T> queue;
+
+    private final int parallelism;
+
+    private final Consumer<T> handler;
+
+    private final BiConsumer<T, Exception> onError;
+
+    private final ExecutorService workers;
+
+    private volatile boolean running = true;
+
+    PipelineStage(String name, int capacity, int parallelism, boolean virtualThreads, Consumer<T> handler,
+                  BiConsumer<T, Exception> onError) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.parallelism = parallelism;
+        this.handler = handler;
+        this.onError = onError;
+        this.workers = newExecutor(name, parallelism, virtualThreads);
+    }
+
+    void start() {
+        for (int i = 0; i < parallelism; i++) {
+            workers.execute(this::runWorker);
+        }
+    }
+
+    /**
+     * 放入队列，队列满时阻塞
+     */
+    void put(T item) throws InterruptedException {
+        queue.put(item);
+    }
+
+    /**
+     * 放入队列，队列满时最多等待 timeout
+     */
+    boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.offer(item, timeout, unit);
+    }
+
+    int backlog() {
+        return queue.size();
+    }
+
+    void shutdown(long timeoutMillis) {
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("流水线阶段 {} 未在超时内结束，剩余 {} 项", name, queue.size());
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWorker() {
+        // 停止后先把队列中已接收的任务处理完
+        while (running || !queue.isEmpty()) {
+            T item;
+            try {
+                item = queue.poll(200, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (item == null) {
+                continue;
+            }
+            try {
+                handler.accept(item);
+            } catch (Exception e) {
+                log.error("流水线阶段 {} 处理失败", name, e);
+                try {
+                    onError.accept(item, e);
+                } catch (Exception callbackError) {
+                    log.error("流水线阶段 {} 失败回写异常", name, callbackError);
+                }
+            }
+        }
+    }
+
+    private static ExecutorService newExecutor(String name, int parallelism, boolean virtualThreads) {
+        if (virtualThreads) {
+            try {
+                // 编译目标为 17，通过反射在 JDK 21+ 上启用虚拟线程
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.debug("当前 JDK 不支持虚拟线程，阶段 {} 使用平台线程", name);
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "ingest-" + name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
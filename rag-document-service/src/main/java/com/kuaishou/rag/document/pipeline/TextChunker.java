@@ -0,0 +1,61 @@
+package com.kuaishou.rag.document.pipeline;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文本分块
+ *
+ * 按 chunkSize 字符切分，相邻块重叠 overlap 字符；切分点优先落在段落/句末标点上，
+ * 避免把一句话切成两半。
+ */
+@Component
+public class TextChunker {
+
+    private static final String BOUNDARIES = "\n。！？；.!?;";
+
+    /**
+     * 单块最大字符数
+     */
+    @Value("${ingestion.chunk.size:500}")
+    private int chunkSize;
+
+    /**
+     * 相邻块重叠字符数
+     */
+    @Value("${ingestion.chunk.overlap:50}")
+    private int overlap;
+
+    public List<String> chunk(String text) {
+        List<String> chunks = new ArrayList<>();
+        if (text == null) {
+            return chunks;
+        }
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            int end = Math.min(length, start + chunkSize);
+            if (end < length) {
+                // 在块的后半段寻找最后一个边界
+                for (int i = end - 1; i >= start + chunkSize / 2; i--) {
+                    if (BOUNDARIES.indexOf(text.charAt(i)) >= 0) {
+                        end = i + 1;
+                        break;
+                    }
+                }
+            }
+            String chunk = text.substring(start, end).strip();
+            if (!chunk.isEmpty()) {
+                chunks.add(chunk);
+            }
+            if (end == length) {
+                break;
+            }
+            start = Math.max(end - overlap, start + 1);
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,176 @@
+package com.kuaishou.rag.document.service;
+
+import com.kuaishou.rag.document.entity.DocumentChunk;
+import com.kuaishou.rag.document.entity.DocumentTombstone;
+import com.kuaishou.rag.document.mapper.DocumentChunkMapper;
+import com.kuaishou.rag.document.mapper.DocumentTombstoneMapper;
+import com.kuaishou.rag.document.storage.ObjectStorage;
+import com.kuaishou.rag.vector.service.VectorStoreService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已删除文档的后台清理
+ *
+ * 删除接口只在事务内做逻辑删除并写入 document_tombstone，本类定期取出到期记录，每批 batch-size 篇：
+ * 1. 向量：按分块记录的向量行 ID 删除，再按 doc_id 删除一遍，兜住没有分块记录的行。
+ *    向量行不跨文档共用（见 ChunkDeduplicator），两步都只涉及被删除的文档。表达式由 VectorStoreService 拆成有界大小
+ * 2. 对象存储：删除原始文件
+ * 3. 删除分块记录与清理记录
+ *
+ * 每一步都是幂等的，任一步失败时整批保留清理记录，按指数退避重试；多实例同时清理同一批也不会出错。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DocumentCleanupReconciler {
+
+    /**
+     * 单条 SQL 的 IN 列表最大长度
+     */
+    private static final int MAX_IN_SIZE = 1000;
+
+    private final DocumentTombstoneMapper tombstoneMapper;
+
+    private final DocumentChunkMapper chunkMapper;
+
+    private final VectorStoreService vectorStoreService;
+
+    private final ObjectStorage objectStorage;
+
+    @Value("${milvus.collection.name:document_chunks}")
+    private String collectionName;
+
+    @Value("${cleanup.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 两轮清理之间的间隔（毫秒）
+     */
+    @Value("${cleanup.interval-ms:5000}")
+    private long intervalMs;
+
+    /**
+     * 每批清理的文档数
+     */
+    @Value("${cleanup.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 首次失败后的重试间隔（毫秒），之后每次翻倍
+     */
+    @Value("${cleanup.retry-base-ms:10000}")
+    private long retryBaseMs;
+
+    /**
+     * 重试间隔上限（毫秒）
+     */
+    @Value("${cleanup.retry-max-ms:600000}")
+    private long retryMaxMs;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "document-cleanup");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcile, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 清理当前到期的全部记录
+     */
+    public void reconcile() {
+        try {
+            List<DocumentTombstone> due;
+            do {
+                due = tombstoneMapper.selectDue(LocalDateTime.now(), batchSize);
+                if (!due.isEmpty()) {
+                    cleanup(due);
+                }
+            } while (due.size() == batchSize && !Thread.currentThread().isInterrupted());
+        } catch (Exception e) {
+            log.error("文档清理失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void cleanup(List<DocumentTombstone> tombstones) {
+        List<String> docIds = tombstones.stream().map(DocumentTombstone::getDocId).toList();
+        try {
+            deleteVectors(docIds);
+            for (DocumentTombstone tombstone : tombstones) {
+                objectStorage.removeObject(
+                    DocumentService.objectName(tombstone.getKbId(), tombstone.getDocId(), tombstone.getName()));
+            }
+            chunkMapper.deleteByDocIds(docIds);
+            tombstoneMapper.deleteBatchIds(docIds);
+            log.info("已清理 {} 篇删除文档的向量与文件", docIds.size());
+        } catch (Exception e) {
+            log.warn("文档清理失败，稍后重试: docs={}, reason={}", docIds.size(), e.getMessage());
+            retryLater(tombstones, e.getMessage());
+        }
+    }
+
+    private void deleteVectors(List<String> docIds) {
+        Set<String> vectorIds = new LinkedHashSet<>();
+        for (List<String> slice : partition(docIds)) {
+            for (DocumentChunk chunk : chunkMapper.selectByDocIds(slice)) {
+                vectorIds.add(chunk.getVectorId());
+            }
+        }
+
+        if (!vectorIds.isEmpty() && !vectorStoreService.deleteByIds(collectionName, new ArrayList<>(vectorIds))) {
+            throw new IllegalStateException("向量删除失败");
+        }
+        // 按 doc_id 删除兜住分块记录缺失的行（未开启去重、写入后记录失败、入库与删除并发）
+        if (!vectorStoreService.deleteByDocIds(collectionName, docIds)) {
+            throw new IllegalStateException("向量删除失败");
+        }
+    }
+
+    private void retryLater(List<DocumentTombstone> tombstones, String errorMsg) {
+        String reason = errorMsg == null ? "unknown" : errorMsg.substring(0, Math.min(errorMsg.length(), 1000));
+        LocalDateTime now = LocalDateTime.now();
+        for (DocumentTombstone tombstone : tombstones) {
+            int attempts = tombstone.getAttempts() == null ? 1 : tombstone.getAttempts() + 1;
+            long delay = Math.min(retryMaxMs, retryBaseMs << Math.min(attempts - 1, 20));
+            DocumentTombstone update = new DocumentTombstone();
+            update.setDocId(tombstone.getDocId());
+            update.setAttempts(attempts);
+            update.setNextRetryTime(now.plusNanos(delay * 1_000_000));
+            update.setLastError(reason);
+            tombstoneMapper.updateById(update);
+        }
+    }
+
+    private static List<List<String>> partition(List<String> values) {
+        List<List<String>> slices = new ArrayList<>();
+        for (int from = 0; from < values.size(); from += MAX_IN_SIZE) {
+            slices.add(values.subList(from, Math.min(values.size(), from + MAX_IN_SIZE)));
+        }
+        return slices;
+    }
+}
@@ -1,18 +1,31 @@
 package com.kuaishou.rag.document.service;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.kuaishou.rag.common.result.Result;
+import com.kuaishou.rag.document.dto.DocumentCursor;
+import com.kuaishou.rag.document.dto.DocumentListRequest;
+import com.kuaishou.rag.document.dto.DocumentPage;
 import com.kuaishou.rag.document.entity.Document;
 import com.kuaishou.rag.document.mapper.DocumentMapper;
+import com.kuaishou.rag.document.mapper.DocumentTombstoneMapper;
+import com.kuaishou.rag.document.pipeline.IngestionPipeline;
+import com.kuaishou.rag.document.pipeline.IngestionTask;
+import com.kuaishou.rag.document.storage.ObjectStorage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * 文档服务实现类
@@ -22,12 +35,29 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class DocumentService extends ServiceImpl<DocumentMapper, Document> {
 
-    // TODO: 注入 MinIO 客户端，用于文件存储
-    // private final MinioClient minioClient;
-    
+    /**
+     * 批量删除单次最多文档数
+     */
+    public static final int MAX_BATCH_DELETE = 1000;
+
+    /**
+     * 对象存储（MinIO / 本地文件系统）
+     */
+    private final ObjectStorage objectStorage;
+
     // TODO: 注入 Kafka/RabbitMQ 生产者，用于发送文档解析任务
     // private final KafkaTemplate<String, String> kafkaTemplate;
 
+    /**
+     * 入库流水线：解析 → 分块 → 向量化 → 写入向量库
+     */
+    private final IngestionPipeline ingestionPipeline;
+
+    /**
+     * 已删除文档的待清理记录
+     */
+    private final DocumentTombstoneMapper tombstoneMapper;
+
     /**
      * 上传文档
      *
@@ -35,84 +65,174 @@ public class DocumentService extends ServiceImpl<DocumentMapper, Document> {
      * @param kbId 知识库ID
      * @return 文档信息
      */
-    @Transactional(rollbackFor = Exception.class)
     public Result<Document> uploadDocument(MultipartFile file, String kbId) {
+        try (InputStream input = file.getInputStream()) {
+            return uploadDocument(input, file.getOriginalFilename(), file.getContentType(), kbId);
+        } catch (IOException e) {
+            log.error("文档上传失败", e);
+            return Result.error("文档上传失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 流式上传文档
+     *
+     * 请求体直接按分片写入对象存储，同时计算 SHA-256，不在堆中缓存整个文件
+     *
+     * @param input       文件内容流，调用方负责关闭
+     * @param fileName    原始文件名
+     * @param contentType MIME 类型，可为 null
+     * @param kbId        知识库ID
+     * @return 文档信息
+     */
+    public Result<Document> uploadDocument(InputStream input, String fileName, String contentType, String kbId) {
+        // 1. 生成文档ID
+        String docId = UUID.randomUUID().toString().replace("-", "");
+        String objectName = objectName(kbId, docId, fileName);
+        ObjectStorage.StoredObject stored = null;
         try {
-            // 1. 生成文档ID
-            String docId = UUID.randomUUID().toString().replace("-", "");
-            
-            // 2. 保存文件到对象存储
-            // TODO: 配置 MinIO 连接信息后启用
-            // String objectName = "docs/" + kbId + "/" + docId + "/" + file.getOriginalFilename();
-            // minioClient.putObject(PutObjectArgs.builder()
-            //     .bucket("rag-documents")
-            //     .object(objectName)
-            //     .stream(file.getInputStream(), file.getSize(), -1)
-            //     .contentType(file.getContentType())
-            //     .build());
-            
+            // 2. 流式写入对象存储（大小与哈希在写入过程中得到）
+            stored = objectStorage.putObject(objectName, input, contentType);
+
             // 3. 保存文档元数据到数据库
             Document document = new Document();
             document.setId(docId);
             document.setKbId(kbId);
-            document.setName(file.getOriginalFilename());
-            document.setType(getFileExtension(file.getOriginalFilename()));
-            document.setSize(file.getSize());
-            document.setStatus(0); // 待处理
-            document.setStoragePath("minio://rag-documents/" + docId); // TODO: 实际路径
+            document.setName(fileName);
+            document.setType(getFileExtension(fileName));
+            document.setSize(stored.size());
+            document.setContentHash(stored.sha256());
+            document.setStatus(Document.STATUS_PENDING);
+            document.setProgress(0);
+            document.setStoragePath(stored.location());
             document.setCreateTime(LocalDateTime.now());
             document.setUpdateTime(LocalDateTime.now());
             
             save(document);
             
-            // 4. 发送异步处理消息到队列
-            // TODO: 配置 Kafka 后启用
+            // 4. 进入入库流水线
+            // TODO: 多实例部署时改为 Kafka 分发
             // kafkaTemplate.send("document-process-topic", docId);
-            
-            log.info("文档上传成功: docId={}, name={}", docId, file.getOriginalFilename());
+            IngestionTask task = new IngestionTask(docId, kbId, fileName, objectName, this::updateStatus);
+            if (!ingestionPipeline.submit(task)) {
+                log.warn("入库队列已满，文档处理失败: docId={}", docId);
+                updateStatus(docId, Document.STATUS_FAILED, 0, null, "入库队列已满，请稍后重试");
+            }
+
+            log.info("文档上传成功: docId={}, name={}, size={}", docId, fileName, stored.size());
             return Result.success(document);
             
         } catch (Exception e) {
             log.error("文档上传失败", e);
+            if (stored != null) {
+                removeObjectQuietly(objectName);
+            }
             return Result.error("文档上传失败: " + e.getMessage());
         }
     }
 
     /**
-     * 获取知识库下的文档列表
+     * 分页获取知识库下的文档列表
+     *
+     * 游标分页：WHERE kb_id = ? AND (create_time, id) < (游标) ORDER BY create_time DESC, id DESC LIMIT n + 1，
+     * 多取一条判断是否还有下一页；只查询请求的列
      */
-    public Result<List<Document>> listByKbId(String kbId) {
-        List<Document> documents = lambdaQuery()
-            .eq(Document::getKbId, kbId)
-            .orderByDesc(Document::getCreateTime)
-            .list();
-        return Result.success(documents);
+    public Result<DocumentPage> listByKbId(DocumentListRequest request) {
+        DocumentCursor cursor;
+        try {
+            cursor = request.getCursor() == null || request.getCursor().isBlank()
+                ? null : DocumentCursor.decode(request.getCursor());
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
+        }
+        int limit = request.resolveLimit();
+
+        QueryWrapper<Document> query = new QueryWrapper<Document>()
+            .select(request.resolveFields().toArray(new String[0]))
+            .eq("kb_id", request.getKbId());
+        if (cursor != null) {
+            query.and(w -> w.lt("create_time", cursor.createTime())
+                .or(o -> o.eq("create_time", cursor.createTime()).lt("id", cursor.id())));
+        }
+        query.orderByDesc("create_time", "id")
+            .last("LIMIT " + (limit + 1));
+
+        List<Document> documents = list(query);
+        String nextCursor = null;
+        if (documents.size() > limit) {
+            documents = new ArrayList<>(documents.subList(0, limit));
+            Document last = documents.get(limit - 1);
+            nextCursor = new DocumentCursor(last.getCreateTime(), last.getId()).encode();
+        }
+        return Result.success(new DocumentPage(documents, nextCursor));
+    }
+
+    /**
+     * 导出知识库下的全部文档
+     *
+     * 数据库游标逐行读取并交给 consumer，内存占用与文档数无关；需在只读事务内保持连接
+     *
+     * @param fields   输出列，规则同 {@link DocumentListRequest#resolveFields()}
+     * @param consumer 逐行处理，抛出异常时中止导出
+     */
+    @Transactional(readOnly = true)
+    public void exportByKbId(String kbId, List<String> fields, Consumer<Document> consumer) {
+        DocumentListRequest request = new DocumentListRequest();
+        request.setFields(fields);
+        String columns = String.join(", ", request.resolveFields());
+        baseMapper.streamByKbId(kbId, columns, context -> consumer.accept(context.getResultObject()));
     }
 
     /**
      * 删除文档
+     *
+     * 事务内逻辑删除并写入清理记录，向量与原始文件由 DocumentCleanupReconciler 异步清理
      */
     @Transactional(rollbackFor = Exception.class)
     public Result<Void> deleteDocument(String docId) {
-        Document document = getById(docId);
-        if (document == null) {
+        tombstoneMapper.insertByDocIds(List.of(docId), LocalDateTime.now());
+        if (baseMapper.deleteById(docId) == 0) {
             return Result.error("文档不存在");
         }
-        
-        // TODO: 删除 MinIO 中的文件
-        // minioClient.removeObject(RemoveObjectArgs.builder()
-        //     .bucket("rag-documents")
-        //     .object(document.getStoragePath())
-        //     .build());
-        
-        // TODO: 调用 Vector Service 删除向量
-        // vectorService.deleteByDocId(docId);
-        
-        removeById(docId);
         log.info("文档删除成功: docId={}", docId);
         return Result.success();
     }
 
+    /**
+     * 批量删除文档
+     *
+     * @param docIds 文档ID，最多 MAX_BATCH_DELETE 个
+     * @return 实际删除的文档数（不存在或已删除的不计）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public Result<Integer> deleteDocuments(List<String> docIds) {
+        if (docIds == null || docIds.isEmpty()) {
+            return Result.success(0);
+        }
+        if (docIds.size() > MAX_BATCH_DELETE) {
+            return Result.error("单次最多删除 " + MAX_BATCH_DELETE + " 篇文档");
+        }
+        tombstoneMapper.insertByDocIds(docIds, LocalDateTime.now());
+        int deleted = baseMapper.delete(Wrappers.<Document>lambdaQuery().in(Document::getId, docIds));
+        log.info("批量删除文档: requested={}, deleted={}", docIds.size(), deleted);
+        return Result.success(deleted);
+    }
+
+    /**
+     * 删除知识库下的全部文档
+     *
+     * 两条集合语句完成：INSERT ... SELECT 写清理记录，UPDATE 逻辑删除，不逐行循环
+     *
+     * @return 删除的文档数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public Result<Integer> deleteKnowledgeBase(String kbId) {
+        tombstoneMapper.insertByKbId(kbId, LocalDateTime.now());
+        int deleted = baseMapper.delete(Wrappers.<Document>lambdaQuery().eq(Document::getKbId, kbId));
+        log.info("知识库文档删除成功: kbId={}, deleted={}", kbId, deleted);
+        return Result.success(deleted);
+    }
+
     /**
      * 更新文档状态
      */
@@ -125,6 +245,50 @@ public class DocumentService extends ServiceImpl<DocumentMapper, Document> {
         return Result.success();
     }
 
+    /**
+     * 更新文档状态与处理进度（入库流水线回调）
+     *
+     * @param chunks   分块数，为 null 时不更新
+     * @param errorMsg 失败原因，为 null 时不更新
+     */
+    public void updateStatus(String docId, int status, int progress, Integer chunks, String errorMsg) {
+        lambdaUpdate()
+            .set(Document::getStatus, status)
+            .set(Document::getProgress, progress)
+            .set(chunks != null, Document::getChunkCount, chunks)
+            .set(errorMsg != null, Document::getErrorMsg, errorMsg)
+            .set(Document::getUpdateTime, LocalDateTime.now())
+            .eq(Document::getId, docId)
+            .update();
+    }
+
+    /**
+     * 对象名：docs/{kbId}/{docId}/{文件名}
+     *
+     * kbId 与文件名都来自请求，各自作为单个路径段：路径分隔符替换为下划线，"." / ".." 整段替换，
+     * 对象名不会越出 docs/{kbId}/ 前缀
+     */
+    static String objectName(String kbId, String docId, String fileName) {
+        String safeName = fileName == null || fileName.isBlank() ? docId : safeSegment(fileName);
+        return "docs/" + safeSegment(kbId) + "/" + docId + "/" + safeName;
+    }
+
+    private static String safeSegment(String segment) {
+        if (segment == null || segment.isBlank()) {
+            return "_";
+        }
+        String safe = segment.replaceAll("[/\\\\]", "_");
+        return ".".equals(safe) || "..".equals(safe) ? "_" : safe;
+    }
+
+    private void removeObjectQuietly(String objectName) {
+        try {
+            objectStorage.removeObject(objectName);
+        } catch (IOException e) {
+            log.warn("对象删除失败: {}", objectName, e);
+        }
+    }
+
     private String getFileExtension(String filename) {
         if (filename == null || !filename.contains(".")) {
             return "";
@@ -0,0 +1,138 @@
+package com.kuaishou.rag.document.service;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.kuaishou.rag.document.entity.Document;
+import com.kuaishou.rag.document.mapper.DocumentChunkMapper;
+import com.kuaishou.rag.document.mapper.DocumentMapper;
+import com.kuaishou.rag.document.pipeline.IngestionPipeline;
+import com.kuaishou.rag.document.pipeline.IngestionTask;
+import com.kuaishou.rag.vector.service.VectorStoreService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 启动时恢复未完成的入库
+ *
+ * 入库流水线只在内存中排队，进程退出时 PENDING / PROCESSING 的文档不会再被处理。启动后：
+ * 1. 取出状态仍为待处理/处理中、且 update_time 早于 stale-minutes 的文档（其他实例正在处理的文档会持续回写进度，不会被取到）
+ * 2. 以条件更新认领（状态与 update_time 未变才成功），多实例同时启动时每篇文档只被一个实例重新入队
+ * 3. 清掉上次写了一半的结果：本文档分配的向量行（docId_分块序号）中没有被其他文档引用的部分，以及分块记录
+ * 4. 重新提交到入库流水线
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IngestionRecovery {
+
+    private final DocumentService documentService;
+
+    private final DocumentMapper documentMapper;
+
+    private final DocumentChunkMapper chunkMapper;
+
+    private final VectorStoreService vectorStoreService;
+
+    private final IngestionPipeline ingestionPipeline;
+
+    @Value("${milvus.collection.name:document_chunks}")
+    private String collectionName;
+
+    @Value("${ingestion.recovery.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * update_time 早于该分钟数的待处理/处理中文档视为中断
+     */
+    @Value("${ingestion.recovery.stale-minutes:30}")
+    private long staleMinutes;
+
+    /**
+     * 单次启动最多恢复的文档数
+     */
+    @Value("${ingestion.recovery.max-documents:1000}")
+    private int maxDocuments;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusMinutes(staleMinutes);
+            List<Document> stale = documentMapper.selectList(Wrappers.<Document>lambdaQuery()
+                .select(Document::getId, Document::getKbId, Document::getName, Document::getStatus,
+                    Document::getChunkCount, Document::getUpdateTime)
+                .in(Document::getStatus, Document.STATUS_PENDING, Document.STATUS_PROCESSING)
+                .lt(Document::getUpdateTime, cutoff)
+                .orderByAsc(Document::getUpdateTime)
+                .last("LIMIT " + maxDocuments));
+            int requeued = 0;
+            for (Document document : stale) {
+                if (requeue(document)) {
+                    requeued++;
+                }
+            }
+            if (!stale.isEmpty()) {
+                log.info("中断的入库已恢复: found={}, requeued={}", stale.size(), requeued);
+            }
+        } catch (Exception e) {
+            log.error("入库恢复失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean requeue(Document document) {
+        String docId = document.getId();
+        boolean claimed = documentService.lambdaUpdate()
+            .set(Document::getStatus, Document.STATUS_PENDING)
+            .set(Document::getProgress, 0)
+            .set(Document::getUpdateTime, LocalDateTime.now())
+            .eq(Document::getId, docId)
+            .eq(Document::getStatus, document.getStatus())
+            .eq(Document::getUpdateTime, document.getUpdateTime())
+            .update();
+        if (!claimed) {
+            return false;
+        }
+        try {
+            discardPartial(docId, document.getChunkCount());
+        } catch (Exception e) {
+            log.warn("清理中断入库的部分结果失败: docId={}, reason={}", docId, e.getMessage());
+            documentService.updateStatus(docId, Document.STATUS_FAILED, 0, null, "入库中断，清理部分结果失败，请重新上传");
+            return false;
+        }
+        IngestionTask task = new IngestionTask(docId, document.getKbId(), document.getName(),
+            DocumentService.objectName(document.getKbId(), docId, document.getName()), documentService::updateStatus);
+        if (!ingestionPipeline.submit(task)) {
+            documentService.updateStatus(docId, Document.STATUS_FAILED, 0, null, "入库队列已满，请稍后重试");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 删除上次入库写了一半的向量行与分块记录
+     *
+     * 向量行 ID 为 docId_分块序号且只属于本文档，按 chunk_count 枚举即可覆盖已写入但分块记录尚未落库的行
+     */
+    private void discardPartial(String docId, Integer chunkCount) {
+        if (chunkCount == null || chunkCount <= 0) {
+            return;
+        }
+        List<String> vectorIds = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            vectorIds.add(docId + "_" + i);
+        }
+        if (!vectorStoreService.deleteByIds(collectionName, vectorIds)) {
+            throw new IllegalStateException("向量删除失败");
+        }
+        chunkMapper.deleteByDocIds(List.of(docId));
+    }
+}
@@ -0,0 +1,61 @@
+package com.kuaishou.rag.document.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 本地文件系统对象存储（开发/测试替身）
+ *
+ * 先写同目录临时文件，完成后原子改名，读方不会看到写了一半的对象。
+ */
+public class FileSystemObjectStorage implements ObjectStorage {
+
+    private final Path baseDir;
+
+    private final long maxObjectSize;
+
+    public FileSystemObjectStorage(Path baseDir, long maxObjectSize) {
+        this.baseDir = baseDir.toAbsolutePath().normalize();
+        this.maxObjectSize = maxObjectSize;
+    }
+
+    @Override
+    public StoredObject putObject(String objectName, InputStream input, String contentType) throws IOException {
+        Path target = resolve(objectName);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        HashingInputStream hashing = new HashingInputStream(input, maxObjectSize);
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                hashing.transferTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return new StoredObject(objectName, hashing.count(), hashing.sha256(), target.toUri().toString());
+    }
+
+    @Override
+    public InputStream getObject(String objectName) throws IOException {
+        return Files.newInputStream(resolve(objectName));
+    }
+
+    @Override
+    public void removeObject(String objectName) throws IOException {
+        Files.deleteIfExists(resolve(objectName));
+    }
+
+    private Path resolve(String objectName) throws IOException {
+        Path path = baseDir.resolve(objectName).normalize();
+        if (!path.startsWith(baseDir)) {
+            throw new IOException("非法对象名: " + objectName);
+        }
+        return path;
+    }
+}
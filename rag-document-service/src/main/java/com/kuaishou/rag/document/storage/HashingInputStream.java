@@ -0,0 +1,88 @@
+package com.kuaishou.rag.document.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 边读边计算 SHA-256 并统计字节数的输入流，超过 maxBytes 时抛出 IOException
+ */
+public class HashingInputStream extends FilterInputStream {
+
+    private final MessageDigest digest;
+
+    private final long maxBytes;
+
+    private long count;
+
+    public HashingInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            digest.update((byte) b);
+            advance(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n > 0) {
+            digest.update(buffer, offset, n);
+            advance(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // 跳过的字节也要计入摘要，这里按读取处理
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 已读内容的 SHA-256（十六进制），读取结束后调用
+     */
+    public String sha256() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void advance(int n) throws IOException {
+        count += n;
+        if (count > maxBytes) {
+            throw new IOException("文件超过大小限制: " + maxBytes + " 字节");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.kuaishou.rag.document.storage;
+
+import io.minio.*;
+import io.minio.errors.ErrorResponseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * MinIO / S3 兼容对象存储
+ *
+ * 长度未知的流以 partSize 为单位分片上传：SDK 每次只读一个分片，内存占用与文件大小无关。
+ * SHA-256 在读取请求流时同步计算，不需要再读一遍对象。
+ */
+public class MinioObjectStorage implements ObjectStorage {
+
+    private final MinioClient minioClient;
+
+    private final String bucket;
+
+    private final long partSize;
+
+    private final long maxObjectSize;
+
+    public MinioObjectStorage(MinioClient minioClient, String bucket, long partSize, long maxObjectSize) {
+        this.minioClient = minioClient;
+        this.bucket = bucket;
+        this.partSize = partSize;
+        this.maxObjectSize = maxObjectSize;
+    }
+
+    /**
+     * 桶不存在时创建
+     */
+    public void ensureBucket() throws IOException {
+        try {
+            if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build())) {
+                minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucket).build());
+            }
+        } catch (Exception e) {
+            throw new IOException("初始化存储桶失败: " + bucket, e);
+        }
+    }
+
+    @Override
+    public StoredObject putObject(String objectName, InputStream input, String contentType) throws IOException {
+        HashingInputStream hashing = new HashingInputStream(input, maxObjectSize);
+        try {
+            PutObjectArgs.Builder args = PutObjectArgs.builder()
+                .bucket(bucket)
+                .object(objectName)
+                .stream(hashing, -1, partSize);
+            if (contentType != null) {
+                args.contentType(contentType);
+            }
+            minioClient.putObject(args.build());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("上传对象失败: " + objectName, e);
+        }
+        return new StoredObject(objectName, hashing.count(), hashing.sha256(), "minio://" + bucket + "/" + objectName);
+    }
+
+    @Override
+    public InputStream getObject(String objectName) throws IOException {
+        try {
+            return minioClient.getObject(GetObjectArgs.builder().bucket(bucket).object(objectName).build());
+        } catch (Exception e) {
+            throw new IOException("读取对象失败: " + objectName, e);
+        }
+    }
+
+    @Override
+    public void removeObject(String objectName) throws IOException {
+        try {
+            minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucket).object(objectName).build());
+        } catch (ErrorResponseException e) {
+            if (!"NoSuchKey".equals(e.errorResponse().code())) {
+                throw new IOException("删除对象失败: " + objectName, e);
+            }
+        } catch (Exception e) {
+            throw new IOException("删除对象失败: " + objectName, e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.kuaishou.rag.document.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 对象存储抽象
+ *
+ * 实现：
+ * - MinioObjectStorage：MinIO / S3 兼容存储（默认），未知长度的流按分片上传
+ * - FileSystemObjectStorage：本地文件系统，开发/测试用的替身
+ *
+ * 由 storage.type 选择（minio / filesystem）。写入均为流式：边读边写、边计算 SHA-256，不在堆中缓存整个文件。
+ */
+public interface ObjectStorage {
+
+    /**
+     * 流式写入对象
+     *
+     * @param objectName  对象名，如 docs/{kbId}/{docId}/{fileName}
+     * @param input       数据流，调用方负责关闭
+     * @param contentType MIME 类型，可为 null
+     * @return 写入结果（大小、SHA-256、存储位置）
+     */
+    StoredObject putObject(String objectName, InputStream input, String contentType) throws IOException;
+
+    /**
+     * 读取对象，调用方负责关闭返回的流
+     */
+    InputStream getObject(String objectName) throws IOException;
+
+    /**
+     * 删除对象，对象不存在时不报错
+     */
+    void removeObject(String objectName) throws IOException;
+
+    /**
+     * 写入结果
+     *
+     * @param objectName 对象名
+     * @param size       字节数
+     * @param sha256     内容 SHA-256（十六进制）
+     * @param location   存储位置，如 minio://bucket/object 或 file:///path
+     */
+    record StoredObject(String objectName, long size, String sha256, String location) {
+    }
+}
@@ -0,0 +1,214 @@
+package com.kuaishou.rag.document.pipeline;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kuaishou.rag.document.dedup.ChunkDeduplicator;
+import com.kuaishou.rag.document.embedding.HashEmbeddingClient;
+import com.kuaishou.rag.document.entity.Document;
+import com.kuaishou.rag.document.mapper.DocumentMapper;
+import com.kuaishou.rag.document.storage.ObjectStorage;
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.dto.InsertResponse;
+import com.kuaishou.rag.vector.service.VectorStoreService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * IngestionPipeline 测试：按批回写进度、批次失败只回写一次且跳过后续批次、分块元数据的 JSON 转义
+ *
+ * 对象存储中的内容即文档文本，按 "|" 分块；embedding 批大小为 1，每个分块一个批次
+ */
+class IngestionPipelineTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final FakeVectorStoreService vectorStoreService = new FakeVectorStoreService();
+
+    private final List<Event> events = new CopyOnWriteArrayList<>();
+
+    private IngestionPipeline pipeline;
+
+    private String documentText;
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.destroy();
+        }
+    }
+
+    @Test
+    void reportsProgressInTenPercentStepsThenCompletes() throws Exception {
+        documentText = String.join("|", Collections.nCopies(20, "chunk"));
+        pipeline = newPipeline();
+
+        assertTrue(pipeline.submit(task("kb-1")));
+
+        Event last = awaitFinal();
+        assertEquals(new Event(Document.STATUS_COMPLETED, 100, 20, null), last);
+        assertEquals(new Event(Document.STATUS_PROCESSING, 0, null, null), events.get(0));
+        assertEquals(new Event(Document.STATUS_PROCESSING, 0, 20, null), events.get(1));
+        List<Integer> percents = events.subList(2, events.size() - 1).stream().map(Event::progress).toList();
+        assertEquals(List.of(10, 20, 30, 40, 50, 60, 70, 80, 90), percents);
+        assertEquals(20, vectorStoreService.rows.get());
+    }
+
+    @Test
+    void failedBatchReportsOnceAndSkipsTheRest() throws Exception {
+        documentText = String.join("|", Collections.nCopies(10, "chunk"));
+        vectorStoreService.failAfterRows = 3;
+        pipeline = newPipeline();
+
+        assertTrue(pipeline.submit(task("kb-1")));
+
+        Event last = awaitFinal();
+        assertEquals(Document.STATUS_FAILED, last.status());
+        assertEquals("向量写入失败: engine down", last.errorMsg());
+        // 失败后排队中的批次不再写入，也不再回写状态
+        Thread.sleep(100);
+        assertEquals(1, events.stream().filter(e -> e.status() == Document.STATUS_FAILED).count());
+        assertTrue(events.stream().noneMatch(e -> e.status() == Document.STATUS_COMPLETED));
+        assertTrue(vectorStoreService.rows.get() <= 4);
+    }
+
+    @Test
+    void metadataEscapesKnowledgeBaseId() throws Exception {
+        documentText = "a|b";
+        String kbId = "kb\",\"chunk_index\":99,\"x\":\"\\";
+        pipeline = newPipeline();
+
+        assertTrue(pipeline.submit(task(kbId)));
+        awaitFinal();
+
+        assertEquals(2, vectorStoreService.metadata.size());
+        for (String metadata : vectorStoreService.metadata) {
+            JsonNode node = objectMapper.readTree(metadata);
+            assertEquals(kbId, node.get("kb_id").asText());
+            assertTrue(node.get("chunk_index").asInt() < 2);
+        }
+    }
+
+    private IngestionTask task(String kbId) {
+        return new IngestionTask("doc-1", kbId, "a.txt", "objects/a.txt",
+            (docId, status, progress, chunks, errorMsg) -> events.add(new Event(status, progress, chunks, errorMsg)));
+    }
+
+    private Event awaitFinal() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            if (!events.isEmpty()) {
+                Event last = events.get(events.size() - 1);
+                if (last.status() == Document.STATUS_COMPLETED || last.status() == Document.STATUS_FAILED) {
+                    return last;
+                }
+            }
+            assertTrue(System.nanoTime() < deadline, "document did not finish: " + events);
+            Thread.sleep(5);
+        }
+    }
+
+    private IngestionPipeline newPipeline() {
+        ObjectStorage storage = new ObjectStorage() {
+            @Override
+            public StoredObject putObject(String objectName, InputStream input, String contentType) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public InputStream getObject(String objectName) {
+                return new ByteArrayInputStream(documentText.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void removeObject(String objectName) {
+            }
+        };
+        DocumentParser parser = new DocumentParser() {
+            @Override
+            public String parse(InputStream input) throws IOException {
+                return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        };
+        TextChunker chunker = new TextChunker() {
+            @Override
+            public List<String> chunk(String text) {
+                return Arrays.asList(text.split("\\|"));
+            }
+        };
+        // 去重关闭时不访问数据库
+        ChunkDeduplicator deduplicator = new ChunkDeduplicator(null, null);
+        DocumentMapper documentMapper = (DocumentMapper) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{DocumentMapper.class}, (proxy, method, args) -> {
+                if (method.getName().equals("exists")) {
+                    return true;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+
+        IngestionPipeline pipeline = new IngestionPipeline(storage, parser, chunker, new HashEmbeddingClient(4, "test"),
+            deduplicator, vectorStoreService, documentMapper, objectMapper);
+        ReflectionTestUtils.setField(pipeline, "collectionName", "document_chunks");
+        ReflectionTestUtils.setField(pipeline, "embedBatchSize", 1);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 8);
+        ReflectionTestUtils.setField(pipeline, "stageCapacity", 8);
+        ReflectionTestUtils.setField(pipeline, "parseParallelism", 1);
+        ReflectionTestUtils.setField(pipeline, "chunkParallelism", 1);
+        ReflectionTestUtils.setField(pipeline, "embedParallelism", 1);
+        ReflectionTestUtils.setField(pipeline, "insertParallelism", 1);
+        ReflectionTestUtils.setField(pipeline, "virtualThreads", false);
+        ReflectionTestUtils.setField(pipeline, "submitTimeoutMs", 1000L);
+        pipeline.init();
+        return pipeline;
+    }
+
+    private record Event(int status, int progress, Integer chunks, String errorMsg) {
+    }
+
+    /**
+     * 记录写入的行数与元数据；写入行数超过 failAfterRows 后返回失败
+     */
+    private static class FakeVectorStoreService extends VectorStoreService {
+
+        final AtomicInteger rows = new AtomicInteger();
+
+        final List<String> metadata = new CopyOnWriteArrayList<>();
+
+        volatile int failAfterRows = Integer.MAX_VALUE;
+
+        @Override
+        public boolean createCollection(String collectionName, int dimension, String desc) {
+            return true;
+        }
+
+        @Override
+        public InsertResponse batchInsert(String collectionName, InsertRequest request) {
+            if (rows.get() >= failAfterRows) {
+                return InsertResponse.error("engine down");
+            }
+            rows.addAndGet(request.getIds().size());
+            metadata.addAll(request.getMetadataList());
+            return InsertResponse.success(request.getIds().size(), null);
+        }
+
+        @Override
+        public boolean deleteByIds(String collectionName, List<String> ids) {
+            return true;
+        }
+    }
+}
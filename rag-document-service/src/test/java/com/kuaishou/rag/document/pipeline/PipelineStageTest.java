@@ -0,0 +1,138 @@
+package com.kuaishou.rag.document.pipeline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PipelineStage 测试：队列满时的背压、处理异常逐项交给 onError 且工作线程继续、停止前处理完已接收的任务
+ */
+class PipelineStageTest {
+
+    private PipelineStage<Integer> stage;
+
+    @AfterEach
+    void tearDown() {
+        if (stage != null) {
+            stage.shutdown(1000);
+        }
+    }
+
+    @Test
+    void fullQueueBlocksProducer() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        stage = newStage(1, 1, item -> {
+            started.countDown();
+            await(release);
+            handled.add(item);
+        }, (item, e) -> {
+        });
+        stage.start();
+
+        stage.put(1);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        stage.put(2);
+
+        // 工作线程占着第 1 项、队列里是第 2 项，第 3 项放不进去
+        assertFalse(stage.offer(3, 50, TimeUnit.MILLISECONDS));
+        assertEquals(1, stage.backlog());
+
+        release.countDown();
+        assertTrue(stage.offer(3, 1, TimeUnit.SECONDS));
+        awaitSize(handled, 3);
+        assertEquals(List.of(1, 2, 3), handled);
+    }
+
+    @Test
+    void failuresFanOutPerItemAndWorkersContinue() throws Exception {
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        Map<Integer, Exception> errors = new ConcurrentHashMap<>();
+        stage = newStage(16, 2, item -> {
+            if (item % 3 == 0) {
+                throw new IllegalStateException("bad item " + item);
+            }
+            handled.add(item);
+        }, (item, e) -> {
+            errors.put(item, e);
+            // 回调自身抛出异常也不能让工作线程退出
+            throw new IllegalStateException("callback failed");
+        });
+        stage.start();
+
+        for (int i = 1; i <= 9; i++) {
+            stage.put(i);
+        }
+
+        awaitSize(handled, 6);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (errors.size() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(Set.of(3, 6, 9), errors.keySet());
+        assertEquals("bad item 6", errors.get(6).getMessage());
+        assertEquals(6, handled.size());
+    }
+
+    @Test
+    void shutdownDrainsAcceptedItems() throws Exception {
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        stage = newStage(32, 1, item -> {
+            sleep(2);
+            handled.add(item);
+        }, (item, e) -> {
+        });
+        stage.start();
+        for (int i = 0; i < 20; i++) {
+            stage.put(i);
+        }
+
+        stage.shutdown(5000);
+
+        assertEquals(20, handled.size());
+        assertEquals(0, stage.backlog());
+    }
+
+    private static PipelineStage<Integer> newStage(int capacity, int parallelism, Consumer<Integer> handler,
+                                                   BiConsumer<Integer, Exception> onError) {
+        return new PipelineStage<>("test", capacity, parallelism, false, handler, onError);
+    }
+
+    private static void awaitSize(List<?> list, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (list.size() < size) {
+            assertTrue(System.nanoTime() < deadline, "expected " + size + " items, got " + list.size());
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
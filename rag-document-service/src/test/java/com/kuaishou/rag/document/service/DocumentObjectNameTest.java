@@ -0,0 +1,30 @@
+package com.kuaishou.rag.document.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * DocumentService.objectName 测试：请求中的 kbId / 文件名不能越出 docs/{kbId}/{docId}/ 前缀
+ */
+class DocumentObjectNameTest {
+
+    @Test
+    void keepsPlainNames() {
+        assertEquals("docs/kb1/doc1/a.pdf", DocumentService.objectName("kb1", "doc1", "a.pdf"));
+    }
+
+    @Test
+    void sanitizesKbId() {
+        assertEquals("docs/.._.._other/doc1/a.pdf", DocumentService.objectName("../../other", "doc1", "a.pdf"));
+        assertEquals("docs/_/doc1/a.pdf", DocumentService.objectName("..", "doc1", "a.pdf"));
+        assertEquals("docs/kb_1/doc1/a.pdf", DocumentService.objectName("kb\\1", "doc1", "a.pdf"));
+    }
+
+    @Test
+    void sanitizesFileName() {
+        assertEquals("docs/kb1/doc1/.._etc_passwd", DocumentService.objectName("kb1", "doc1", "../etc/passwd"));
+        assertEquals("docs/kb1/doc1/_", DocumentService.objectName("kb1", "doc1", ".."));
+        assertEquals("docs/kb1/doc1/doc1", DocumentService.objectName("kb1", "doc1", null));
+    }
+}
@@ -0,0 +1,94 @@
+package com.kuaishou.rag.document.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * FileSystemObjectStorage 测试：流式写入的大小与 SHA-256、超限回滚、对象名越界
+ */
+class FileSystemObjectStorageTest {
+
+    private static final long MAX_OBJECT_SIZE = 1024 * 1024;
+
+    @TempDir
+    Path baseDir;
+
+    private FileSystemObjectStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new FileSystemObjectStorage(baseDir, MAX_OBJECT_SIZE);
+    }
+
+    @Test
+    void putReportsSizeAndSha256() throws Exception {
+        byte[] content = randomBytes(300_000);
+
+        ObjectStorage.StoredObject stored = storage.putObject("docs/kb1/doc1/a.pdf", new ByteArrayInputStream(content), null);
+
+        assertEquals(content.length, stored.size());
+        assertEquals(sha256(content), stored.sha256());
+        try (InputStream input = storage.getObject("docs/kb1/doc1/a.pdf")) {
+            assertArrayEquals(content, input.readAllBytes());
+        }
+    }
+
+    @Test
+    void oversizedObjectLeavesNothingBehind() throws Exception {
+        byte[] content = randomBytes((int) MAX_OBJECT_SIZE + 1);
+
+        assertThrows(IOException.class,
+            () -> storage.putObject("docs/kb1/doc1/big.bin", new ByteArrayInputStream(content), null));
+
+        Path dir = baseDir.resolve("docs/kb1/doc1");
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count(), "临时文件与目标文件都不应残留");
+        }
+    }
+
+    @Test
+    void rejectsObjectNameOutsideBaseDir() {
+        byte[] content = "x".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class,
+            () -> storage.putObject("docs/../../escape.txt", new ByteArrayInputStream(content), null));
+        assertFalse(Files.exists(baseDir.getParent().resolve("escape.txt")));
+    }
+
+    @Test
+    void removeMissingObjectIsNoop() throws Exception {
+        storage.putObject("docs/kb1/doc1/a.txt", new ByteArrayInputStream(new byte[]{1}), null);
+
+        storage.removeObject("docs/kb1/doc1/a.txt");
+        storage.removeObject("docs/kb1/doc1/a.txt");
+
+        assertFalse(Files.exists(baseDir.resolve("docs/kb1/doc1/a.txt")));
+    }
+
+    static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
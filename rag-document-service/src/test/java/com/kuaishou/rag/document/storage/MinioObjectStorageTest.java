@@ -0,0 +1,88 @@
+package com.kuaishou.rag.document.storage;
+
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * MinioObjectStorage 测试：MinioClient 用替身代替，putObject 像 SDK 一样按分片读取请求流
+ */
+class MinioObjectStorageTest {
+
+    private static final String BUCKET = "rag-documents";
+
+    /**
+     * S3 协议允许的最小分片
+     */
+    private static final long PART_SIZE = 5L * 1024 * 1024;
+
+    private static final long MAX_OBJECT_SIZE = 8L * 1024 * 1024;
+
+    private MinioClient client;
+
+    private MinioObjectStorage storage;
+
+    /**
+     * 替身收到的对象内容
+     */
+    private ByteArrayOutputStream uploaded;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        client = mock(MinioClient.class);
+        uploaded = new ByteArrayOutputStream();
+        when(client.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            PutObjectArgs args = invocation.getArgument(0);
+            assertEquals(-1, args.objectSize(), "长度未知的流应按分片上传");
+            assertEquals(PART_SIZE, args.partSize());
+            byte[] part = new byte[(int) PART_SIZE];
+            int n;
+            while ((n = args.stream().readNBytes(part, 0, part.length)) > 0) {
+                uploaded.write(part, 0, n);
+            }
+            return null;
+        });
+        storage = new MinioObjectStorage(client, BUCKET, PART_SIZE, MAX_OBJECT_SIZE);
+    }
+
+    @Test
+    void putStreamsInPartsAndHashes() throws Exception {
+        byte[] content = FileSystemObjectStorageTest.randomBytes((int) PART_SIZE + 12_345);
+
+        ObjectStorage.StoredObject stored = storage.putObject("docs/kb1/doc1/a.pdf", new ByteArrayInputStream(content),
+            "application/pdf");
+
+        assertArrayEquals(content, uploaded.toByteArray());
+        assertEquals(content.length, stored.size());
+        assertEquals(FileSystemObjectStorageTest.sha256(content), stored.sha256());
+        assertEquals("minio://" + BUCKET + "/docs/kb1/doc1/a.pdf", stored.location());
+    }
+
+    @Test
+    void oversizedObjectFails() {
+        byte[] content = FileSystemObjectStorageTest.randomBytes((int) MAX_OBJECT_SIZE + 1);
+
+        assertThrows(IOException.class,
+            () -> storage.putObject("docs/kb1/doc1/big.bin", new ByteArrayInputStream(content), null));
+    }
+
+    @Test
+    void readFailureIsWrappedAsIOException() throws Exception {
+        when(client.getObject(any(GetObjectArgs.class))).thenThrow(new IllegalStateException("connection refused"));
+
+        assertThrows(IOException.class, () -> storage.getObject("docs/kb1/doc1/a.pdf"));
+    }
+}
@@ -0,0 +1,22 @@
+package com.kuaishou.rag.query;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * 查询服务 - 检索增强生成的在线链路
+ *
+ * 核心功能：
+ * 1. 查询向量化（调用 Embedding 模型）
+ * 2. 向量检索（调用 rag-vector-service）
+ * 3. 可选重排（调用重排模型）
+ * 4. LLM 生成，SSE 逐 token 推送
+ *
+ * 全链路基于 WebFlux / WebClient 非阻塞执行，客户端断开时取消所有下游请求
+ */
+@SpringBootApplication
+public class QueryServiceApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(QueryServiceApplication.class, args);
+    }
+}
@@ -0,0 +1,75 @@
+package com.kuaishou.rag.query.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.RedissonReactiveClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+
+/**
+ * 查询向量的共享缓存层（Redisson）
+ *
+ * Key 格式：rag:query:embedding:{model}:{sha256(归一化文本)}，值为 float32 小端字节，按 TTL 过期。
+ * 多实例共享：一个实例算过的查询向量，其他实例直接复用。
+ *
+ * Redis 异常只记录日志并按未命中处理，不影响查询主流程
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "query.embedding-cache.shared-tier", havingValue = "redis")
+public class EmbeddingSharedTier {
+
+    private static final String KEY_PREFIX = "rag:query:embedding:";
+
+    private final RedissonReactiveClient redisson;
+
+    private final Duration ttl;
+
+    public EmbeddingSharedTier(RedissonClient redissonClient,
+                               @Value("${query.embedding-cache.shared-ttl-seconds:86400}") long ttlSeconds) {
+        this.redisson = redissonClient.reactive();
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+    }
+
+    /**
+     * 读取共享层，未命中或出错时为空
+     */
+    public Mono<float[]> get(String key) {
+        return redisson.<byte[]>getBucket(KEY_PREFIX + key, ByteArrayCodec.INSTANCE).get()
+            .map(EmbeddingSharedTier::decode)
+            .onErrorResume(e -> {
+                log.warn("读取查询向量共享缓存失败: {}", e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    /**
+     * 写入共享层，出错时忽略
+     */
+    public Mono<Void> put(String key, float[] vector) {
+        return redisson.<byte[]>getBucket(KEY_PREFIX + key, ByteArrayCodec.INSTANCE).set(encode(vector), ttl)
+            .onErrorResume(e -> {
+                log.warn("写入查询向量共享缓存失败: {}", e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    private static byte[] encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    private static float[] decode(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
@@ -0,0 +1,104 @@
+package com.kuaishou.rag.query.client;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kuaishou.rag.query.cache.EmbeddingSharedTier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+/**
+ * 带缓存的查询向量化（包装 OpenAiQueryEmbedder）
+ *
+ * 1. 归一化：NFKC、转小写、连续空白合并为一个空格并去掉首尾空白，只差格式的查询共用一个缓存 Key。
+ *    归一化只用于 Key，向量化的仍是原始文本（与入库时分块的向量化方式一致，大小写等信息不丢失）；
+ *    同一 Key 的向量取自最先发起的那条查询
+ * 2. 进程内 Caffeine AsyncCache（按条数限制）：缓存的是进行中的 future，
+ *    并发的相同查询只发起一次上游调用（singleflight），失败的 future 自动移除，下次重新调用
+ * 3. 可选共享层 EmbeddingSharedTier（query.embedding-cache.shared-tier=redis）：
+ *    进程内未命中时先查 Redis，仍未命中才调用 Embedding 接口，结果异步回写
+ *
+ * 调用方取消订阅不会取消共享的 future，其他等待同一查询的请求不受影响
+ */
+@Slf4j
+@Primary
+@Component
+public class CachingQueryEmbedder implements QueryEmbedder {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final OpenAiQueryEmbedder delegate;
+
+    private final EmbeddingSharedTier sharedTier;
+
+    private final boolean enabled;
+
+    private final AsyncCache<String, float[]> localCache;
+
+    public CachingQueryEmbedder(OpenAiQueryEmbedder delegate,
+                                ObjectProvider<EmbeddingSharedTier> sharedTier,
+                                @Value("${query.embedding-cache.enabled:true}") boolean enabled,
+                                @Value("${query.embedding-cache.max-size:10000}") long maxSize,
+                                @Value("${query.embedding-cache.ttl-seconds:3600}") long ttlSeconds) {
+        this.delegate = delegate;
+        this.sharedTier = sharedTier.getIfAvailable();
+        this.enabled = enabled;
+        this.localCache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .buildAsync();
+        if (enabled) {
+            log.info("查询向量缓存已开启, max size: {}, ttl: {}s, shared tier: {}",
+                maxSize, ttlSeconds, this.sharedTier == null ? "none" : "redis");
+        }
+    }
+
+    @Override
+    public Mono<float[]> embed(String text, String model) {
+        if (!enabled) {
+            return delegate.embed(text, model);
+        }
+        String key = model + ":" + sha256(normalize(text));
+        return Mono.defer(() -> Mono.fromFuture(localCache.get(key, (k, executor) -> load(k, text, model)), true));
+    }
+
+    private CompletableFuture<float[]> load(String key, String text, String model) {
+        Mono<float[]> remote = Mono.defer(() -> delegate.embed(text, model));
+        if (sharedTier == null) {
+            return remote.toFuture();
+        }
+        return sharedTier.get(key)
+            .switchIfEmpty(remote.doOnNext(v -> sharedTier.put(key, v).subscribe()))
+            .toFuture();
+    }
+
+    /**
+     * 查询文本归一化：NFKC、小写、空白合并
+     */
+    static String normalize(String text) {
+        String normalized = Normalizer.normalize(text == null ? "" : text, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(normalized.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.kuaishou.rag.query.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OpenAI 兼容的流式 Chat Completions 客户端
+ *
+ * stream=true，逐个 SSE 事件解析 choices[0].delta.content；
+ * 首 token 与相邻 token 之间分别设超时，订阅取消时关闭 HTTP 连接，上游停止生成
+ */
+@Slf4j
+@Component
+public class LlmClient {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+        new ParameterizedTypeReference<>() {
+        };
+
+    private final WebClient webClient;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${llm.openai.model:gpt-4o-mini}")
+    private String model;
+
+    @Value("${llm.openai.temperature:0.7}")
+    private double temperature;
+
+    @Value("${llm.openai.max-tokens:2000}")
+    private int maxTokens;
+
+    /**
+     * 等待首 token 的最长时间（毫秒）
+     */
+    @Value("${query.timeout.first-token-ms:10000}")
+    private long firstTokenTimeoutMs;
+
+    /**
+     * 相邻 token 之间的最长间隔（毫秒）
+     */
+    @Value("${query.timeout.token-idle-ms:${vector.service.timeout:5000}}")
+    private long tokenIdleTimeoutMs;
+
+    public LlmClient(@Qualifier("llmWebClient") WebClient webClient, ObjectMapper objectMapper) {
+        this.webClient = webClient;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 流式生成
+     *
+     * @param messages OpenAI 格式的消息列表（role / content）
+     * @return 逐段生成的文本
+     */
+    public Flux<String> stream(List<Map<String, String>> messages) {
+        Map<String, Object> body = Map.of(
+            "model", model,
+            "messages", messages,
+            "temperature", temperature,
+            "max_tokens", maxTokens,
+            "stream", true);
+        return webClient.post()
+            .uri("/chat/completions")
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .bodyValue(body)
+            .retrieve()
+            .bodyToFlux(SSE_TYPE)
+            .map(event -> event.data() == null ? "" : event.data())
+            .takeWhile(data -> !"[DONE]".equals(data))
+            .timeout(Mono.delay(Duration.ofMillis(firstTokenTimeoutMs)),
+                token -> Mono.delay(Duration.ofMillis(tokenIdleTimeoutMs)))
+            .map(this::deltaContent)
+            .filter(content -> !content.isEmpty());
+    }
+
+    private String deltaContent(String data) {
+        if (data.isEmpty()) {
+            return "";
+        }
+        try {
+            JsonNode node = objectMapper.readTree(data);
+            return node.path("choices").path(0).path("delta").path("content").asText("");
+        } catch (Exception e) {
+            log.warn("无法解析 LLM 流式响应: {}", data);
+            return "";
+        }
+    }
+}
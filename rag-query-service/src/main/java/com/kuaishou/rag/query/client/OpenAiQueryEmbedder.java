@@ -0,0 +1,51 @@
+package com.kuaishou.rag.query.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * OpenAI 兼容的 /embeddings 接口
+ */
+@Component
+public class OpenAiQueryEmbedder implements QueryEmbedder {
+
+    private final WebClient webClient;
+
+    private final Duration timeout;
+
+    public OpenAiQueryEmbedder(@Qualifier("embeddingWebClient") WebClient webClient,
+                               @Value("${query.timeout.embed-ms:${vector.service.timeout:5000}}") long timeoutMs) {
+        this.webClient = webClient;
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    @Override
+    public Mono<float[]> embed(String text, String model) {
+        return webClient.post()
+            .uri("/embeddings")
+            .bodyValue(Map.of("model", model, "input", text))
+            .retrieve()
+            .bodyToMono(JsonNode.class)
+            .map(OpenAiQueryEmbedder::parse)
+            .timeout(timeout);
+    }
+
+    private static float[] parse(JsonNode body) {
+        JsonNode embedding = body.path("data").path(0).path("embedding");
+        if (!embedding.isArray() || embedding.isEmpty()) {
+            throw new IllegalStateException("Embedding 响应缺少 data[0].embedding");
+        }
+        float[] vector = new float[embedding.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) embedding.get(i).asDouble();
+        }
+        return vector;
+    }
+}
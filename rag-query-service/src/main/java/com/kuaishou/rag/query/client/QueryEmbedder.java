@@ -0,0 +1,16 @@
+package com.kuaishou.rag.query.client;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 查询文本向量化
+ */
+public interface QueryEmbedder {
+
+    /**
+     * 单条查询向量化，维度须与检索的 Collection 一致
+     *
+     * @param model 模型，由 QueryModelSelector 按 Collection 选择
+     */
+    Mono<float[]> embed(String text, String model);
+}
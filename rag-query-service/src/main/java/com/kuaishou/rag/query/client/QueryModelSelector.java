@@ -0,0 +1,88 @@
+package com.kuaishou.rag.query.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * 按 Collection 选择查询向量化模型
+ *
+ * 向量服务在线迁移更换模型时，别名切换后 Collection 的维度变为目标模型的维度，继续用 embedding.model
+ * 向量化会因维度不符检索失败。配置了 embedding.migration.model 时，按向量服务报告的 Collection 当前维度
+ * （GET /api/v1/vector/collections/{collection}/dimension）选择：等于 embedding.migration.dimension 用目标模型，
+ * 否则用原模型。维度按 Collection 缓存 refresh-seconds 秒，别名切换后最迟一个周期内跟上；
+ * 读取失败时按原模型处理（同样缓存一个周期，向量服务故障时不会每个查询都重试）
+ */
+@Slf4j
+@Component
+public class QueryModelSelector {
+
+    private final WebClient webClient;
+
+    private final String model;
+
+    private final String migrationModel;
+
+    private final int migrationDimension;
+
+    private final Duration timeout;
+
+    private final AsyncCache<String, Integer> dimensions;
+
+    public QueryModelSelector(@Qualifier("vectorWebClient") WebClient webClient,
+                              @Value("${embedding.model:text-embedding-3-small}") String model,
+                              @Value("${embedding.migration.model:}") String migrationModel,
+                              @Value("${embedding.migration.dimension:0}") int migrationDimension,
+                              @Value("${embedding.migration.refresh-seconds:30}") long refreshSeconds,
+                              @Value("${query.timeout.search-ms:${vector.service.timeout:5000}}") long timeoutMs) {
+        this.webClient = webClient;
+        this.model = model;
+        this.migrationModel = migrationModel;
+        this.migrationDimension = migrationDimension;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.dimensions = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(refreshSeconds))
+            .buildAsync();
+        if (enabled()) {
+            log.info("查询模型随迁移切换已开启, 原模型: {}, 目标模型: {}, 目标维度: {}",
+                model, migrationModel, migrationDimension);
+        }
+    }
+
+    /**
+     * 检索该 Collection 时应使用的模型
+     */
+    public Mono<String> model(String collection) {
+        if (!enabled()) {
+            return Mono.just(model);
+        }
+        return Mono.fromFuture(dimensions.get(collection, (k, executor) -> fetchDimension(k).toFuture()), true)
+            .map(dimension -> dimension == migrationDimension ? migrationModel : model);
+    }
+
+    private boolean enabled() {
+        return !migrationModel.isEmpty() && migrationDimension > 0;
+    }
+
+    private Mono<Integer> fetchDimension(String collection) {
+        return webClient.get()
+            .uri("/api/v1/vector/collections/{collection}/dimension", collection)
+            .retrieve()
+            .bodyToMono(JsonNode.class)
+            .timeout(timeout)
+            .map(body -> body.path("dimension").asInt(-1))
+            .defaultIfEmpty(-1)
+            .onErrorResume(e -> {
+                log.warn("读取 Collection {} 的向量维度失败，使用原模型 {}: {}", collection, model, e.getMessage());
+                return Mono.just(-1);
+            });
+    }
+}
@@ -0,0 +1,60 @@
+package com.kuaishou.rag.query.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.kuaishou.rag.query.dto.RetrievedChunk;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 重排模型客户端（TEI 兼容的 /rerank 接口）
+ *
+ * 请求 {"query": ..., "texts": [...]}，响应 [{"index": i, "score": s}, ...]
+ */
+@Component
+public class RerankClient {
+
+    private final WebClient webClient;
+
+    private final Duration timeout;
+
+    public RerankClient(@Qualifier("rerankWebClient") WebClient webClient,
+                        @Value("${query.timeout.rerank-ms:${vector.service.timeout:5000}}") long timeoutMs) {
+        this.webClient = webClient;
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    /**
+     * 按重排分数降序返回前 topK 个候选，分数写回 score
+     */
+    public Mono<List<RetrievedChunk>> rerank(String query, List<RetrievedChunk> candidates, int topK) {
+        if (candidates.size() <= 1) {
+            return Mono.just(candidates);
+        }
+        List<String> texts = candidates.stream().map(c -> c.getContent() == null ? "" : c.getContent()).toList();
+        return webClient.post()
+            .uri("/rerank")
+            .bodyValue(Map.of("query", query, "texts", texts))
+            .retrieve()
+            .bodyToMono(JsonNode.class)
+            .timeout(timeout)
+            .map(body -> {
+                List<RetrievedChunk> ranked = new ArrayList<>(body.size());
+                for (JsonNode item : body) {
+                    RetrievedChunk chunk = candidates.get(item.path("index").asInt());
+                    chunk.setScore((float) item.path("score").asDouble());
+                    ranked.add(chunk);
+                }
+                ranked.sort(Comparator.comparing(RetrievedChunk::getScore).reversed());
+                return ranked.size() > topK ? ranked.subList(0, topK) : ranked;
+            });
+    }
+}
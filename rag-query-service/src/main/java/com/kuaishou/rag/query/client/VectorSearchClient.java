@@ -0,0 +1,84 @@
+package com.kuaishou.rag.query.client;
+
+import com.kuaishou.rag.query.dto.RetrievedChunk;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * rag-vector-service 检索客户端
+ *
+ * POST /api/v1/vector/collections/{collection}/search，请求体为 SearchRequest，响应为 SearchResponse
+ */
+@Component
+public class VectorSearchClient {
+
+    /**
+     * 只取生成需要的字段，不回传向量
+     */
+    private static final List<String> OUTPUT_FIELDS = List.of("content", "doc_id", "metadata");
+
+    private final WebClient webClient;
+
+    private final Duration timeout;
+
+    public VectorSearchClient(@Qualifier("vectorWebClient") WebClient webClient,
+                              @Value("${query.timeout.search-ms:${vector.service.timeout:5000}}") long timeoutMs) {
+        this.webClient = webClient;
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    /**
+     * ANN 检索
+     *
+     * @param queryText    原始问题，向量服务开启混合检索时用于 BM25 侧
+     * @param partitionKey 路由键（知识库 ID），为空时检索整个 Collection
+     */
+    public Mono<List<RetrievedChunk>> search(String collection, float[] vector, String queryText, int topK,
+                                             String partitionKey, Map<String, Object> filters) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("vector", vector);
+        body.put("topK", topK);
+        body.put("queryText", queryText);
+        body.put("outputFields", OUTPUT_FIELDS);
+        if (partitionKey != null && !partitionKey.isEmpty()) {
+            body.put("partitionKey", partitionKey);
+        }
+        if (filters != null && !filters.isEmpty()) {
+            body.put("filters", filters);
+        }
+        return webClient.post()
+            .uri("/api/v1/vector/collections/{collection}/search", collection)
+            .bodyValue(body)
+            .retrieve()
+            .bodyToMono(SearchResult.class)
+            .timeout(timeout)
+            .map(result -> {
+                if (!result.isSuccess()) {
+                    throw new IllegalStateException("向量检索失败: " + result.getMessage());
+                }
+                return result.getResults() == null ? List.<RetrievedChunk>of() : result.getResults();
+            });
+    }
+
+    /**
+     * 向量服务 SearchResponse 的客户端视图
+     */
+    @Data
+    static class SearchResult {
+
+        private boolean success;
+
+        private String message;
+
+        private List<RetrievedChunk> results;
+    }
+}
@@ -0,0 +1,97 @@
+package com.kuaishou.rag.query.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * 下游 WebClient 配置
+ *
+ * 每个下游一个独立的 Reactor Netty 连接池：某个下游变慢时占满的是它自己的池，不影响其他阶段。
+ * 连接获取超时后快速失败，而不是无限排队
+ */
+@Configuration
+public class QueryClientConfig {
+
+    /**
+     * 每个下游池的最大连接数
+     */
+    @Value("${query.http.max-connections:200}")
+    private int maxConnections;
+
+    /**
+     * 等待空闲连接的最长时间（毫秒）
+     */
+    @Value("${query.http.pending-acquire-timeout-ms:1000}")
+    private long pendingAcquireTimeoutMs;
+
+    /**
+     * 空闲连接保留时间（毫秒），应小于下游/负载均衡的空闲断开时间
+     */
+    @Value("${query.http.max-idle-ms:30000}")
+    private long maxIdleMs;
+
+    @Value("${query.http.connect-timeout-ms:1000}")
+    private int connectTimeoutMs;
+
+    @Bean
+    public WebClient vectorWebClient(WebClient.Builder builder,
+                                     @Value("${vector.service.url:http://rag-vector-service:8082}") String url) {
+        return builder.clone()
+            .baseUrl(url)
+            .clientConnector(connector("vector-service"))
+            .build();
+    }
+
+    @Bean
+    public WebClient embeddingWebClient(WebClient.Builder builder,
+                                        @Value("${embedding.url:${llm.openai.base-url:https://api.openai.com/v1}}") String url,
+                                        @Value("${embedding.api-key:${llm.openai.api-key:}}") String apiKey) {
+        return builder.clone()
+            .baseUrl(url)
+            .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+            .clientConnector(connector("embedding"))
+            .build();
+    }
+
+    @Bean
+    public WebClient llmWebClient(WebClient.Builder builder,
+                                  @Value("${llm.openai.base-url:https://api.openai.com/v1}") String url,
+                                  @Value("${llm.openai.api-key:}") String apiKey) {
+        return builder.clone()
+            .baseUrl(url)
+            .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+            .clientConnector(connector("llm"))
+            .build();
+    }
+
+    @Bean
+    public WebClient rerankWebClient(WebClient.Builder builder,
+                                     @Value("${rerank.url:http://localhost:8090}") String url) {
+        return builder.clone()
+            .baseUrl(url)
+            .clientConnector(connector("rerank"))
+            .build();
+    }
+
+    private ReactorClientHttpConnector connector(String name) {
+        ConnectionProvider provider = ConnectionProvider.builder(name)
+            .maxConnections(maxConnections)
+            .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+            .maxIdleTime(Duration.ofMillis(maxIdleMs))
+            .evictInBackground(Duration.ofMillis(maxIdleMs))
+            .build();
+        HttpClient httpClient = HttpClient.create(provider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+            .compress(true);
+        return new ReactorClientHttpConnector(httpClient);
+    }
+}
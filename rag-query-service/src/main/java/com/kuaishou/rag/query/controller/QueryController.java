@@ -0,0 +1,42 @@
+package com.kuaishou.rag.query.controller;
+
+import com.kuaishou.rag.query.dto.QueryRequest;
+import com.kuaishou.rag.query.dto.QueryResponse;
+import com.kuaishou.rag.query.service.QueryPipeline;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 问答接口
+ */
+@RestController
+@RequestMapping("/api/v1/query")
+@RequiredArgsConstructor
+public class QueryController {
+
+    private final QueryPipeline queryPipeline;
+
+    /**
+     * 流式问答（SSE）：sources → token* → done / error
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> stream(@Valid @RequestBody QueryRequest request) {
+        return queryPipeline.stream(request);
+    }
+
+    /**
+     * 非流式问答
+     */
+    @PostMapping
+    public Mono<QueryResponse> query(@Valid @RequestBody QueryRequest request) {
+        return queryPipeline.answer(request);
+    }
+}
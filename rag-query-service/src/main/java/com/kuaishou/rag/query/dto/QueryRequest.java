@@ -0,0 +1,49 @@
+package com.kuaishou.rag.query.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 问答请求 DTO
+ */
+@Data
+public class QueryRequest {
+
+    /**
+     * 用户问题（必须）
+     */
+    @NotBlank(message = "问题不能为空")
+    private String query;
+
+    /**
+     * 检索的 Collection，为空时使用 vector.service.collection
+     */
+    private String collectionName;
+
+    /**
+     * 知识库 ID（可选）：作为向量服务的路由键，只检索该知识库所在的分区
+     */
+    private String kbId;
+
+    /**
+     * 参与生成的分块数（TopK）
+     * 为空时使用 query.top-k
+     */
+    @Min(value = 1, message = "topK 至少为 1")
+    @Max(value = 50, message = "topK 最大为 50")
+    private Integer topK;
+
+    /**
+     * 是否重排，为空时使用 rerank.enabled
+     */
+    private Boolean rerank;
+
+    /**
+     * 过滤条件（可选），原样透传给向量服务
+     */
+    private Map<String, Object> filters;
+}
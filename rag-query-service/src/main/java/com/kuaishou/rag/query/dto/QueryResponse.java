@@ -0,0 +1,26 @@
+package com.kuaishou.rag.query.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 非流式问答结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryResponse {
+
+    /**
+     * 生成的回答
+     */
+    private String answer;
+
+    /**
+     * 参与生成的分块
+     */
+    private List<RetrievedChunk> sources;
+}
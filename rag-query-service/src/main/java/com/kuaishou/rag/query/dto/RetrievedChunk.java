@@ -0,0 +1,23 @@
+package com.kuaishou.rag.query.dto;
+
+import lombok.Data;
+
+/**
+ * 检索到的分块（对应向量服务 SearchResponse.SearchResult）
+ */
+@Data
+public class RetrievedChunk {
+
+    private String id;
+
+    private Float score;
+
+    private String content;
+
+    private String docId;
+
+    /**
+     * 元数据 JSON 字符串
+     */
+    private String metadata;
+}
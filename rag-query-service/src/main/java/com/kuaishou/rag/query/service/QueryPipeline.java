@@ -0,0 +1,164 @@
+package com.kuaishou.rag.query.service;
+
+import com.kuaishou.rag.query.client.LlmClient;
+import com.kuaishou.rag.query.client.QueryEmbedder;
+import com.kuaishou.rag.query.client.QueryModelSelector;
+import com.kuaishou.rag.query.client.RerankClient;
+import com.kuaishou.rag.query.client.VectorSearchClient;
+import com.kuaishou.rag.query.dto.QueryRequest;
+import com.kuaishou.rag.query.dto.QueryResponse;
+import com.kuaishou.rag.query.dto.RetrievedChunk;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * 查询流水线：embed → search →（rerank）→ LLM 流式生成
+ *
+ * 各阶段都是 WebClient 调用，组成一条 Reactor 链，不占用请求线程：
+ * 1. 每个阶段独立超时（query.timeout.*，默认取 vector.service.timeout）
+ * 2. 重排失败或超时时退化为 ANN 顺序，不影响回答
+ * 3. 客户端断开时订阅被取消，取消信号沿链传到正在进行的下游请求（含 LLM 流），连接随即释放
+ *
+ * 流式输出的 SSE 事件：sources（检索到的分块）→ token（逐段文本）→ done；出错时以 error 事件结束
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QueryPipeline {
+
+    private static final String SYSTEM_PROMPT = "你是知识库问答助手。只根据给定的参考资料回答问题，"
+        + "资料中没有的信息请直接说明不知道，不要编造。引用资料时标注编号，如 [1]。";
+
+    /**
+     * 单次向量检索的最大条数，与向量服务 SearchRequest.topK 的 @Max(100) 一致，超出会被校验拒绝
+     */
+    static final int MAX_SEARCH_TOP_K = 100;
+
+    private final QueryEmbedder embedder;
+
+    private final QueryModelSelector modelSelector;
+
+    private final VectorSearchClient vectorSearchClient;
+
+    private final RerankClient rerankClient;
+
+    private final LlmClient llmClient;
+
+    /**
+     * 默认 Collection
+     */
+    @Value("${vector.service.collection:document_chunks}")
+    private String defaultCollection;
+
+    /**
+     * 默认参与生成的分块数
+     */
+    @Value("${query.top-k:5}")
+    private int defaultTopK;
+
+    /**
+     * 是否默认重排
+     */
+    @Value("${rerank.enabled:false}")
+    private boolean rerankEnabled;
+
+    /**
+     * 重排时检索的候选数 = topK * candidateMultiplier，上限 MAX_SEARCH_TOP_K
+     */
+    @Value("${rerank.candidate-multiplier:4}")
+    private int rerankCandidateMultiplier;
+
+    /**
+     * 拼入 prompt 的参考资料最大字符数
+     */
+    @Value("${query.max-context-chars:8000}")
+    private int maxContextChars;
+
+    /**
+     * 检索（含可选重排），不生成
+     */
+    public Mono<List<RetrievedChunk>> retrieve(QueryRequest request) {
+        int topK = request.getTopK() != null ? request.getTopK() : defaultTopK;
+        boolean rerank = request.getRerank() != null ? request.getRerank() : rerankEnabled;
+        int candidates = rerank ? Math.min(MAX_SEARCH_TOP_K, topK * rerankCandidateMultiplier) : topK;
+        String collection = request.getCollectionName() != null ? request.getCollectionName() : defaultCollection;
+
+        Mono<List<RetrievedChunk>> retrieved = stage("embed", modelSelector.model(collection)
+                .flatMap(model -> embedder.embed(request.getQuery(), model)))
+            .flatMap(vector -> stage("search",
+                vectorSearchClient.search(collection, vector, request.getQuery(), candidates, request.getKbId(),
+                    request.getFilters())));
+        if (!rerank) {
+            return retrieved;
+        }
+        return retrieved.flatMap(chunks -> stage("rerank", rerankClient.rerank(request.getQuery(), chunks, topK))
+            .onErrorResume(e -> {
+                log.warn("重排失败，使用检索顺序: {}", e.getMessage());
+                return Mono.just(chunks.size() > topK ? chunks.subList(0, topK) : chunks);
+            }));
+    }
+
+    /**
+     * 流式问答
+     */
+    public Flux<ServerSentEvent<Object>> stream(QueryRequest request) {
+        return retrieve(request)
+            .flatMapMany(chunks -> Flux.concat(
+                Flux.just(event("sources", chunks)),
+                llmClient.stream(messages(request.getQuery(), chunks)).map(token -> event("token", token)),
+                Flux.just(event("done", ""))))
+            .onErrorResume(e -> {
+                log.warn("查询失败: {}", e.getMessage());
+                return Flux.just(event("error", String.valueOf(e.getMessage())));
+            });
+    }
+
+    /**
+     * 非流式问答：生成完成后一次返回
+     */
+    public Mono<QueryResponse> answer(QueryRequest request) {
+        return retrieve(request)
+            .flatMap(chunks -> llmClient.stream(messages(request.getQuery(), chunks))
+                .collect(Collectors.joining())
+                .map(answer -> new QueryResponse(answer, chunks)));
+    }
+
+    private List<Map<String, String>> messages(String query, List<RetrievedChunk> chunks) {
+        StringBuilder context = new StringBuilder();
+        for (int i = 0; i < chunks.size(); i++) {
+            String content = chunks.get(i).getContent();
+            if (content == null || content.isBlank()) {
+                continue;
+            }
+            String entry = "[" + (i + 1) + "] " + content + "\n\n";
+            if (context.length() + entry.length() > maxContextChars) {
+                break;
+            }
+            context.append(entry);
+        }
+        return List.of(
+            Map.of("role", "system", "content", SYSTEM_PROMPT),
+            Map.of("role", "user", "content", "参考资料：\n" + context + "问题：" + query));
+    }
+
+    /**
+     * 统一阶段错误信息，超时时指明是哪个阶段
+     */
+    private static <T> Mono<T> stage(String name, Mono<T> mono) {
+        return mono.onErrorMap(TimeoutException.class, e -> new IllegalStateException(name + " 阶段超时", e));
+    }
+
+    private static ServerSentEvent<Object> event(String name, Object data) {
+        return ServerSentEvent.builder(data).event(name).build();
+    }
+}
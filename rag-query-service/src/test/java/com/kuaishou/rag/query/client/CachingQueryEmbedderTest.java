@@ -0,0 +1,93 @@
+package com.kuaishou.rag.query.client;
+
+import com.kuaishou.rag.query.cache.EmbeddingSharedTier;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * CachingQueryEmbedder 测试：singleflight、归一化只用于 Key、按模型隔离、失败不缓存
+ */
+class CachingQueryEmbedderTest {
+
+    private static final String MODEL = "text-embedding-3-small";
+
+    private final List<String> upstreamTexts = new CopyOnWriteArrayList<>();
+
+    @Test
+    void concurrentIdenticalQueriesCallUpstreamOnce() {
+        CachingQueryEmbedder embedder = newEmbedder(text ->
+            Mono.delay(Duration.ofMillis(100)).map(ignored -> new float[]{1f, 2f}));
+
+        List<float[]> vectors = Flux.range(0, 32)
+            .flatMap(i -> embedder.embed("什么是 RAG", MODEL).subscribeOn(Schedulers.parallel()), 32)
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+        assertEquals(32, vectors.size());
+        assertEquals(1, upstreamTexts.size());
+        vectors.forEach(vector -> assertSame(vectors.get(0), vector));
+    }
+
+    @Test
+    void embedsOriginalTextAndNormalizesOnlyTheKey() {
+        CachingQueryEmbedder embedder = newEmbedder(text -> Mono.just(new float[]{text.length()}));
+
+        float[] first = embedder.embed("  What is  RAG? ", MODEL).block();
+        float[] second = embedder.embed("what is rag?", MODEL).block();
+
+        assertEquals(List.of("  What is  RAG? "), upstreamTexts);
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    void cachesPerModel() {
+        CachingQueryEmbedder embedder = newEmbedder(text -> Mono.just(new float[]{1f}));
+
+        embedder.embed("query", MODEL).block();
+        embedder.embed("query", "text-embedding-3-large").block();
+        embedder.embed("query", MODEL).block();
+
+        assertEquals(2, upstreamTexts.size());
+    }
+
+    @Test
+    void failedCallIsNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+        CachingQueryEmbedder embedder = newEmbedder(text -> calls.incrementAndGet() == 1
+            ? Mono.error(new IllegalStateException("upstream down"))
+            : Mono.just(new float[]{1f}));
+
+        assertThrows(IllegalStateException.class, () -> embedder.embed("query", MODEL).block());
+        assertArrayEquals(new float[]{1f}, embedder.embed("query", MODEL).block());
+        assertEquals(2, calls.get());
+    }
+
+    private CachingQueryEmbedder newEmbedder(Function<String, Mono<float[]>> upstream) {
+        OpenAiQueryEmbedder delegate = new OpenAiQueryEmbedder(WebClient.create(), 1000) {
+            @Override
+            public Mono<float[]> embed(String text, String model) {
+                return Mono.defer(() -> {
+                    upstreamTexts.add(text);
+                    return upstream.apply(text);
+                });
+            }
+        };
+        return new CachingQueryEmbedder(delegate,
+            new StaticListableBeanFactory().getBeanProvider(EmbeddingSharedTier.class), true, 100, 60);
+    }
+}
@@ -0,0 +1,29 @@
+package com.kuaishou.rag.vector;
+
+import com.kuaishou.rag.vector.config.VectorStoreConfiguration;
+import com.kuaishou.rag.vector.controller.VectorSearchController;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.context.annotation.Import;
+
+/**
+ * 向量服务 - 对外提供 /api/v1/vector/collections/{collection}/search 检索接口（端口 8082）
+ *
+ * 查询服务（VectorSearchClient）与网关 lb://rag-vector-service 路由都指向本服务。
+ * 与文档服务一样只导入 VectorStoreConfiguration 并显式注册 controller：不做包扫描，
+ * 因此 Collection 迁移接口不在这里暴露，迁移仍由负责写入的文档服务发起（双写、删除重放须在写入进程内）。
+ * 本服务不使用关系库，排除数据源自动配置
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration(exclude = {DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class})
+@Import({VectorStoreConfiguration.class, VectorSearchController.class})
+@EnableDiscoveryClient
+public class VectorServiceApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(VectorServiceApplication.class, args);
+    }
+}
@@ -0,0 +1,59 @@
+package com.kuaishou.rag.vector.cache;
+
+import com.kuaishou.rag.vector.dto.SearchResponse;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内共享层替身
+ *
+ * 与 Redis 实现语义一致（TTL + 按 Collection 递增 generation 失效），用于本地开发和测试，无需 Redis
+ */
+public class InMemorySharedCacheTier implements SharedCacheTier {
+
+    private final Map<String, Map<String, Entry>> store = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    @Override
+    public long generation(String collectionName) {
+        return generations.computeIfAbsent(collectionName, k -> new AtomicLong()).get();
+    }
+
+    @Override
+    public SearchResponse get(String collectionName, long generation, String key) {
+        Map<String, Entry> entries = store.get(collectionName + ":" + generation);
+        if (entries == null) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireAt < System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.response;
+    }
+
+    @Override
+    public void put(String collectionName, long generation, String key, SearchResponse response, long ttlSeconds) {
+        if (generation != generation(collectionName)) {
+            return;
+        }
+        store.computeIfAbsent(collectionName + ":" + generation, k -> new ConcurrentHashMap<>())
+            .put(key, new Entry(response, System.currentTimeMillis() + ttlSeconds * 1000));
+    }
+
+    @Override
+    public void invalidate(String collectionName) {
+        long previous = generations.computeIfAbsent(collectionName, k -> new AtomicLong()).getAndIncrement();
+        store.remove(collectionName + ":" + previous);
+    }
+
+    private record Entry(SearchResponse response, long expireAt) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.kuaishou.rag.vector.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Redis 的共享缓存层
+ *
+ * Key 格式：rag:vector:search:{collection}:{generation}:{key}
+ * 失效时对 rag:vector:search-gen:{collection} 执行 INCR，旧 generation 的 key 自然过期，
+ * 不需要 SCAN/DEL。generation 在本地缓存 genCacheMillis，跨实例失效最多延迟这么久。
+ *
+ * Redis 异常只记录日志并按未命中处理，不影响搜索主流程
+ */
+@Slf4j
+public class RedisSharedCacheTier implements SharedCacheTier {
+
+    private static final String KEY_PREFIX = "rag:vector:search:";
+
+    private static final String GEN_PREFIX = "rag:vector:search-gen:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final long genCacheMillis;
+
+    private final Map<String, CachedGeneration> generations = new ConcurrentHashMap<>();
+
+    public RedisSharedCacheTier(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, long genCacheMillis) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.genCacheMillis = genCacheMillis;
+    }
+
+    @Override
+    public SearchResponse get(String collectionName, long generation, String key) {
+        if (generation < 0) {
+            return null;
+        }
+        try {
+            String json = redisTemplate.opsForValue().get(redisKey(collectionName, generation, key));
+            return json == null ? null : objectMapper.readValue(json, SearchResponse.class);
+        } catch (Exception e) {
+            log.warn("Error reading shared search cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String collectionName, long generation, String key, SearchResponse response, long ttlSeconds) {
+        if (generation < 0) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(redisKey(collectionName, generation, key),
+                objectMapper.writeValueAsString(response), ttlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("Error writing shared search cache: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void invalidate(String collectionName) {
+        try {
+            Long generation = redisTemplate.opsForValue().increment(GEN_PREFIX + collectionName);
+            generations.put(collectionName, new CachedGeneration(generation == null ? 0 : generation,
+                System.currentTimeMillis() + genCacheMillis));
+        } catch (Exception e) {
+            log.warn("Error invalidating shared search cache: {}", e.getMessage());
+            generations.remove(collectionName);
+        }
+    }
+
+    private String redisKey(String collectionName, long generation, String key) {
+        return KEY_PREFIX + collectionName + ":" + generation + ":" + key;
+    }
+
+    @Override
+    public long generation(String collectionName) {
+        CachedGeneration cached = generations.get(collectionName);
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.expireAt > now) {
+            return cached.value;
+        }
+        long generation;
+        try {
+            String value = redisTemplate.opsForValue().get(GEN_PREFIX + collectionName);
+            generation = value == null ? 0 : Long.parseLong(value);
+        } catch (Exception e) {
+            log.warn("Error reading shared search cache generation: {}", e.getMessage());
+            // 读不到 generation 时返回 -1，get/put 直接跳过
+            return -1;
+        }
+        generations.put(collectionName, new CachedGeneration(generation, now + genCacheMillis));
+        return generation;
+    }
+
+    private record CachedGeneration(long value, long expireAt) {
+    }
+}
@@ -0,0 +1,343 @@
+package com.kuaishou.rag.vector.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 向量搜索结果缓存（语义缓存）
+ *
+ * 两级结构：
+ * 1. 进程内 Caffeine（W-TinyLFU，按条数限制）
+ * 2. 可选共享层 SharedCacheTier（Redis / 进程内替身）
+ *
+ * 缓存 Key = Collection + topK + 输出字段 + 过滤表达式 + 路由键（+ 混合检索/重排的查询文本）+ 量化后的查询向量：
+ * 向量先归一化，每个分量量化为 1 字节再做 SHA-256，微小的浮点差异映射到同一个 Key。
+ * 精确 Key 未命中时，在同一 (Collection, topK, 过滤) 的最近查询中找余弦相似度
+ * 超过 similarityThreshold 的向量，复用其结果（近似重复匹配，仅进程内）。
+ *
+ * 写入/删除 Collection 时调用 invalidate，进程内通过 generation 递增使旧 Key 失效。
+ * 进程内 Key 同时带上共享层的 generation：其他实例的 invalidate 递增共享层 generation 后，
+ * 本实例的进程内条目也随之失效（跨实例延迟同 SharedCacheTier.generation 的本地缓存时间）。
+ *
+ * 指标：vector.search.cache.requests{result=local|near_duplicate|shared|miss}、vector.search.cache.hit.rate
+ */
+@Slf4j
+@Component
+public class SearchCache {
+
+    @Value("${optimization.cache.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 缓存有效期（秒）
+     */
+    @Value("${optimization.cache.ttl:300}")
+    private long ttlSeconds;
+
+    /**
+     * 进程内缓存最大条数
+     */
+    @Value("${optimization.cache.max-size:10000}")
+    private long maxSize;
+
+    /**
+     * 近似重复匹配的余弦相似度阈值，>= 1 时关闭近似匹配
+     */
+    @Value("${optimization.cache.similarity-threshold:0.98}")
+    private double similarityThreshold;
+
+    /**
+     * 每个 (Collection, topK, 过滤) 保留的最近查询向量数，用于近似匹配
+     */
+    @Value("${optimization.cache.near-duplicate-window:128}")
+    private int nearDuplicateWindow;
+
+    @Autowired(required = false)
+    private SharedCacheTier sharedTier;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, SearchResponse> localCache;
+
+    private Cache<String, RecentQueries> recentQueries;
+
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder nearDuplicateHits = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        localCache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .build();
+        recentQueries = Caffeine.newBuilder()
+            .maximumSize(Math.max(1, maxSize / nearDuplicateWindow))
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .build();
+        if (meterRegistry != null) {
+            registerMetrics(meterRegistry);
+        }
+        log.info("Search cache enabled, max size: {}, ttl: {}s, similarity threshold: {}, shared tier: {}",
+            maxSize, ttlSeconds, similarityThreshold, sharedTier == null ? "none" : sharedTier.getClass().getSimpleName());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查询缓存
+     *
+     * 返回的 Lookup 固定了查询时的 generation，未命中时搜索结果通过 put(lookup, response) 写回同一个 Key：
+     * 搜索期间发生的 invalidate 会让写回落在旧 generation 下，不会把旧数据算成新 generation 的结果
+     */
+    public Lookup lookup(String collectionName, SearchRequest request) {
+        if (!enabled) {
+            return Lookup.DISABLED;
+        }
+        long sharedGeneration = sharedTier == null ? 0 : sharedTier.generation(collectionName);
+        CacheKey key = keyOf(collectionName, request, sharedGeneration);
+
+        SearchResponse response = localCache.getIfPresent(key.localKey());
+        if (response != null) {
+            localHits.increment();
+            return new Lookup(collectionName, key, sharedGeneration, response);
+        }
+
+        if (similarityThreshold < 1) {
+            RecentQueries recent = recentQueries.getIfPresent(key.bucket());
+            String similarKey = recent == null ? null : recent.findSimilar(key.unitVector(), similarityThreshold);
+            if (similarKey != null && (response = localCache.getIfPresent(similarKey)) != null) {
+                nearDuplicateHits.increment();
+                return new Lookup(collectionName, key, sharedGeneration, response);
+            }
+        }
+
+        if (sharedTier != null
+            && (response = sharedTier.get(collectionName, sharedGeneration, key.sharedKey())) != null) {
+            sharedHits.increment();
+            putLocal(key, response);
+            return new Lookup(collectionName, key, sharedGeneration, response);
+        }
+
+        misses.increment();
+        return new Lookup(collectionName, key, sharedGeneration, null);
+    }
+
+    /**
+     * 写入缓存（只缓存成功的结果），Key 与 generation 取自 lookup 时刻
+     */
+    public void put(Lookup lookup, SearchResponse response) {
+        if (!enabled || lookup.key == null || response == null || !response.isSuccess()) {
+            return;
+        }
+        // 查询期间 Collection 已失效：结果可能不含新写入的数据，直接丢弃
+        if (generation(lookup.collectionName) != lookup.key.generation()) {
+            return;
+        }
+        // 结果可能是惰性视图（引用整批 RPC 响应），入缓存前物化，只保留本查询的行
+        response = response.withResults(new ArrayList<>(response.getResults()));
+        putLocal(lookup.key, response);
+        if (sharedTier != null) {
+            sharedTier.put(lookup.collectionName, lookup.sharedGeneration, lookup.key.sharedKey(), response, ttlSeconds);
+        }
+    }
+
+    /**
+     * Collection 数据变更后使缓存失效
+     */
+    public void invalidate(String collectionName) {
+        if (!enabled) {
+            return;
+        }
+        generations.computeIfAbsent(collectionName, k -> new AtomicLong()).incrementAndGet();
+        if (sharedTier != null) {
+            sharedTier.invalidate(collectionName);
+        }
+    }
+
+    /**
+     * 命中率 = (本地命中 + 近似命中 + 共享层命中) / 总查询数
+     */
+    public double hitRate() {
+        long hits = localHits.sum() + nearDuplicateHits.sum() + sharedHits.sum();
+        long total = hits + misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("vector.search.cache.hit.rate", this, SearchCache::hitRate).register(registry);
+        FunctionCounter.builder("vector.search.cache.requests", localHits, LongAdder::sum)
+            .tag("result", "local").register(registry);
+        FunctionCounter.builder("vector.search.cache.requests", nearDuplicateHits, LongAdder::sum)
+            .tag("result", "near_duplicate").register(registry);
+        FunctionCounter.builder("vector.search.cache.requests", sharedHits, LongAdder::sum)
+            .tag("result", "shared").register(registry);
+        FunctionCounter.builder("vector.search.cache.requests", misses, LongAdder::sum)
+            .tag("result", "miss").register(registry);
+    }
+
+    private void putLocal(CacheKey key, SearchResponse response) {
+        localCache.put(key.localKey(), response);
+        if (similarityThreshold < 1) {
+            recentQueries.get(key.bucket(), k -> new RecentQueries(nearDuplicateWindow))
+                .add(key.unitVector(), key.localKey());
+        }
+    }
+
+    private CacheKey keyOf(String collectionName, SearchRequest request, long sharedGeneration) {
+        float[] unit = normalize(request.getVector());
+        String shape = request.getTopK() + "|" + request.resolveOutputFields() + "|" + Objects.toString(request.getFilterExpr(), "")
+            + "|" + Objects.toString(request.getPartitionKey(), "")
+            + (Boolean.TRUE.equals(request.getHybrid()) ? "|hybrid" : "")
+            + (Boolean.TRUE.equals(request.getRerank()) ? "|rerank" : "")
+            + (Boolean.TRUE.equals(request.getHybrid()) || Boolean.TRUE.equals(request.getRerank())
+                ? "|" + Objects.toString(request.getQueryText(), "") : "");
+        String sharedKey = shape + "|" + quantizedHash(unit);
+        long generation = generation(collectionName);
+        String prefix = collectionName + "|" + generation + "|" + sharedGeneration + "|";
+        return new CacheKey(prefix + shape, prefix + sharedKey, sharedKey, generation, unit);
+    }
+
+    private long generation(String collectionName) {
+        return generations.computeIfAbsent(collectionName, k -> new AtomicLong()).get();
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float scale = norm == 0 ? 0 : (float) (1 / Math.sqrt(norm));
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+
+    /**
+     * 归一化向量每个分量量化到 [-127, 127] 后取 SHA-256
+     */
+    private static String quantizedHash(float[] unit) {
+        byte[] quantized = new byte[unit.length];
+        for (int i = 0; i < unit.length; i++) {
+            quantized[i] = (byte) Math.round(unit[i] * 127);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(unit.length).getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest.digest(quantized));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param bucket     近似匹配分桶：Collection + 两级 generation + topK + 过滤
+     * @param localKey   进程内缓存 Key（含进程内与共享层 generation）
+     * @param sharedKey  共享层 Key（generation 由共享层自己维护）
+     * @param generation 进程内 generation
+     * @param unitVector 归一化后的查询向量
+     */
+    private record CacheKey(String bucket, String localKey, String sharedKey, long generation, float[] unitVector) {
+    }
+
+    /**
+     * 一次缓存查询的结果与 Key 快照
+     */
+    public static final class Lookup {
+
+        private static final Lookup DISABLED = new Lookup(null, null, 0, null);
+
+        private final String collectionName;
+        private final CacheKey key;
+        private final long sharedGeneration;
+        private final SearchResponse response;
+
+        private Lookup(String collectionName, CacheKey key, long sharedGeneration, SearchResponse response) {
+            this.collectionName = collectionName;
+            this.key = key;
+            this.sharedGeneration = sharedGeneration;
+            this.response = response;
+        }
+
+        /**
+         * 命中的结果，未命中返回 null
+         */
+        public SearchResponse getResponse() {
+            return response;
+        }
+    }
+
+    /**
+     * 最近查询向量的环形缓冲，线性扫描找最相似的一条
+     */
+    private static final class RecentQueries {
+
+        private final float[][] vectors;
+        private final String[] keys;
+        private int next;
+
+        private RecentQueries(int capacity) {
+            this.vectors = new float[capacity][];
+            this.keys = new String[capacity];
+        }
+
+        synchronized void add(float[] unitVector, String key) {
+            vectors[next] = unitVector;
+            keys[next] = key;
+            next = (next + 1) % vectors.length;
+        }
+
+        synchronized String findSimilar(float[] unitVector, double threshold) {
+            String best = null;
+            double bestScore = threshold;
+            for (int i = 0; i < vectors.length; i++) {
+                float[] candidate = vectors[i];
+                if (candidate == null || candidate.length != unitVector.length) {
+                    continue;
+                }
+                double dot = 0;
+                for (int j = 0; j < candidate.length; j++) {
+                    dot += candidate[j] * unitVector[j];
+                }
+                if (dot >= bestScore) {
+                    bestScore = dot;
+                    best = keys[i];
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.kuaishou.rag.vector.cache;
+
+import com.kuaishou.rag.vector.dto.SearchResponse;
+
+/**
+ * 搜索缓存共享层（二级缓存）
+ *
+ * 多个 vector-service 实例共享，进程内缓存未命中时查询。
+ * 实现：RedisSharedCacheTier（生产）、InMemorySharedCacheTier（本地/测试替身）
+ */
+public interface SharedCacheTier {
+
+    /**
+     * 当前 generation，invalidate 后递增；读写时由调用方传入查询时刻的值
+     */
+    long generation(String collectionName);
+
+    /**
+     * 读取缓存，未命中返回 null
+     */
+    SearchResponse get(String collectionName, long generation, String key);
+
+    /**
+     * 写入缓存，generation 已过期时写入的 Key 不会再被读到
+     */
+    void put(String collectionName, long generation, String key, SearchResponse response, long ttlSeconds);
+
+    /**
+     * 使某个 Collection 的全部缓存失效
+     */
+    void invalidate(String collectionName);
+}
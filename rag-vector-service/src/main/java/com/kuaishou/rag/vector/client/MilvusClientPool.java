@@ -0,0 +1,336 @@
+package com.kuaishou.rag.vector.client;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.milvus.client.MilvusClient;
+import io.milvus.grpc.CheckHealthResponse;
+import io.milvus.param.R;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Milvus 客户端池（多通道 + 多节点）
+ *
+ * 对外表现为一个 MilvusClient（动态代理），每次调用路由到池中一个成员：
+ * 1. 每个 endpoint 建多个 MilvusServiceClient（各自独立的 gRPC channel），单个 HTTP/2 连接不再成为瓶颈
+ * 2. 最少在途请求（least outstanding）路由，在途数相同时轮询
+ * 3. 连续失败达到阈值的成员被摘除一段时间，后台健康检查通过后恢复
+ * 4. search 支持对冲请求：主请求超过 hedgeDelay 未返回时，向另一个 endpoint 的成员再发一次，取先成功的结果，
+ *    另一个请求被取消（中断阻塞中的 gRPC 调用）。同一 endpoint 的多个通道之间不对冲，
+ *    只有一个 endpoint 时对冲不生效；对冲线程池有界，满了就只等主请求
+ */
+@Slf4j
+public class MilvusClientPool implements InvocationHandler {
+
+    private final List<Member> members;
+
+    private final int ejectAfterFailures;
+
+    private final long ejectMillis;
+
+    private final boolean hedgeEnabled;
+
+    private final long hedgeDelayMillis;
+
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    private final ScheduledExecutorService healthChecker;
+
+    private final ExecutorService hedgePool;
+
+    private final MilvusClient proxy;
+
+    public MilvusClientPool(List<Member> members, int ejectAfterFailures, long ejectMillis,
+                            boolean hedgeEnabled, long hedgeDelayMillis, int hedgeMaxThreads,
+                            long healthCheckIntervalMillis) {
+        this.members = members;
+        this.ejectAfterFailures = ejectAfterFailures;
+        this.ejectMillis = ejectMillis;
+        this.hedgeEnabled = hedgeEnabled && members.stream().map(m -> m.endpoint).distinct().count() > 1;
+        if (hedgeEnabled && !this.hedgeEnabled) {
+            log.warn("Search hedging disabled: all pool members share one endpoint");
+        }
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(daemon("milvus-health-check"));
+        this.healthChecker.scheduleWithFixedDelay(this::checkHealth,
+            healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        // 不排队：线程用满时 execute 直接拒绝，调用方退化为不对冲
+        this.hedgePool = this.hedgeEnabled
+            ? new ThreadPoolExecutor(0, hedgeMaxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                daemon("milvus-hedge"), new ThreadPoolExecutor.AbortPolicy())
+            : null;
+        this.proxy = (MilvusClient) Proxy.newProxyInstance(MilvusClient.class.getClassLoader(),
+            new Class<?>[]{MilvusClient.class}, this);
+    }
+
+    /**
+     * 池化后的客户端
+     */
+    public MilvusClient client() {
+        return proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close" -> {
+                close();
+                return null;
+            }
+            case "toString" -> {
+                return "MilvusClientPool" + members;
+            }
+            case "hashCode" -> {
+                return System.identityHashCode(proxy);
+            }
+            case "equals" -> {
+                return proxy == args[0];
+            }
+            default -> {
+            }
+        }
+        if (hedgeEnabled && "search".equals(method.getName())) {
+            return hedgedInvoke(method, args);
+        }
+        return invokeOn(pick(null), method, args);
+    }
+
+    private Object invokeOn(Member member, Method method, Object[] args) throws Throwable {
+        member.outstanding.incrementAndGet();
+        try {
+            Object result = method.invoke(member.client, args);
+            if (result instanceof R<?> r && isTransportFailure(r.getException())) {
+                onFailure(member);
+            } else {
+                member.consecutiveFailures.set(0);
+            }
+            return result;
+        } catch (InvocationTargetException e) {
+            if (isTransportFailure(e.getCause())) {
+                onFailure(member);
+            }
+            throw e.getCause();
+        } finally {
+            member.outstanding.decrementAndGet();
+        }
+    }
+
+    /**
+     * 对冲调用：主请求 hedgeDelay 内未完成时，向另一个 endpoint 发送备份请求，返回先成功的结果并取消另一个
+     */
+    private Object hedgedInvoke(Method method, Object[] args) throws Throwable {
+        Member primary = pick(null);
+        Attempt first = submit(primary, method, args);
+        if (first == null) {
+            return invokeOn(primary, method, args);
+        }
+        try {
+            return first.result.get(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            Member backup = pickOtherEndpoint(primary);
+            Attempt second = backup == null ? null : submit(backup, method, args);
+            if (second == null) {
+                return unwrap(first.result);
+            }
+            CompletableFuture<Object> winner = new CompletableFuture<>();
+            first.result.whenComplete((r, ex) -> completeIfSuccess(winner, r, ex, second.result));
+            second.result.whenComplete((r, ex) -> completeIfSuccess(winner, r, ex, first.result));
+            try {
+                return unwrap(winner);
+            } finally {
+                first.task.cancel(true);
+                second.task.cancel(true);
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 提交到对冲线程池，线程池已满返回 null
+     */
+    private Attempt submit(Member member, Method method, Object[] args) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        try {
+            Future<?> task = hedgePool.submit(() -> {
+                try {
+                    future.complete(invokeOn(member, method, args));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+            return new Attempt(future, task);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 一次对冲中的单个请求：结果 + 可中断的执行任务
+     */
+    private record Attempt(CompletableFuture<Object> result, Future<?> task) {
+    }
+
+    /**
+     * 成功结果立即采用；失败时等另一个请求，两个都失败才返回失败
+     */
+    private static void completeIfSuccess(CompletableFuture<Object> winner, Object result, Throwable error,
+                                          CompletableFuture<Object> other) {
+        boolean success = error == null && (!(result instanceof R<?> r) || r.getStatus() == R.Status.Success.getCode());
+        if (success || other.isDone()) {
+            if (error != null) {
+                winner.completeExceptionally(error);
+            } else {
+                winner.complete(result);
+            }
+        }
+    }
+
+    private static Object unwrap(CompletableFuture<Object> future) throws Throwable {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 最少在途请求路由；全部被摘除时退化为在所有成员中选择
+     */
+    private Member pick(Member exclude) {
+        long now = System.currentTimeMillis();
+        int start = Math.floorMod(roundRobin.getAndIncrement(), members.size());
+        Member best = null;
+        Member fallback = null;
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get((start + i) % members.size());
+            if (member == exclude) {
+                continue;
+            }
+            if (fallback == null || member.outstanding.get() < fallback.outstanding.get()) {
+                fallback = member;
+            }
+            if (member.ejectedUntil > now) {
+                continue;
+            }
+            if (best == null || member.outstanding.get() < best.outstanding.get()) {
+                best = member;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        return fallback != null ? fallback : exclude;
+    }
+
+    /**
+     * 选择与 primary 不同 endpoint 的成员，没有可用的返回 null
+     */
+    private Member pickOtherEndpoint(Member primary) {
+        long now = System.currentTimeMillis();
+        Member best = null;
+        for (Member member : members) {
+            if (Objects.equals(member.endpoint, primary.endpoint) || member.ejectedUntil > now) {
+                continue;
+            }
+            if (best == null || member.outstanding.get() < best.outstanding.get()) {
+                best = member;
+            }
+        }
+        return best;
+    }
+
+    private void checkHealth() {
+        for (Member member : members) {
+            try {
+                R<CheckHealthResponse> response = member.client.checkHealth();
+                boolean healthy = response.getStatus() == R.Status.Success.getCode() && response.getData().getIsHealthy();
+                if (healthy && member.ejectedUntil > 0) {
+                    log.info("Milvus endpoint {} is healthy again", member.endpoint);
+                    member.ejectedUntil = 0;
+                    member.consecutiveFailures.set(0);
+                } else if (!healthy) {
+                    eject(member);
+                }
+            } catch (Exception e) {
+                log.warn("Milvus health check failed, endpoint: {}, error: {}", member.endpoint, e.getMessage());
+                eject(member);
+            }
+        }
+    }
+
+    private void onFailure(Member member) {
+        if (member.consecutiveFailures.incrementAndGet() >= ejectAfterFailures) {
+            eject(member);
+        }
+    }
+
+    private void eject(Member member) {
+        if (member.ejectedUntil <= System.currentTimeMillis()) {
+            log.warn("Ejecting Milvus endpoint {} for {}ms", member.endpoint, ejectMillis);
+        }
+        member.ejectedUntil = System.currentTimeMillis() + ejectMillis;
+    }
+
+    private void close() {
+        healthChecker.shutdownNow();
+        if (hedgePool != null) {
+            hedgePool.shutdownNow();
+        }
+        for (Member member : members) {
+            member.client.close();
+        }
+    }
+
+    private static boolean isTransportFailure(Throwable error) {
+        if (!(error instanceof StatusRuntimeException e)) {
+            return false;
+        }
+        Status.Code code = e.getStatus().getCode();
+        return code == Status.Code.UNAVAILABLE || code == Status.Code.DEADLINE_EXCEEDED;
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * 池中的一个成员：一个 endpoint 上的一个客户端（独立 gRPC channel）
+     */
+    public static final class Member {
+
+        private final String endpoint;
+
+        private final MilvusClient client;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+        private volatile long ejectedUntil;
+
+        public Member(String endpoint, MilvusClient client) {
+            this.endpoint = endpoint;
+            this.client = client;
+        }
+
+        @Override
+        public String toString() {
+            return endpoint;
+        }
+    }
+}
@@ -1,22 +1,35 @@
 package com.kuaishou.rag.vector.config;
 
+import com.kuaishou.rag.vector.client.MilvusClientPool;
+import io.milvus.client.MilvusClient;
 import io.milvus.client.MilvusServiceClient;
 import io.milvus.param.ConnectParam;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Milvus 向量数据库配置
  *
  * TODO: 配置说明
- * 1. 生产环境使用 Milvus Cluster 模式，需要配置多个 server 地址
+ * 1. 生产环境使用 Milvus Cluster 模式，通过 milvus.hosts 配置多个 server 地址
  * 2. 认证信息从 KMS/配置中心获取，不要硬编码
  * 3. 连接池参数根据实际 QPS 调整
+ *
+ * 对外提供的 MilvusClient 是 MilvusClientPool 代理：每个地址建立多个 gRPC channel，
+ * 按最少在途请求路由，摘除不健康节点，search 支持对冲请求
+ *
+ * vector.engine=local 时使用进程内 HNSW 引擎，不创建 Milvus 客户端
  */
 @Slf4j
 @Configuration
+@ConditionalOnProperty(name = "vector.engine", havingValue = "milvus", matchIfMissing = true)
 public class MilvusConfig {
 
     /**
@@ -54,22 +67,93 @@ public class MilvusConfig {
     @Value("${milvus.token:}")
     private String token;
 
-    @Bean
-    public MilvusServiceClient milvusClient() {
-        log.info("Initializing Milvus client, host: {}, port: {}", milvusHost, milvusPort);
+    /**
+     * 集群地址列表，逗号分隔，格式：host1:port1,host2:port2
+     * 为空时使用 milvus.host / milvus.port 单节点
+     */
+    @Value("${milvus.hosts:}")
+    private List<String> milvusHosts;
+
+    /**
+     * 全部节点的 channel 总数，平均分配到每个节点（每节点至少 1 个）
+     */
+    @Value("${milvus.connection.pool.max-total:20}")
+    private Integer poolMaxTotal;
+
+    /**
+     * 连续失败多少次后摘除节点
+     */
+    @Value("${milvus.routing.eject-after-failures:3}")
+    private Integer ejectAfterFailures;
+
+    /**
+     * 摘除时长（毫秒）
+     */
+    @Value("${milvus.routing.eject-ms:30000}")
+    private Long ejectMs;
+
+    /**
+     * 健康检查间隔（毫秒）
+     */
+    @Value("${milvus.routing.health-check-interval-ms:5000}")
+    private Long healthCheckIntervalMs;
+
+    /**
+     * 是否对 search 启用对冲请求（只在多个 endpoint 之间对冲）
+     */
+    @Value("${milvus.routing.hedge.enabled:false}")
+    private Boolean hedgeEnabled;
+
+    /**
+     * 主请求超过该时间未返回时发出对冲请求（毫秒），建议设为 search 的 p95 延迟
+     */
+    @Value("${milvus.routing.hedge.delay-ms:30}")
+    private Long hedgeDelayMs;
+
+    /**
+     * 对冲线程池最大线程数，用满后不再对冲
+     */
+    @Value("${milvus.routing.hedge.max-threads:64}")
+    private Integer hedgeMaxThreads;
+
+    @Bean(destroyMethod = "close")
+    public MilvusClient milvusClient() {
+        List<String> endpoints = new ArrayList<>();
+        if (milvusHosts != null) {
+            milvusHosts.stream().map(String::trim).filter(h -> !h.isEmpty()).forEach(endpoints::add);
+        }
+        if (endpoints.isEmpty()) {
+            endpoints.add(milvusHost + ":" + milvusPort);
+        }
+        int channelsPerEndpoint = Math.max(1, poolMaxTotal / endpoints.size());
+        log.info("Initializing Milvus client pool, endpoints: {}, channels per endpoint: {}", endpoints, channelsPerEndpoint);
+
+        List<MilvusClientPool.Member> members = new ArrayList<>();
+        for (String endpoint : endpoints) {
+            for (int i = 0; i < channelsPerEndpoint; i++) {
+                members.add(new MilvusClientPool.Member(endpoint, new MilvusServiceClient(connectParam(endpoint))));
+            }
+        }
+        return new MilvusClientPool(members, ejectAfterFailures, ejectMs,
+            hedgeEnabled, hedgeDelayMs, hedgeMaxThreads, healthCheckIntervalMs).client();
+    }
+
+    private ConnectParam connectParam(String endpoint) {
+        int separator = endpoint.lastIndexOf(':');
+        String host = separator > 0 ? endpoint.substring(0, separator) : endpoint;
+        int port = separator > 0 ? Integer.parseInt(endpoint.substring(separator + 1)) : milvusPort;
 
         ConnectParam.Builder builder = ConnectParam.newBuilder()
-                .withHost(milvusHost)
-                .withPort(milvusPort)
-                .withConnectTimeout(connectTimeout, java.util.concurrent.TimeUnit.MILLISECONDS)
-                .withKeepAliveTime(keepAliveTime, java.util.concurrent.TimeUnit.MILLISECONDS);
+                .withHost(host)
+                .withPort(port)
+                .withConnectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                .withKeepAliveTime(keepAliveTime, TimeUnit.MILLISECONDS);
 
         // 如果配置了 Token，启用认证
         if (token != null && !token.isEmpty()) {
             builder.withToken(token);
-            log.info("Milvus authentication enabled");
         }
 
-        return new MilvusServiceClient(builder.build());
+        return builder.build();
     }
 }
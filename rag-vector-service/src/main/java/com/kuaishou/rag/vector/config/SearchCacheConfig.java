@@ -0,0 +1,55 @@
+package com.kuaishou.rag.vector.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kuaishou.rag.vector.cache.InMemorySharedCacheTier;
+import com.kuaishou.rag.vector.cache.RedisSharedCacheTier;
+import com.kuaishou.rag.vector.cache.SharedCacheTier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 搜索缓存共享层配置
+ *
+ * optimization.cache.shared-tier：
+ * - none（默认）：只使用进程内缓存
+ * - redis：多实例共享，需要配置 spring.data.redis，且 classpath 上有 spring-data-redis（依赖为 optional）
+ * - embedded：进程内替身，用于本地开发和测试
+ */
+@Slf4j
+@Configuration
+public class SearchCacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "optimization.cache.shared-tier", havingValue = "embedded")
+    public SharedCacheTier inMemorySharedCacheTier() {
+        log.info("Search cache shared tier: embedded");
+        return new InMemorySharedCacheTier();
+    }
+
+    /**
+     * Redis 共享层：只有选择 redis 且引入了 spring-data-redis 时才加载，
+     * 避免引用 StringRedisTemplate 让整个配置类依赖 Redis
+     */
+    @Configuration
+    @ConditionalOnClass(StringRedisTemplate.class)
+    @ConditionalOnProperty(name = "optimization.cache.shared-tier", havingValue = "redis")
+    static class RedisTierConfig {
+
+        /**
+         * generation 本地缓存时间（毫秒），即跨实例失效的最大延迟
+         */
+        @Value("${optimization.cache.redis.generation-cache-ms:1000}")
+        private long generationCacheMs;
+
+        @Bean
+        public SharedCacheTier redisSharedCacheTier(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+            log.info("Search cache shared tier: redis");
+            return new RedisSharedCacheTier(redisTemplate, objectMapper, generationCacheMs);
+        }
+    }
+}
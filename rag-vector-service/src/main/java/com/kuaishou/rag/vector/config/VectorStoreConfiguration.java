@@ -0,0 +1,21 @@
+package com.kuaishou.rag.vector.config;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.stereotype.Controller;
+
+/**
+ * 以库的方式嵌入向量存储时导入的配置
+ *
+ * 只装配 VectorStoreService 及其依赖（存储引擎、缓存、准入、迁移等），不扫描 controller 包，
+ * 嵌入方（如文档服务）不会对外暴露 /api/v1/vector/** 接口。用法：@Import(VectorStoreConfiguration.class)
+ * 同时排除独立部署的启动类 VectorServiceApplication，避免嵌入方连带开启其自动配置与服务注册
+ */
+@Configuration
+@ComponentScan(basePackages = "com.kuaishou.rag.vector",
+    excludeFilters = @ComponentScan.Filter(type = FilterType.ANNOTATION,
+        classes = {Controller.class, SpringBootConfiguration.class}))
+public class VectorStoreConfiguration {
+}
@@ -0,0 +1,54 @@
+package com.kuaishou.rag.vector.controller;
+
+import com.kuaishou.rag.vector.dto.MigrationRequest;
+import com.kuaishou.rag.vector.migration.CollectionMigration;
+import com.kuaishou.rag.vector.migration.CollectionMigrator;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Collection 在线迁移接口（运维使用）
+ */
+@RestController
+@RequestMapping("/api/v1/vector/collections/{collection}/migration")
+@RequiredArgsConstructor
+public class CollectionMigrationController {
+
+    private final CollectionMigrator migrator;
+
+    /**
+     * 发起迁移，返回初始状态；已有进行中的迁移时返回 409，本进程无法完成的迁移（引擎不支持、缺少 VectorTransform）返回 400
+     */
+    @PostMapping
+    public ResponseEntity<?> start(@PathVariable String collection, @Valid @RequestBody MigrationRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(migrator.start(collection, request));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    /**
+     * 最近一次迁移的状态与进度
+     */
+    @GetMapping
+    public ResponseEntity<CollectionMigration> status(@PathVariable String collection) {
+        CollectionMigration migration = migrator.status(collection);
+        return migration == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(migration);
+    }
+
+    /**
+     * 取消进行中的迁移（不切换别名，目标 Collection 保留）
+     */
+    @DeleteMapping
+    public ResponseEntity<Void> cancel(@PathVariable String collection) {
+        return migrator.cancel(collection) ? ResponseEntity.accepted().build() : ResponseEntity.notFound().build();
+    }
+}
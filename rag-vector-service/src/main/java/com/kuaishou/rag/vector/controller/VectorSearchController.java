@@ -0,0 +1,46 @@
+package com.kuaishou.rag.vector.controller;
+
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import com.kuaishou.rag.vector.service.VectorStoreService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 向量检索接口（供 rag-query-service 调用）
+ */
+@RestController
+@RequestMapping("/api/v1/vector/collections/{collection}")
+@RequiredArgsConstructor
+public class VectorSearchController {
+
+    private final VectorStoreService vectorStoreService;
+
+    @PostMapping("/search")
+    public SearchResponse search(@PathVariable String collection, @Valid @RequestBody SearchRequest request) {
+        return vectorStoreService.search(collection, request);
+    }
+
+    /**
+     * 多个查询合并为一次请求，结果与请求顺序一一对应
+     */
+    @PostMapping("/batch-search")
+    public List<SearchResponse> batchSearch(@PathVariable String collection,
+                                            @Valid @RequestBody List<SearchRequest> requests) {
+        return vectorStoreService.batchSearch(collection, requests);
+    }
+
+    /**
+     * 当前向量维度，查询服务据此选择向量化模型；Collection 为空或引擎无法读取时返回 404
+     */
+    @GetMapping("/dimension")
+    public ResponseEntity<Map<String, Integer>> dimension(@PathVariable String collection) {
+        int dimension = vectorStoreService.dimension(collection);
+        return dimension < 0 ? ResponseEntity.notFound().build() : ResponseEntity.ok(Map.of("dimension", dimension));
+    }
+}
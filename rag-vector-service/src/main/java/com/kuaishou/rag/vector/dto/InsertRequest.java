@@ -0,0 +1,116 @@
+package com.kuaishou.rag.vector.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 向量批量插入请求 DTO
+ *
+ * 各列表按下标一一对应，长度必须与 ids 一致
+ */
+@Data
+public class InsertRequest {
+
+    /**
+     * 主键 ID 列表（必须）
+     */
+    @NotEmpty(message = "ids 不能为空")
+    private List<String> ids;
+
+    /**
+     * 向量列表（必须）
+     * 使用 float[] 避免装箱，JSON 中为普通数字数组
+     */
+    @NotEmpty(message = "向量不能为空")
+    private List<float[]> vectors;
+
+    /**
+     * 原始文本内容（可选，默认空字符串）
+     */
+    private List<String> contents;
+
+    /**
+     * 所属文档 ID（可选，默认空字符串）
+     */
+    private List<String> docIds;
+
+    /**
+     * 元数据 JSON 字符串（可选，默认 "{}"）
+     */
+    private List<String> metadataList;
+
+    /**
+     * 路由键（可选，默认空字符串）：租户 / 知识库 ID
+     * 写入对应的 Milvus partition key 分区，检索时按 SearchRequest.partitionKey 只扫描该分区
+     */
+    private List<String> partitionKeys;
+
+    /**
+     * 检查各列与 ids 一一对应，不合法时返回原因，合法时返回 null
+     */
+    public String validate() {
+        if (ids == null || ids.isEmpty()) {
+            return "ids 不能为空";
+        }
+        if (vectors == null || vectors.size() != ids.size()) {
+            return "vectors 与 ids 长度不一致";
+        }
+        if (!sameSize(contents) || !sameSize(docIds) || !sameSize(metadataList) || !sameSize(partitionKeys)) {
+            return "contents / docIds / metadataList / partitionKeys 与 ids 长度不一致";
+        }
+        return null;
+    }
+
+    /**
+     * 按路由键拆分为多个请求，未指定 partitionKeys 时整体属于空字符串路由键
+     */
+    public Map<String, InsertRequest> splitByPartition() {
+        if (partitionKeys == null || new HashSet<>(partitionKeys).size() <= 1) {
+            String key = partitionKeys == null || partitionKeys.isEmpty() ? "" : partitionKeys.get(0);
+            return Collections.singletonMap(key, this);
+        }
+        Map<String, List<Integer>> rowsByKey = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            rowsByKey.computeIfAbsent(partitionKeys.get(i), k -> new ArrayList<>()).add(i);
+        }
+        Map<String, InsertRequest> slices = new LinkedHashMap<>();
+        rowsByKey.forEach((key, rows) -> slices.put(key, slice(rows)));
+        return slices;
+    }
+
+    /**
+     * 取出指定下标的行组成新请求
+     */
+    public InsertRequest slice(List<Integer> rows) {
+        InsertRequest slice = new InsertRequest();
+        slice.setIds(select(ids, rows));
+        slice.setVectors(select(vectors, rows));
+        slice.setContents(select(contents, rows));
+        slice.setDocIds(select(docIds, rows));
+        slice.setMetadataList(select(metadataList, rows));
+        slice.setPartitionKeys(select(partitionKeys, rows));
+        return slice;
+    }
+
+    private boolean sameSize(List<?> values) {
+        return values == null || values.size() == ids.size();
+    }
+
+    private static <T> List<T> select(List<T> values, List<Integer> rows) {
+        if (values == null) {
+            return null;
+        }
+        List<T> selected = new ArrayList<>(rows.size());
+        for (Integer row : rows) {
+            selected.add(values.get(row));
+        }
+        return selected;
+    }
+}
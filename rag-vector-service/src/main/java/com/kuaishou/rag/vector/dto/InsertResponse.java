@@ -0,0 +1,45 @@
+package com.kuaishou.rag.vector.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.milvus.grpc.IDs;
+import lombok.Data;
+
+/**
+ * 向量批量插入响应 DTO
+ */
+@Data
+public class InsertResponse {
+
+    private boolean success;
+
+    /**
+     * 失败原因
+     */
+    private String message;
+
+    /**
+     * 写入行数
+     */
+    private int insertCount;
+
+    /**
+     * 引擎返回的主键（缓冲写入的合并确认中为空），protobuf 类型不参与 JSON 序列化
+     */
+    @JsonIgnore
+    private IDs insertIds;
+
+    public static InsertResponse success(int insertCount, IDs insertIds) {
+        InsertResponse response = new InsertResponse();
+        response.setSuccess(true);
+        response.setInsertCount(insertCount);
+        response.setInsertIds(insertIds);
+        return response;
+    }
+
+    public static InsertResponse error(String message) {
+        InsertResponse response = new InsertResponse();
+        response.setSuccess(false);
+        response.setMessage(message);
+        return response;
+    }
+}
@@ -0,0 +1,62 @@
+package com.kuaishou.rag.vector.dto;
+
+import com.kuaishou.rag.vector.store.VectorCompression;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+/**
+ * 在线迁移请求 DTO
+ *
+ * 未指定的参数使用当前配置（vector.dimension / vector.index.params.* / vector.collection.shards-num）
+ */
+@Data
+public class MigrationRequest {
+
+    /**
+     * 目标向量维度
+     */
+    @Min(value = 1)
+    @Max(value = 32768)
+    private Integer dimension;
+
+    /**
+     * 目标存储方式，默认全精度 HNSW
+     */
+    private VectorCompression compression = VectorCompression.NONE;
+
+    /**
+     * HNSW 每层最大连接数
+     */
+    @Min(value = 2)
+    @Max(value = 2048)
+    private Integer hnswM;
+
+    /**
+     * HNSW 构建时搜索深度
+     */
+    @Min(value = 1)
+    @Max(value = 65536)
+    private Integer efConstruction;
+
+    /**
+     * 分片数
+     */
+    @Min(value = 1)
+    @Max(value = 64)
+    private Integer shardsNum;
+
+    /**
+     * 是否用 VectorTransform 重新生成向量，默认维度变化时重新生成
+     */
+    private Boolean reembed;
+
+    /**
+     * 召回率阈值，覆盖 vector.migration.verify.min-recall（更换模型时新旧结果本就不同，可调低）
+     */
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private Double minRecall;
+}
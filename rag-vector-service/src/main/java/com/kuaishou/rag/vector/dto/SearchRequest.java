@@ -14,12 +14,17 @@ import java.util.Map;
 @Data
 public class SearchRequest {
 
+    /**
+     * 支持投影的标量字段
+     */
+    public static final List<String> PROJECTABLE_FIELDS = List.of("content", "doc_id", "metadata");
+
     /**
      * 查询向量（必须）
-     * 由 Embedding Service 生成
+     * 由 Embedding Service 生成，使用 float[] 避免装箱
      */
     @NotNull(message = "查询向量不能为空")
-    private List<Float> vector;
+    private float[] vector;
 
     /**
      * 返回结果数量（TopK）
@@ -39,21 +44,97 @@ public class SearchRequest {
     private Integer candidateMultiplier = 10;
 
     /**
-     * 过滤条件（可选）
-     * 支持字段：doc_id, doc_name, metadata.xxx
-     * 示例：{"doc_id": "doc123", "metadata.category": "tech"}
+     * HNSW 搜索深度 ef（可选）
+     * 为空时由服务端按延迟 SLO 与召回率自适应选择
+     */
+    @Min(value = 1)
+    @Max(value = 4096)
+    private Integer ef;
+
+    /**
+     * 过滤条件（可选），由 FilterCompiler 编译为过滤表达式
+     * 支持字段：id, doc_id, metadata.xxx；值为单值（等值）、数组（in）或运算符对象（$eq $ne $in $nin $gt $gte $lt $lte）
+     * 各列均为字符串，范围运算符按字典序比较，只接受字符串操作数（数字请补零到定长，日期用 ISO 格式）
+     * 示例：{"doc_id": ["doc1", "doc2"], "metadata.category": "tech", "metadata.year": {"$gte": "2023"}}
      */
     private Map<String, Object> filters;
 
+    /**
+     * 编译后的 Milvus 过滤表达式（服务端内部字段）
+     * 只由 VectorStoreService 根据 filters 编译设置；调用方携带原始表达式时请求被拒绝，过滤请使用 filters
+     */
+    private String filterExpr;
+
+    /**
+     * 路由键（可选）：租户 / 知识库 ID，与写入时的 InsertRequest.partitionKeys 对应
+     * 指定后只检索该路由键的分区（Milvus partition key 裁剪），而不是在整个 Collection 上过滤
+     * 没有 partition_key 字段的旧 Collection 按 meta_kb_id 列过滤，两者都没有时检索返回错误
+     */
+    private String partitionKey;
+
+    /**
+     * 是否混合检索：向量 ANN 与 content 字段 BM25 并行检索后融合
+     * 默认 false；需同时提供 queryText，带 filters 时只做向量检索
+     */
+    private Boolean hybrid = false;
+
+    /**
+     * 是否重排：多取 topK * candidateMultiplier 个候选，按 queryText 重新打分后截断到 topK
+     * 默认 false；需同时提供 queryText
+     */
+    private Boolean rerank = false;
+
+    /**
+     * 原始查询文本（混合检索的词法侧、重排使用）
+     */
+    private String queryText;
+
     /**
      * 指定搜索的 Collection 名称
      * 默认使用配置文件中的 collection
      */
     private String collectionName;
 
+    /**
+     * 输出字段（可选），可选值：content, doc_id, metadata
+     * 为空时返回全部字段；传空列表时只返回 id 和 score，避免拉取大文本
+     */
+    private List<String> outputFields;
+
     /**
      * 是否输出向量数据
      * 默认 false，减少网络传输
      */
     private Boolean outputVector = false;
+
+    /**
+     * 浅拷贝全部字段（向量、过滤条件等引用共享，调用方只替换字段、不修改其内容）
+     */
+    public SearchRequest copy() {
+        SearchRequest copy = new SearchRequest();
+        copy.setVector(vector);
+        copy.setTopK(topK);
+        copy.setCandidateMultiplier(candidateMultiplier);
+        copy.setEf(ef);
+        copy.setFilters(filters);
+        copy.setFilterExpr(filterExpr);
+        copy.setPartitionKey(partitionKey);
+        copy.setHybrid(hybrid);
+        copy.setRerank(rerank);
+        copy.setQueryText(queryText);
+        copy.setCollectionName(collectionName);
+        copy.setOutputFields(outputFields);
+        copy.setOutputVector(outputVector);
+        return copy;
+    }
+
+    /**
+     * 实际输出字段：未指定时为全部字段，指定时只保留支持的字段
+     */
+    public List<String> resolveOutputFields() {
+        if (outputFields == null) {
+            return PROJECTABLE_FIELDS;
+        }
+        return outputFields.stream().filter(PROJECTABLE_FIELDS::contains).distinct().toList();
+    }
 }
@@ -0,0 +1,94 @@
+package com.kuaishou.rag.vector.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 向量搜索响应 DTO
+ */
+@Data
+public class SearchResponse {
+
+    public static final String RETRIEVAL_DENSE = "dense";
+
+    public static final String RETRIEVAL_HYBRID = "hybrid";
+
+    private boolean success;
+
+    /**
+     * 失败原因
+     */
+    private String message;
+
+    /**
+     * 失败是否由请求本身引起（过滤表达式、向量维度、Collection 不存在等），
+     * 与引擎/网络故障区分：准入控制只按后者下调并发上限
+     */
+    private boolean invalidRequest;
+
+    private List<SearchResult> results;
+
+    /**
+     * 实际使用的检索方式：dense / hybrid
+     */
+    private String retrieval;
+
+    /**
+     * 检索方式说明：请求了混合检索但未执行的原因，或混合检索结果的局限
+     */
+    private String notice;
+
+    public static SearchResponse success(List<SearchResult> results) {
+        SearchResponse response = new SearchResponse();
+        response.setSuccess(true);
+        response.setResults(results);
+        return response;
+    }
+
+    public static SearchResponse error(String message) {
+        SearchResponse response = new SearchResponse();
+        response.setSuccess(false);
+        response.setMessage(message);
+        return response;
+    }
+
+    /**
+     * 请求本身不合法导致的失败
+     */
+    public static SearchResponse invalid(String message) {
+        SearchResponse response = error(message);
+        response.setInvalidRequest(true);
+        return response;
+    }
+
+    /**
+     * 以新的结果列表复制，保留检索方式说明
+     */
+    public SearchResponse withResults(List<SearchResult> newResults) {
+        SearchResponse copy = success(newResults);
+        copy.setRetrieval(retrieval);
+        copy.setNotice(notice);
+        return copy;
+    }
+
+    /**
+     * 单条搜索结果
+     */
+    @Data
+    public static class SearchResult {
+
+        private String id;
+
+        /**
+         * 相似度分数，越大越相似
+         */
+        private Float score;
+
+        private String content;
+
+        private String docId;
+
+        private String metadata;
+    }
+}
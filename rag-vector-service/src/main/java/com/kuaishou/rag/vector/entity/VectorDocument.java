@@ -6,7 +6,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -29,8 +28,9 @@ public class VectorDocument implements Serializable {
     /**
      * 向量数据（浮点数组）
      * 维度必须与 Collection 定义一致，默认 1536（OpenAI embedding）
+     * 使用 float[] 避免装箱，1536 维约 6 KB
      */
-    private List<Float> vector;
+    private float[] vector;
 
     /**
      * 原始文本内容
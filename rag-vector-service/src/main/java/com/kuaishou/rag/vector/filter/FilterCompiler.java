@@ -0,0 +1,274 @@
+package com.kuaishou.rag.vector.filter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * SearchRequest.filters -> Milvus 布尔表达式
+ *
+ * 支持的写法：
+ * - {"doc_id": "d1"}                       等值
+ * - {"doc_id": ["d1", "d2"]}               in
+ * - {"metadata.category": {"$ne": "x"}}    运算符：$eq $ne $in $nin $gt $gte $lt $lte
+ *
+ * 字段：id、doc_id、metadata.xxx。metadata.xxx 若已提升为独立标量字段（vector.filter.promoted-fields，
+ * 列名 meta_xxx，带标量索引）则直接比较该列；否则退化为对 metadata JSON 字符串的 like 匹配，只支持等值，代价高。
+ * 所有列都是 VarChar，值一律按字符串比较：$gt $gte $lt $lte 只接受字符串操作数，数字操作数直接拒绝
+ * （按字典序 "10" < "9"，静默返回错误结果比报错更糟），需要数值范围时由写入方补零到定长。
+ *
+ * 1. 参数安全：字段名按白名单校验，值只接受字符串/数字/布尔并转义，不拼接任何调用方原文
+ * 2. 选择性高的谓词在前：主键 > doc_id > 提升字段等值 > 范围/不等 > metadata like
+ * 3. 同一形状（字段 + 运算符，不含具体值）只规划一次，计划缓存在进程内，之后只做值绑定
+ */
+@Component
+public class FilterCompiler {
+
+    /**
+     * 提升字段的列名前缀：metadata.kb_id -> meta_kb_id
+     */
+    public static final String PROMOTED_PREFIX = "meta_";
+
+    private static final String METADATA_PREFIX = "metadata.";
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]{0,63}");
+
+    private static final Map<String, String> COMPARISONS = Map.of(
+        "$eq", "==", "$ne", "!=", "$gt", ">", "$gte", ">=", "$lt", "<", "$lte", "<=");
+
+    /**
+     * 范围运算符
+     */
+    private static final Set<String> RANGES = Set.of("$gt", "$gte", "$lt", "$lte");
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    /**
+     * 缓存的计划数（按形状）
+     */
+    @Value("${vector.filter.plan-cache-size:1024}")
+    private long planCacheSize;
+
+    private Cache<String, List<Predicate>> plans;
+
+    @PostConstruct
+    public void init() {
+        plans = Caffeine.newBuilder().maximumSize(planCacheSize).build();
+    }
+
+    /**
+     * 编译过滤条件
+     *
+     * @param filters      过滤条件，为空时返回 null
+     * @param promotedKeys Collection 已提升为独立列的 metadata 键
+     * @throws IllegalArgumentException 字段或运算符不支持、值类型不合法
+     */
+    public String compile(Map<String, Object> filters, Set<String> promotedKeys) {
+        if (filters == null || filters.isEmpty()) {
+            return null;
+        }
+        String shape = shapeOf(filters) + "#" + new TreeSet<>(promotedKeys);
+        List<Predicate> plan = plans.get(shape, k -> plan(filters, promotedKeys));
+
+        StringBuilder expr = new StringBuilder();
+        for (Predicate predicate : plan) {
+            if (!expr.isEmpty()) {
+                expr.append(" and ");
+            }
+            Object value = filters.get(predicate.key());
+            if (value instanceof Map<?, ?> operators) {
+                value = operators.get(predicate.op());
+            }
+            predicate.render(expr, value);
+        }
+        return expr.toString();
+    }
+
+    /**
+     * 两个表达式取与，任一为空时返回另一个
+     */
+    public static String and(String left, String right) {
+        if (left == null || left.isEmpty()) {
+            return right;
+        }
+        if (right == null || right.isEmpty()) {
+            return left;
+        }
+        return "(" + left + ") and (" + right + ")";
+    }
+
+    /**
+     * field in ['a', 'b', ...]
+     */
+    public static String in(String field, Collection<?> values) {
+        StringBuilder expr = new StringBuilder(field).append(" in [");
+        appendList(expr, values);
+        return expr.append(']').toString();
+    }
+
+    /**
+     * 字符串字面量（转义反斜杠和单引号）
+     */
+    public static String quote(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+    private static String shapeOf(Map<String, Object> filters) {
+        StringBuilder shape = new StringBuilder();
+        for (String key : new TreeSet<>(filters.keySet())) {
+            Object value = filters.get(key);
+            shape.append(key).append('=');
+            if (value instanceof Map<?, ?> operators) {
+                shape.append(new TreeSet<>(operators.keySet().stream().map(String::valueOf).toList()));
+            } else {
+                shape.append(value instanceof Collection<?> ? "$in" : "$eq");
+            }
+            shape.append(';');
+        }
+        return shape.toString();
+    }
+
+    private static List<Predicate> plan(Map<String, Object> filters, Set<String> promotedKeys) {
+        List<Predicate> plan = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : filters.entrySet()) {
+            String key = entry.getKey();
+            if (entry.getValue() instanceof Map<?, ?> operators) {
+                for (Object op : operators.keySet()) {
+                    plan.add(predicate(key, String.valueOf(op), promotedKeys));
+                }
+            } else {
+                plan.add(predicate(key, entry.getValue() instanceof Collection<?> ? "$in" : "$eq", promotedKeys));
+            }
+        }
+        plan.sort(Comparator.comparingInt(Predicate::rank).thenComparing(Predicate::key).thenComparing(Predicate::op));
+        return List.copyOf(plan);
+    }
+
+    private static Predicate predicate(String key, String op, Set<String> promotedKeys) {
+        if (!COMPARISONS.containsKey(op) && !"$in".equals(op) && !"$nin".equals(op)) {
+            throw new IllegalArgumentException("不支持的过滤运算符: " + op);
+        }
+        boolean equality = "$eq".equals(op) || "$in".equals(op);
+        if ("id".equals(key) || "doc_id".equals(key)) {
+            int rank = equality ? ("id".equals(key) ? 0 : 1) : 3;
+            return new Predicate(key, op, key, rank, false);
+        }
+        if (key.startsWith(METADATA_PREFIX)) {
+            String name = key.substring(METADATA_PREFIX.length());
+            if (!NAME.matcher(name).matches()) {
+                throw new IllegalArgumentException("非法的 metadata 字段名: " + name);
+            }
+            if (promotedKeys.contains(name)) {
+                return new Predicate(key, op, PROMOTED_PREFIX + name, equality ? 2 : 3, false);
+            }
+            if (!equality) {
+                throw new IllegalArgumentException("metadata." + name + " 未提升为标量字段，只支持等值过滤");
+            }
+            return new Predicate(key, op, name, 4, true);
+        }
+        throw new IllegalArgumentException("不支持的过滤字段: " + key);
+    }
+
+    private static void appendList(StringBuilder expr, Collection<?> values) {
+        boolean first = true;
+        for (Object value : values) {
+            if (!first) {
+                expr.append(", ");
+            }
+            expr.append(quote(text(value)));
+            first = false;
+        }
+    }
+
+    private static String text(Object value) {
+        if (value instanceof String || value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof Number number && Double.isFinite(number.doubleValue())) {
+            return number.toString();
+        }
+        throw new IllegalArgumentException("不支持的过滤值: " + value);
+    }
+
+    /**
+     * 规划后的单个谓词
+     *
+     * @param key   filters 中的键
+     * @param op    运算符
+     * @param field 列名；like 谓词为 metadata 内的键名
+     * @param rank  排序位置，越小越靠前
+     * @param like  是否对 metadata JSON 字符串做 like 匹配
+     */
+    private record Predicate(String key, String op, String field, int rank, boolean like) {
+
+        void render(StringBuilder expr, Object value) {
+            boolean list = "$in".equals(op) || "$nin".equals(op);
+            if (list != value instanceof Collection<?>) {
+                throw new IllegalArgumentException(key + " 的 " + op + " 需要" + (list ? "数组" : "单个值"));
+            }
+            if (like) {
+                renderLike(expr, list ? (Collection<?>) value : List.of(value));
+                return;
+            }
+            if (RANGES.contains(op) && !(value instanceof String)) {
+                throw new IllegalArgumentException(key + " 的 " + op + " 按字符串字典序比较，只接受字符串: " + value);
+            }
+            if (list) {
+                expr.append(field).append("$nin".equals(op) ? " not in [" : " in [");
+                appendList(expr, (Collection<?>) value);
+                expr.append(']');
+            } else {
+                expr.append(field).append(' ').append(COMPARISONS.get(op)).append(' ').append(quote(text(value)));
+            }
+        }
+
+        /**
+         * metadata 由写入方序列化为紧凑 JSON（无空格），按 "key":value 片段匹配；
+         * 数字/布尔值后面可能是逗号或右括号，两种都匹配
+         */
+        private void renderLike(StringBuilder expr, Collection<?> values) {
+            List<String> patterns = new ArrayList<>();
+            for (Object value : values) {
+                String fragment = "\"" + field + "\":" + json(value);
+                if (value instanceof String) {
+                    patterns.add(fragment);
+                } else {
+                    patterns.add(fragment + ",");
+                    patterns.add(fragment + "}");
+                }
+            }
+            if (patterns.size() > 1) {
+                expr.append('(');
+            }
+            for (int i = 0; i < patterns.size(); i++) {
+                if (i > 0) {
+                    expr.append(" or ");
+                }
+                expr.append("metadata like ").append(quote("%" + escapeLike(patterns.get(i)) + "%"));
+            }
+            if (patterns.size() > 1) {
+                expr.append(')');
+            }
+        }
+
+        private static String json(Object value) {
+            text(value);
+            try {
+                return JSON.writeValueAsString(value);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("不支持的过滤值: " + value, e);
+            }
+        }
+
+        private static String escapeLike(String value) {
+            return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.kuaishou.rag.vector.lexical;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单个 Collection 的 BM25 索引（content 字段）
+ *
+ * 由一个活跃段和若干封存段组成：
+ * - 写入进入活跃段，满 segmentSize 篇后封存并开启新段
+ * - 封存段数超过 maxSegments 时合并最小的两个段；删除比例过半的段在封存时顺带重写
+ * - 同 id 重复写入视为更新：旧文档标记删除后写入新段
+ *
+ * 统计量（文档数、平均长度）只计未删除文档；读写锁保护所有段，检索之间互不阻塞。
+ */
+public class Bm25Index {
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    private final float k1;
+
+    private final float b;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Bm25Segment> sealedSegments = new ArrayList<>();
+
+    private Bm25Segment active = new Bm25Segment();
+
+    /**
+     * id -> 文档所在位置
+     */
+    private final Map<String, Location> locations = new HashMap<>();
+
+    /**
+     * doc_id -> 该文档的片段 id
+     */
+    private final Map<String, Set<String>> docIndex = new HashMap<>();
+
+    private long totalLength;
+
+    public Bm25Index(int segmentSize, int maxSegments, float k1, float b) {
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    /**
+     * 写入或更新一批片段
+     */
+    public void add(List<String> ids, List<String> contents, List<String> docIds, List<String> metadataList) {
+        // 分词放在锁外，写锁只覆盖倒排表更新
+        List<Map<String, Integer>> termFreqs = new ArrayList<>(ids.size());
+        int[] lengths = new int[ids.size()];
+        for (int i = 0; i < ids.size(); i++) {
+            List<String> tokens = TextAnalyzer.analyze(contents != null ? contents.get(i) : null);
+            Map<String, Integer> freqs = new HashMap<>();
+            for (String token : tokens) {
+                freqs.merge(token, 1, Integer::sum);
+            }
+            termFreqs.add(freqs);
+            lengths[i] = tokens.size();
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                String id = ids.get(i);
+                removeLocked(id);
+                String docId = docIds != null ? docIds.get(i) : "";
+                int ord = active.add(id, docId,
+                    contents != null ? contents.get(i) : "",
+                    metadataList != null ? metadataList.get(i) : "{}",
+                    termFreqs.get(i), lengths[i]);
+                locations.put(id, new Location(active, ord));
+                docIndex.computeIfAbsent(docId, k -> new HashSet<>()).add(id);
+                totalLength += lengths[i];
+                if (active.size() >= segmentSize) {
+                    sealActiveLocked();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void deleteByIds(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                removeLocked(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void deleteByDocId(String docId) {
+        lock.writeLock().lock();
+        try {
+            Set<String> ids = docIndex.get(docId);
+            if (ids != null) {
+                for (String id : new ArrayList<>(ids)) {
+                    removeLocked(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * BM25 检索
+     *
+     * @return 按分数降序的前 topK 条
+     */
+    public List<Hit> search(String queryText, int topK) {
+        Map<String, Integer> queryTerms = new LinkedHashMap<>();
+        for (String token : TextAnalyzer.analyze(queryText)) {
+            queryTerms.merge(token, 1, Integer::sum);
+        }
+        if (queryTerms.isEmpty() || topK <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            int liveDocs = locations.size();
+            if (liveDocs == 0) {
+                return Collections.emptyList();
+            }
+            float avgLength = Math.max(1f, (float) totalLength / liveDocs);
+            List<Bm25Segment> segments = segmentsLocked();
+
+            // 各词 idf 按全部段统计
+            Map<String, Float> weights = new HashMap<>();
+            for (Map.Entry<String, Integer> term : queryTerms.entrySet()) {
+                int df = 0;
+                for (Bm25Segment segment : segments) {
+                    df += segment.docFreq(term.getKey());
+                }
+                if (df > 0) {
+                    df = Math.min(df, liveDocs);
+                    double idf = Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+                    weights.put(term.getKey(), (float) (idf * term.getValue()));
+                }
+            }
+            if (weights.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            // 小顶堆保留 topK
+            PriorityQueue<Hit> heap = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(Hit::score));
+            for (Bm25Segment segment : segments) {
+                if (segment.liveCount() == 0) {
+                    continue;
+                }
+                float[] scores = new float[segment.size()];
+                for (Map.Entry<String, Float> weight : weights.entrySet()) {
+                    segment.accumulate(weight.getKey(), weight.getValue(), k1, b, avgLength, scores);
+                }
+                for (int ord = 0; ord < scores.length; ord++) {
+                    float score = scores[ord];
+                    if (score <= 0 || (heap.size() == topK && score <= heap.peek().score())) {
+                        continue;
+                    }
+                    heap.offer(new Hit(segment.id(ord), segment.docId(ord), segment.content(ord), segment.metadata(ord), score));
+                    if (heap.size() > topK) {
+                        heap.poll();
+                    }
+                }
+            }
+            List<Hit> hits = new ArrayList<>(heap);
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 未删除的片段数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return locations.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return sealedSegments.size() + 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Bm25Segment> segmentsLocked() {
+        List<Bm25Segment> segments = new ArrayList<>(sealedSegments.size() + 1);
+        segments.addAll(sealedSegments);
+        segments.add(active);
+        return segments;
+    }
+
+    private void removeLocked(String id) {
+        Location location = locations.remove(id);
+        if (location == null) {
+            return;
+        }
+        Set<String> ids = docIndex.get(location.segment().docId(location.ord()));
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                docIndex.remove(location.segment().docId(location.ord()));
+            }
+        }
+        int length = location.segment().delete(location.ord());
+        if (length > 0) {
+            totalLength -= length;
+        }
+    }
+
+    private void sealActiveLocked() {
+        active.seal();
+        sealedSegments.add(active);
+        active = new Bm25Segment();
+
+        // 删除过半的段单独重写
+        for (int i = 0; i < sealedSegments.size(); i++) {
+            Bm25Segment segment = sealedSegments.get(i);
+            if (segment.liveCount() * 2 < segment.size()) {
+                sealedSegments.set(i, mergeLocked(List.of(segment)));
+            }
+        }
+        sealedSegments.removeIf(segment -> segment.liveCount() == 0);
+
+        // 段数超限时合并最小的两个
+        while (sealedSegments.size() > maxSegments) {
+            sealedSegments.sort(Comparator.comparingInt(Bm25Segment::liveCount));
+            Bm25Segment merged = mergeLocked(List.of(sealedSegments.get(0), sealedSegments.get(1)));
+            sealedSegments.subList(0, 2).clear();
+            sealedSegments.add(merged);
+        }
+    }
+
+    private Bm25Segment mergeLocked(List<Bm25Segment> segments) {
+        int[][] remaps = new int[segments.size()][];
+        Bm25Segment merged = Bm25Segment.merge(segments, remaps);
+        for (int s = 0; s < segments.size(); s++) {
+            Bm25Segment segment = segments.get(s);
+            int[] remap = remaps[s];
+            for (int ord = 0; ord < remap.length; ord++) {
+                if (remap[ord] >= 0) {
+                    locations.put(segment.id(ord), new Location(merged, remap[ord]));
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 文档在索引中的位置
+     */
+    private record Location(Bm25Segment segment, int ord) {
+    }
+
+    /**
+     * 一条 BM25 命中
+     */
+    public record Hit(String id, String docId, String content, String metadata, float score) {
+    }
+}
@@ -0,0 +1,208 @@
+package com.kuaishou.rag.vector.lexical;
+
+import java.util.*;
+
+/**
+ * BM25 倒排索引段
+ *
+ * 活跃段接收新文档，达到 segmentSize 后封存（sealed）：倒排表裁剪为定长数组，之后只允许标记删除。
+ * 删除通过位图标记，段合并时才真正丢弃被删除的文档。
+ * 线程安全由 {@link Bm25Index} 的读写锁保证。
+ */
+final class Bm25Segment {
+
+    private final List<String> ids = new ArrayList<>();
+
+    private final List<String> docIds = new ArrayList<>();
+
+    private final List<String> contents = new ArrayList<>();
+
+    private final List<String> metadata = new ArrayList<>();
+
+    private int[] lengths = new int[64];
+
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    private final BitSet deleted = new BitSet();
+
+    private int liveCount;
+
+    private boolean sealed;
+
+    /**
+     * 追加一篇文档，返回段内序号
+     */
+    int add(String id, String docId, String content, String meta, Map<String, Integer> termFreqs, int length) {
+        if (sealed) {
+            throw new IllegalStateException("segment is sealed");
+        }
+        int ord = ids.size();
+        ids.add(id);
+        docIds.add(docId);
+        contents.add(content);
+        metadata.add(meta);
+        if (ord == lengths.length) {
+            lengths = Arrays.copyOf(lengths, ord * 2);
+        }
+        lengths[ord] = length;
+        for (Map.Entry<String, Integer> entry : termFreqs.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new Postings()).add(ord, entry.getValue());
+        }
+        liveCount++;
+        return ord;
+    }
+
+    /**
+     * 标记删除，返回被删文档的词数（已删除时返回 -1）
+     */
+    int delete(int ord) {
+        if (deleted.get(ord)) {
+            return -1;
+        }
+        deleted.set(ord);
+        liveCount--;
+        return lengths[ord];
+    }
+
+    void seal() {
+        for (Postings p : postings.values()) {
+            p.trim();
+        }
+        lengths = Arrays.copyOf(lengths, ids.size());
+        sealed = true;
+    }
+
+    /**
+     * 包含该词的文档数（含已删除文档，与 Lucene 一致，合并后自然修正）
+     */
+    int docFreq(String term) {
+        Postings p = postings.get(term);
+        return p == null ? 0 : p.size;
+    }
+
+    /**
+     * 把该词对每篇未删除文档的 BM25 分量累加到 scores[ord]
+     */
+    void accumulate(String term, float weight, float k1, float b, float avgLength, float[] scores) {
+        Postings p = postings.get(term);
+        if (p == null) {
+            return;
+        }
+        float norm = k1 * (1 - b);
+        float lengthFactor = k1 * b / avgLength;
+        for (int i = 0; i < p.size; i++) {
+            int ord = p.ords[i];
+            if (deleted.get(ord)) {
+                continue;
+            }
+            int tf = p.tfs[i];
+            scores[ord] += weight * tf * (k1 + 1) / (tf + norm + lengthFactor * lengths[ord]);
+        }
+    }
+
+    int size() {
+        return ids.size();
+    }
+
+    int liveCount() {
+        return liveCount;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    String id(int ord) {
+        return ids.get(ord);
+    }
+
+    String docId(int ord) {
+        return docIds.get(ord);
+    }
+
+    String content(int ord) {
+        return contents.get(ord);
+    }
+
+    String metadata(int ord) {
+        return metadata.get(ord);
+    }
+
+    /**
+     * 合并多个段，丢弃已删除文档；倒排表直接按序号重映射，不重新分词
+     *
+     * @param remaps 输出参数：remaps[i][oldOrd] 为第 i 个旧段文档在新段中的序号，已删除为 -1
+     */
+    static Bm25Segment merge(List<Bm25Segment> segments, int[][] remaps) {
+        Bm25Segment merged = new Bm25Segment();
+        int next = 0;
+        for (int s = 0; s < segments.size(); s++) {
+            Bm25Segment segment = segments.get(s);
+            int[] remap = new int[segment.size()];
+            for (int ord = 0; ord < segment.size(); ord++) {
+                if (segment.deleted.get(ord)) {
+                    remap[ord] = -1;
+                    continue;
+                }
+                remap[ord] = next++;
+                merged.ids.add(segment.ids.get(ord));
+                merged.docIds.add(segment.docIds.get(ord));
+                merged.contents.add(segment.contents.get(ord));
+                merged.metadata.add(segment.metadata.get(ord));
+                if (remap[ord] == merged.lengths.length) {
+                    merged.lengths = Arrays.copyOf(merged.lengths, merged.lengths.length * 2);
+                }
+                merged.lengths[remap[ord]] = segment.lengths[ord];
+            }
+            remaps[s] = remap;
+        }
+        // 旧段按顺序处理，新序号单调递增，倒排表保持有序
+        for (int s = 0; s < segments.size(); s++) {
+            int[] remap = remaps[s];
+            for (Map.Entry<String, Postings> entry : segments.get(s).postings.entrySet()) {
+                Postings source = entry.getValue();
+                Postings target = null;
+                for (int i = 0; i < source.size; i++) {
+                    int newOrd = remap[source.ords[i]];
+                    if (newOrd < 0) {
+                        continue;
+                    }
+                    if (target == null) {
+                        target = merged.postings.computeIfAbsent(entry.getKey(), k -> new Postings());
+                    }
+                    target.add(newOrd, source.tfs[i]);
+                }
+            }
+        }
+        merged.liveCount = next;
+        merged.seal();
+        return merged;
+    }
+
+    /**
+     * 单个词的倒排表：文档序号 + 词频
+     */
+    private static final class Postings {
+
+        private int[] ords = new int[4];
+
+        private int[] tfs = new int[4];
+
+        private int size;
+
+        void add(int ord, int tf) {
+            if (size == ords.length) {
+                ords = Arrays.copyOf(ords, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            ords[size] = ord;
+            tfs[size] = tf;
+            size++;
+        }
+
+        void trim() {
+            ords = Arrays.copyOf(ords, size);
+            tfs = Arrays.copyOf(tfs, size);
+        }
+    }
+}
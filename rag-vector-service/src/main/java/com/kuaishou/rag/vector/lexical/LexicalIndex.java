@@ -0,0 +1,121 @@
+package com.kuaishou.rag.vector.lexical;
+
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 进程内 BM25 词法索引（混合检索的稀疏侧）
+ *
+ * 每个 (Collection, 路由键) 一个 {@link Bm25Index}，随 batchInsert / deleteByIds / deleteByDocId 同步更新，
+ * 检索不需要额外 RPC。带路由键的检索只查该键的索引，与向量侧的分区裁剪一致，不会混入其他租户的文本。
+ * 索引只在内存中，服务重启后从重启时刻起重新累积；每个实例只索引经过自己写入的内容，
+ * 多实例部署时各实例的词法结果不同。每份 content 在堆上再存一份，默认关闭，适合单实例或小数据量场景。
+ */
+@Slf4j
+@Component
+public class LexicalIndex {
+
+    /**
+     * 是否维护词法索引，关闭后混合检索退化为纯向量检索
+     */
+    @Value("${vector.hybrid.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 单个段的文档数，满后封存
+     */
+    @Value("${vector.hybrid.segment-size:10000}")
+    private int segmentSize;
+
+    /**
+     * 每个 Collection 最多保留的封存段数，超出后合并
+     */
+    @Value("${vector.hybrid.max-segments:8}")
+    private int maxSegments;
+
+    /**
+     * BM25 词频饱和参数
+     */
+    @Value("${vector.hybrid.bm25.k1:1.2}")
+    private float k1;
+
+    /**
+     * BM25 长度归一化参数
+     */
+    @Value("${vector.hybrid.bm25.b:0.75}")
+    private float b;
+
+    /**
+     * Collection -> 路由键 -> 索引
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Bm25Index>> indexes = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void index(String collectionName, InsertRequest request) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ConcurrentMap<String, Bm25Index> partitions = indexes.computeIfAbsent(collectionName, k -> new ConcurrentHashMap<>());
+            for (Map.Entry<String, InsertRequest> slice : request.splitByPartition().entrySet()) {
+                InsertRequest rows = slice.getValue();
+                partitions.computeIfAbsent(slice.getKey(), k -> new Bm25Index(segmentSize, maxSegments, k1, b))
+                    .add(rows.getIds(), rows.getContents(), rows.getDocIds(), rows.getMetadataList());
+            }
+        } catch (Exception e) {
+            log.error("Error updating lexical index, collection: {}", collectionName, e);
+        }
+    }
+
+    public void deleteByIds(String collectionName, List<String> ids) {
+        Map<String, Bm25Index> partitions = indexes.get(collectionName);
+        if (partitions != null) {
+            partitions.values().forEach(index -> index.deleteByIds(ids));
+        }
+    }
+
+    public void deleteByDocId(String collectionName, String docId) {
+        Map<String, Bm25Index> partitions = indexes.get(collectionName);
+        if (partitions != null) {
+            partitions.values().forEach(index -> index.deleteByDocId(docId));
+        }
+    }
+
+    /**
+     * BM25 检索，Collection 没有词法索引时返回空列表
+     *
+     * @param partitionKey 路由键，为 null 时检索全部路由键并按分数合并
+     */
+    public List<Bm25Index.Hit> search(String collectionName, String partitionKey, String queryText, int topK) {
+        Map<String, Bm25Index> partitions = indexes.get(collectionName);
+        if (!enabled || partitions == null) {
+            return Collections.emptyList();
+        }
+        if (partitionKey != null) {
+            Bm25Index index = partitions.get(partitionKey);
+            return index == null ? Collections.emptyList() : index.search(queryText, topK);
+        }
+        if (partitions.size() == 1) {
+            return partitions.values().iterator().next().search(queryText, topK);
+        }
+        List<Bm25Index.Hit> merged = new ArrayList<>();
+        for (Bm25Index index : partitions.values()) {
+            merged.addAll(index.search(queryText, topK));
+        }
+        merged.sort(Comparator.comparingDouble(Bm25Index.Hit::score).reversed());
+        return merged.size() > topK ? merged.subList(0, topK) : merged;
+    }
+}
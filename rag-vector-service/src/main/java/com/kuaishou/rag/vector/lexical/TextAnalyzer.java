@@ -0,0 +1,83 @@
+package com.kuaishou.rag.vector.lexical;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * BM25 分词器
+ *
+ * 1. 英文/数字：按非字母数字字符切分并转小写；由 - _ . 连接的整体（产品型号、错误码，如 ERR-1024、v2.3.4）
+ *    额外保留一个完整词，保证精确匹配排名靠前
+ * 2. 中日韩文字：相邻字两两组成二元词（bigram），单字片段保留单字
+ */
+public final class TextAnalyzer {
+
+    private TextAnalyzer() {
+    }
+
+    public static List<String> analyze(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(text.charAt(i))) {
+                    i++;
+                }
+                emitCjk(text, start, i, tokens);
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                int parts = 0;
+                while (i < length) {
+                    int partStart = i;
+                    while (i < length && Character.isLetterOrDigit(text.charAt(i)) && !isCjk(text.charAt(i))) {
+                        i++;
+                    }
+                    tokens.add(text.substring(partStart, i).toLowerCase(Locale.ROOT));
+                    parts++;
+                    // 连接符后紧跟字母数字时继续组成复合词
+                    if (i + 1 < length && isJoiner(text.charAt(i)) && Character.isLetterOrDigit(text.charAt(i + 1))
+                        && !isCjk(text.charAt(i + 1))) {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (parts > 1) {
+                    tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static void emitCjk(String text, int start, int end, List<String> tokens) {
+        if (end - start == 1) {
+            tokens.add(text.substring(start, end));
+            return;
+        }
+        for (int j = start; j + 1 < end; j++) {
+            tokens.add(text.substring(j, j + 2));
+        }
+    }
+
+    private static boolean isJoiner(char c) {
+        return c == '-' || c == '_' || c == '.';
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,245 @@
+package com.kuaishou.rag.vector.limit;
+
+import com.kuaishou.rag.common.limit.VegasLimit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 引擎调用的准入控制：基于延迟的自适应并发上限 + 优先级通道
+ *
+ * 上限由 {@link VegasLimit} 计算（与网关的租户限流同一实现）：
+ * - 只用交互通道的延迟估计排队：批量写入的耗时与行数相关，混入后会被误判为排队。批量通道只在失败时参与下调
+ *
+ * 通道：
+ * - INTERACTIVE（搜索）：可用满上限；排队不超过 interactive.max-queue，最多等 interactive.max-wait-ms
+ * - BULK（批量写入）：最多占用上限的 bulk-share，且有交互请求排队时不放行；可以排得更久，起背压作用
+ * 名额释放时优先唤醒交互通道。排队已满或等待超时立即拒绝（OverloadedException），不让请求线程无限堆积
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+
+    public enum Lane {
+        INTERACTIVE, BULK
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 是否开启准入控制，关闭时所有请求直接放行
+     */
+    @Value("${vector.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${vector.admission.initial-limit:32}")
+    private int initialLimit;
+
+    @Value("${vector.admission.min-limit:4}")
+    private int minLimit;
+
+    @Value("${vector.admission.max-limit:256}")
+    private int maxLimit;
+
+    /**
+     * 估计排队数低于该值时上限 +1
+     */
+    @Value("${vector.admission.alpha:3}")
+    private int alpha;
+
+    /**
+     * 估计排队数高于该值时上限 -1
+     */
+    @Value("${vector.admission.beta:6}")
+    private int beta;
+
+    /**
+     * 最小延迟基线的取样窗口（毫秒）
+     */
+    @Value("${vector.admission.rtt-window-ms:10000}")
+    private long rttWindowMs;
+
+    /**
+     * 批量通道最多占用的上限比例
+     */
+    @Value("${vector.admission.bulk-share:0.5}")
+    private double bulkShare;
+
+    @Value("${vector.admission.interactive.max-queue:200}")
+    private int interactiveMaxQueue;
+
+    @Value("${vector.admission.interactive.max-wait-ms:50}")
+    private long interactiveMaxWaitMs;
+
+    @Value("${vector.admission.bulk.max-queue:64}")
+    private int bulkMaxQueue;
+
+    @Value("${vector.admission.bulk.max-wait-ms:5000}")
+    private long bulkMaxWaitMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition[] ready = {lock.newCondition(), lock.newCondition()};
+
+    private final int[] inflight = new int[2];
+
+    private final int[] waiting = new int[2];
+
+    private final Counter[] rejected = new Counter[2];
+
+    private VegasLimit limit;
+
+    @PostConstruct
+    public void init() {
+        limit = new VegasLimit(initialLimit, minLimit, maxLimit, alpha, beta, rttWindowMs);
+        Gauge.builder("vector.admission.limit", this, AdmissionController::getLimit).register(meterRegistry);
+        for (Lane lane : Lane.values()) {
+            String tag = lane.name().toLowerCase();
+            Gauge.builder("vector.admission.inflight", this, c -> c.getInflight(lane)).tag("lane", tag).register(meterRegistry);
+            Gauge.builder("vector.admission.queue", this, c -> c.getWaiting(lane)).tag("lane", tag).register(meterRegistry);
+            rejected[lane.ordinal()] = Counter.builder("vector.admission.rejected").tag("lane", tag).register(meterRegistry);
+        }
+    }
+
+    /**
+     * 获取一个名额，必要时在本通道排队
+     *
+     * @throws OverloadedException 排队已满、等待超时或等待被中断
+     */
+    public Permit acquire(Lane lane) {
+        if (!enabled) {
+            return new Permit(null, System.nanoTime());
+        }
+        int i = lane.ordinal();
+        lock.lock();
+        try {
+            if (!canAdmit(lane)) {
+                if (waiting[i] >= (lane == Lane.INTERACTIVE ? interactiveMaxQueue : bulkMaxQueue)) {
+                    throw reject(lane, "queue full");
+                }
+                long nanos = TimeUnit.MILLISECONDS.toNanos(lane == Lane.INTERACTIVE ? interactiveMaxWaitMs : bulkMaxWaitMs);
+                waiting[i]++;
+                try {
+                    while (!canAdmit(lane)) {
+                        if (nanos <= 0) {
+                            throw reject(lane, "wait timeout");
+                        }
+                        nanos = ready[i].awaitNanos(nanos);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw reject(lane, "interrupted");
+                } finally {
+                    waiting[i]--;
+                    if (lane == Lane.INTERACTIVE) {
+                        // 交互请求离开队列后，被它挡住的批量请求可能已经可以放行
+                        signalNext();
+                    }
+                }
+            }
+            inflight[i]++;
+            return new Permit(lane, System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean canAdmit(Lane lane) {
+        int current = limit.getLimit();
+        if (inflight[0] + inflight[1] >= current) {
+            return false;
+        }
+        if (lane == Lane.BULK) {
+            return waiting[Lane.INTERACTIVE.ordinal()] == 0
+                && inflight[Lane.BULK.ordinal()] < Math.max(1, (int) (current * bulkShare));
+        }
+        return true;
+    }
+
+    private OverloadedException reject(Lane lane, String reason) {
+        rejected[lane.ordinal()].increment();
+        log.debug("Admission rejected, lane: {}, reason: {}, limit: {}", lane, reason, limit.getLimit());
+        return new OverloadedException("向量服务过载，请稍后重试（" + reason + "）");
+    }
+
+    private void release(Lane lane, long rttNanos, boolean success) {
+        lock.lock();
+        try {
+            if (!success) {
+                limit.onDrop();
+            } else if (lane == Lane.INTERACTIVE) {
+                limit.onSample(rttNanos, inflight[0] + inflight[1]);
+            }
+            inflight[lane.ordinal()]--;
+            signalNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalNext() {
+        if (waiting[Lane.INTERACTIVE.ordinal()] > 0) {
+            ready[Lane.INTERACTIVE.ordinal()].signal();
+        } else if (waiting[Lane.BULK.ordinal()] > 0) {
+            ready[Lane.BULK.ordinal()].signal();
+        }
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInflight(Lane lane) {
+        lock.lock();
+        try {
+            return inflight[lane.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting(Lane lane) {
+        lock.lock();
+        try {
+            return waiting[lane.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 已获取的名额，调用结束后必须 release 一次
+     */
+    public final class Permit {
+
+        private final Lane lane;
+
+        private final long start;
+
+        private Permit(Lane lane, long start) {
+            this.lane = lane;
+            this.start = start;
+        }
+
+        /**
+         * 释放名额并记录本次调用
+         *
+         * @param success 是否成功；失败时上限乘性下降
+         */
+        public void release(boolean success) {
+            if (lane != null) {
+                AdmissionController.this.release(lane, System.nanoTime() - start, success);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.kuaishou.rag.vector.limit;
+
+/**
+ * 并发已达上限且排队已满或等待超时，请求被拒绝
+ */
+public class OverloadedException extends RuntimeException {
+
+    public OverloadedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,179 @@
+package com.kuaishou.rag.vector.metrics;
+
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 向量服务指标
+ *
+ * 三层计时，逐层相减即可定位 p99 变化来自哪里：
+ * - vector.operation / vector.search：VectorStoreService 对外方法的总耗时（含缓存、合批等待、混合检索融合、重排），
+ *   搜索单独成名，其余操作按 operation 区分
+ * - vector.search.engine：VectorStore.search 一次分组调用的耗时（Milvus 下含请求构建与结果解码）
+ * - vector.milvus.rpc / vector.milvus.decode：Milvus gRPC 本身与结果按列解码的耗时
+ *
+ * 同名指标的标签键固定：vector.operation 为 operation、collection、outcome（success / failure）；
+ * vector.search / vector.search.engine 为 collection、topk（分桶）、filtered、outcome。
+ * 分布：vector.insert.rows（每批行数）、vector.search.results（每次查询返回条数）
+ *
+ * collection 来自请求路径，标签值受 vector.metrics.max-collections 限制：成功操作过的 Collection 才占用一个值，
+ * 超出上限或从未成功的名字记为 other，任意路径不会让时间序列无限增长
+ */
+@Component
+public class VectorMetrics {
+
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(30);
+
+    /**
+     * 超出上限或未确认存在的 Collection 的标签值
+     */
+    static final String OTHER_COLLECTION = "other";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * collection 标签最多的不同取值
+     */
+    @Value("${vector.metrics.max-collections:100}")
+    private int maxCollections;
+
+    private final Set<String> collectionTags = ConcurrentHashMap.newKeySet();
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * 记录一次对外操作
+     */
+    public void recordOperation(Timer.Sample sample, String operation, String collectionName, boolean success) {
+        sample.stop(timer("vector.operation", Tags.of("operation", operation,
+            "collection", collectionTag(collectionName, success), "outcome", outcome(success))));
+    }
+
+    /**
+     * 记录一次对外搜索及其返回条数
+     */
+    public void recordSearch(Timer.Sample sample, String collectionName, SearchRequest request, SearchResponse response) {
+        Tags tags = searchTags(collectionTag(collectionName, response.isSuccess()), request);
+        sample.stop(timer("vector.search", tags.and("outcome", outcome(response.isSuccess()))));
+        if (response.isSuccess()) {
+            summary("vector.search.results", tags).record(response.getResults().size());
+        }
+    }
+
+    /**
+     * 记录一次引擎分组搜索，outcome 按组内是否全部成功
+     */
+    public void recordEngineSearch(long nanos, String collectionName, SearchRequest request, List<SearchResponse> responses) {
+        boolean success = responses.stream().allMatch(SearchResponse::isSuccess);
+        timer("vector.search.engine", searchTags(collectionTag(collectionName, success), request)
+            .and("outcome", outcome(success)))
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录写入批次行数
+     */
+    public void recordInsertRows(String collectionName, int rows) {
+        summary("vector.insert.rows", Tags.of("collection", collectionTag(collectionName, false))).record(rows);
+    }
+
+    /**
+     * 记录一次 Milvus RPC
+     */
+    public void recordRpc(String operation, String collectionName, long nanos, boolean success) {
+        timer("vector.milvus.rpc", Tags.of("operation", operation, "collection", collectionTag(collectionName, success),
+            "outcome", outcome(success))).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次 Milvus 搜索结果解码
+     */
+    public void recordDecode(String collectionName, long nanos) {
+        timer("vector.milvus.decode", Tags.of("collection", collectionTag(collectionName, true)))
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * topK 分桶，控制标签基数
+     */
+    static String topKBucket(Integer topK) {
+        int k = topK == null ? 0 : topK;
+        if (k <= 10) {
+            return "le10";
+        }
+        if (k <= 50) {
+            return "le50";
+        }
+        if (k <= 100) {
+            return "le100";
+        }
+        if (k <= 500) {
+            return "le500";
+        }
+        return "gt500";
+    }
+
+    /**
+     * collection 标签值：已登记的名字原样使用；成功的操作在未满上限时登记新名字，其余记为 other
+     */
+    String collectionTag(String collectionName, boolean success) {
+        if (collectionName == null) {
+            return OTHER_COLLECTION;
+        }
+        if (collectionTags.contains(collectionName)) {
+            return collectionName;
+        }
+        if (success && collectionTags.size() < maxCollections) {
+            collectionTags.add(collectionName);
+            return collectionName;
+        }
+        return OTHER_COLLECTION;
+    }
+
+    private static Tags searchTags(String collectionTag, SearchRequest request) {
+        boolean filtered = (request.getFilterExpr() != null && !request.getFilterExpr().isEmpty())
+            || (request.getFilters() != null && !request.getFilters().isEmpty());
+        return Tags.of("collection", collectionTag, "topk", topKBucket(request.getTopK()),
+            "filtered", String.valueOf(filtered));
+    }
+
+    private static String outcome(boolean success) {
+        return success ? "success" : "failure";
+    }
+
+    private Timer timer(String name, Tags tags) {
+        return Timer.builder(name)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(MIN_EXPECTED)
+            .maximumExpectedValue(MAX_EXPECTED)
+            .register(meterRegistry);
+    }
+
+    private DistributionSummary summary(String name, Tags tags) {
+        return DistributionSummary.builder(name)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(1.0)
+            .maximumExpectedValue(100_000.0)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,14 @@
+package com.kuaishou.rag.vector.migration;
+
+/**
+ * 迁移完成、别名已切换到目标 Collection（在发起迁移的进程内发布）
+ *
+ * 维度变化时写入方需要随之改用目标模型生成向量，见 rag-document-service 的 MigratingEmbeddingClient
+ *
+ * @param collection 对外名称（别名）
+ * @param previous   切换前别名指向的 Collection
+ * @param target     切换后别名指向的 Collection
+ * @param dimension  目标 Collection 的向量维度
+ */
+public record CollectionMigratedEvent(String collection, String previous, String target, int dimension) {
+}
@@ -0,0 +1,182 @@
+package com.kuaishou.rag.vector.migration;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.store.IndexSpec;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 一次在线迁移的状态与进度
+ *
+ * collection 为对外使用的名称（迁移完成后是指向 target 的别名），source 为迁移开始时它实际指向的 Collection
+ */
+@Getter
+public class CollectionMigration {
+
+    public enum Phase {
+        /**
+         * 创建目标 Collection 与索引
+         */
+        CREATING,
+        /**
+         * 分批回填，同时双写
+         */
+        BACKFILLING,
+        /**
+         * 等待目标 Collection 索引构建完成
+         */
+        INDEXING,
+        /**
+         * 校验行数与召回率
+         */
+        VERIFYING,
+        SWAPPED,
+        FAILED,
+        CANCELLED
+    }
+
+    private final String collection;
+
+    private final String source;
+
+    private final String target;
+
+    private final IndexSpec spec;
+
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    private volatile Phase phase = Phase.CREATING;
+
+    private volatile LocalDateTime finishedAt;
+
+    /**
+     * 是否重新生成向量，未在请求中指定时按维度是否变化决定（发起时确定）
+     */
+    private volatile boolean reembed;
+
+    /**
+     * 平铺的源迁移到带 partition_key 的目标，回填时每行都必须能从 metadata 取到路由键
+     */
+    private volatile boolean routed;
+
+    private volatile long sourceRows = -1;
+
+    private volatile long targetRows = -1;
+
+    private volatile double indexProgress;
+
+    /**
+     * 抽样查询的 top-k 重合率，未校验时为 -1
+     */
+    private volatile double recall = -1;
+
+    /**
+     * 切换前别名指向的 Collection，保留用于回滚
+     */
+    private volatile String previous;
+
+    private volatile String error;
+
+    private final AtomicLong copiedRows = new AtomicLong();
+
+    private final AtomicLong mirroredRows = new AtomicLong();
+
+    private final AtomicLong mirrorFailures = new AtomicLong();
+
+    /**
+     * 迁移期间删除的行，回填结束后在目标 Collection 上重放，避免回填把已删除的行写回
+     */
+    @Getter(AccessLevel.NONE)
+    final Set<String> deletedIds = ConcurrentHashMap.newKeySet();
+
+    @Getter(AccessLevel.NONE)
+    final Set<String> deletedDocIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 召回校验用的抽样行（单行请求）
+     */
+    @Getter(AccessLevel.NONE)
+    final List<InsertRequest> probes = new ArrayList<>();
+
+    /**
+     * 写入持有读锁完成“主写入 + 镜像写入”，开始双写与切换别名时持有写锁，两者不会交错
+     */
+    @Getter(AccessLevel.NONE)
+    final ReadWriteLock writeLock = new ReentrantReadWriteLock();
+
+    @Getter(AccessLevel.NONE)
+    volatile boolean cancelled;
+
+    CollectionMigration(String collection, String source, String target, IndexSpec spec, boolean reembed) {
+        this.collection = collection;
+        this.source = source;
+        this.target = target;
+        this.spec = spec;
+        this.reembed = reembed;
+    }
+
+    /**
+     * 回填进度 [0, 1]，源行数未知时为 0
+     */
+    public double getProgress() {
+        return sourceRows <= 0 ? 0 : Math.min(1.0, (double) copiedRows.get() / sourceRows);
+    }
+
+    @JsonIgnore
+    public boolean isRunning() {
+        return phase.ordinal() < Phase.SWAPPED.ordinal();
+    }
+
+    /**
+     * 目标 Collection 已创建且未切换，写入需要镜像
+     */
+    @JsonIgnore
+    public boolean isMirroring() {
+        return phase == Phase.BACKFILLING || phase == Phase.INDEXING || phase == Phase.VERIFYING;
+    }
+
+    void setPhase(Phase phase) {
+        this.phase = phase;
+        if (!isRunning()) {
+            finishedAt = LocalDateTime.now();
+        }
+    }
+
+    void setRouted(boolean routed) {
+        this.routed = routed;
+    }
+
+    void setSourceRows(long sourceRows) {
+        this.sourceRows = sourceRows;
+    }
+
+    void setTargetRows(long targetRows) {
+        this.targetRows = targetRows;
+    }
+
+    void setIndexProgress(double indexProgress) {
+        this.indexProgress = indexProgress;
+    }
+
+    void setRecall(double recall) {
+        this.recall = recall;
+    }
+
+    void setPrevious(String previous) {
+        this.previous = previous;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+}
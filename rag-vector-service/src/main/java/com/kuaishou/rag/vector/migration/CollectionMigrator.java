@@ -0,0 +1,684 @@
+package com.kuaishou.rag.vector.migration;
+
+import com.kuaishou.rag.vector.cache.SearchCache;
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.dto.InsertResponse;
+import com.kuaishou.rag.vector.dto.MigrationRequest;
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import com.kuaishou.rag.vector.limit.AdmissionController;
+import com.kuaishou.rag.vector.limit.OverloadedException;
+import com.kuaishou.rag.vector.store.IndexSpec;
+import com.kuaishou.rag.vector.store.VectorStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Collection 在线迁移（更换维度 / 索引参数 / 分片数 / 存储方式时不停服）
+ *
+ * 对外始终使用同一个名称，迁移完成后它是指向新 Collection 的别名：
+ * 1. CREATING：按 IndexSpec 创建目标 Collection（name_v时间戳），索引异步构建
+ * 2. BACKFILLING：开始双写（本类的写入方法同时写源与目标），按主键分页读取源 Collection，
+ *    parallelism 个线程并行 upsert 到目标；每页读写都走准入控制的批量通道，并按 max-rows-per-second 限速，
+ *    回填不会挤占在线查询。维度变化时由 VectorTransform 重新生成向量；平铺的源迁移到带 partition_key 的目标时，
+ *    路由键取自 metadata，缺失时迁移失败
+ * 3. 回填结束后在目标上重放迁移期间的删除（回填可能把刚删除的行写回）
+ * 4. INDEXING：flush 后等待目标索引构建完成
+ * 5. VERIFYING：行数差异不超过 max-row-diff，抽样查询的 top-k 重合率不低于 min-recall，双写无失败
+ * 6. 持有写锁切换别名（进行中的写入完成后才切换，切换期间写入短暂等待），源 Collection 保留用于回滚，
+ *    并发布 CollectionMigratedEvent
+ *
+ * 任一步失败或取消时不切换，目标 Collection 保留供排查，由运维删除。
+ * 迁移状态只在发起迁移的进程内，双写只覆盖经过本进程的写入，迁移应在负责写入的实例上发起
+ * （文档服务：它同时提供重新生成向量的 VectorTransform）
+ */
+@Slf4j
+@Component
+public class CollectionMigrator {
+
+    private static final DateTimeFormatter VERSION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    /**
+     * 单页回填写入的最大尝试次数
+     */
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Autowired
+    private VectorStore vectorStore;
+
+    @Autowired
+    private AdmissionController admission;
+
+    @Autowired
+    private SearchCache searchCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private VectorTransform transform;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 未指定时的目标维度
+     */
+    @Value("${vector.dimension:1536}")
+    private int dimension;
+
+    /**
+     * 每页回填行数
+     */
+    @Value("${vector.migration.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 并行写入的页数
+     */
+    @Value("${vector.migration.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * 回填限速（行/秒），0 表示不限速
+     */
+    @Value("${vector.migration.max-rows-per-second:20000}")
+    private long maxRowsPerSecond;
+
+    /**
+     * 等待目标索引构建完成的超时（毫秒）
+     */
+    @Value("${vector.migration.index-timeout-ms:7200000}")
+    private long indexTimeoutMs;
+
+    /**
+     * 索引构建进度的轮询间隔（毫秒）
+     */
+    @Value("${vector.migration.index-poll-ms:5000}")
+    private long indexPollMs;
+
+    /**
+     * 召回校验的抽样查询数
+     */
+    @Value("${vector.migration.verify.sample-queries:50}")
+    private int sampleQueries;
+
+    @Value("${vector.migration.verify.top-k:10}")
+    private int verifyTopK;
+
+    /**
+     * 校验查询的 HNSW ef，取较大值减少近似误差对比较的干扰
+     */
+    @Value("${vector.migration.verify.ef:256}")
+    private int verifyEf;
+
+    /**
+     * 抽样查询 top-k 重合率阈值
+     */
+    @Value("${vector.migration.verify.min-recall:0.9}")
+    private double minRecall;
+
+    /**
+     * 源与目标行数的最大相对差异
+     */
+    @Value("${vector.migration.verify.max-row-diff:0.001}")
+    private double maxRowDiff;
+
+    /**
+     * 对外名称 -> 最近一次迁移
+     */
+    private final ConcurrentMap<String, CollectionMigration> migrations = new ConcurrentHashMap<>();
+
+    private ExecutorService coordinator;
+
+    private ExecutorService writers;
+
+    @PostConstruct
+    public void init() {
+        coordinator = Executors.newCachedThreadPool(namedThreads("migration-coordinator"));
+        writers = Executors.newFixedThreadPool(parallelism, namedThreads("migration-writer"));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        migrations.values().forEach(migration -> migration.cancelled = true);
+        coordinator.shutdownNow();
+        writers.shutdownNow();
+    }
+
+    // ==================== 迁移控制 ====================
+
+    /**
+     * 发起迁移，立即返回，进度由 {@link #status(String)} 查询
+     *
+     * 注定失败的迁移在发起时拒绝：引擎不支持迁移、需要重新生成向量但本进程没有 VectorTransform
+     *
+     * @throws IllegalStateException    该名称已有进行中的迁移
+     * @throws IllegalArgumentException 迁移无法在本进程完成
+     */
+    public synchronized CollectionMigration start(String collection, MigrationRequest request) {
+        CollectionMigration running = migrations.get(collection);
+        if (running != null && running.isRunning()) {
+            throw new IllegalStateException("Collection " + collection + " 已有进行中的迁移: " + running.getTarget());
+        }
+        if (!vectorStore.supportsMigration()) {
+            throw new IllegalArgumentException("向量引擎 " + vectorStore.getClass().getSimpleName() + " 不支持在线迁移");
+        }
+        String source = vectorStore.resolveAlias(collection);
+        IndexSpec spec = new IndexSpec(request.getDimension() != null ? request.getDimension() : dimension,
+            request.getCompression(), request.getHnswM(), request.getEfConstruction(), request.getShardsNum());
+        boolean reembed = reembed(source, spec, request.getReembed());
+        if (reembed && transform == null) {
+            throw new IllegalArgumentException("需要重新生成向量，但本进程未配置 VectorTransform"
+                + "（在开启 embedding.migration.enabled 的文档服务上发起迁移）");
+        }
+        String target = collection + "_v" + LocalDateTime.now().format(VERSION_SUFFIX);
+        CollectionMigration migration = new CollectionMigration(collection, source, target, spec, reembed);
+        migrations.put(collection, migration);
+        registerGauges(collection);
+
+        double threshold = request.getMinRecall() != null ? request.getMinRecall() : minRecall;
+        coordinator.execute(() -> run(migration, threshold));
+        log.info("Migration of {} started: {} -> {}, spec: {}", collection, source, target, spec);
+        return migration;
+    }
+
+    public CollectionMigration status(String collection) {
+        return migrations.get(collection);
+    }
+
+    /**
+     * 取消进行中的迁移，返回是否有可取消的迁移
+     */
+    public boolean cancel(String collection) {
+        CollectionMigration migration = migrations.get(collection);
+        if (migration == null || !migration.isRunning()) {
+            return false;
+        }
+        migration.cancelled = true;
+        return true;
+    }
+
+    /**
+     * 是否重新生成向量：未指定时维度变化即重新生成；维度变化却指定不重新生成时拒绝
+     */
+    private boolean reembed(String source, IndexSpec spec, Boolean requested) {
+        InsertRequest first = vectorStore.scan(source, null, 1);
+        if (first.getIds().isEmpty()) {
+            return Boolean.TRUE.equals(requested);
+        }
+        int sourceDimension = first.getVectors().get(0).length;
+        if (requested == null) {
+            return sourceDimension != spec.dimension();
+        }
+        if (!requested && sourceDimension != spec.dimension()) {
+            throw new IllegalArgumentException("维度由 " + sourceDimension + " 变为 " + spec.dimension() + " 时必须重新生成向量");
+        }
+        return requested;
+    }
+
+    private void run(CollectionMigration migration, double threshold) {
+        String collection = migration.getCollection();
+        try {
+            if (!vectorStore.createCollection(migration.getTarget(), "migration of " + collection, migration.getSpec())) {
+                throw new IllegalStateException("创建目标 Collection 失败: " + migration.getTarget());
+            }
+            migration.setRouted(!vectorStore.isPartitioned(migration.getSource())
+                && vectorStore.isPartitioned(migration.getTarget()));
+            migration.setSourceRows(vectorStore.countRows(migration.getSource()));
+            // 写锁内切换阶段：之后开始的写入都会镜像，之前开始的写入已经完成，回填（强一致读取）能读到
+            withWriteLock(migration, () -> migration.setPhase(CollectionMigration.Phase.BACKFILLING));
+
+            backfill(migration);
+            replayDeletes(migration);
+
+            migration.setPhase(CollectionMigration.Phase.INDEXING);
+            vectorStore.flush(migration.getTarget());
+            awaitIndex(migration);
+
+            migration.setPhase(CollectionMigration.Phase.VERIFYING);
+            verify(migration, threshold);
+
+            AtomicReference<String> previous = new AtomicReference<>();
+            withWriteLock(migration, () -> {
+                previous.set(vectorStore.swapAlias(collection, migration.getTarget()));
+                if (previous.get() != null) {
+                    migration.setPrevious(previous.get());
+                    migration.setPhase(CollectionMigration.Phase.SWAPPED);
+                }
+            });
+            if (previous.get() == null) {
+                throw new IllegalStateException("切换别名失败");
+            }
+            searchCache.invalidate(collection);
+            eventPublisher.publishEvent(new CollectionMigratedEvent(collection, previous.get(), migration.getTarget(),
+                migration.getSpec().dimension()));
+            log.info("Migration of {} completed, alias now points to {}, previous collection {} retained",
+                collection, migration.getTarget(), previous.get());
+        } catch (CancellationException e) {
+            migration.setPhase(CollectionMigration.Phase.CANCELLED);
+            log.info("Migration of {} cancelled, target collection {} retained", collection, migration.getTarget());
+        } catch (Exception e) {
+            log.error("Migration of {} failed in phase {}: {}", collection, migration.getPhase(), e.getMessage(), e);
+            migration.setError(e.getMessage());
+            migration.setPhase(CollectionMigration.Phase.FAILED);
+        }
+    }
+
+    // ==================== 回填 ====================
+
+    /**
+     * 主键分页顺序读取，写入并行；同时最多 parallelism 页在途
+     */
+    private void backfill(CollectionMigration migration) throws InterruptedException {
+        Semaphore slots = new Semaphore(parallelism);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Random random = new Random();
+        long started = System.nanoTime();
+        long seen = 0;
+        String cursor = null;
+        try {
+            while (true) {
+                checkCancelled(migration);
+                if (failure.get() != null) {
+                    throw new IllegalStateException("回填失败: " + failure.get().getMessage(), failure.get());
+                }
+                String after = cursor;
+                InsertRequest page = withPermit(migration, () -> vectorStore.scan(migration.getSource(), after, batchSize));
+                int rows = page.getIds().size();
+                if (rows == 0) {
+                    break;
+                }
+                cursor = page.getIds().get(rows - 1);
+                sample(migration, page, seen, random);
+                seen += rows;
+
+                slots.acquire();
+                writers.execute(() -> {
+                    try {
+                        copy(migration, page);
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        slots.release();
+                    }
+                });
+                throttle(started, seen);
+                if (rows < batchSize) {
+                    break;
+                }
+            }
+        } finally {
+            // 等待在途的页写完（或失败）
+            slots.acquire(parallelism);
+            slots.release(parallelism);
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("回填失败: " + failure.get().getMessage(), failure.get());
+        }
+    }
+
+    private void copy(CollectionMigration migration, InsertRequest page) throws InterruptedException {
+        if (migration.isRouted()) {
+            requireRoutingKeys(page);
+        }
+        InsertRequest rows = migration.isReembed() ? reembed(page) : page;
+        for (int attempt = 1; ; attempt++) {
+            checkCancelled(migration);
+            InsertResponse response = withPermit(migration, () -> vectorStore.upsert(migration.getTarget(), rows));
+            if (response.isSuccess()) {
+                migration.getCopiedRows().addAndGet(rows.getIds().size());
+                return;
+            }
+            if (attempt >= MAX_ATTEMPTS) {
+                throw new IllegalStateException("写入目标 Collection 失败，已重试 " + attempt + " 次");
+            }
+            Thread.sleep(200L << attempt);
+        }
+    }
+
+    /**
+     * 平铺的源迁移到带 partition_key 的目标时，每行的路由键取自 metadata（见 VectorStore.scan），
+     * 缺失的行会全部落进空字符串分区、按知识库检索时查不到，此时拒绝迁移而不是静默写入
+     */
+    private static void requireRoutingKeys(InsertRequest page) {
+        List<String> partitionKeys = page.getPartitionKeys();
+        for (int i = 0; i < page.getIds().size(); i++) {
+            if (partitionKeys == null || partitionKeys.get(i) == null || partitionKeys.get(i).isEmpty()) {
+                throw new IllegalStateException("行 " + page.getIds().get(i) + " 的 metadata 中没有路由键，无法写入带 partition_key 的目标");
+            }
+        }
+    }
+
+    /**
+     * 水塘抽样：回填过程中均匀抽取 sample-queries 行作为召回校验的查询
+     */
+    private void sample(CollectionMigration migration, InsertRequest page, long seen, Random random) {
+        for (int i = 0; i < page.getIds().size(); i++) {
+            long index = seen + i;
+            if (migration.probes.size() < sampleQueries) {
+                migration.probes.add(page.slice(List.of(i)));
+            } else {
+                long slot = (long) (random.nextDouble() * (index + 1));
+                if (slot < sampleQueries) {
+                    migration.probes.set((int) slot, page.slice(List.of(i)));
+                }
+            }
+        }
+    }
+
+    private void throttle(long started, long rows) throws InterruptedException {
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        long expectedNanos = rows * 1_000_000_000L / maxRowsPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - started);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+
+    private InsertRequest reembed(InsertRequest rows) {
+        List<float[]> vectors = transform.transform(rows);
+        if (vectors.size() != rows.getIds().size()) {
+            throw new IllegalStateException("VectorTransform 返回数量与输入不一致");
+        }
+        List<Integer> all = new ArrayList<>(rows.getIds().size());
+        for (int i = 0; i < rows.getIds().size(); i++) {
+            all.add(i);
+        }
+        InsertRequest copy = rows.slice(all);
+        copy.setVectors(vectors);
+        return copy;
+    }
+
+    /**
+     * 在目标上重放回填期间的删除
+     */
+    private void replayDeletes(CollectionMigration migration) {
+        List<String> ids = new ArrayList<>(migration.deletedIds);
+        List<String> docIds = new ArrayList<>(migration.deletedDocIds);
+        if ((!ids.isEmpty() && !vectorStore.deleteByIds(migration.getTarget(), ids))
+            || (!docIds.isEmpty() && !vectorStore.deleteByDocIds(migration.getTarget(), docIds))) {
+            throw new IllegalStateException("在目标 Collection 上重放删除失败");
+        }
+    }
+
+    private void awaitIndex(CollectionMigration migration) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + indexTimeoutMs;
+        while (true) {
+            checkCancelled(migration);
+            double progress = vectorStore.indexProgress(migration.getTarget());
+            migration.setIndexProgress(progress);
+            if (progress >= 1.0) {
+                return;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("等待索引构建超时，当前进度 " + progress);
+            }
+            Thread.sleep(indexPollMs);
+        }
+    }
+
+    // ==================== 校验 ====================
+
+    private void verify(CollectionMigration migration, double threshold) {
+        if (migration.getMirrorFailures().get() > 0) {
+            throw new IllegalStateException("双写失败 " + migration.getMirrorFailures().get() + " 次，目标数据不完整");
+        }
+
+        long sourceRows = vectorStore.countRows(migration.getSource());
+        long targetRows = vectorStore.countRows(migration.getTarget());
+        migration.setSourceRows(sourceRows);
+        migration.setTargetRows(targetRows);
+        if (sourceRows >= 0 && targetRows >= 0
+            && Math.abs(targetRows - sourceRows) > Math.max(1, sourceRows) * maxRowDiff) {
+            throw new IllegalStateException("行数不一致: 源 " + sourceRows + "，目标 " + targetRows);
+        }
+
+        if (migration.probes.isEmpty()) {
+            return;
+        }
+        double total = 0;
+        for (InsertRequest probe : migration.probes) {
+            checkCancelled(migration);
+            float[] targetVector = migration.isReembed() ? reembed(probe).getVectors().get(0) : probe.getVectors().get(0);
+            String partitionKey = partitionKey(probe);
+            SearchResponse sourceResponse = search(migration, migration.getSource(), probe.getVectors().get(0), partitionKey);
+            if (sourceResponse == null) {
+                // 源是没有路由列的旧 Collection，无法按路由键限定范围，两侧都不限定
+                partitionKey = null;
+                sourceResponse = search(migration, migration.getSource(), probe.getVectors().get(0), null);
+            }
+            Set<String> expected = ids(sourceResponse);
+            Set<String> actual = ids(search(migration, migration.getTarget(), targetVector, partitionKey));
+            if (!expected.isEmpty()) {
+                actual.retainAll(expected);
+                total += (double) actual.size() / expected.size();
+            } else {
+                total += 1;
+            }
+        }
+        double recall = total / migration.probes.size();
+        migration.setRecall(recall);
+        if (recall < threshold) {
+            throw new IllegalStateException(String.format("召回率 %.3f 低于阈值 %.3f", recall, threshold));
+        }
+    }
+
+    /**
+     * 抽样行的路由键：校验查询按该键限定范围，与线上按知识库检索的方式一致，路由键写错时召回率随之下降
+     */
+    private static String partitionKey(InsertRequest probe) {
+        List<String> partitionKeys = probe.getPartitionKeys();
+        String key = partitionKeys == null ? null : partitionKeys.get(0);
+        return key == null || key.isEmpty() ? null : key;
+    }
+
+    /**
+     * 校验查询，失败时抛出；带路由键而该 Collection 无法按路由键限定时返回 null
+     */
+    private SearchResponse search(CollectionMigration migration, String collectionName, float[] vector, String partitionKey) {
+        SearchRequest request = new SearchRequest();
+        request.setVector(vector);
+        request.setTopK(verifyTopK);
+        request.setEf(verifyEf);
+        request.setPartitionKey(partitionKey);
+        request.setOutputFields(List.of());
+        SearchResponse response = withPermit(migration,
+            () -> vectorStore.search(collectionName, Collections.singletonList(request)).get(0));
+        if (!response.isSuccess() && response.isInvalidRequest() && partitionKey != null) {
+            return null;
+        }
+        if (!response.isSuccess()) {
+            throw new IllegalStateException("校验查询失败: " + collectionName + ": " + response.getMessage());
+        }
+        return response;
+    }
+
+    private static Set<String> ids(SearchResponse response) {
+        Set<String> ids = new HashSet<>();
+        response.getResults().forEach(result -> ids.add(result.getId()));
+        return ids;
+    }
+
+    // ==================== 双写 ====================
+
+    /**
+     * 插入；迁移双写期间主写入成功后同步 upsert 到目标 Collection
+     */
+    public InsertResponse insert(String collectionName, InsertRequest request) {
+        return write(collectionName, () -> vectorStore.insert(collectionName, request), (migration, response) -> {
+            if (!response.isSuccess()) {
+                return;
+            }
+            try {
+                InsertRequest rows = migration.isReembed() ? reembed(request) : request;
+                if (vectorStore.upsert(migration.getTarget(), rows).isSuccess()) {
+                    migration.getMirroredRows().addAndGet(rows.getIds().size());
+                    return;
+                }
+            } catch (Exception e) {
+                log.warn("Mirror insert to {} failed: {}", migration.getTarget(), e.getMessage());
+            }
+            migration.getMirrorFailures().incrementAndGet();
+        });
+    }
+
+    public boolean deleteByIds(String collectionName, List<String> ids) {
+        return write(collectionName, () -> vectorStore.deleteByIds(collectionName, ids), (migration, deleted) -> {
+            migration.deletedIds.addAll(ids);
+            mirrorDelete(migration, () -> vectorStore.deleteByIds(migration.getTarget(), ids));
+        });
+    }
+
+    public boolean deleteByDocId(String collectionName, String docId) {
+        return write(collectionName, () -> vectorStore.deleteByDocId(collectionName, docId), (migration, deleted) -> {
+            migration.deletedDocIds.add(docId);
+            mirrorDelete(migration, () -> vectorStore.deleteByDocId(migration.getTarget(), docId));
+        });
+    }
+
+    public boolean deleteByDocIds(String collectionName, List<String> docIds) {
+        return write(collectionName, () -> vectorStore.deleteByDocIds(collectionName, docIds), (migration, deleted) -> {
+            migration.deletedDocIds.addAll(docIds);
+            mirrorDelete(migration, () -> vectorStore.deleteByDocIds(migration.getTarget(), docIds));
+        });
+    }
+
+    private void mirrorDelete(CollectionMigration migration, Supplier<Boolean> delete) {
+        try {
+            if (delete.get()) {
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("Mirror delete on {} failed: {}", migration.getTarget(), e.getMessage());
+        }
+        migration.getMirrorFailures().incrementAndGet();
+    }
+
+    /**
+     * 有进行中的迁移时持有读锁完成主写入与镜像写入，切换别名（写锁）不会落在两者之间
+     */
+    private <T> T write(String collectionName, Supplier<T> primary,
+                        BiConsumer<CollectionMigration, T> mirror) {
+        CollectionMigration migration = migrations.get(collectionName);
+        if (migration == null || !migration.isRunning()) {
+            return primary.get();
+        }
+        Lock lock = migration.writeLock.readLock();
+        lock.lock();
+        try {
+            T result = primary.get();
+            if (migration.isMirroring()) {
+                mirror.accept(migration, result);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void withWriteLock(CollectionMigration migration, Runnable action) {
+        Lock lock = migration.writeLock.writeLock();
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ==================== 工具 ====================
+
+    /**
+     * 在准入控制的批量通道内执行，过载时退避重试，不与在线查询争抢
+     */
+    private <T> T withPermit(CollectionMigration migration, Supplier<T> action) {
+        long backoffMs = 50;
+        while (true) {
+            checkCancelled(migration);
+            AdmissionController.Permit permit;
+            try {
+                permit = admission.acquire(AdmissionController.Lane.BULK);
+            } catch (OverloadedException e) {
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("interrupted");
+                }
+                backoffMs = Math.min(backoffMs * 2, 2000);
+                continue;
+            }
+            boolean success = false;
+            try {
+                T result = action.get();
+                success = true;
+                return result;
+            } finally {
+                permit.release(success);
+            }
+        }
+    }
+
+    private static void checkCancelled(CollectionMigration migration) {
+        if (migration.cancelled || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("migration cancelled");
+        }
+    }
+
+    private void registerGauges(String collection) {
+        Gauge.builder("vector.migration.progress", migrations, m -> value(m.get(collection), CollectionMigration::getProgress))
+            .tag("collection", collection).register(meterRegistry);
+        Gauge.builder("vector.migration.rows.copied", migrations,
+                m -> value(m.get(collection), migration -> migration.getCopiedRows().get()))
+            .tag("collection", collection).register(meterRegistry);
+        Gauge.builder("vector.migration.rows.mirrored", migrations,
+                m -> value(m.get(collection), migration -> migration.getMirroredRows().get()))
+            .tag("collection", collection).register(meterRegistry);
+        Gauge.builder("vector.migration.mirror.failures", migrations,
+                m -> value(m.get(collection), migration -> migration.getMirrorFailures().get()))
+            .tag("collection", collection).register(meterRegistry);
+        Gauge.builder("vector.migration.index.progress", migrations,
+                m -> value(m.get(collection), CollectionMigration::getIndexProgress))
+            .tag("collection", collection).register(meterRegistry);
+        Gauge.builder("vector.migration.recall", migrations, m -> value(m.get(collection), CollectionMigration::getRecall))
+            .tag("collection", collection).register(meterRegistry);
+        Gauge.builder("vector.migration.phase", migrations,
+                m -> value(m.get(collection), migration -> migration.getPhase().ordinal()))
+            .tag("collection", collection).register(meterRegistry);
+    }
+
+    private static double value(CollectionMigration migration,
+                                ToDoubleFunction<CollectionMigration> getter) {
+        return migration == null ? Double.NaN : getter.applyAsDouble(migration);
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package com.kuaishou.rag.vector.migration;
+
+import com.kuaishou.rag.vector.dto.InsertRequest;
+
+import java.util.List;
+
+/**
+ * 迁移时重新生成向量（更换 embedding 模型 / 维度）
+ *
+ * 由嵌入本模块的服务按需提供（如 rag-document-service 用目标模型对 content 重新向量化）。
+ * 没有该 Bean 时只能做维度不变的迁移（索引参数、分片数、存储方式）
+ */
+public interface VectorTransform {
+
+    /**
+     * @return 与 rows.ids 顺序一一对应的新向量
+     */
+    List<float[]> transform(InsertRequest rows);
+}
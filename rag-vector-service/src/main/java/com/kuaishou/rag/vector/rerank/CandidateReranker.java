@@ -0,0 +1,202 @@
+package com.kuaishou.rag.vector.rerank;
+
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 候选重排（SearchRequest.rerank=true 且带 queryText 时）
+ *
+ * 取 topK * candidateMultiplier 个 ANN 候选，由 RelevanceScorer 重新打分后截断到 topK：
+ * 1. 检索分数先按候选集归一化到 [0, 1]（最好的为 1，最差的为 0）。候选已按检索顺序排好，方向由首尾分数确定，
+ *    COSINE / IP 相似度、L2 距离与混合检索的 RRF 分数都落到同一尺度，打分器不需要知道度量类型
+ * 2. 候选按 ANN 顺序切成 chunk-size 一段，提交到有界线程池并行打分；队列满时该段不打分
+ * 3. 计算预算 budget-ms：到期后不再等待，已打分的段按新分数排在前面，其余候选保持 ANN 顺序接在后面。
+ *    排在前面的段先提交，预算不足时被舍弃的总是 ANN 排名靠后的候选
+ * 4. 打分失败的段同样保持 ANN 顺序，重排只会改善结果，不会让检索失败
+ *
+ * 未打分的候选使用归一化检索分数，且不高于排在它前面的结果，返回的分数始终与顺序一致
+ */
+@Slf4j
+@Component
+public class CandidateReranker {
+
+    @Autowired
+    private RelevanceScorer scorer;
+
+    /**
+     * 是否允许请求重排
+     */
+    @Value("${vector.rerank.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 打分线程数
+     */
+    @Value("${vector.rerank.threads:4}")
+    private int threads;
+
+    /**
+     * 等待打分的段数上限，超出的段不打分
+     */
+    @Value("${vector.rerank.queue-capacity:256}")
+    private int queueCapacity;
+
+    /**
+     * 每段候选数
+     */
+    @Value("${vector.rerank.chunk-size:16}")
+    private int chunkSize;
+
+    /**
+     * 单次重排的计算预算（毫秒）
+     */
+    @Value("${vector.rerank.budget-ms:30}")
+    private long budgetMs;
+
+    /**
+     * 候选数上限
+     */
+    @Value("${vector.rerank.max-candidates:200}")
+    private int maxCandidates;
+
+    private ThreadPoolExecutor pool;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+                Thread t = new Thread(r, "rerank-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 重排需要取回的候选数
+     */
+    public int candidates(int topK, Integer candidateMultiplier) {
+        int multiplier = candidateMultiplier == null ? 1 : candidateMultiplier;
+        return Math.max(topK, Math.min(maxCandidates, topK * multiplier));
+    }
+
+    /**
+     * 重新打分并截断到 topK
+     *
+     * @param candidates ANN 顺序（最好的在前）的候选，score 会被改写为 [0, 1] 内的重排分数
+     */
+    public List<SearchResponse.SearchResult> rerank(String query, List<SearchResponse.SearchResult> candidates,
+                                                    int topK) {
+        normalize(candidates);
+        if (candidates.size() <= 1) {
+            return candidates;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+
+        List<List<SearchResponse.SearchResult>> chunks = new ArrayList<>();
+        List<Future<float[]>> futures = new ArrayList<>();
+        for (int from = 0; from < candidates.size(); from += chunkSize) {
+            List<SearchResponse.SearchResult> chunk = candidates.subList(from, Math.min(candidates.size(), from + chunkSize));
+            chunks.add(chunk);
+            try {
+                futures.add(pool.submit(() -> System.nanoTime() < deadline ? scorer.score(query, chunk) : null));
+            } catch (RejectedExecutionException e) {
+                futures.add(null);
+            }
+        }
+
+        List<SearchResponse.SearchResult> scored = new ArrayList<>(candidates.size());
+        List<SearchResponse.SearchResult> unscored = new ArrayList<>();
+        int skipped = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            float[] scores = await(futures.get(i), deadline);
+            if (scores == null) {
+                unscored.addAll(chunks.get(i));
+                skipped++;
+                continue;
+            }
+            for (int j = 0; j < scores.length; j++) {
+                SearchResponse.SearchResult result = chunks.get(i).get(j);
+                result.setScore(scores[j]);
+                scored.add(result);
+            }
+        }
+        if (skipped > 0) {
+            log.debug("Rerank budget exhausted, unscored chunks: {}/{}", skipped, chunks.size());
+        }
+
+        scored.sort(Comparator.comparingDouble((SearchResponse.SearchResult r) -> r.getScore()).reversed());
+        float ceiling = scored.isEmpty() ? 1f : scored.get(scored.size() - 1).getScore();
+        for (SearchResponse.SearchResult result : unscored) {
+            ceiling = Math.min(ceiling, result.getScore());
+            result.setScore(ceiling);
+            scored.add(result);
+        }
+        return scored.size() > topK ? new ArrayList<>(scored.subList(0, topK)) : scored;
+    }
+
+    /**
+     * 把检索分数按候选集线性归一化到 [0, 1]：首个候选（检索最好）为 1，末个为 0；
+     * 分数全部相同时都为 1，缺失分数视为最差
+     */
+    static void normalize(List<SearchResponse.SearchResult> candidates) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        Float first = candidates.get(0).getScore();
+        Float last = candidates.get(candidates.size() - 1).getScore();
+        double best = first == null ? 0 : first;
+        double worst = last == null ? best : last;
+        double range = best - worst;
+        for (SearchResponse.SearchResult candidate : candidates) {
+            if (candidate.getScore() == null) {
+                candidate.setScore(0f);
+                continue;
+            }
+            double normalized = range == 0 ? 1 : (candidate.getScore() - worst) / range;
+            candidate.setScore((float) Math.max(0, Math.min(1, normalized)));
+        }
+    }
+
+    private static float[] await(Future<float[]> future, long deadline) {
+        if (future == null) {
+            return null;
+        }
+        long remaining = deadline - System.nanoTime();
+        try {
+            return remaining > 0 ? future.get(remaining, TimeUnit.NANOSECONDS) : (future.isDone() ? future.get() : null);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            log.warn("Rerank scoring failed: {}", e.getCause().getMessage());
+            return null;
+        } finally {
+            if (!future.isDone()) {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.kuaishou.rag.vector.rerank;
+
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import com.kuaishou.rag.vector.store.hnsw.VectorKernels;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 压缩索引的全精度重排
+ *
+ * 压缩存储（IVF_SQ8 / IVF_PQ）的 Collection 在写入时把原始向量同时写入本地内存映射文件；
+ * 搜索时先从 Milvus 取 topK * candidate-multiplier 个候选，再用本地全精度向量重新计算余弦相似度，排序后截断到 topK。
+ *
+ * 向量文件是每个实例本地的，只包含经过本实例写入的数据。只要有一个候选在本地缺失（其他实例写入、
+ * 开启前写入的数据），这次查询就不重排，直接按 Milvus 的近似分数截断，不把精确分数与近似分数混在一起排序。
+ * 多实例部署时重排只在数据都经过同一实例写入的场景下生效。
+ */
+@Slf4j
+@Component
+public class FullPrecisionReranker {
+
+    /**
+     * 是否对压缩索引的结果做全精度重排
+     */
+    @Value("${vector.compression.rerank.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 候选倍数：从压缩索引取 topK * candidateMultiplier 个候选
+     */
+    @Value("${vector.compression.rerank.candidate-multiplier:4}")
+    private int candidateMultiplier;
+
+    /**
+     * 候选数上限
+     */
+    @Value("${vector.compression.rerank.max-candidates:1024}")
+    private int maxCandidates;
+
+    /**
+     * 全精度向量文件目录
+     */
+    @Value("${vector.compression.rerank.store-dir:./data/full-precision}")
+    private String storeDir;
+
+    private final ConcurrentMap<String, MappedVectorFile> files = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 重排需要从引擎取回的候选数
+     */
+    public int candidates(int topK) {
+        return Math.max(topK, Math.min(maxCandidates, topK * candidateMultiplier));
+    }
+
+    public void put(String collectionName, InsertRequest request) {
+        if (!enabled || request.getIds().isEmpty()) {
+            return;
+        }
+        try {
+            MappedVectorFile file = open(collectionName, request.getVectors().get(0).length);
+            file.put(request.getIds(), request.getDocIds(), request.getVectors());
+        } catch (Exception e) {
+            log.error("Error writing full-precision vectors, collection: {}", collectionName, e);
+        }
+    }
+
+    public void remove(String collectionName, List<String> ids) {
+        try {
+            MappedVectorFile file = open(collectionName, 0);
+            if (file != null) {
+                file.remove(ids);
+            }
+        } catch (Exception e) {
+            log.error("Error removing full-precision vectors, collection: {}", collectionName, e);
+        }
+    }
+
+    public void removeByDocId(String collectionName, String docId) {
+        try {
+            MappedVectorFile file = open(collectionName, 0);
+            if (file != null) {
+                file.removeByDocId(docId);
+            }
+        } catch (Exception e) {
+            log.error("Error removing full-precision vectors, collection: {}, docId: {}", collectionName, docId, e);
+        }
+    }
+
+    /**
+     * 用全精度向量重新打分并截断到 topK
+     */
+    public List<SearchResponse.SearchResult> rerank(String collectionName, float[] query,
+                                                    List<SearchResponse.SearchResult> candidates, int topK) {
+        MappedVectorFile file;
+        try {
+            file = open(collectionName, 0);
+        } catch (IOException e) {
+            log.warn("Full-precision store unavailable, collection: {}, error: {}", collectionName, e.getMessage());
+            file = null;
+        }
+        if (file == null || file.dimension() != query.length) {
+            return candidates.size() > topK ? new ArrayList<>(candidates.subList(0, topK)) : candidates;
+        }
+
+        float[] unitQuery = VectorKernels.normalize(query);
+        float[] exact = new float[candidates.size()];
+        for (int i = 0; i < exact.length; i++) {
+            exact[i] = file.cosine(candidates.get(i).getId(), unitQuery);
+            if (Float.isNaN(exact[i])) {
+                log.debug("Candidate {} has no full-precision vector, skipping rerank, collection: {}",
+                    candidates.get(i).getId(), collectionName);
+                return candidates.size() > topK ? new ArrayList<>(candidates.subList(0, topK)) : candidates;
+            }
+        }
+
+        List<SearchResponse.SearchResult> rescored = new ArrayList<>(candidates.size());
+        for (int i = 0; i < exact.length; i++) {
+            SearchResponse.SearchResult candidate = candidates.get(i);
+            SearchResponse.SearchResult result = new SearchResponse.SearchResult();
+            result.setId(candidate.getId());
+            result.setScore(exact[i]);
+            result.setContent(candidate.getContent());
+            result.setDocId(candidate.getDocId());
+            result.setMetadata(candidate.getMetadata());
+            rescored.add(result);
+        }
+        rescored.sort(Comparator.comparingDouble((SearchResponse.SearchResult r) -> r.getScore()).reversed());
+        return rescored.size() > topK ? new ArrayList<>(rescored.subList(0, topK)) : rescored;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (MappedVectorFile file : files.values()) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                log.warn("Error closing full-precision store: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 打开（或创建）Collection 的向量文件；dimension 为 0 时只打开已存在的文件，不存在返回 null
+     */
+    private MappedVectorFile open(String collectionName, int dimension) throws IOException {
+        MappedVectorFile file = files.get(collectionName);
+        if (file != null) {
+            return file;
+        }
+        Path directory = Paths.get(storeDir);
+        synchronized (files) {
+            file = files.get(collectionName);
+            if (file == null) {
+                int stored = MappedVectorFile.storedDimension(directory, collectionName);
+                int resolved = stored > 0 ? stored : dimension;
+                if (resolved == 0) {
+                    return null;
+                }
+                file = new MappedVectorFile(directory, collectionName, resolved);
+                files.put(collectionName, file);
+            }
+            return file;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.kuaishou.rag.vector.rerank;
+
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import com.kuaishou.rag.vector.lexical.TextAnalyzer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 词项覆盖率 + 向量相似度的加权打分
+ *
+ * score = lexicalWeight * coverage + (1 - lexicalWeight) * annScore
+ * 其中 coverage 为查询词（TextAnalyzer 分词后去重）在候选 content 中出现的比例，
+ * annScore 为 CandidateReranker 归一化到 [0, 1] 的检索分数（与度量类型无关），两项尺度一致。
+ * 弥补 ANN 对型号、错误码、专有名词等精确词不敏感的问题；同样输入总是得到同样输出，可用于测试
+ *
+ * vector.rerank.scorer=lexical 或未配置时启用
+ */
+@Component
+@ConditionalOnProperty(name = "vector.rerank.scorer", havingValue = "lexical", matchIfMissing = true)
+public class LexicalBlendScorer implements RelevanceScorer {
+
+    /**
+     * 词项覆盖率的权重
+     */
+    @Value("${vector.rerank.lexical-weight:0.3}")
+    private double lexicalWeight;
+
+    public LexicalBlendScorer() {
+    }
+
+    public LexicalBlendScorer(double lexicalWeight) {
+        this.lexicalWeight = lexicalWeight;
+    }
+
+    @Override
+    public float[] score(String query, List<SearchResponse.SearchResult> candidates) {
+        Set<String> queryTerms = new HashSet<>(TextAnalyzer.analyze(query));
+        float[] scores = new float[candidates.size()];
+        for (int i = 0; i < scores.length; i++) {
+            SearchResponse.SearchResult candidate = candidates.get(i);
+            double coverage = 0;
+            if (!queryTerms.isEmpty() && candidate.getContent() != null) {
+                Set<String> terms = new HashSet<>(TextAnalyzer.analyze(candidate.getContent()));
+                int matched = 0;
+                for (String term : queryTerms) {
+                    if (terms.contains(term)) {
+                        matched++;
+                    }
+                }
+                coverage = (double) matched / queryTerms.size();
+            }
+            double ann = candidate.getScore() == null ? 0 : Math.max(0, Math.min(1, candidate.getScore()));
+            scores[i] = (float) (lexicalWeight * coverage + (1 - lexicalWeight) * ann);
+        }
+        return scores;
+    }
+}
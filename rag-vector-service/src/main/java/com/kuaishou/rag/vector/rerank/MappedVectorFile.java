@@ -0,0 +1,293 @@
+package com.kuaishou.rag.vector.rerank;
+
+import com.kuaishou.rag.vector.store.hnsw.VectorKernels;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 单个 Collection 的全精度向量文件（内存映射）
+ *
+ * - {collection}.vec：按块映射，每块连续存放 VECTORS_PER_CHUNK 个归一化向量，由操作系统页缓存管理冷热，不占 Java 堆
+ * - {collection}.ids：首行记录维度，之后为追加日志，记录 slot 与 id / doc_id 的对应关系和删除；打开时回放并压缩为快照
+ *
+ * 删除的 slot 进入空闲列表复用。写入串行（synchronized），读取无锁：
+ * 每块一个顺序锁，写一个向量前后各递增一次；读取前后序号不同（期间该块有写入，可能是 slot 被复用或原地覆盖）时重读，
+ * 多次冲突视为缺失。一批向量先 force 到磁盘，再追加 id 日志，崩溃后日志中的 slot 一定有完整向量。
+ */
+@Slf4j
+public final class MappedVectorFile implements Closeable {
+
+    private static final int VECTORS_PER_CHUNK = 4096;
+
+    private final int dimension;
+
+    private final long chunkBytes;
+
+    private final Path idLogPath;
+
+    private final FileChannel channel;
+
+    private static final int READ_RETRIES = 4;
+
+    private volatile Chunk[] chunks = new Chunk[0];
+
+    private final ConcurrentMap<String, Integer> slots = new ConcurrentHashMap<>();
+
+    private final Map<Integer, String> docIdsBySlot = new HashMap<>();
+
+    private final Map<String, Set<String>> docIndex = new HashMap<>();
+
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    private int nextSlot;
+
+    private Writer idLog;
+
+    public MappedVectorFile(Path directory, String collectionName, int dimension) throws IOException {
+        this.dimension = dimension;
+        this.chunkBytes = (long) VECTORS_PER_CHUNK * dimension * Float.BYTES;
+        Files.createDirectories(directory);
+        this.idLogPath = directory.resolve(collectionName + ".ids");
+        this.channel = FileChannel.open(directory.resolve(collectionName + ".vec"),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replayIdLog();
+        ensureCapacity(nextSlot);
+    }
+
+    /**
+     * 已有文件的维度，文件不存在时返回 0
+     */
+    public static int storedDimension(Path directory, String collectionName) throws IOException {
+        Path path = directory.resolve(collectionName + ".ids");
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            return header != null && header.startsWith("#\t") ? Integer.parseInt(header.substring(2)) : 0;
+        }
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * 写入一批向量（同 id 覆盖），向量写入前归一化
+     */
+    public synchronized void put(List<String> ids, List<String> docIds, List<float[]> vectors) throws IOException {
+        for (float[] vector : vectors) {
+            if (vector.length != dimension) {
+                throw new IllegalArgumentException("Vector dimension " + vector.length + " != " + dimension);
+            }
+        }
+        StringBuilder logLines = new StringBuilder();
+        BitSet touchedChunks = new BitSet();
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i);
+            String docId = docIds != null ? docIds.get(i) : "";
+            Integer slot = slots.get(id);
+            if (slot == null) {
+                slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.pollFirst();
+            } else {
+                unindexDoc(slot, id);
+            }
+            ensureCapacity(slot + 1);
+            writeVector(slot, VectorKernels.normalize(vectors.get(i)));
+            touchedChunks.set(slot / VECTORS_PER_CHUNK);
+            slots.put(id, slot);
+            indexDoc(slot, id, docId);
+            logLines.append("+\t").append(slot).append('\t').append(id).append('\t').append(docId).append('\n');
+        }
+        // 向量先落盘，再记录 slot 映射
+        Chunk[] current = chunks;
+        touchedChunks.stream().forEach(chunk -> current[chunk].mapped.force());
+        idLog.write(logLines.toString());
+        idLog.flush();
+    }
+
+    private void writeVector(int slot, float[] unitVector) {
+        Chunk chunk = chunks[slot / VECTORS_PER_CHUNK];
+        chunk.seq++;
+        // 奇数序号必须先于向量数据对读者可见
+        VarHandle.storeStoreFence();
+        chunk.vectors.put((slot % VECTORS_PER_CHUNK) * dimension, unitVector);
+        chunk.seq++;
+    }
+
+    public synchronized void remove(Collection<String> ids) throws IOException {
+        for (String id : ids) {
+            removeLocked(id);
+        }
+        idLog.flush();
+    }
+
+    public synchronized void removeByDocId(String docId) throws IOException {
+        Set<String> ids = docIndex.get(docId);
+        if (ids != null) {
+            for (String id : new ArrayList<>(ids)) {
+                removeLocked(id);
+            }
+        }
+        idLog.flush();
+    }
+
+    /**
+     * id 对应向量与单位查询向量的余弦相似度，向量不存在时返回 NaN
+     */
+    public float cosine(String id, float[] unitQuery) {
+        for (int attempt = 0; attempt < READ_RETRIES; attempt++) {
+            Integer slot = slots.get(id);
+            if (slot == null) {
+                return Float.NaN;
+            }
+            Chunk chunk = chunks[slot / VECTORS_PER_CHUNK];
+            long seq = chunk.seq;
+            if ((seq & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            float score = VectorKernels.dot(chunk.vectors, (slot % VECTORS_PER_CHUNK) * dimension, unitQuery);
+            // 向量读取必须先于第二次读取序号
+            VarHandle.acquireFence();
+            // 序号未变且 id 仍映射到该 slot，读到的是该 id 的完整向量
+            if (chunk.seq == seq && slot.equals(slots.get(id))) {
+                return score;
+            }
+        }
+        return Float.NaN;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Chunk chunk : chunks) {
+            chunk.mapped.force();
+        }
+        if (idLog != null) {
+            idLog.close();
+        }
+        channel.close();
+    }
+
+    private void removeLocked(String id) throws IOException {
+        Integer slot = slots.remove(id);
+        if (slot == null) {
+            return;
+        }
+        unindexDoc(slot, id);
+        freeSlots.addLast(slot);
+        idLog.write("-\t" + id + "\n");
+    }
+
+    private void indexDoc(int slot, String id, String docId) {
+        docIdsBySlot.put(slot, docId);
+        docIndex.computeIfAbsent(docId, k -> new HashSet<>()).add(id);
+    }
+
+    private void unindexDoc(int slot, String id) {
+        String docId = docIdsBySlot.remove(slot);
+        Set<String> ids = docId == null ? null : docIndex.get(docId);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                docIndex.remove(docId);
+            }
+        }
+    }
+
+    /**
+     * 回放 id 日志重建映射，然后重写为只含存活条目的快照
+     */
+    private void replayIdLog() throws IOException {
+        if (Files.exists(idLogPath)) {
+            try (BufferedReader reader = Files.newBufferedReader(idLogPath, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\t", -1);
+                    if ("#".equals(parts[0])) {
+                        if (Integer.parseInt(parts[1]) != dimension) {
+                            throw new IOException("Dimension mismatch in " + idLogPath + ": " + parts[1] + " != " + dimension);
+                        }
+                    } else if (parts.length == 4 && "+".equals(parts[0])) {
+                        int slot = Integer.parseInt(parts[1]);
+                        Integer previous = slots.put(parts[2], slot);
+                        if (previous != null) {
+                            unindexDoc(previous, parts[2]);
+                        }
+                        indexDoc(slot, parts[2], parts[3]);
+                        nextSlot = Math.max(nextSlot, slot + 1);
+                    } else if (parts.length == 2 && "-".equals(parts[0])) {
+                        Integer slot = slots.remove(parts[1]);
+                        if (slot != null) {
+                            unindexDoc(slot, parts[1]);
+                        }
+                    }
+                }
+            }
+        }
+        BitSet used = new BitSet(nextSlot);
+        slots.values().forEach(used::set);
+        for (int slot = used.nextClearBit(0); slot < nextSlot; slot = used.nextClearBit(slot + 1)) {
+            freeSlots.addLast(slot);
+        }
+
+        Path snapshot = idLogPath.resolveSibling(idLogPath.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(snapshot, StandardCharsets.UTF_8)) {
+            writer.write("#\t" + dimension + "\n");
+            for (Map.Entry<String, Integer> entry : slots.entrySet()) {
+                writer.write("+\t" + entry.getValue() + "\t" + entry.getKey() + "\t"
+                    + docIdsBySlot.getOrDefault(entry.getValue(), "") + "\n");
+            }
+        }
+        Files.move(snapshot, idLogPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        idLog = Files.newBufferedWriter(idLogPath, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        if (!slots.isEmpty()) {
+            log.info("Loaded {} full-precision vectors from {}", slots.size(), idLogPath);
+        }
+    }
+
+    private void ensureCapacity(int slotCount) throws IOException {
+        int needed = (slotCount + VECTORS_PER_CHUNK - 1) / VECTORS_PER_CHUNK;
+        Chunk[] current = chunks;
+        if (needed <= current.length) {
+            return;
+        }
+        Chunk[] grown = Arrays.copyOf(current, needed);
+        for (int i = current.length; i < needed; i++) {
+            grown[i] = new Chunk(channel.map(FileChannel.MapMode.READ_WRITE, i * chunkBytes, chunkBytes));
+        }
+        chunks = grown;
+    }
+
+    /**
+     * 一块映射区域：向量视图 + 用于落盘的映射缓冲 + 顺序锁序号（奇数表示有向量正在写入）
+     */
+    private static final class Chunk {
+
+        private final MappedByteBuffer mapped;
+
+        private final FloatBuffer vectors;
+
+        private volatile long seq;
+
+        private Chunk(MappedByteBuffer mapped) {
+            this.mapped = mapped;
+            this.vectors = mapped.order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+    }
+}
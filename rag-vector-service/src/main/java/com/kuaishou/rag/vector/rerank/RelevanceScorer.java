@@ -0,0 +1,26 @@
+package com.kuaishou.rag.vector.rerank;
+
+import com.kuaishou.rag.vector.dto.SearchResponse;
+
+import java.util.List;
+
+/**
+ * 查询-候选相关性打分（重排阶段使用）
+ *
+ * 实现：
+ * - LexicalBlendScorer：词项覆盖率与向量相似度加权，纯 CPU、结果确定（默认）
+ * - 本地交叉编码器（如 ONNX 模型）可实现本接口，按 vector.rerank.scorer 选择
+ *
+ * 实现必须线程安全：CandidateReranker 会把候选切成多段在线程池中并行打分
+ */
+public interface RelevanceScorer {
+
+    /**
+     * 为一段候选打分，分数越大越相关
+     *
+     * @param query      原始查询文本
+     * @param candidates 候选（带 content 与 ANN 分数）
+     * @return 与 candidates 一一对应的分数
+     */
+    float[] score(String query, List<SearchResponse.SearchResult> candidates);
+}
@@ -0,0 +1,271 @@
+package com.kuaishou.rag.vector.service;
+
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.dto.InsertResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * 向量写入缓冲（write-behind）
+ *
+ * 多个调用方的插入按 Collection 聚合成大小合适的批次再写 Milvus：
+ * 1. 行数达到 batchRows 时立即发送
+ * 2. 最早一行等待超过 maxDelayMillis 时定时发送
+ * 3. 调用 drain() 显式发送（一致性要求，如导入结束），返回的确认覆盖该 Collection 所有已发出但未完成的批次
+ *
+ * 每次 submit 返回所在批次的确认 Future，批次写入完成后 complete。
+ * 单次 submit 的行不会被拆到两个批次；缓冲总行数受 maxPendingRows 限制，超出时 submit 阻塞（背压）。
+ */
+@Slf4j
+public class InsertBuffer {
+
+    /**
+     * 实际写入一批数据的函数：(collectionName, request) -> 写入结果
+     */
+    private final BiFunction<String, InsertRequest, InsertResponse> writer;
+
+    private final int batchRows;
+
+    private final long maxDelayMillis;
+
+    private final Semaphore pendingRows;
+
+    private final int maxPendingRows;
+
+    private final ConcurrentMap<String, Buffer> buffers = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService timer;
+
+    private final ExecutorService writePool;
+
+    public InsertBuffer(BiFunction<String, InsertRequest, InsertResponse> writer,
+                        int batchRows, long maxDelayMillis, int maxPendingRows, int writeThreads) {
+        this.writer = writer;
+        this.batchRows = batchRows;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxPendingRows = maxPendingRows;
+        this.pendingRows = new Semaphore(maxPendingRows);
+        this.timer = Executors.newSingleThreadScheduledExecutor(namedThreads("insert-buffer-timer"));
+        this.writePool = Executors.newFixedThreadPool(writeThreads, namedThreads("insert-buffer-write"));
+        long tick = Math.max(1, maxDelayMillis / 2);
+        this.timer.scheduleWithFixedDelay(this::drainExpired, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 提交一批行，返回所在批次的写入确认
+     *
+     * 各列长度与 ids 不一致的请求在进入批次前拒绝，只返回给该调用方，不会让同批次的其他调用方一起失败
+     */
+    public CompletableFuture<InsertResponse> submit(String collectionName, InsertRequest request) {
+        String invalid = request.validate();
+        if (invalid != null) {
+            return CompletableFuture.completedFuture(InsertResponse.error("写入请求不合法: " + invalid));
+        }
+        int rows = request.getIds().size();
+        // 超过上限的单次提交只占满全部额度，避免永远拿不到许可
+        int permits = Math.min(rows, maxPendingRows);
+        try {
+            pendingRows.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        Batch full;
+        CompletableFuture<InsertResponse> ack;
+        Buffer buffer = buffers.computeIfAbsent(collectionName, Buffer::new);
+        synchronized (buffer) {
+            ack = buffer.current.append(request, permits);
+            full = buffer.current.rows() >= batchRows ? buffer.swap() : null;
+        }
+        if (full != null) {
+            dispatch(buffer, full);
+        }
+        return ack;
+    }
+
+    /**
+     * 立即发送该 Collection 缓冲中的全部数据
+     *
+     * @return 本次发送的批次与此前已发出、仍在写入中的批次全部完成后的确认：
+     *         任一批次失败时为该批次的结果（或异常），否则为成功；没有待写数据时返回已完成的 Future
+     */
+    public CompletableFuture<InsertResponse> drain(String collectionName) {
+        Buffer buffer = buffers.get(collectionName);
+        if (buffer == null) {
+            return CompletableFuture.completedFuture(InsertResponse.success(0, null));
+        }
+        Batch batch = null;
+        synchronized (buffer) {
+            if (buffer.current.rows() > 0) {
+                batch = buffer.swap();
+            }
+        }
+        if (batch != null) {
+            dispatch(buffer, batch);
+        }
+
+        Map<CompletableFuture<InsertResponse>, Integer> pending = new HashMap<>(buffer.inflight);
+        if (batch != null) {
+            // 刚发出的批次可能在取快照前就已完成并移出 inflight，确认仍须覆盖它
+            pending.put(batch.ack, batch.rows());
+        }
+        if (pending.isEmpty()) {
+            return CompletableFuture.completedFuture(InsertResponse.success(0, null));
+        }
+        return CompletableFuture.allOf(pending.keySet().toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            int rows = 0;
+            for (Map.Entry<CompletableFuture<InsertResponse>, Integer> entry : pending.entrySet()) {
+                InsertResponse response = entry.getKey().join();
+                if (!response.isSuccess()) {
+                    return response;
+                }
+                rows += entry.getValue();
+            }
+            return InsertResponse.success(rows, null);
+        });
+    }
+
+    public void shutdown() {
+        timer.shutdown();
+        for (String collectionName : buffers.keySet()) {
+            drain(collectionName);
+        }
+        writePool.shutdown();
+        try {
+            if (!writePool.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Insert buffer did not finish pending writes in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainExpired() {
+        long now = System.currentTimeMillis();
+        for (Buffer buffer : buffers.values()) {
+            Batch batch = null;
+            synchronized (buffer) {
+                Batch current = buffer.current;
+                if (current.rows() > 0 && now - current.firstAppendTime >= maxDelayMillis) {
+                    batch = buffer.swap();
+                }
+            }
+            if (batch != null) {
+                dispatch(buffer, batch);
+            }
+        }
+    }
+
+    /**
+     * 发出批次并登记为在途，完成（成功或失败）后移除
+     */
+    private void dispatch(Buffer buffer, Batch batch) {
+        String collectionName = buffer.collectionName;
+        buffer.inflight.put(batch.ack, batch.rows());
+        batch.ack.whenComplete((response, error) -> buffer.inflight.remove(batch.ack));
+        try {
+            writePool.execute(() -> write(collectionName, batch));
+        } catch (RejectedExecutionException e) {
+            write(collectionName, batch);
+        }
+    }
+
+    private void write(String collectionName, Batch batch) {
+        try {
+            InsertResponse response = writer.apply(collectionName, batch.toRequest());
+            batch.ack.complete(response);
+        } catch (Exception e) {
+            log.error("Error writing buffered batch, collection: {}, rows: {}", collectionName, batch.rows(), e);
+            batch.ack.completeExceptionally(e);
+        } finally {
+            pendingRows.release(batch.permits);
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * 单个 Collection 的缓冲区，current 为正在累积的批次
+     */
+    private static final class Buffer {
+
+        private final String collectionName;
+        private Batch current = new Batch();
+
+        /**
+         * 已发出、尚未写完的批次确认 -> 行数
+         */
+        private final Map<CompletableFuture<InsertResponse>, Integer> inflight = new ConcurrentHashMap<>();
+
+        private Buffer(String collectionName) {
+            this.collectionName = collectionName;
+        }
+
+        private Batch swap() {
+            Batch full = current;
+            current = new Batch();
+            return full;
+        }
+    }
+
+    /**
+     * 累积中的一个写入批次（列式存储，直接对应 InsertParam.Field）
+     */
+    private static final class Batch {
+
+        private final List<String> ids = new ArrayList<>();
+        private final List<float[]> vectors = new ArrayList<>();
+        private final List<String> contents = new ArrayList<>();
+        private final List<String> docIds = new ArrayList<>();
+        private final List<String> metadataList = new ArrayList<>();
+        private final List<String> partitionKeys = new ArrayList<>();
+        private final CompletableFuture<InsertResponse> ack = new CompletableFuture<>();
+        private long firstAppendTime;
+        private int permits;
+
+        /**
+         * 追加一个已校验的请求（各列长度与 ids 一致），缺省列按行数补默认值
+         */
+        private CompletableFuture<InsertResponse> append(InsertRequest request, int permits) {
+            int rows = request.getIds().size();
+            if (ids.isEmpty()) {
+                firstAppendTime = System.currentTimeMillis();
+            }
+            ids.addAll(request.getIds());
+            vectors.addAll(request.getVectors());
+            contents.addAll(request.getContents() != null ? request.getContents() : Collections.nCopies(rows, ""));
+            docIds.addAll(request.getDocIds() != null ? request.getDocIds() : Collections.nCopies(rows, ""));
+            metadataList.addAll(request.getMetadataList() != null ? request.getMetadataList() : Collections.nCopies(rows, "{}"));
+            partitionKeys.addAll(request.getPartitionKeys() != null ? request.getPartitionKeys() : Collections.nCopies(rows, ""));
+            this.permits += permits;
+            return ack;
+        }
+
+        private int rows() {
+            return ids.size();
+        }
+
+        private InsertRequest toRequest() {
+            InsertRequest request = new InsertRequest();
+            request.setIds(ids);
+            request.setVectors(vectors);
+            request.setContents(contents);
+            request.setDocIds(docIds);
+            request.setMetadataList(metadataList);
+            request.setPartitionKeys(partitionKeys);
+            return request;
+        }
+    }
+}
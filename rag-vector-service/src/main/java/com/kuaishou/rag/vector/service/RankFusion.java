@@ -0,0 +1,96 @@
+package com.kuaishou.rag.vector.service;
+
+import com.kuaishou.rag.vector.dto.SearchResponse;
+
+import java.util.*;
+
+/**
+ * 混合检索结果融合
+ *
+ * - RRF（Reciprocal Rank Fusion）：score = Σ 1 / (k + rank)，只看名次，不受两侧分数尺度影响
+ * - 加权：两侧分数各自 min-max 归一化到 [0, 1] 后按权重相加
+ *
+ * 同一 id 两侧都命中时保留向量侧的字段；融合分数写入新的 SearchResult，不修改输入结果。
+ */
+public final class RankFusion {
+
+    private RankFusion() {
+    }
+
+    public static List<SearchResponse.SearchResult> reciprocalRank(List<SearchResponse.SearchResult> dense,
+                                                                   List<SearchResponse.SearchResult> lexical,
+                                                                   int k, int topK) {
+        Map<String, Fused> fused = new LinkedHashMap<>();
+        for (int rank = 0; rank < dense.size(); rank++) {
+            accumulate(fused, dense.get(rank), 1.0 / (k + rank + 1));
+        }
+        for (int rank = 0; rank < lexical.size(); rank++) {
+            accumulate(fused, lexical.get(rank), 1.0 / (k + rank + 1));
+        }
+        return top(fused, topK);
+    }
+
+    public static List<SearchResponse.SearchResult> weighted(List<SearchResponse.SearchResult> dense,
+                                                             List<SearchResponse.SearchResult> lexical,
+                                                             double denseWeight, int topK) {
+        Map<String, Fused> fused = new LinkedHashMap<>();
+        addNormalized(fused, dense, denseWeight);
+        addNormalized(fused, lexical, 1 - denseWeight);
+        return top(fused, topK);
+    }
+
+    private static void addNormalized(Map<String, Fused> fused, List<SearchResponse.SearchResult> results, double weight) {
+        if (results.isEmpty()) {
+            return;
+        }
+        double max = Double.NEGATIVE_INFINITY;
+        double min = Double.POSITIVE_INFINITY;
+        for (SearchResponse.SearchResult result : results) {
+            max = Math.max(max, result.getScore());
+            min = Math.min(min, result.getScore());
+        }
+        double range = max - min;
+        for (SearchResponse.SearchResult result : results) {
+            double normalized = range == 0 ? 1.0 : (result.getScore() - min) / range;
+            accumulate(fused, result, weight * normalized);
+        }
+    }
+
+    private static void accumulate(Map<String, Fused> fused, SearchResponse.SearchResult result, double score) {
+        Fused entry = fused.get(result.getId());
+        if (entry == null) {
+            fused.put(result.getId(), new Fused(result, score));
+        } else {
+            entry.score += score;
+        }
+    }
+
+    private static List<SearchResponse.SearchResult> top(Map<String, Fused> fused, int topK) {
+        List<Fused> entries = new ArrayList<>(fused.values());
+        entries.sort(Comparator.comparingDouble((Fused f) -> f.score).reversed());
+        List<SearchResponse.SearchResult> results = new ArrayList<>(Math.min(topK, entries.size()));
+        for (int i = 0; i < entries.size() && i < topK; i++) {
+            Fused entry = entries.get(i);
+            SearchResponse.SearchResult result = new SearchResponse.SearchResult();
+            result.setId(entry.source.getId());
+            result.setScore((float) entry.score);
+            result.setContent(entry.source.getContent());
+            result.setDocId(entry.source.getDocId());
+            result.setMetadata(entry.source.getMetadata());
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static final class Fused {
+
+        private final SearchResponse.SearchResult source;
+
+        private double score;
+
+        private Fused(SearchResponse.SearchResult source, double score) {
+            this.source = source;
+            this.score = score;
+        }
+    }
+}
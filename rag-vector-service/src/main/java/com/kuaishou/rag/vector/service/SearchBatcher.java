@@ -0,0 +1,154 @@
+package com.kuaishou.rag.vector.service;
+
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * 搜索请求合并器（时间窗口内合批）
+ *
+ * 同一 Collection 在 windowMillis 内到达的并发查询合并为一次多向量 SearchParam，
+ * 结果按下标拆回各调用方。达到 maxBatchSize 时立即发送，不再等待窗口结束。
+ */
+@Slf4j
+public class SearchBatcher {
+
+    /**
+     * 实际执行一批搜索的函数：(collectionName, requests) -> 与 requests 一一对应的结果
+     */
+    private final BiFunction<String, List<SearchRequest>, List<SearchResponse>> executor;
+
+    private final long windowMillis;
+
+    private final int maxBatchSize;
+
+    private final ConcurrentMap<String, PendingBatch> pending = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService timer;
+
+    private final ExecutorService flushPool;
+
+    public SearchBatcher(BiFunction<String, List<SearchRequest>, List<SearchResponse>> executor,
+                         long windowMillis, int maxBatchSize, int flushThreads) {
+        this.executor = executor;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.timer = Executors.newSingleThreadScheduledExecutor(namedThreads("search-batch-timer"));
+        this.flushPool = Executors.newFixedThreadPool(flushThreads, namedThreads("search-batch-flush"));
+    }
+
+    /**
+     * 提交一次搜索，返回该查询自己的结果
+     */
+    public CompletableFuture<SearchResponse> submit(String collectionName, SearchRequest request) {
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        while (true) {
+            PendingBatch batch = pending.computeIfAbsent(collectionName, this::openBatch);
+            int size = batch.add(request, future);
+            if (size < 0) {
+                // 批次已被其他线程关闭，重新取一个
+                pending.remove(collectionName, batch);
+                continue;
+            }
+            if (size >= maxBatchSize) {
+                flush(batch);
+            }
+            return future;
+        }
+    }
+
+    public void shutdown() {
+        timer.shutdown();
+        // 先把未到期的批次发出去，避免调用方永远等待
+        for (PendingBatch batch : pending.values()) {
+            flush(batch);
+        }
+        flushPool.shutdown();
+    }
+
+    private PendingBatch openBatch(String collectionName) {
+        PendingBatch batch = new PendingBatch(collectionName);
+        timer.schedule(() -> flush(batch), windowMillis, TimeUnit.MILLISECONDS);
+        return batch;
+    }
+
+    private void flush(PendingBatch batch) {
+        pending.remove(batch.collectionName, batch);
+        if (!batch.close()) {
+            return;
+        }
+        try {
+            flushPool.execute(() -> execute(batch));
+        } catch (RejectedExecutionException e) {
+            execute(batch);
+        }
+    }
+
+    private void execute(PendingBatch batch) {
+        try {
+            List<SearchResponse> responses = executor.apply(batch.collectionName, batch.requests);
+            for (int i = 0; i < batch.futures.size(); i++) {
+                batch.futures.get(i).complete(responses.get(i));
+            }
+        } catch (Exception e) {
+            log.error("Error executing batched search, collection: {}, size: {}",
+                batch.collectionName, batch.requests.size(), e);
+            for (CompletableFuture<SearchResponse> future : batch.futures) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * 一个待发送的批次，关闭后不再接受新请求
+     */
+    private static final class PendingBatch {
+
+        private final String collectionName;
+        private final List<SearchRequest> requests = new ArrayList<>();
+        private final List<CompletableFuture<SearchResponse>> futures = new ArrayList<>();
+        private boolean closed;
+
+        private PendingBatch(String collectionName) {
+            this.collectionName = collectionName;
+        }
+
+        /**
+         * @return 加入后的批次大小，批次已关闭时返回 -1
+         */
+        synchronized int add(SearchRequest request, CompletableFuture<SearchResponse> future) {
+            if (closed) {
+                return -1;
+            }
+            requests.add(request);
+            futures.add(future);
+            return requests.size();
+        }
+
+        /**
+         * @return true 表示本次调用关闭了批次，由调用方负责发送
+         */
+        synchronized boolean close() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.kuaishou.rag.vector.service;
+
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import com.kuaishou.rag.vector.limit.AdmissionController;
+import com.kuaishou.rag.vector.limit.OverloadedException;
+import com.kuaishou.rag.vector.store.VectorStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * HNSW 搜索深度 ef 自适应控制器
+ *
+ * 每个 (Collection, 是否带过滤) 维护一个缩放系数 scale，ef = base * scale：
+ * - base = max(vector.search.ef, topK * candidateMultiplier)
+ * - 本轮 p95 延迟超过 SLO：scale 乘性下降
+ * - 本轮采样召回率低于目标：scale 上升（带过滤的查询初始 scale 更高，更容易欠召回）
+ * - 召回率有富余且延迟远低于 SLO：scale 缓慢下降，节省 CPU
+ *
+ * 每轮只看上一轮之后的新数据：延迟样本攒够 min-latency-samples 条才计算本轮 p95 并清空窗口（不足时留到下一轮），
+ * 召回率只在本轮有评估结果时参与判断。没有新数据的轮次不调整，空闲的 Collection 不会被旧的慢查询反复下调。
+ *
+ * 召回率由后台定时任务离线采样：对抽样查询用当前 ef 重新搜索，与精确（暴力）TopK 比较计算 recall@topK。
+ * 精确 TopK 需要读出检索范围内的全部向量（行数 × 维度 × 4 字节，5000 行 1536 维约 30MB），
+ * 范围超过 ground-truth-max-rows 的查询不参与评估，上限决定了每次评估的最大读取量；
+ * 评估查询走准入控制的批量通道，不占用在线查询的并发名额。
+ *
+ * 调用方显式传入 ef 时不做调整。当前 ef、召回率、p95 延迟以 Gauge 暴露。
+ */
+@Slf4j
+@Component
+public class SearchEfController {
+
+    @Autowired
+    private VectorStore vectorStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AdmissionController admission;
+
+    /**
+     * 基础 ef
+     */
+    @Value("${vector.search.ef:128}")
+    private int baseEf;
+
+    @Value("${vector.search.adaptive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${vector.search.adaptive.min-ef:32}")
+    private int minEf;
+
+    @Value("${vector.search.adaptive.max-ef:1024}")
+    private int maxEf;
+
+    /**
+     * 单次搜索 p95 延迟预算（毫秒）
+     */
+    @Value("${vector.search.adaptive.latency-slo-ms:50}")
+    private double latencySloMs;
+
+    /**
+     * 目标召回率
+     */
+    @Value("${vector.search.adaptive.target-recall:0.95}")
+    private double targetRecall;
+
+    /**
+     * 带过滤查询的初始 scale
+     */
+    @Value("${vector.search.adaptive.filtered-boost:1.5}")
+    private double filteredBoost;
+
+    /**
+     * 查询被抽样做召回评估的概率
+     */
+    @Value("${vector.search.adaptive.recall-sample-rate:0.01}")
+    private double recallSampleRate;
+
+    /**
+     * 每轮每个 Collection 最多评估的抽样查询数
+     */
+    @Value("${vector.search.adaptive.recall-samples-per-round:4}")
+    private int recallSamplesPerRound;
+
+    /**
+     * 精确 TopK 的检索范围行数上限，超过时跳过该抽样；每次评估最多读出这么多行向量
+     */
+    @Value("${vector.search.adaptive.ground-truth-max-rows:5000}")
+    private long groundTruthMaxRows;
+
+    /**
+     * 计算一轮 p95 所需的最少新延迟样本数，不足时不按延迟调整
+     */
+    @Value("${vector.search.adaptive.min-latency-samples:20}")
+    private int minLatencySamples;
+
+    /**
+     * 调整周期（毫秒）
+     */
+    @Value("${vector.search.adaptive.adjust-interval-ms:5000}")
+    private long adjustIntervalMs;
+
+    private final ConcurrentMap<String, TuningState> states = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "search-ef-controller");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::adjustAll, adjustIntervalMs, adjustIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 为请求选择 ef（请求已指定 ef 时原样返回）
+     */
+    public int chooseEf(String collectionName, SearchRequest request) {
+        if (request.getEf() != null) {
+            return request.getEf();
+        }
+        int base = Math.max(baseEf, request.getTopK() * request.getCandidateMultiplier());
+        if (!enabled) {
+            return base;
+        }
+        TuningState state = state(collectionName, isFiltered(request));
+        int ef = Math.max(request.getTopK(), Math.min(maxEf, Math.max(minEf, (int) Math.round(base * state.scale))));
+        state.chosenEf = ef;
+        return ef;
+    }
+
+    /**
+     * 返回带 ef 的请求：已指定 ef 时返回原对象，否则返回填好 ef 的副本（不修改调用方对象）
+     */
+    public SearchRequest withChosenEf(String collectionName, SearchRequest request) {
+        if (request.getEf() != null) {
+            return request;
+        }
+        return copyWithEf(request, chooseEf(collectionName, request));
+    }
+
+    /**
+     * 记录一次搜索的延迟，并按概率抽样用于召回评估
+     */
+    public void record(String collectionName, SearchRequest request, long latencyNanos) {
+        if (!enabled) {
+            return;
+        }
+        TuningState state = state(collectionName, isFiltered(request));
+        state.recordLatency(latencyNanos);
+        if (ThreadLocalRandom.current().nextDouble() < recallSampleRate) {
+            state.offerSample(request);
+        }
+    }
+
+    private TuningState state(String collectionName, boolean filtered) {
+        return states.computeIfAbsent(collectionName + (filtered ? "|filtered" : "|plain"), key -> {
+            TuningState state = new TuningState(collectionName, filtered ? filteredBoost : 1.0);
+            state.chosenEf = baseEf;
+            Tags tags = Tags.of("collection", collectionName, "filtered", String.valueOf(filtered));
+            Gauge.builder("vector.search.ef.scale", state, s -> s.scale).tags(tags).register(meterRegistry);
+            Gauge.builder("vector.search.ef.chosen", state, s -> s.chosenEf).tags(tags).register(meterRegistry);
+            Gauge.builder("vector.search.recall", state, s -> s.recall).tags(tags).register(meterRegistry);
+            Gauge.builder("vector.search.latency.p95", state, s -> s.p95Millis)
+                .baseUnit("milliseconds").tags(tags).register(meterRegistry);
+            return state;
+        });
+    }
+
+    private static boolean isFiltered(SearchRequest request) {
+        return request.getFilterExpr() != null && !request.getFilterExpr().isEmpty();
+    }
+
+    private void adjustAll() {
+        for (TuningState state : states.values()) {
+            try {
+                adjust(state);
+            } catch (Exception e) {
+                log.warn("Error adjusting search ef, collection: {}, error: {}", state.collectionName, e.getMessage());
+            }
+        }
+    }
+
+    private void adjust(TuningState state) {
+        long p95Nanos = state.drainLatencyPercentile(0.95, minLatencySamples);
+        boolean freshLatency = p95Nanos >= 0;
+        if (freshLatency) {
+            state.p95Millis = p95Nanos / 1_000_000.0;
+        }
+        boolean freshRecall = false;
+        for (SearchRequest sample : state.drainSamples(recallSamplesPerRound)) {
+            double recall = measureRecall(state.collectionName, sample);
+            if (recall >= 0) {
+                // EWMA 平滑，避免单个难查询造成抖动
+                state.recall = Double.isNaN(state.recall) ? recall : state.recall * 0.8 + recall * 0.2;
+                freshRecall = true;
+            }
+        }
+
+        double scale = state.scale;
+        if (freshLatency && state.p95Millis > latencySloMs) {
+            scale *= 0.8;
+        } else if (freshRecall && state.recall < targetRecall) {
+            scale *= 1.25;
+        } else if (freshRecall && freshLatency && state.recall > targetRecall + 0.02 && state.p95Millis < latencySloMs / 2) {
+            scale *= 0.95;
+        }
+        double minScale = (double) minEf / baseEf;
+        double maxScale = (double) maxEf / baseEf;
+        state.scale = Math.max(minScale, Math.min(maxScale, scale));
+    }
+
+    /**
+     * 用当前 ef 搜索一次并与精确 TopK 比较，返回 recall@topK；失败、过载或范围过大返回 -1
+     */
+    private double measureRecall(String collectionName, SearchRequest sample) {
+        SearchRequest tuned = copyWithEf(sample, chooseEf(collectionName, sample));
+        AdmissionController.Permit permit;
+        try {
+            permit = admission.acquire(AdmissionController.Lane.BULK);
+        } catch (OverloadedException e) {
+            return -1;
+        }
+        SearchResponse approxResponse;
+        List<String> exact;
+        boolean success = false;
+        try {
+            approxResponse = vectorStore.search(collectionName, Collections.singletonList(tuned)).get(0);
+            exact = vectorStore.exactTopK(collectionName, sample, groundTruthMaxRows);
+            success = approxResponse.isSuccess() || approxResponse.isInvalidRequest();
+        } finally {
+            permit.release(success);
+        }
+        if (!approxResponse.isSuccess() || exact == null || exact.isEmpty()) {
+            return -1;
+        }
+        Set<String> truth = new HashSet<>(exact);
+        int hits = 0;
+        for (SearchResponse.SearchResult result : approxResponse.getResults()) {
+            if (truth.contains(result.getId())) {
+                hits++;
+            }
+        }
+        return (double) hits / truth.size();
+    }
+
+    private static SearchRequest copyWithEf(SearchRequest source, int ef) {
+        SearchRequest copy = source.copy();
+        copy.setEf(ef);
+        return copy;
+    }
+
+    /**
+     * 单个 (Collection, 是否过滤) 的调优状态
+     */
+    private static final class TuningState {
+
+        private static final int LATENCY_WINDOW = 512;
+
+        private static final int MAX_SAMPLES = 32;
+
+        private final String collectionName;
+
+        private final long[] latencies = new long[LATENCY_WINDOW];
+
+        /**
+         * 上次计算 p95 之后记录的样本数（超过窗口时只保留最近的 LATENCY_WINDOW 条）
+         */
+        private int latencyCount;
+
+        private final Deque<SearchRequest> samples = new ArrayDeque<>();
+
+        private volatile double scale;
+
+        private volatile double recall = Double.NaN;
+
+        private volatile double p95Millis;
+
+        /**
+         * 最近一次自动选择、实际下发的 ef
+         */
+        private volatile int chosenEf;
+
+        private TuningState(String collectionName, double initialScale) {
+            this.collectionName = collectionName;
+            this.scale = initialScale;
+        }
+
+        synchronized void recordLatency(long nanos) {
+            latencies[latencyCount++ % LATENCY_WINDOW] = nanos;
+        }
+
+        /**
+         * 新样本不少于 minSamples 时返回其分位数并清空窗口，否则返回 -1 并保留样本
+         */
+        synchronized long drainLatencyPercentile(double percentile, int minSamples) {
+            int n = Math.min(latencyCount, LATENCY_WINDOW);
+            if (n == 0 || n < minSamples) {
+                return -1;
+            }
+            long[] window = Arrays.copyOf(latencies, n);
+            latencyCount = 0;
+            Arrays.sort(window);
+            return window[Math.min(n - 1, (int) Math.ceil(percentile * n) - 1)];
+        }
+
+        synchronized void offerSample(SearchRequest request) {
+            if (samples.size() == MAX_SAMPLES) {
+                samples.pollFirst();
+            }
+            samples.addLast(request);
+        }
+
+        synchronized List<SearchRequest> drainSamples(int max) {
+            List<SearchRequest> drained = new ArrayList<>(Math.min(max, samples.size()));
+            while (drained.size() < max && !samples.isEmpty()) {
+                drained.add(samples.pollLast());
+            }
+            return drained;
+        }
+    }
+}
@@ -1,41 +1,215 @@
 package com.kuaishou.rag.vector.service;
 
+import com.kuaishou.rag.vector.cache.SearchCache;
 import com.kuaishou.rag.vector.dto.SearchRequest;
 import com.kuaishou.rag.vector.dto.SearchResponse;
 import com.kuaishou.rag.vector.dto.InsertRequest;
 import com.kuaishou.rag.vector.dto.InsertResponse;
-import io.milvus.client.MilvusClient;
-import io.milvus.grpc.DataType;
-import io.milvus.grpc.SearchResults;
-import io.milvus.param.IndexType;
-import io.milvus.param.MetricType;
-import io.milvus.param.R;
-import io.milvus.param.collection.*;
-import io.milvus.param.dml.*;
-import io.milvus.param.index.*;
-import io.milvus.response.SearchResultsWrapper;
+import com.kuaishou.rag.vector.filter.FilterCompiler;
+import com.kuaishou.rag.vector.lexical.Bm25Index;
+import com.kuaishou.rag.vector.lexical.LexicalIndex;
+import com.kuaishou.rag.vector.limit.AdmissionController;
+import com.kuaishou.rag.vector.limit.OverloadedException;
+import com.kuaishou.rag.vector.metrics.VectorMetrics;
+import com.kuaishou.rag.vector.migration.CollectionMigrator;
+import com.kuaishou.rag.vector.rerank.CandidateReranker;
+import com.kuaishou.rag.vector.rerank.FullPrecisionReranker;
+import com.kuaishou.rag.vector.store.VectorCompression;
+import com.kuaishou.rag.vector.store.VectorStore;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Milvus 向量存储服务
+ * 向量存储服务
+ *
+ * 底层引擎由 VectorStore 提供：远程 Milvus（默认）或进程内 HNSW（vector.engine=local）
  *
  * 核心功能：
  * 1. Collection 管理（创建/删除/加载）
  * 2. 向量插入（批量）
  * 3. ANN 搜索（近似最近邻）
  * 4. 混合搜索（向量 + 标量过滤）
+ * 5. 批量搜索（多向量合并为一次 RPC）
+ * 6. 写入缓冲（跨调用方聚合插入，flush 与插入解耦）
+ * 7. 搜索结果缓存（进程内 + 共享层，写入/删除时失效）
+ * 8. 混合检索（向量 ANN + 进程内 BM25，RRF/加权融合）
+ * 9. 压缩存储（IVF_SQ8 / IVF_PQ）的全精度重排
+ * 10. 候选相关性重排（多取候选，按查询文本重新打分）
+ * 11. 在线迁移：写入与删除经 CollectionMigrator，迁移期间同时写入新 Collection
+ *
+ * 各操作的耗时、结果条数、写入批次行数由 VectorMetrics 记录。
+ * 引擎调用经 AdmissionController 准入：搜索走交互通道，写入走批量通道，过载时快速失败而不是堆积线程
  */
 @Slf4j
 @Service
 public class VectorStoreService {
 
     @Autowired
-    private MilvusClient milvusClient;
+    private VectorStore vectorStore;
+
+    @Autowired
+    private SearchCache searchCache;
+
+    @Autowired
+    private SearchEfController efController;
+
+    @Autowired
+    private LexicalIndex lexicalIndex;
+
+    @Autowired
+    private FullPrecisionReranker reranker;
+
+    @Autowired
+    private CandidateReranker candidateReranker;
+
+    @Autowired
+    private VectorMetrics metrics;
+
+    @Autowired
+    private FilterCompiler filterCompiler;
+
+    @Autowired
+    private AdmissionController admission;
+
+    @Autowired
+    private CollectionMigrator migrator;
+
+    /**
+     * 是否开启搜索合批：并发查询在时间窗口内合并为一次多向量 RPC
+     */
+    @Value("${optimization.batch-search-enabled:false}")
+    private boolean batchSearchEnabled;
+
+    /**
+     * 合批时间窗口（毫秒），窗口越大合并越多，但单次查询延迟增加
+     */
+    @Value("${optimization.batch-search.window-ms:5}")
+    private long batchSearchWindowMs;
+
+    /**
+     * 单批最大查询数，达到后立即发送
+     */
+    @Value("${optimization.batch-search.max-size:32}")
+    private int batchSearchMaxSize;
+
+    /**
+     * 合批发送线程数
+     */
+    @Value("${optimization.batch-search.flush-threads:4}")
+    private int batchSearchFlushThreads;
+
+    /**
+     * 单个写入批次的目标行数
+     */
+    @Value("${optimization.write-buffer.batch-rows:2000}")
+    private int writeBufferBatchRows;
+
+    /**
+     * 缓冲数据最长等待时间（毫秒），超时后即使未满也发送
+     */
+    @Value("${optimization.write-buffer.max-delay-ms:200}")
+    private long writeBufferMaxDelayMs;
+
+    /**
+     * 缓冲中允许的最大行数，超出后写入方阻塞
+     */
+    @Value("${optimization.write-buffer.max-pending-rows:50000}")
+    private int writeBufferMaxPendingRows;
+
+    /**
+     * 缓冲写入线程数
+     */
+    @Value("${optimization.write-buffer.write-threads:2}")
+    private int writeBufferWriteThreads;
+
+    /**
+     * 混合检索融合方式：rrf / weighted
+     */
+    @Value("${vector.hybrid.fusion:rrf}")
+    private String hybridFusion;
+
+    /**
+     * RRF 常数 k，越大头部名次的优势越小
+     */
+    @Value("${vector.hybrid.rrf-k:60}")
+    private int hybridRrfK;
+
+    /**
+     * 加权融合时向量侧权重（BM25 侧为 1 - denseWeight）
+     */
+    @Value("${vector.hybrid.dense-weight:0.5}")
+    private double hybridDenseWeight;
+
+    /**
+     * 每侧参与融合的候选数（不少于 topK）
+     */
+    @Value("${vector.hybrid.candidates:50}")
+    private int hybridCandidates;
+
+    /**
+     * 混合检索中向量侧的执行线程数（未开启合批时使用）
+     */
+    @Value("${vector.hybrid.threads:4}")
+    private int hybridThreads;
+
+    /**
+     * 批量写入被准入控制拒绝后的重试次数，用尽后该批失败
+     */
+    @Value("${vector.admission.bulk.max-retries:3}")
+    private int bulkMaxRetries;
+
+    /**
+     * 批量写入重试的初始退避（毫秒），每次翻倍，不超过 2 秒
+     */
+    @Value("${vector.admission.bulk.retry-backoff-ms:200}")
+    private long bulkRetryBackoffMs;
+
+    private SearchBatcher searchBatcher;
+
+    private InsertBuffer insertBuffer;
+
+    private ExecutorService hybridPool;
+
+    @PostConstruct
+    public void init() {
+        if (batchSearchEnabled) {
+            searchBatcher = new SearchBatcher(this::engineSearch,
+                batchSearchWindowMs, batchSearchMaxSize, batchSearchFlushThreads);
+            log.info("Batch search enabled, window: {}ms, max size: {}", batchSearchWindowMs, batchSearchMaxSize);
+        }
+        insertBuffer = new InsertBuffer(this::batchInsert,
+            writeBufferBatchRows, writeBufferMaxDelayMs, writeBufferMaxPendingRows, writeBufferWriteThreads);
+        if (lexicalIndex.isEnabled()) {
+            AtomicInteger counter = new AtomicInteger();
+            hybridPool = Executors.newFixedThreadPool(hybridThreads, r -> {
+                Thread t = new Thread(r, "hybrid-dense-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (searchBatcher != null) {
+            searchBatcher.shutdown();
+        }
+        insertBuffer.shutdown();
+        if (hybridPool != null) {
+            hybridPool.shutdown();
+        }
+    }
 
     // ==================== Collection 管理 ====================
 
@@ -48,137 +222,40 @@ public class VectorStoreService {
      * @return true if 创建成功
      */
     public boolean createCollection(String collectionName, int dimension, String desc) {
-        try {
-            // 检查是否已存在
-            R<Boolean> hasResponse = milvusClient.hasCollection(
-                HasCollectionParam.newBuilder()
-                    .withCollectionName(collectionName)
-                    .build()
-            );
-            if (hasResponse.getData()) {
-                log.info("Collection {} already exists", collectionName);
-                return true;
-            }
-
-            // 定义字段
-            List<FieldType> fields = Arrays.asList(
-                // 主键字段
-                FieldType.newBuilder()
-                    .withName("id")
-                    .withDataType(DataType.VarChar)
-                    .withMaxLength(64)
-                    .withPrimaryKey(true)
-                    .withAutoID(false)  // 手动指定 ID
-                    .build(),
-                
-                // 向量字段
-                FieldType.newBuilder()
-                    .withName("embedding")
-                    .withDataType(DataType.FloatVector)
-                    .withDimension(dimension)
-                    .build(),
-                
-                // 内容文本（可选，用于返回原始内容）
-                FieldType.newBuilder()
-                    .withName("content")
-                    .withDataType(DataType.VarChar)
-                    .withMaxLength(65535)
-                    .build(),
-                
-                // 文档 ID（标量过滤用）
-                FieldType.newBuilder()
-                    .withName("doc_id")
-                    .withDataType(DataType.VarChar)
-                    .withMaxLength(64)
-                    .build(),
-                
-                // 业务元数据（JSON 字符串）
-                FieldType.newBuilder()
-                    .withName("metadata")
-                    .withDataType(DataType.VarChar)
-                    .withMaxLength(4096)
-                    .build()
-            );
-
-            // 创建 Collection
-            R<RpcStatus> response = milvusClient.createCollection(
-                CreateCollectionParam.newBuilder()
-                    .withCollectionName(collectionName)
-                    .withDescription(desc)
-                    .withFieldTypes(fields)
-                    .withShardsNum(2)  // 分片数，根据数据量调整
-                    .build()
-            );
-
-            if (response.getStatus() != R.Status.Success.getCode()) {
-                log.error("Failed to create collection: {}", response.getException().getMessage());
-                return false;
-            }
-
-            // 创建索引（HNSW - 高精度）
-            createIndex(collectionName, "embedding", IndexType.HNSW, MetricType.COSINE);
-
-            // 加载 Collection
-            loadCollection(collectionName);
-
-            log.info("Collection {} created successfully with HNSW index", collectionName);
-            return true;
-
-        } catch (Exception e) {
-            log.error("Error creating collection: {}", e.getMessage(), e);
-            return false;
-        }
+        Timer.Sample sample = metrics.start();
+        boolean created = vectorStore.createCollection(collectionName, dimension, desc);
+        metrics.recordOperation(sample, "create_collection", collectionName, created);
+        return created;
     }
 
     /**
-     * 创建索引
+     * 按指定存储方式创建 Collection
+     *
+     * @param compression 压缩方式，压缩存储时原始向量另存本地用于重排
      */
-    public boolean createIndex(String collectionName, String fieldName, IndexType indexType, MetricType metricType) {
-        try {
-            Map<String, String> extraParams = new HashMap<>();
-            
-            if (indexType == IndexType.HNSW) {
-                // HNSW 参数
-                extraParams.put("M", "16");                    // 每层最大连接数
-                extraParams.put("efConstruction", "200");        // 构建时搜索深度
-            } else if (indexType == IndexType.IVF_FLAT) {
-                // IVF 参数
-                extraParams.put("nlist", "4096");               // 聚类中心数
-            }
-
-            R<RpcStatus> response = milvusClient.createIndex(
-                CreateIndexParam.newBuilder()
-                    .withCollectionName(collectionName)
-                    .withFieldName(fieldName)
-                    .withIndexType(indexType)
-                    .withMetricType(metricType)
-                    .withExtraParam(extraParams)
-                    .withSyncMode(Boolean.TRUE)  // 同步等待索引完成
-                    .build()
-            );
-
-            return response.getStatus() == R.Status.Success.getCode();
-        } catch (Exception e) {
-            log.error("Error creating index: {}", e.getMessage(), e);
-            return false;
-        }
+    public boolean createCollection(String collectionName, int dimension, String desc, VectorCompression compression) {
+        Timer.Sample sample = metrics.start();
+        boolean created = vectorStore.createCollection(collectionName, dimension, desc, compression);
+        metrics.recordOperation(sample, "create_collection", collectionName, created);
+        return created;
     }
 
     /**
      * 加载 Collection（必须加载后才能查询）
      */
     public boolean loadCollection(String collectionName) {
-        try {
-            R<RpcStatus> response = milvusClient.loadCollection(
-                LoadCollectionParam.newBuilder()
-                    .withCollectionName(collectionName)
-                    .build()
-            );
-            return response.getStatus() == R.Status.Success.getCode();
-        } catch (Exception e) {
-            log.error("Error loading collection: {}", e.getMessage(), e);
-            return false;
-        }
+        Timer.Sample sample = metrics.start();
+        boolean loaded = vectorStore.loadCollection(collectionName);
+        metrics.recordOperation(sample, "load_collection", collectionName, loaded);
+        return loaded;
+    }
+
+    /**
+     * Collection 当前的向量维度（别名按其指向的 Collection），未知时返回 -1；
+     * 查询服务据此在在线迁移切换别名后改用目标模型向量化
+     */
+    public int dimension(String collectionName) {
+        return vectorStore.dimension(collectionName);
     }
 
     // ==================== 向量操作 ====================
@@ -186,161 +263,464 @@ public class VectorStoreService {
     /**
      * 批量插入向量
      *
+     * 只写入不 flush：新数据进入 growing segment 即可被检索，
+     * 需要持久化/封段时调用 {@link #flush(String)}。
+     * 批量通道过载时退避重试，不让一次瞬时拒绝拖垮整个合并批次；各列长度不一致的请求不占用名额直接返回错误
+     *
      * @param collectionName Collection 名称
      * @param request        插入请求
      * @return 插入结果
      */
     public InsertResponse batchInsert(String collectionName, InsertRequest request) {
+        String invalid = request.validate();
+        if (invalid != null) {
+            return InsertResponse.error("写入请求不合法: " + invalid);
+        }
+        Timer.Sample sample = metrics.start();
+        metrics.recordInsertRows(collectionName, request.getIds().size());
+        InsertResponse response;
         try {
-            List<String> ids = request.getIds();
-            List<List<Float>> vectors = request.getVectors();
-            List<String> contents = request.getContents();
-            List<String> docIds = request.getDocIds();
-            List<String> metadataList = request.getMetadataList();
-
-            // 构建 insert data
-            List<InsertParam.Field> fields = Arrays.asList(
-                new InsertParam.Field("id", ids),
-                new InsertParam.Field("embedding", vectors),
-                new InsertParam.Field("content", contents != null ? contents : Collections.nCopies(ids.size(), "")),
-                new InsertParam.Field("doc_id", docIds != null ? docIds : Collections.nCopies(ids.size(), "")),
-                new InsertParam.Field("metadata", metadataList != null ? metadataList : Collections.nCopies(ids.size(), "{}"))
-            );
-
-            R<MutationResult> response = milvusClient.insert(
-                InsertParam.newBuilder()
-                    .withCollectionName(collectionName)
-                    .withFields(fields)
-                    .build()
-            );
-
-            if (response.getStatus() != R.Status.Success.getCode()) {
-                return InsertResponse.error(response.getException().getMessage());
+            AdmissionController.Permit permit = acquireBulk();
+            response = InsertResponse.error("向量写入失败");
+            try {
+                response = migrator.insert(collectionName, request);
+            } finally {
+                permit.release(response.isSuccess());
             }
+        } catch (OverloadedException e) {
+            response = InsertResponse.error(e.getMessage());
+        }
+        metrics.recordOperation(sample, "insert", collectionName, response.isSuccess());
+        if (response.isSuccess()) {
+            lexicalIndex.index(collectionName, request);
+            if (needsRerank(collectionName)) {
+                reranker.put(collectionName, request);
+            }
+            searchCache.invalidate(collectionName);
+        }
+        return response;
+    }
 
-            // 刷新数据（确保立即可查询）
-            milvusClient.flush(FlushParam.newBuilder()
-                .withCollectionNames(Collections.singletonList(collectionName))
-                .build()
-            );
+    /**
+     * 获取批量通道名额，过载时按指数退避重试，重试用尽后抛出 OverloadedException
+     */
+    private AdmissionController.Permit acquireBulk() {
+        long backoffMs = bulkRetryBackoffMs;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return admission.acquire(AdmissionController.Lane.BULK);
+            } catch (OverloadedException e) {
+                if (attempt >= bulkMaxRetries) {
+                    throw e;
+                }
+                log.warn("Bulk lane overloaded, retrying insert in {}ms ({}/{})", backoffMs, attempt + 1, bulkMaxRetries);
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OverloadedException("向量服务过载，等待重试时被中断");
+            }
+            backoffMs = Math.min(backoffMs * 2, 2000);
+        }
+    }
 
-            return InsertResponse.success(ids.size(), response.getData().getInsertIds());
+    /**
+     * 缓冲插入（write-behind）
+     *
+     * 数据先进入 InsertBuffer，与其他调用方的数据合并为大批次后写入
+     *
+     * @param collectionName Collection 名称
+     * @param request        插入请求
+     * @return 所在批次的写入确认
+     */
+    public CompletableFuture<InsertResponse> bufferedInsert(String collectionName, InsertRequest request) {
+        return insertBuffer.submit(collectionName, request);
+    }
 
+    /**
+     * 一致性刷新：发送缓冲中的全部数据，等待该 Collection 所有在途批次（含此前已发出的）写完后 flush Collection
+     *
+     * 用于批量导入结束等需要数据落盘的场景
+     */
+    public boolean flushBuffered(String collectionName) {
+        try {
+            InsertResponse response = insertBuffer.drain(collectionName).join();
+            if (!response.isSuccess()) {
+                return false;
+            }
+            return flush(collectionName);
         } catch (Exception e) {
-            log.error("Error inserting vectors: {}", e.getMessage(), e);
-            return InsertResponse.error(e.getMessage());
+            log.error("Error flushing buffered vectors: {}", e.getMessage(), e);
+            return false;
         }
     }
 
+    /**
+     * 刷新 Collection（封存 growing segment 并持久化）
+     */
+    public boolean flush(String collectionName) {
+        Timer.Sample sample = metrics.start();
+        boolean flushed = vectorStore.flush(collectionName);
+        metrics.recordOperation(sample, "flush", collectionName, flushed);
+        return flushed;
+    }
+
     /**
      * ANN 向量搜索（核心接口）
      *
+     * 先查搜索缓存；开启合批时，请求进入 SearchBatcher 与并发查询合并后再发送。
+     * filters 先由 FilterCompiler 编译为过滤表达式，不合法或携带原始 filterExpr 时返回错误。
+     * hybrid=true 且带 queryText 时走混合检索；rerank=true 且带 queryText 时多取候选，重排后截断到 topK
+     *
      * @param collectionName Collection 名称
      * @param request        搜索请求
      * @return 搜索结果
      */
     public SearchResponse search(String collectionName, SearchRequest request) {
+        Timer.Sample sample = metrics.start();
+        SearchResponse response;
         try {
-            // 构建 ANN 参数
-            List<String> outputFields = Arrays.asList("id", "content", "doc_id", "metadata");
-
-            // 标量过滤表达式（可选）
-            String expr = request.getFilterExpr();  // 如: doc_id == 'xxx'
-
-            SearchParam.Builder searchBuilder = SearchParam.newBuilder()
-                .withCollectionName(collectionName)
-                .withMetricType(MetricType.COSINE)
-                .withTopK(request.getTopK())
-                .withVectors(Collections.singletonList(request.getVector()))
-                .withVectorFieldName("embedding")
-                .withOutFields(outputFields);
-
-            // 添加过滤条件
-            if (expr != null && !expr.isEmpty()) {
-                searchBuilder.withExpr(expr);
+            response = doSearch(collectionName, compileFilters(collectionName, request));
+        } catch (IllegalArgumentException e) {
+            response = SearchResponse.error("过滤条件不合法: " + e.getMessage());
+        }
+        metrics.recordSearch(sample, collectionName, request, response);
+        return response;
+    }
+
+    private SearchResponse doSearch(String collectionName, SearchRequest request) {
+        SearchCache.Lookup lookup = searchCache.lookup(collectionName, request);
+        if (lookup.getResponse() != null) {
+            return lookup.getResponse();
+        }
+
+        SearchResponse response;
+        try {
+            boolean rerank = isReranked(request);
+            SearchRequest effective = rerank ? forRerank(request) : request;
+            boolean hybrid = isHybrid(effective);
+            if (hybrid) {
+                response = hybridSearch(collectionName, effective);
+            } else {
+                response = denseSearch(collectionName, effective).join();
+            }
+            if (rerank && response.isSuccess()) {
+                response = SearchResponse.success(rerankCandidates(request, response.getResults()));
             }
+            if (response.isSuccess()) {
+                describeRetrieval(request, hybrid, response);
+            }
+        } catch (Exception e) {
+            log.error("Error searching vectors: {}", e.getMessage(), e);
+            return SearchResponse.error(e.getMessage());
+        }
 
-            // HNSW 搜索参数
-            searchBuilder.withParams("{\"ef\": " + Math.max(request.getTopK() * 10, 64) + "}");
+        searchCache.put(lookup, response);
+        return response;
+    }
+
+    private CompletableFuture<SearchResponse> denseSearch(String collectionName, SearchRequest request) {
+        if (searchBatcher != null) {
+            return searchBatcher.submit(collectionName, request);
+        }
+        return CompletableFuture.completedFuture(engineSearch(collectionName, Collections.singletonList(request)).get(0));
+    }
 
-            R<SearchResults> response = milvusClient.search(searchBuilder.build());
+    private boolean isHybrid(SearchRequest request) {
+        return Boolean.TRUE.equals(request.getHybrid())
+            && hybridPool != null
+            && request.getQueryText() != null && !request.getQueryText().isBlank()
+            // BM25 侧无法执行 Milvus 过滤表达式，带过滤时只做向量检索
+            && (request.getFilterExpr() == null || request.getFilterExpr().isEmpty());
+    }
 
-            if (response.getStatus() != R.Status.Success.getCode()) {
-                return SearchResponse.error(response.getException().getMessage());
+    /**
+     * 在响应中说明实际检索方式：请求混合检索但退化为纯向量时给出原因；
+     * 混合检索的 BM25 侧是本实例的内存索引，只含本实例启动后写入的内容，各实例之间可能不同
+     */
+    private void describeRetrieval(SearchRequest request, boolean hybrid, SearchResponse response) {
+        if (hybrid) {
+            response.setRetrieval(SearchResponse.RETRIEVAL_HYBRID);
+            response.setNotice("词法侧为本实例内存 BM25 索引，仅覆盖本实例启动后写入的内容，不同实例结果可能不同");
+            return;
+        }
+        response.setRetrieval(SearchResponse.RETRIEVAL_DENSE);
+        if (!Boolean.TRUE.equals(request.getHybrid())) {
+            return;
+        }
+        if (hybridPool == null) {
+            response.setNotice("混合检索未开启（vector.hybrid.enabled=false），仅执行向量检索");
+        } else if (request.getQueryText() == null || request.getQueryText().isBlank()) {
+            response.setNotice("缺少 queryText，仅执行向量检索");
+        } else {
+            response.setNotice("带过滤条件时词法侧无法执行过滤，仅执行向量检索");
+        }
+    }
+
+    /**
+     * 混合检索：向量侧异步发出，BM25 在当前线程检索，两路各取 candidates 条后融合截断到 topK
+     */
+    private SearchResponse hybridSearch(String collectionName, SearchRequest request) {
+        int depth = Math.max(request.getTopK(), hybridCandidates);
+        SearchRequest denseRequest = withTopK(request, depth);
+
+        CompletableFuture<SearchResponse> dense = searchBatcher != null
+            ? searchBatcher.submit(collectionName, denseRequest)
+            : CompletableFuture.supplyAsync(
+                () -> engineSearch(collectionName, Collections.singletonList(denseRequest)).get(0), hybridPool);
+
+        List<String> outputFields = request.resolveOutputFields();
+        List<SearchResponse.SearchResult> lexical = new ArrayList<>();
+        for (Bm25Index.Hit hit : lexicalIndex.search(collectionName, request.getPartitionKey(), request.getQueryText(), depth)) {
+            SearchResponse.SearchResult result = new SearchResponse.SearchResult();
+            result.setId(hit.id());
+            result.setScore(hit.score());
+            if (outputFields.contains("content")) {
+                result.setContent(hit.content());
             }
+            if (outputFields.contains("doc_id")) {
+                result.setDocId(hit.docId());
+            }
+            if (outputFields.contains("metadata")) {
+                result.setMetadata(hit.metadata());
+            }
+            lexical.add(result);
+        }
 
-            // 解析结果
-            SearchResultsWrapper resultsWrapper = new SearchResultsWrapper(response.getData().getResults());
-            return parseSearchResults(resultsWrapper, request.getTopK());
+        SearchResponse denseResponse = dense.join();
+        if (!denseResponse.isSuccess()) {
+            return denseResponse;
+        }
+        List<SearchResponse.SearchResult> fused = "weighted".equalsIgnoreCase(hybridFusion)
+            ? RankFusion.weighted(denseResponse.getResults(), lexical, hybridDenseWeight, request.getTopK())
+            : RankFusion.reciprocalRank(denseResponse.getResults(), lexical, hybridRrfK, request.getTopK());
+        return SearchResponse.success(fused);
+    }
 
-        } catch (Exception e) {
-            log.error("Error searching vectors: {}", e.getMessage(), e);
-            return SearchResponse.error(e.getMessage());
+    /**
+     * filters 编译为表达式，返回写入 filterExpr、不带 filters 的副本；没有 filters 时原样返回
+     *
+     * filterExpr 只由这里根据 FilterCompiler 的输出设置（字段白名单、值全部转义），
+     * 调用方自带的原始表达式一律拒绝，否则可借 "... or ..." 绕过路由键拼接的租户范围
+     */
+    private SearchRequest compileFilters(String collectionName, SearchRequest request) {
+        if (request.getFilterExpr() != null && !request.getFilterExpr().isEmpty()) {
+            throw new IllegalArgumentException("不支持原始 filterExpr，请使用 filters");
         }
+        if (request.getFilters() == null || request.getFilters().isEmpty()) {
+            return request;
+        }
+        String expr = filterCompiler.compile(request.getFilters(), vectorStore.promotedMetadataKeys(collectionName));
+        SearchRequest copy = request.copy();
+        copy.setFilters(null);
+        copy.setFilterExpr(expr);
+        return copy;
+    }
+
+    private boolean isReranked(SearchRequest request) {
+        return Boolean.TRUE.equals(request.getRerank())
+            && candidateReranker.isEnabled()
+            && request.getQueryText() != null && !request.getQueryText().isBlank();
+    }
+
+    /**
+     * 复制为重排候选请求：保留混合检索参数，topK 放大为候选数，并强制输出 content 供打分
+     */
+    private SearchRequest forRerank(SearchRequest source) {
+        SearchRequest copy = withTopK(source, candidateReranker.candidates(source.getTopK(), source.getCandidateMultiplier()));
+        copy.setHybrid(source.getHybrid());
+        copy.setQueryText(source.getQueryText());
+        List<String> outputFields = new ArrayList<>(source.resolveOutputFields());
+        if (!outputFields.contains("content")) {
+            outputFields.add("content");
+        }
+        copy.setOutputFields(outputFields);
+        return copy;
+    }
+
+    /**
+     * 重排并截断到 topK，未请求 content 时重排后去掉
+     */
+    private List<SearchResponse.SearchResult> rerankCandidates(SearchRequest request,
+                                                               List<SearchResponse.SearchResult> candidates) {
+        List<SearchResponse.SearchResult> reranked =
+            candidateReranker.rerank(request.getQueryText(), new ArrayList<>(candidates), request.getTopK());
+        if (!request.resolveOutputFields().contains("content")) {
+            reranked.forEach(result -> result.setContent(null));
+        }
+        return reranked;
+    }
+
+    /**
+     * 复制为纯向量检索请求并替换 topK（不含混合检索参数）
+     */
+    private static SearchRequest withTopK(SearchRequest source, int topK) {
+        SearchRequest copy = source.copy();
+        copy.setTopK(topK);
+        copy.setHybrid(false);
+        copy.setRerank(false);
+        copy.setQueryText(null);
+        return copy;
+    }
+
+    private boolean needsRerank(String collectionName) {
+        return reranker.isEnabled() && vectorStore.compression(collectionName).isCompressed();
+    }
+
+    /**
+     * 批量 ANN 搜索
+     *
+     * 先由 SearchEfController 选定 ef，topK / ef / 输出字段 / 过滤表达式相同的查询分为一组交给引擎（Milvus 下一组为一次 RPC）。
+     * 每组占用一个交互通道名额，被拒绝的组返回过载错误。
+     * 压缩存储的 Collection 多取候选，返回前用全精度向量重排
+     *
+     * @param collectionName Collection 名称
+     * @param requests       搜索请求列表
+     * @return 与 requests 顺序一一对应的搜索结果
+     */
+    public List<SearchResponse> batchSearch(String collectionName, List<SearchRequest> requests) {
+        // filters 编译失败的请求直接返回错误，不参与分组
+        List<SearchRequest> compiled = new ArrayList<>(requests.size());
+        List<SearchResponse> rejected = new ArrayList<>(requests.size());
+        for (SearchRequest request : requests) {
+            try {
+                compiled.add(compileFilters(collectionName, request));
+                rejected.add(null);
+            } catch (IllegalArgumentException e) {
+                compiled.add(null);
+                rejected.add(SearchResponse.error("过滤条件不合法: " + e.getMessage()));
+            }
+        }
+        List<SearchResponse> responses = engineSearch(collectionName, compiled);
+        for (int i = 0; i < responses.size(); i++) {
+            if (rejected.get(i) != null) {
+                responses.set(i, rejected.get(i));
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * 已编译请求的引擎检索（filters 已编译进 filterExpr），为 null 的请求跳过，对应位置返回 null
+     */
+    private List<SearchResponse> engineSearch(String collectionName, List<SearchRequest> compiled) {
+        SearchResponse[] responses = new SearchResponse[compiled.size()];
+        boolean rerank = needsRerank(collectionName);
+
+        // 按 (topK, ef, 输出字段, expr, 路由键) 分组，同组才能共用一个 SearchParam
+        List<SearchRequest> tuned = new ArrayList<>(compiled.size());
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < compiled.size(); i++) {
+            if (compiled.get(i) == null) {
+                tuned.add(null);
+                continue;
+            }
+            SearchRequest request = efController.withChosenEf(collectionName, compiled.get(i));
+            if (rerank) {
+                request = withTopK(request, reranker.candidates(request.getTopK()));
+            }
+            tuned.add(request);
+            String key = request.getTopK() + "|" + request.getEf() + "|" + request.resolveOutputFields()
+                + "|" + Objects.toString(request.getFilterExpr(), "") + "|" + Objects.toString(request.getPartitionKey(), "");
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+
+        for (List<Integer> group : groups.values()) {
+            List<SearchRequest> groupRequests = new ArrayList<>(group.size());
+            for (Integer index : group) {
+                groupRequests.add(tuned.get(index));
+            }
+            AdmissionController.Permit permit;
+            try {
+                permit = admission.acquire(AdmissionController.Lane.INTERACTIVE);
+            } catch (OverloadedException e) {
+                for (Integer index : group) {
+                    responses[index] = SearchResponse.error(e.getMessage());
+                }
+                continue;
+            }
+            long start = System.nanoTime();
+            List<SearchResponse> groupResponses = null;
+            try {
+                groupResponses = vectorStore.search(collectionName, groupRequests);
+            } finally {
+                // 请求本身不合法（过滤表达式、维度等）不是引擎故障，不下调并发上限
+                permit.release(groupResponses != null
+                    && groupResponses.stream().allMatch(r -> r.isSuccess() || r.isInvalidRequest()));
+            }
+            long elapsed = System.nanoTime() - start;
+            metrics.recordEngineSearch(elapsed, collectionName, groupRequests.get(0), groupResponses);
+            for (int i = 0; i < group.size(); i++) {
+                SearchRequest original = compiled.get(group.get(i));
+                SearchResponse response = groupResponses.get(i);
+                if (rerank && response.isSuccess()) {
+                    response = SearchResponse.success(reranker.rerank(collectionName, original.getVector(),
+                        response.getResults(), original.getTopK()));
+                }
+                responses[group.get(i)] = response;
+                efController.record(collectionName, original, elapsed);
+            }
+        }
+        return Arrays.asList(responses);
     }
 
     /**
      * 根据 ID 删除向量
+     *
+     * Milvus 下按 vector.delete.max-expr-values 拆成多个有界的 id in [...] 表达式
      */
     public boolean deleteByIds(String collectionName, List<String> ids) {
-        try {
-            String expr = "id in [" + ids.stream().map(id -> "'" + id + "'").collect(Collectors.joining(",")) + "]";
-            
-            R<MutationResult> response = milvusClient.delete(
-                DeleteParam.newBuilder()
-                    .withCollectionName(collectionName)
-                    .withExpr(expr)
-                    .build()
-            );
-
-            return response.getStatus() == R.Status.Success.getCode();
-        } catch (Exception e) {
-            log.error("Error deleting vectors: {}", e.getMessage(), e);
-            return false;
+        Timer.Sample sample = metrics.start();
+        boolean deleted = migrator.deleteByIds(collectionName, ids);
+        metrics.recordOperation(sample, "delete_by_ids", collectionName, deleted);
+        if (deleted) {
+            lexicalIndex.deleteByIds(collectionName, ids);
+            if (needsRerank(collectionName)) {
+                reranker.remove(collectionName, ids);
+            }
         }
+        searchCache.invalidate(collectionName);
+        return deleted;
     }
 
     /**
      * 根据 doc_id 删除（删除整个文档的所有片段）
      */
     public boolean deleteByDocId(String collectionName, String docId) {
-        try {
-            String expr = "doc_id == '" + docId + "'";
-            
-            R<MutationResult> response = milvusClient.delete(
-                DeleteParam.newBuilder()
-                    .withCollectionName(collectionName)
-                    .withExpr(expr)
-                    .build()
-            );
-
-            return response.getStatus() == R.Status.Success.getCode();
-        } catch (Exception e) {
-            log.error("Error deleting by doc_id: {}", e.getMessage(), e);
-            return false;
+        Timer.Sample sample = metrics.start();
+        boolean deleted = migrator.deleteByDocId(collectionName, docId);
+        metrics.recordOperation(sample, "delete_by_doc_id", collectionName, deleted);
+        if (deleted) {
+            lexicalIndex.deleteByDocId(collectionName, docId);
+            if (needsRerank(collectionName)) {
+                reranker.removeByDocId(collectionName, docId);
+            }
         }
+        searchCache.invalidate(collectionName);
+        return deleted;
     }
 
-    // ==================== 私有方法 ====================
-
-    private SearchResponse parseSearchResults(SearchResultsWrapper resultsWrapper, int topK) {
-        List<SearchResponse.SearchResult> results = new ArrayList<>();
-
-        for (int i = 0; i < resultsWrapper.getRowCount(); i++) {
-            SearchResultsWrapper.IDScore idScore = resultsWrapper.getIDScore(0).get(i);
-            
-            SearchResponse.SearchResult result = new SearchResponse.SearchResult();
-            result.setId(idScore.getLongID() > 0 ? String.valueOf(idScore.getLongID()) : idScore.getStrID());
-            result.setScore(idScore.getScore());  // 相似度分数（Cosine: 范围 [-1, 1]）
-            
-            // 提取字段
-            result.setContent((String) idScore.get("content"));
-            result.setDocId((String) idScore.get("doc_id"));
-            result.setMetadata((String) idScore.get("metadata"));
-            
-            results.add(result);
+    /**
+     * 按 doc_id 批量删除，Milvus 下按 vector.delete.max-expr-values 拆成有界的 doc_id in [...] 表达式
+     */
+    public boolean deleteByDocIds(String collectionName, List<String> docIds) {
+        if (docIds.isEmpty()) {
+            return true;
         }
-
-        return SearchResponse.success(results);
+        Timer.Sample sample = metrics.start();
+        boolean deleted = migrator.deleteByDocIds(collectionName, docIds);
+        metrics.recordOperation(sample, "delete_by_doc_ids", collectionName, deleted);
+        if (deleted) {
+            boolean rerank = needsRerank(collectionName);
+            for (String docId : docIds) {
+                lexicalIndex.deleteByDocId(collectionName, docId);
+                if (rerank) {
+                    reranker.removeByDocId(collectionName, docId);
+                }
+            }
+        }
+        searchCache.invalidate(collectionName);
+        return deleted;
     }
 }
@@ -0,0 +1,434 @@
+package com.kuaishou.rag.vector.store;
+
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.dto.InsertResponse;
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import com.kuaishou.rag.vector.store.hnsw.HnswIndex;
+import com.kuaishou.rag.vector.store.hnsw.VectorKernels;
+import io.milvus.grpc.IDs;
+import io.milvus.grpc.StringArray;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * 进程内 HNSW 向量引擎
+ *
+ * vector.engine=local 时启用，不依赖 Milvus。适用于：
+ * 1. 小租户知识库（可全部放入内存），省去一次网络往返
+ * 2. 单元测试 / 本地开发
+ *
+ * 数据只在内存中，重启后需要重新导入；不支持 filterExpr 标量过滤。
+ * 每个路由键（InsertRequest.partitionKeys）一个独立的 HNSW 图，带 partitionKey 的检索只搜索该图，
+ * 不带时搜索全部图后按分数合并。
+ *
+ * 覆盖写与删除只在图中做逻辑删除，已删除节点占比超过 compaction-ratio、或下一批写入会超过 max-elements 时，
+ * 用存活向量重建该分区的图并整体替换（重建期间检索继续使用旧图，写入等待）。
+ * 压缩后仍放不下的批次在写入前整批拒绝；只有并发写入同时抢占剩余容量时才可能部分写入后报错，按 id 重试会覆盖已写入的行。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "vector.engine", havingValue = "local")
+public class HnswVectorStore implements VectorStore {
+
+    /**
+     * 每层最大连接数，与 Milvus 侧 HNSW 索引保持一致
+     */
+    @Value("${vector.index.params.M:16}")
+    private int m;
+
+    /**
+     * 构建时搜索深度
+     */
+    @Value("${vector.index.params.efConstruction:200}")
+    private int efConstruction;
+
+    /**
+     * 单个 Collection 最大向量数
+     */
+    @Value("${vector.local.max-elements:1000000}")
+    private int maxElements;
+
+    /**
+     * 已删除节点占比超过该值时重建分区索引，回收 slot
+     */
+    @Value("${vector.local.compaction-ratio:0.2}")
+    private double compactionRatio;
+
+    private final ConcurrentMap<String, LocalCollection> collections = new ConcurrentHashMap<>();
+
+    // ==================== Collection 管理 ====================
+
+    @Override
+    public boolean createCollection(String collectionName, int dimension, String desc) {
+        collections.computeIfAbsent(collectionName, name -> {
+            log.info("Creating local HNSW collection {}, dimension: {}, M: {}, efConstruction: {}",
+                name, dimension, m, efConstruction);
+            return new LocalCollection(dimension);
+        });
+        return true;
+    }
+
+    @Override
+    public boolean loadCollection(String collectionName) {
+        return collections.containsKey(collectionName);
+    }
+
+    // ==================== 向量操作 ====================
+
+    @Override
+    public InsertResponse insert(String collectionName, InsertRequest request) {
+        LocalCollection collection = collections.get(collectionName);
+        if (collection == null) {
+            return InsertResponse.error("Collection not found: " + collectionName);
+        }
+        try {
+            List<String> ids = request.getIds();
+            for (float[] vector : request.getVectors()) {
+                if (vector.length != collection.dimension) {
+                    return InsertResponse.error("Vector dimension mismatch, expected: " + collection.dimension
+                        + ", actual: " + vector.length);
+                }
+            }
+
+            // 先确认每个分区都放得下（必要时先压缩），图写满时整批拒绝，而不是写入一部分后报错
+            Map<String, InsertRequest> slices = request.splitByPartition();
+            for (Map.Entry<String, InsertRequest> slice : slices.entrySet()) {
+                LocalPartition partition = collection.partition(slice.getKey());
+                int incoming = slice.getValue().getIds().size();
+                partition.compactIfNeeded(incoming);
+                if (partition.graph.index.size() + incoming > maxElements) {
+                    return InsertResponse.error("Local HNSW partition '" + slice.getKey() + "' is full, max elements: "
+                        + maxElements + ", live: " + partition.graph.idToSlot.size() + ", incoming: " + incoming);
+                }
+            }
+
+            for (Map.Entry<String, InsertRequest> slice : slices.entrySet()) {
+                LocalPartition partition = collection.partition(slice.getKey());
+                InsertRequest rows = slice.getValue();
+                List<float[]> vectors = rows.getVectors();
+                partition.writeLock.readLock().lock();
+                try {
+                    // HNSW 支持并发插入，大批次并行构图
+                    IntStream range = IntStream.range(0, rows.getIds().size());
+                    (rows.getIds().size() >= 256 ? range.parallel() : range).forEach(i -> partition.put(
+                        rows.getIds().get(i),
+                        vectors.get(i),
+                        valueAt(rows.getContents(), i, ""),
+                        valueAt(rows.getDocIds(), i, ""),
+                        valueAt(rows.getMetadataList(), i, "{}")));
+                } finally {
+                    partition.writeLock.readLock().unlock();
+                }
+            }
+
+            IDs insertIds = IDs.newBuilder().setStrId(StringArray.newBuilder().addAllData(ids)).build();
+            return InsertResponse.success(ids.size(), insertIds);
+
+        } catch (Exception e) {
+            log.error("Error inserting vectors: {}", e.getMessage(), e);
+            return InsertResponse.error(e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean flush(String collectionName) {
+        // 纯内存，无需持久化
+        return collections.containsKey(collectionName);
+    }
+
+    @Override
+    public List<SearchResponse> search(String collectionName, List<SearchRequest> requests) {
+        LocalCollection collection = collections.get(collectionName);
+        if (collection == null) {
+            return Collections.nCopies(requests.size(), SearchResponse.invalid("Collection not found: " + collectionName));
+        }
+        String expr = requests.get(0).getFilterExpr();
+        if (expr != null && !expr.isEmpty()) {
+            return Collections.nCopies(requests.size(), SearchResponse.invalid("Filter expression is not supported by local engine"));
+        }
+
+        List<SearchResponse> responses = new ArrayList<>(requests.size());
+        for (SearchRequest request : requests) {
+            responses.add(collection.search(request));
+        }
+        return responses;
+    }
+
+    @Override
+    public List<String> exactTopK(String collectionName, SearchRequest request, long maxRows) {
+        LocalCollection collection = collections.get(collectionName);
+        String expr = request.getFilterExpr();
+        if (collection == null || (expr != null && !expr.isEmpty()) || request.getVector().length != collection.dimension) {
+            return null;
+        }
+        List<LocalPartition> scope = request.getPartitionKey() != null
+            ? Optional.ofNullable(collection.partitions.get(request.getPartitionKey())).map(List::of).orElse(List.of())
+            : new ArrayList<>(collection.partitions.values());
+        long rows = scope.stream().mapToLong(partition -> partition.graph.idToSlot.size()).sum();
+        if (rows > maxRows) {
+            return null;
+        }
+        float[] query = VectorKernels.normalize(request.getVector());
+        PriorityQueue<Map.Entry<String, Float>> best = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (LocalPartition partition : scope) {
+            Graph graph = partition.graph;
+            for (Map.Entry<String, Integer> entry : graph.idToSlot.entrySet()) {
+                best.offer(Map.entry(entry.getKey(), VectorKernels.dot(query, graph.index.vector(entry.getValue()))));
+                if (best.size() > request.getTopK()) {
+                    best.poll();
+                }
+            }
+        }
+        List<String> topK = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            topK.add(best.poll().getKey());
+        }
+        Collections.reverse(topK);
+        return topK;
+    }
+
+    @Override
+    public boolean deleteByIds(String collectionName, List<String> ids) {
+        LocalCollection collection = collections.get(collectionName);
+        if (collection == null) {
+            return false;
+        }
+        for (LocalPartition partition : collection.partitions.values()) {
+            partition.removeAll(ids);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean deleteByDocId(String collectionName, String docId) {
+        LocalCollection collection = collections.get(collectionName);
+        if (collection == null) {
+            return false;
+        }
+        for (LocalPartition partition : collection.partitions.values()) {
+            Set<String> ids = partition.docIndex.remove(docId);
+            if (ids != null) {
+                partition.removeAll(ids);
+            }
+        }
+        return true;
+    }
+
+    private static String valueAt(List<String> values, int index, String defaultValue) {
+        return values != null ? values.get(index) : defaultValue;
+    }
+
+    /**
+     * 一条记录的标量字段
+     */
+    private record Row(String id, String content, String docId, String metadata) {
+    }
+
+    /**
+     * 单个本地 Collection：路由键 -> 分区
+     */
+    private final class LocalCollection {
+
+        private final int dimension;
+        private final ConcurrentMap<String, LocalPartition> partitions = new ConcurrentHashMap<>();
+
+        private LocalCollection(int dimension) {
+            this.dimension = dimension;
+        }
+
+        LocalPartition partition(String partitionKey) {
+            return partitions.computeIfAbsent(partitionKey, k -> new LocalPartition(partitionKey, dimension));
+        }
+
+        SearchResponse search(SearchRequest request) {
+            if (request.getVector().length != dimension) {
+                return SearchResponse.invalid("Vector dimension mismatch, expected: " + dimension
+                    + ", actual: " + request.getVector().length);
+            }
+            if (request.getPartitionKey() != null) {
+                LocalPartition partition = partitions.get(request.getPartitionKey());
+                return SearchResponse.success(partition == null ? new ArrayList<>() : partition.search(request));
+            }
+            List<SearchResponse.SearchResult> merged = new ArrayList<>();
+            for (LocalPartition partition : partitions.values()) {
+                merged.addAll(partition.search(request));
+            }
+            if (partitions.size() > 1) {
+                merged.sort(Comparator.comparingDouble((SearchResponse.SearchResult r) -> r.getScore()).reversed());
+                if (merged.size() > request.getTopK()) {
+                    merged = new ArrayList<>(merged.subList(0, request.getTopK()));
+                }
+            }
+            return SearchResponse.success(merged);
+        }
+    }
+
+    /**
+     * 单个路由键的分区：HNSW 索引 + 标量字段
+     *
+     * 图与 slot 相关的映射放在一个 Graph 中，压缩时整体替换；docIndex 只按 id 记录，与 slot 无关
+     */
+    private final class LocalPartition {
+
+        private final String name;
+        private final int dimension;
+        private final ConcurrentMap<String, Set<String>> docIndex = new ConcurrentHashMap<>();
+
+        /**
+         * put/remove 持读锁并发执行，压缩持写锁
+         */
+        private final ReentrantReadWriteLock writeLock = new ReentrantReadWriteLock();
+
+        private volatile Graph graph;
+
+        private LocalPartition(String name, int dimension) {
+            this.name = name;
+            this.dimension = dimension;
+            this.graph = new Graph(new HnswIndex(dimension, m, efConstruction, maxElements));
+        }
+
+        /**
+         * 插入或覆盖（相同 id 的旧向量被逻辑删除），调用方持有读锁
+         */
+        void put(String id, float[] vector, String content, String docId, String metadata) {
+            Graph current = graph;
+            int slot = current.index.add(VectorKernels.normalize(vector));
+            current.rows.put(slot, new Row(id, content, docId, metadata));
+            docIndex.computeIfAbsent(docId, k -> ConcurrentHashMap.newKeySet()).add(id);
+            Integer previous = current.idToSlot.put(id, slot);
+            if (previous != null) {
+                current.index.markDeleted(previous);
+                Row old = current.rows.remove(previous);
+                // id 换了文档：从旧文档的集合中移除，否则删除旧文档会误删这一行
+                if (old != null && !old.docId().equals(docId)) {
+                    removeFromDoc(old.docId(), id);
+                }
+            }
+        }
+
+        void removeAll(Collection<String> ids) {
+            writeLock.readLock().lock();
+            try {
+                ids.forEach(this::remove);
+            } finally {
+                writeLock.readLock().unlock();
+            }
+            compactIfNeeded(0);
+        }
+
+        private void remove(String id) {
+            Graph current = graph;
+            Integer slot = current.idToSlot.remove(id);
+            if (slot == null) {
+                return;
+            }
+            current.index.markDeleted(slot);
+            Row row = current.rows.remove(slot);
+            if (row != null) {
+                removeFromDoc(row.docId(), id);
+            }
+        }
+
+        private void removeFromDoc(String docId, String id) {
+            docIndex.computeIfPresent(docId, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+
+        /**
+         * 已删除占比超过 compactionRatio，或再写入 incoming 行会超过 maxElements 时，用存活向量重建图
+         */
+        void compactIfNeeded(int incoming) {
+            if (!needsCompaction(graph.index, incoming)) {
+                return;
+            }
+            writeLock.writeLock().lock();
+            try {
+                HnswIndex old = graph.index;
+                if (!needsCompaction(old, incoming)) {
+                    return;
+                }
+                long start = System.currentTimeMillis();
+                Graph compacted = new Graph(new HnswIndex(dimension, m, efConstruction, maxElements));
+                List<Map.Entry<String, Integer>> live = new ArrayList<>(graph.idToSlot.entrySet());
+                IntStream range = IntStream.range(0, live.size());
+                (live.size() >= 256 ? range.parallel() : range).forEach(i -> {
+                    Map.Entry<String, Integer> entry = live.get(i);
+                    Row row = graph.rows.get(entry.getValue());
+                    if (row == null) {
+                        return;
+                    }
+                    int slot = compacted.index.add(old.vector(entry.getValue()));
+                    compacted.rows.put(slot, row);
+                    compacted.idToSlot.put(entry.getKey(), slot);
+                });
+                graph = compacted;
+                log.info("Compacted local HNSW partition {}, live: {}, reclaimed: {}, cost: {}ms",
+                    name, live.size(), old.size() - live.size(), System.currentTimeMillis() - start);
+            } finally {
+                writeLock.writeLock().unlock();
+            }
+        }
+
+        private boolean needsCompaction(HnswIndex index, int incoming) {
+            int deleted = index.deletedCount();
+            if (deleted == 0) {
+                return false;
+            }
+            return deleted >= index.size() * compactionRatio || index.size() + incoming > index.maxElements();
+        }
+
+        List<SearchResponse.SearchResult> search(SearchRequest request) {
+            Graph current = graph;
+            float[] query = request.getVector();
+            int topK = request.getTopK();
+            int ef = request.getEf() != null ? request.getEf() : Math.max(topK * 10, 64);
+            List<String> outputFields = request.resolveOutputFields();
+            List<SearchResponse.SearchResult> results = new ArrayList<>(topK);
+            for (HnswIndex.Neighbor neighbor : current.index.search(VectorKernels.normalize(query), topK, ef)) {
+                Row row = current.rows.get(neighbor.slot());
+                if (row == null) {
+                    continue;
+                }
+                SearchResponse.SearchResult result = new SearchResponse.SearchResult();
+                result.setId(row.id());
+                result.setScore(neighbor.score());
+                if (outputFields.contains("content")) {
+                    result.setContent(row.content());
+                }
+                if (outputFields.contains("doc_id")) {
+                    result.setDocId(row.docId());
+                }
+                if (outputFields.contains("metadata")) {
+                    result.setMetadata(row.metadata());
+                }
+                results.add(result);
+            }
+            return results;
+        }
+    }
+
+    /**
+     * 一个 HNSW 图及其 slot 映射
+     */
+    private static final class Graph {
+
+        private final HnswIndex index;
+        private final ConcurrentMap<Integer, Row> rows = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Integer> idToSlot = new ConcurrentHashMap<>();
+
+        private Graph(HnswIndex index) {
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.kuaishou.rag.vector.store;
+
+/**
+ * 新建 Collection 的向量维度与索引参数
+ *
+ * hnswM / efConstruction / shardsNum 为空时使用引擎配置（vector.index.params.* / vector.collection.shards-num）
+ *
+ * @param dimension      向量维度
+ * @param compression    存储/索引方式
+ * @param hnswM          HNSW 每层最大连接数
+ * @param efConstruction HNSW 构建时搜索深度
+ * @param shardsNum      分片数
+ */
+public record IndexSpec(int dimension, VectorCompression compression, Integer hnswM, Integer efConstruction,
+                        Integer shardsNum) {
+
+    public IndexSpec {
+        if (compression == null) {
+            compression = VectorCompression.NONE;
+        }
+    }
+
+    public static IndexSpec of(int dimension, VectorCompression compression) {
+        return new IndexSpec(dimension, compression, null, null, null);
+    }
+}
@@ -0,0 +1,124 @@
+package com.kuaishou.rag.vector.store;
+
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import io.milvus.grpc.FieldData;
+import io.milvus.grpc.IDs;
+import io.milvus.grpc.SearchResultData;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Milvus 搜索结果解码器（按列读取）
+ *
+ * SearchResultsWrapper.getIDScore 会为每一行构造 IDScore 和字段 Map，且每次调用都重新解析整列。
+ * 这里直接读取 SearchResultData 的 ids / scores / fields_data 列：
+ * 1. 各查询的行偏移量只计算一次
+ * 2. 只解码请求的输出字段（投影），未请求的字段不会出现在结果中
+ * 3. 返回惰性 List，首次访问某一行时才构造 SearchResult，不预先生成整批对象；
+ *    每行只构造一次并缓存，调用方修改结果（分数、内容）后再次读取能看到修改
+ */
+public final class MilvusResultDecoder {
+
+    private final SearchResultData data;
+
+    private final int[] offsets;
+
+    private final List<String> contentColumn;
+
+    private final List<String> docIdColumn;
+
+    private final List<String> metadataColumn;
+
+    public MilvusResultDecoder(SearchResultData data) {
+        this.data = data;
+        int queries = (int) data.getNumQueries();
+        this.offsets = new int[queries + 1];
+        for (int i = 0; i < queries; i++) {
+            offsets[i + 1] = offsets[i] + (int) data.getTopks(i);
+        }
+        List<String> content = null;
+        List<String> docId = null;
+        List<String> metadata = null;
+        for (FieldData field : data.getFieldsDataList()) {
+            switch (field.getFieldName()) {
+                case "content" -> content = field.getScalars().getStringData().getDataList();
+                case "doc_id" -> docId = field.getScalars().getStringData().getDataList();
+                case "metadata" -> metadata = field.getScalars().getStringData().getDataList();
+                default -> {
+                }
+            }
+        }
+        this.contentColumn = content;
+        this.docIdColumn = docId;
+        this.metadataColumn = metadata;
+    }
+
+    /**
+     * 第 indexOfTarget 个查询向量的结果（惰性）
+     */
+    public List<SearchResponse.SearchResult> results(int indexOfTarget) {
+        if (indexOfTarget + 1 >= offsets.length) {
+            return Collections.emptyList();
+        }
+        return new ResultView(offsets[indexOfTarget], offsets[indexOfTarget + 1] - offsets[indexOfTarget]);
+    }
+
+    private SearchResponse.SearchResult decodeRow(int row) {
+        SearchResponse.SearchResult result = new SearchResponse.SearchResult();
+        IDs ids = data.getIds();
+        if (ids.hasStrId()) {
+            result.setId(ids.getStrId().getData(row));
+        } else {
+            result.setId(String.valueOf(ids.getIntId().getData(row)));
+        }
+        result.setScore(data.getScores(row));  // 相似度分数（Cosine: 范围 [-1, 1]）
+        if (contentColumn != null) {
+            result.setContent(contentColumn.get(row));
+        }
+        if (docIdColumn != null) {
+            result.setDocId(docIdColumn.get(row));
+        }
+        if (metadataColumn != null) {
+            result.setMetadata(metadataColumn.get(row));
+        }
+        return result;
+    }
+
+    private final class ResultView extends AbstractList<SearchResponse.SearchResult> implements RandomAccess {
+
+        private final int offset;
+
+        private final int size;
+
+        private final AtomicReferenceArray<SearchResponse.SearchResult> decoded;
+
+        private ResultView(int offset, int size) {
+            this.offset = offset;
+            this.size = size;
+            this.decoded = new AtomicReferenceArray<>(size);
+        }
+
+        @Override
+        public SearchResponse.SearchResult get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+            }
+            SearchResponse.SearchResult result = decoded.get(index);
+            if (result != null) {
+                return result;
+            }
+            // 并发首次访问时只保留一个实例
+            result = decodeRow(offset + index);
+            return decoded.compareAndSet(index, null, result) ? result : decoded.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
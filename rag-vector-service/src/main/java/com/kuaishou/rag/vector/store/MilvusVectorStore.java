@@ -0,0 +1,1102 @@
+package com.kuaishou.rag.vector.store;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.dto.InsertResponse;
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import com.kuaishou.rag.vector.filter.FilterCompiler;
+import com.kuaishou.rag.vector.metrics.VectorMetrics;
+import com.kuaishou.rag.vector.store.hnsw.VectorKernels;
+import com.kuaishou.rag.vector.util.FloatVectors;
+import io.milvus.client.MilvusClient;
+import io.milvus.common.clientenum.ConsistencyLevelEnum;
+import io.milvus.exception.ParamException;
+import io.milvus.grpc.DataType;
+import io.milvus.grpc.DescribeCollectionResponse;
+import io.milvus.grpc.DescribeIndexResponse;
+import io.milvus.grpc.FieldSchema;
+import io.milvus.grpc.FlushResponse;
+import io.milvus.grpc.IndexDescription;
+import io.milvus.grpc.KeyValuePair;
+import io.milvus.grpc.MutationResult;
+import io.milvus.grpc.QueryResults;
+import io.milvus.grpc.SearchResults;
+import io.milvus.param.IndexType;
+import io.milvus.param.MetricType;
+import io.milvus.param.R;
+import io.milvus.param.RpcStatus;
+import io.milvus.param.alias.AlterAliasParam;
+import io.milvus.param.alias.CreateAliasParam;
+import io.milvus.param.collection.*;
+import io.milvus.param.dml.*;
+import io.milvus.param.index.*;
+import io.milvus.response.QueryResultsWrapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * 远程 Milvus 向量引擎（默认）
+ *
+ * vector.engine=milvus 或未配置时启用
+ *
+ * 多租户路由：新建 Collection 带 partition_key 字段（Milvus partition key，按哈希分布到 num-partitions 个分区）。
+ * 写入时按 InsertRequest.partitionKeys 填充；检索带 SearchRequest.partitionKey 时附加 partition_key == '...'，
+ * Milvus 据此只扫描该键所在的分区。Collection 是否带该字段从 describeCollection 读取后在进程内缓存 schema-cache.ttl-seconds，
+ * 其他实例迁移切换别名后，本实例最多在该时间后看到新的 schema。
+ * 不带该字段的旧 Collection 按提升列 meta_{legacy-filter-key} 过滤，scan 时从 metadata 中取出该键作为路由键
+ *
+ * 热点 metadata 键（vector.filter.promoted-fields）在新建 Collection 中提升为独立的 VarChar 列 meta_xxx 并建标量索引，
+ * 写入时从 metadata JSON 中取值填充；FilterCompiler 对这些键直接比较该列，而不是在 metadata 字符串上 like 匹配
+ *
+ * 索引参数与分片数来自配置或 IndexSpec，索引异步构建（indexProgress 查询进度）。
+ * 在线迁移时调用方以别名访问 Collection，scan 按主键分页读取，upsert 幂等写入，swapAlias 原子切换别名
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "vector.engine", havingValue = "milvus", matchIfMissing = true)
+public class MilvusVectorStore implements VectorStore {
+
+    @Autowired
+    private MilvusClient milvusClient;
+
+    @Autowired
+    private VectorMetrics metrics;
+
+    /**
+     * HNSW 每层最大连接数
+     */
+    @Value("${vector.index.params.M:16}")
+    private int hnswM;
+
+    /**
+     * HNSW 构建时搜索深度
+     */
+    @Value("${vector.index.params.efConstruction:200}")
+    private int efConstruction;
+
+    /**
+     * 新建 Collection 的分片数
+     */
+    @Value("${vector.collection.shards-num:2}")
+    private int shardsNum;
+
+    /**
+     * IVF 类索引的聚类中心数
+     */
+    @Value("${vector.compression.nlist:1024}")
+    private int nlist;
+
+    /**
+     * IVF 类索引搜索时探查的聚类数
+     */
+    @Value("${vector.compression.nprobe:32}")
+    private int nprobe;
+
+    /**
+     * IVF_PQ 子空间数（需整除维度），0 表示按每个子空间 16 维自动选择
+     */
+    @Value("${vector.compression.pq-m:0}")
+    private int pqM;
+
+    /**
+     * 单个删除表达式（field in [...]）最多包含的值数，超出时拆成多次删除
+     */
+    @Value("${vector.delete.max-expr-values:1000}")
+    private int maxDeleteExprValues;
+
+    /**
+     * 新建 Collection 是否带 partition_key 字段
+     */
+    @Value("${vector.partition.enabled:true}")
+    private boolean partitionEnabled;
+
+    /**
+     * partition key 分区数，创建后不可修改
+     */
+    @Value("${vector.partition.num-partitions:64}")
+    private int numPartitions;
+
+    /**
+     * 与路由键对应的 metadata 键：没有 partition_key 字段的旧 Collection 按该键的提升列（meta_xxx）过滤
+     */
+    @Value("${vector.partition.legacy-filter-key:kb_id}")
+    private String legacyFilterKey;
+
+    /**
+     * schema / 存储方式缓存的存活时间（秒）：别名可能被其他实例的迁移切换到新 Collection，过期后重新读取
+     */
+    @Value("${vector.schema-cache.ttl-seconds:60}")
+    private long schemaCacheTtlSeconds;
+
+    /**
+     * 新建 Collection 时提升为独立标量列的 metadata 键
+     */
+    @Value("${vector.filter.promoted-fields:kb_id}")
+    private List<String> promotedFields;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    /**
+     * 精确 TopK 扫描的分页大小
+     */
+    private static final int EXACT_PAGE_SIZE = 1000;
+
+    /**
+     * 由请求本身引起的错误码（参数、维度、Collection 不存在），不计为引擎故障
+     */
+    private static final Set<Integer> INVALID_REQUEST_STATUSES = Set.of(
+        R.Status.IllegalArgument.getCode(), R.Status.ParamError.getCode(),
+        R.Status.IllegalDimension.getCode(), R.Status.CollectionNotExists.getCode());
+
+    /**
+     * Collection -> 路由与过滤相关的 schema 信息（创建时写入，其余从 describeCollection 读取后缓存）
+     */
+    private Cache<String, SchemaInfo> schemas;
+
+    /**
+     * Collection -> 存储方式（创建时写入，其余从 describeIndex 读取后缓存）
+     */
+    private Cache<String, VectorCompression> compressions;
+
+    @PostConstruct
+    public void init() {
+        schemas = Caffeine.newBuilder().expireAfterWrite(Duration.ofSeconds(schemaCacheTtlSeconds)).build();
+        compressions = Caffeine.newBuilder().expireAfterWrite(Duration.ofSeconds(schemaCacheTtlSeconds)).build();
+    }
+
+    // ==================== Collection 管理 ====================
+
+    /**
+     * 创建 Collection（如果不存在）
+     *
+     * @param collectionName Collection 名称
+     * @param dimension      向量维度（如 1536 for OpenAI）
+     * @param desc           Collection 描述
+     * @return true if 创建成功
+     */
+    @Override
+    public boolean createCollection(String collectionName, int dimension, String desc) {
+        return createCollection(collectionName, dimension, desc, VectorCompression.NONE);
+    }
+
+    /**
+     * 按指定存储方式创建 Collection
+     *
+     * @param compression NONE 为全精度 HNSW；IVF_SQ8 / IVF_PQ 为压缩索引，搜索时需全精度重排
+     */
+    @Override
+    public boolean createCollection(String collectionName, int dimension, String desc, VectorCompression compression) {
+        return createCollection(collectionName, desc, IndexSpec.of(dimension, compression));
+    }
+
+    /**
+     * 按指定维度与索引参数创建 Collection，未指定的参数取配置值
+     */
+    @Override
+    public boolean createCollection(String collectionName, String desc, IndexSpec spec) {
+        int dimension = spec.dimension();
+        VectorCompression compression = spec.compression();
+        try {
+            // 检查是否已存在
+            R<Boolean> hasResponse = milvusClient.hasCollection(
+                HasCollectionParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .build()
+            );
+            if (hasResponse.getData()) {
+                log.info("Collection {} already exists", collectionName);
+                return true;
+            }
+
+            // 定义字段
+            List<FieldType> fields = new ArrayList<>(Arrays.asList(
+                // 主键字段
+                FieldType.newBuilder()
+                    .withName("id")
+                    .withDataType(DataType.VarChar)
+                    .withMaxLength(64)
+                    .withPrimaryKey(true)
+                    .withAutoID(false)  // 手动指定 ID
+                    .build(),
+                
+                // 向量字段
+                FieldType.newBuilder()
+                    .withName("embedding")
+                    .withDataType(DataType.FloatVector)
+                    .withDimension(dimension)
+                    .build(),
+                
+                // 内容文本（可选，用于返回原始内容）
+                FieldType.newBuilder()
+                    .withName("content")
+                    .withDataType(DataType.VarChar)
+                    .withMaxLength(65535)
+                    .build(),
+                
+                // 文档 ID（标量过滤用）
+                FieldType.newBuilder()
+                    .withName("doc_id")
+                    .withDataType(DataType.VarChar)
+                    .withMaxLength(64)
+                    .build(),
+                
+                // 业务元数据（JSON 字符串）
+                FieldType.newBuilder()
+                    .withName("metadata")
+                    .withDataType(DataType.VarChar)
+                    .withMaxLength(4096)
+                    .build()
+            ));
+
+            // 提升的 metadata 键，独立列 + 标量索引
+            for (String key : promotedFields) {
+                fields.add(FieldType.newBuilder()
+                    .withName(FilterCompiler.PROMOTED_PREFIX + key)
+                    .withDataType(DataType.VarChar)
+                    .withMaxLength(256)
+                    .build());
+            }
+
+            // 路由键（租户 / 知识库 ID），检索时按此裁剪分区
+            if (partitionEnabled) {
+                fields.add(FieldType.newBuilder()
+                    .withName("partition_key")
+                    .withDataType(DataType.VarChar)
+                    .withMaxLength(128)
+                    .withPartitionKey(true)
+                    .build());
+            }
+
+            // 创建 Collection
+            CreateCollectionParam.Builder createBuilder = CreateCollectionParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withDescription(desc)
+                .withFieldTypes(fields)
+                .withShardsNum(spec.shardsNum() != null ? spec.shardsNum() : shardsNum);
+            if (partitionEnabled) {
+                createBuilder.withPartitionsNum(numPartitions);
+            }
+            R<RpcStatus> response = milvusClient.createCollection(createBuilder.build());
+
+            if (response.getStatus() != R.Status.Success.getCode()) {
+                log.error("Failed to create collection: {}", response.getException().getMessage());
+                return false;
+            }
+
+            // 创建索引（默认 HNSW - 高精度；压缩存储使用 IVF_SQ8 / IVF_PQ）
+            if (!createIndex(collectionName, "embedding", compression.indexType(), MetricType.COSINE, dimension,
+                spec.hnswM() != null ? spec.hnswM() : hnswM,
+                spec.efConstruction() != null ? spec.efConstruction() : efConstruction)) {
+                log.error("Failed to create {} index for collection {}", compression.indexType(), collectionName);
+                return false;
+            }
+            for (String key : promotedFields) {
+                if (!createScalarIndex(collectionName, FilterCompiler.PROMOTED_PREFIX + key)) {
+                    log.error("Failed to create scalar index on {} for collection {}", key, collectionName);
+                    return false;
+                }
+            }
+            compressions.put(collectionName, compression);
+            schemas.put(collectionName, new SchemaInfo(partitionEnabled, Set.copyOf(promotedFields)));
+
+            // 加载 Collection
+            loadCollection(collectionName);
+
+            log.info("Collection {} created successfully with {} index", collectionName, compression.indexType());
+            return true;
+
+        } catch (Exception e) {
+            log.error("Error creating collection: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 创建索引（HNSW 参数取配置值）
+     */
+    public boolean createIndex(String collectionName, String fieldName, IndexType indexType, MetricType metricType, int dimension) {
+        return createIndex(collectionName, fieldName, indexType, metricType, dimension, hnswM, efConstruction);
+    }
+
+    /**
+     * 创建索引
+     *
+     * 异步提交：Milvus 登记索引后立即返回，已有数据在后台按段构建，新封存的段自动建索引，
+     * 构建期间查询不受阻塞。构建进度由 {@link #indexProgress(String)} 查询
+     */
+    public boolean createIndex(String collectionName, String fieldName, IndexType indexType, MetricType metricType,
+                               int dimension, int m, int efConstruction) {
+        try {
+            Map<String, String> extraParams = new HashMap<>();
+            
+            if (indexType == IndexType.HNSW) {
+                // HNSW 参数
+                extraParams.put("M", String.valueOf(m));                            // 每层最大连接数
+                extraParams.put("efConstruction", String.valueOf(efConstruction));  // 构建时搜索深度
+            } else if (indexType == IndexType.IVF_FLAT) {
+                // IVF 参数
+                extraParams.put("nlist", "4096");               // 聚类中心数
+            } else if (indexType == IndexType.IVF_SQ8) {
+                extraParams.put("nlist", String.valueOf(nlist));
+            } else if (indexType == IndexType.IVF_PQ) {
+                extraParams.put("nlist", String.valueOf(nlist));
+                extraParams.put("m", String.valueOf(pqSubspaces(dimension)));  // 子空间数
+                extraParams.put("nbits", "8");                  // 每个子空间 256 个码字
+            }
+
+            long start = System.nanoTime();
+            R<RpcStatus> response = milvusClient.createIndex(
+                CreateIndexParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withFieldName(fieldName)
+                    .withIndexType(indexType)
+                    .withMetricType(metricType)
+                    .withExtraParam(JSON.writeValueAsString(extraParams))
+                    .withSyncMode(Boolean.FALSE)
+                    .build()
+            );
+            boolean success = response.getStatus() == R.Status.Success.getCode();
+            metrics.recordRpc("create_index", collectionName, System.nanoTime() - start, success);
+
+            return success;
+        } catch (Exception e) {
+            log.error("Error creating index: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 为 VarChar 标量列创建 Trie 索引
+     */
+    private boolean createScalarIndex(String collectionName, String fieldName) {
+        try {
+            long start = System.nanoTime();
+            R<RpcStatus> response = milvusClient.createIndex(
+                CreateIndexParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withFieldName(fieldName)
+                    .withIndexName(fieldName + "_idx")
+                    .withIndexType(IndexType.TRIE)
+                    .withSyncMode(Boolean.FALSE)
+                    .build()
+            );
+            boolean success = response.getStatus() == R.Status.Success.getCode();
+            metrics.recordRpc("create_index", collectionName, System.nanoTime() - start, success);
+            return success;
+        } catch (Exception e) {
+            log.error("Error creating scalar index: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * IVF_PQ 子空间数：配置值或每 16 维一个子空间，且必须整除维度
+     */
+    private int pqSubspaces(int dimension) {
+        int m = pqM > 0 ? pqM : Math.max(1, dimension / 16);
+        while (dimension % m != 0) {
+            m--;
+        }
+        return m;
+    }
+
+    @Override
+    public VectorCompression compression(String collectionName) {
+        VectorCompression cached = compressions.getIfPresent(collectionName);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            R<DescribeIndexResponse> response = milvusClient.describeIndex(
+                DescribeIndexParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .build()
+            );
+            if (response.getStatus() != R.Status.Success.getCode()) {
+                return VectorCompression.NONE;
+            }
+            VectorCompression compression = VectorCompression.NONE;
+            for (IndexDescription description : response.getData().getIndexDescriptionsList()) {
+                if (!"embedding".equals(description.getFieldName())) {
+                    continue;
+                }
+                for (KeyValuePair param : description.getParamsList()) {
+                    if ("index_type".equals(param.getKey())) {
+                        compression = VectorCompression.fromIndexType(param.getValue());
+                    }
+                }
+            }
+            compressions.put(collectionName, compression);
+            return compression;
+        } catch (Exception e) {
+            log.warn("Error describing index of collection {}: {}", collectionName, e.getMessage());
+            return VectorCompression.NONE;
+        }
+    }
+
+    @Override
+    public Set<String> promotedMetadataKeys(String collectionName) {
+        return schema(collectionName).promotedKeys();
+    }
+
+    @Override
+    public boolean isPartitioned(String collectionName) {
+        return schema(collectionName).partitioned();
+    }
+
+    @Override
+    public boolean supportsMigration() {
+        return true;
+    }
+
+    /**
+     * Collection 是否带 partition_key 字段、有哪些提升列，describeCollection 失败时按都没有处理且不缓存
+     */
+    private SchemaInfo schema(String collectionName) {
+        SchemaInfo cached = schemas.getIfPresent(collectionName);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            R<DescribeCollectionResponse> response = milvusClient.describeCollection(
+                DescribeCollectionParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .build()
+            );
+            if (response.getStatus() != R.Status.Success.getCode()) {
+                return SchemaInfo.FLAT;
+            }
+            boolean hasPartitionKey = false;
+            Set<String> promotedKeys = new HashSet<>();
+            for (FieldSchema field : response.getData().getSchema().getFieldsList()) {
+                if ("partition_key".equals(field.getName()) && field.getIsPartitionKey()) {
+                    hasPartitionKey = true;
+                } else if (field.getName().startsWith(FilterCompiler.PROMOTED_PREFIX)) {
+                    promotedKeys.add(field.getName().substring(FilterCompiler.PROMOTED_PREFIX.length()));
+                }
+            }
+            SchemaInfo schema = new SchemaInfo(hasPartitionKey, Set.copyOf(promotedKeys));
+            schemas.put(collectionName, schema);
+            return schema;
+        } catch (Exception e) {
+            log.warn("Error describing collection {}: {}", collectionName, e.getMessage());
+            return SchemaInfo.FLAT;
+        }
+    }
+
+    /**
+     * 加载 Collection（必须加载后才能查询）
+     */
+    @Override
+    public boolean loadCollection(String collectionName) {
+        try {
+            R<RpcStatus> response = milvusClient.loadCollection(
+                LoadCollectionParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .build()
+            );
+            return response.getStatus() == R.Status.Success.getCode();
+        } catch (Exception e) {
+            log.error("Error loading collection: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    // ==================== 向量操作 ====================
+
+    /**
+     * 批量插入向量
+     *
+     * 只写入不 flush：新数据进入 growing segment 即可被检索
+     */
+    @Override
+    public InsertResponse insert(String collectionName, InsertRequest request) {
+        try {
+            List<String> ids = request.getIds();
+            List<InsertParam.Field> fields = insertFields(collectionName, request);
+
+            long start = System.nanoTime();
+            R<MutationResult> response = milvusClient.insert(
+                InsertParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withFields(fields)
+                    .build()
+            );
+            metrics.recordRpc("insert", collectionName, System.nanoTime() - start,
+                response.getStatus() == R.Status.Success.getCode());
+
+            if (response.getStatus() != R.Status.Success.getCode()) {
+                return InsertResponse.error(response.getException().getMessage());
+            }
+
+            return InsertResponse.success(ids.size(), response.getData().getIDs());
+
+        } catch (Exception e) {
+            log.error("Error inserting vectors: {}", e.getMessage(), e);
+            return InsertResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 按主键覆盖写入（在线迁移回填与双写使用，重复写入同一行不会产生重复数据）
+     */
+    @Override
+    public InsertResponse upsert(String collectionName, InsertRequest request) {
+        try {
+            long start = System.nanoTime();
+            R<MutationResult> response = milvusClient.upsert(
+                UpsertParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withFields(insertFields(collectionName, request))
+                    .build()
+            );
+            metrics.recordRpc("upsert", collectionName, System.nanoTime() - start,
+                response.getStatus() == R.Status.Success.getCode());
+
+            if (response.getStatus() != R.Status.Success.getCode()) {
+                return InsertResponse.error(response.getException().getMessage());
+            }
+            return InsertResponse.success(request.getIds().size(), response.getData().getIDs());
+        } catch (Exception e) {
+            log.error("Error upserting vectors: {}", e.getMessage(), e);
+            return InsertResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 按目标 Collection 的 schema 构建写入列：基础列 + 提升列 + 路由键
+     */
+    private List<InsertParam.Field> insertFields(String collectionName, InsertRequest request) {
+        List<String> ids = request.getIds();
+        List<String> contents = request.getContents();
+        List<String> docIds = request.getDocIds();
+        List<String> metadataList = request.getMetadataList();
+
+        List<InsertParam.Field> fields = new ArrayList<>(Arrays.asList(
+            new InsertParam.Field("id", ids),
+            new InsertParam.Field("embedding", FloatVectors.asLists(request.getVectors())),
+            new InsertParam.Field("content", contents != null ? contents : Collections.nCopies(ids.size(), "")),
+            new InsertParam.Field("doc_id", docIds != null ? docIds : Collections.nCopies(ids.size(), "")),
+            new InsertParam.Field("metadata", metadataList != null ? metadataList : Collections.nCopies(ids.size(), "{}"))
+        ));
+        SchemaInfo schema = schema(collectionName);
+        if (!schema.promotedKeys().isEmpty()) {
+            addPromotedFields(fields, schema.promotedKeys(), metadataList, ids.size());
+        }
+        if (schema.partitioned()) {
+            List<String> partitionKeys = request.getPartitionKeys();
+            fields.add(new InsertParam.Field("partition_key",
+                partitionKeys != null ? partitionKeys : Collections.nCopies(ids.size(), "")));
+        }
+        return fields;
+    }
+
+    /**
+     * 从 metadata JSON 中取出提升键的值，缺失或无法解析时为空字符串
+     */
+    private static void addPromotedFields(List<InsertParam.Field> fields, Set<String> promotedKeys,
+                                          List<String> metadataList, int rows) {
+        Map<String, List<String>> columns = new LinkedHashMap<>();
+        for (String key : promotedKeys) {
+            columns.put(key, new ArrayList<>(rows));
+        }
+        for (int i = 0; i < rows; i++) {
+            JsonNode metadata = null;
+            if (metadataList != null) {
+                try {
+                    metadata = JSON.readTree(metadataList.get(i));
+                } catch (Exception e) {
+                    // 非法 JSON 按无值处理
+                }
+            }
+            for (Map.Entry<String, List<String>> column : columns.entrySet()) {
+                JsonNode value = metadata == null ? null : metadata.get(column.getKey());
+                column.getValue().add(value == null || value.isNull() ? "" : value.asText());
+            }
+        }
+        columns.forEach((key, values) -> fields.add(new InsertParam.Field(FilterCompiler.PROMOTED_PREFIX + key, values)));
+    }
+
+    /**
+     * 刷新 Collection（封存 growing segment 并持久化）
+     */
+    @Override
+    public boolean flush(String collectionName) {
+        try {
+            R<FlushResponse> response = milvusClient.flush(FlushParam.newBuilder()
+                .withCollectionNames(Collections.singletonList(collectionName))
+                .build()
+            );
+            return response.getStatus() == R.Status.Success.getCode();
+        } catch (Exception e) {
+            log.error("Error flushing collection: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 同一 topK / ef / 过滤条件 / 输出字段的一组查询，合并为一个多向量 SearchParam 发送一次 RPC
+     */
+    @Override
+    public List<SearchResponse> search(String collectionName, List<SearchRequest> requests) {
+        SearchRequest first = requests.get(0);
+        try {
+            // 构建 ANN 参数（只取请求的输出字段）
+            List<String> outputFields = first.resolveOutputFields();
+
+            // 标量过滤表达式（可选），带路由键时附加 partition_key 条件以裁剪分区
+            String expr = scopeExpr(collectionName, first);
+
+            List<List<Float>> vectors = new ArrayList<>(requests.size());
+            for (SearchRequest request : requests) {
+                vectors.add(FloatVectors.asList(request.getVector()));
+            }
+
+            SearchParam.Builder searchBuilder = SearchParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withMetricType(MetricType.COSINE)
+                .withTopK(first.getTopK())
+                .withVectors(vectors)
+                .withVectorFieldName("embedding")
+                .withOutFields(outputFields);
+
+            // 添加过滤条件
+            if (expr != null && !expr.isEmpty()) {
+                searchBuilder.withExpr(expr);
+            }
+
+            if (compression(collectionName).isCompressed()) {
+                // IVF 类索引按 nprobe 控制搜索范围
+                searchBuilder.withParams("{\"nprobe\": " + nprobe + "}");
+            } else {
+                // HNSW 搜索参数（ef 由 SearchEfController 选定）
+                int ef = first.getEf() != null ? first.getEf() : Math.max(first.getTopK() * 10, 64);
+                searchBuilder.withParams("{\"ef\": " + ef + "}");
+            }
+
+            long start = System.nanoTime();
+            R<SearchResults> response = milvusClient.search(searchBuilder.build());
+            metrics.recordRpc("search", collectionName, System.nanoTime() - start,
+                response.getStatus() == R.Status.Success.getCode());
+
+            if (response.getStatus() != R.Status.Success.getCode()) {
+                String message = response.getException().getMessage();
+                return Collections.nCopies(requests.size(), INVALID_REQUEST_STATUSES.contains(response.getStatus())
+                    ? SearchResponse.invalid(message) : SearchResponse.error(message));
+            }
+
+            // 按列解码，按查询下标拆分
+            long decodeStart = System.nanoTime();
+            MilvusResultDecoder decoder = new MilvusResultDecoder(response.getData().getResults());
+            List<SearchResponse> responses = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                responses.add(SearchResponse.success(decoder.results(i)));
+            }
+            metrics.recordDecode(collectionName, System.nanoTime() - decodeStart);
+            return responses;
+
+        } catch (IllegalArgumentException | ParamException e) {
+            // 路由键无法落到该 Collection、参数校验不通过：请求本身的问题
+            return Collections.nCopies(requests.size(), SearchResponse.invalid(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error searching vectors: {}", e.getMessage(), e);
+            return Collections.nCopies(requests.size(), SearchResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * 过滤表达式与路由键条件合并后的检索范围，均为空时返回 null
+     *
+     * 路由键条件：带 partition_key 字段的 Collection 按 partition_key 裁剪分区；旧的平铺 Collection 退化为
+     * 提升列 meta_{legacy-filter-key} 上的等值过滤，两者都没有时拒绝检索，不会忽略路由键而跨租户返回结果
+     */
+    private String scopeExpr(String collectionName, SearchRequest request) {
+        String expr = request.getFilterExpr();  // FilterCompiler 的输出，调用方不能直接传入
+        if (request.getPartitionKey() != null) {
+            expr = FilterCompiler.and(routeExpr(collectionName, request.getPartitionKey()), expr);
+        }
+        return expr;
+    }
+
+    private String routeExpr(String collectionName, String partitionKey) {
+        SchemaInfo schema = schema(collectionName);
+        if (schema.partitioned()) {
+            return "partition_key == " + FilterCompiler.quote(partitionKey);
+        }
+        if (schema.promotedKeys().contains(legacyFilterKey)) {
+            return FilterCompiler.PROMOTED_PREFIX + legacyFilterKey + " == " + FilterCompiler.quote(partitionKey);
+        }
+        throw new IllegalArgumentException("Collection " + collectionName + " has neither partition_key nor "
+            + FilterCompiler.PROMOTED_PREFIX + legacyFilterKey + ", cannot scope search by partitionKey");
+    }
+
+    /**
+     * 根据 ID 删除向量
+     */
+    @Override
+    public boolean deleteByIds(String collectionName, List<String> ids) {
+        return deleteIn(collectionName, "id", ids);
+    }
+
+    /**
+     * 根据 doc_id 删除（删除整个文档的所有片段）
+     */
+    @Override
+    public boolean deleteByDocId(String collectionName, String docId) {
+        try {
+            String expr = "doc_id == " + FilterCompiler.quote(docId);
+            
+            R<MutationResult> response = milvusClient.delete(
+                DeleteParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withExpr(expr)
+                    .build()
+            );
+
+            return response.getStatus() == R.Status.Success.getCode();
+        } catch (Exception e) {
+            log.error("Error deleting by doc_id: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 按 doc_id 批量删除
+     */
+    @Override
+    public boolean deleteByDocIds(String collectionName, List<String> docIds) {
+        return deleteIn(collectionName, "doc_id", docIds);
+    }
+
+    /**
+     * field in [...] 删除，每个表达式最多 maxDeleteExprValues 个值，避免超长表达式拖慢解析或超出消息大小。
+     * 删除不存在的主键不报错，失败后整批重试是幂等的
+     */
+    private boolean deleteIn(String collectionName, String field, List<String> values) {
+        int step = maxDeleteExprValues > 0 ? maxDeleteExprValues : Math.max(1, values.size());
+        for (int from = 0; from < values.size(); from += step) {
+            List<String> slice = values.subList(from, Math.min(values.size(), from + step));
+            StringBuilder expr = new StringBuilder(field.length() + 8 + slice.size() * 40).append(field).append(" in [");
+            for (int i = 0; i < slice.size(); i++) {
+                if (i > 0) {
+                    expr.append(',');
+                }
+                expr.append(FilterCompiler.quote(slice.get(i)));
+            }
+            expr.append(']');
+            try {
+                R<MutationResult> response = milvusClient.delete(
+                    DeleteParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .withExpr(expr.toString())
+                        .build()
+                );
+                if (response.getStatus() != R.Status.Success.getCode()) {
+                    log.error("Error deleting vectors by {}: {}", field, response.getMessage());
+                    return false;
+                }
+            } catch (Exception e) {
+                log.error("Error deleting vectors by {}: {}", field, e.getMessage(), e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ==================== 在线迁移 ====================
+
+    private static final DateTimeFormatter RETIRED_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    /**
+     * 按主键分页读取：id > afterId 且 limit 条，结果按 id 排序，最后一行的 id 作为下一页的游标
+     *
+     * 没有 partition_key 字段的旧 Collection 的路由键取 metadata 中 legacy-filter-key 的值，缺失时为空字符串，
+     * 迁移到带 partition_key 的 Collection 时不会把所有行写进空字符串分区
+     */
+    @Override
+    public InsertRequest scan(String collectionName, String afterId, int limit) {
+        boolean partitioned = isPartitioned(collectionName);
+        List<String> outputFields = new ArrayList<>(List.of("id", "embedding", "content", "doc_id", "metadata"));
+        if (partitioned) {
+            outputFields.add("partition_key");
+        }
+        String expr = afterId == null ? "id != ''" : "id > " + FilterCompiler.quote(afterId);
+
+        long start = System.nanoTime();
+        R<QueryResults> response = milvusClient.query(
+            QueryParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withExpr(expr)
+                .withOutFields(outputFields)
+                .withLimit((long) limit)
+                // 强一致读取：迁移开始双写前已确认的写入必须能被回填读到
+                .withConsistencyLevel(ConsistencyLevelEnum.STRONG)
+                .build()
+        );
+        metrics.recordRpc("query", collectionName, System.nanoTime() - start,
+            response.getStatus() == R.Status.Success.getCode());
+        if (response.getStatus() != R.Status.Success.getCode()) {
+            throw new IllegalStateException("Failed to scan collection " + collectionName + ": "
+                + response.getException().getMessage());
+        }
+
+        QueryResultsWrapper wrapper = new QueryResultsWrapper(response.getData());
+        List<?> ids = wrapper.getFieldWrapper("id").getFieldData();
+        List<?> embeddings = wrapper.getFieldWrapper("embedding").getFieldData();
+        List<?> contents = wrapper.getFieldWrapper("content").getFieldData();
+        List<?> docIds = wrapper.getFieldWrapper("doc_id").getFieldData();
+        List<?> metadata = wrapper.getFieldWrapper("metadata").getFieldData();
+        List<?> partitionKeys = partitioned ? wrapper.getFieldWrapper("partition_key").getFieldData() : null;
+
+        Integer[] order = new Integer[ids.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> (String) ids.get(i)));
+
+        InsertRequest page = new InsertRequest();
+        page.setIds(new ArrayList<>(order.length));
+        page.setVectors(new ArrayList<>(order.length));
+        page.setContents(new ArrayList<>(order.length));
+        page.setDocIds(new ArrayList<>(order.length));
+        page.setMetadataList(new ArrayList<>(order.length));
+        page.setPartitionKeys(new ArrayList<>(order.length));
+        for (int i : order) {
+            page.getIds().add((String) ids.get(i));
+            @SuppressWarnings("unchecked")
+            List<Float> vector = (List<Float>) embeddings.get(i);
+            page.getVectors().add(FloatVectors.toArray(vector));
+            page.getContents().add((String) contents.get(i));
+            page.getDocIds().add((String) docIds.get(i));
+            page.getMetadataList().add((String) metadata.get(i));
+            page.getPartitionKeys().add(partitioned ? (String) partitionKeys.get(i) : legacyPartitionKey((String) metadata.get(i)));
+        }
+        return page;
+    }
+
+    private String legacyPartitionKey(String metadata) {
+        try {
+            JsonNode value = metadata == null ? null : JSON.readTree(metadata).get(legacyFilterKey);
+            return value == null || value.isNull() ? "" : value.asText();
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    /**
+     * count(*) 查询，已删除的行不计入（collection statistics 的行数在压缩前包含已删除行）
+     */
+    @Override
+    public long countRows(String collectionName) {
+        return countMatching(collectionName, "", ConsistencyLevelEnum.STRONG);
+    }
+
+    private long countMatching(String collectionName, String expr, ConsistencyLevelEnum consistency) {
+        try {
+            R<QueryResults> response = milvusClient.query(
+                QueryParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withExpr(expr)
+                    .withOutFields(List.of("count(*)"))
+                    .withConsistencyLevel(consistency)
+                    .build()
+            );
+            if (response.getStatus() != R.Status.Success.getCode()) {
+                return -1;
+            }
+            List<?> count = new QueryResultsWrapper(response.getData()).getFieldWrapper("count(*)").getFieldData();
+            return count.isEmpty() ? 0 : ((Number) count.get(0)).longValue();
+        } catch (Exception e) {
+            log.warn("Error counting rows of collection {}: {}", collectionName, e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 精确 TopK：在过滤与路由键范围内分页读出全部向量，客户端计算余弦相似度
+     *
+     * 只用于召回率评估的 ground truth，范围内行数超过 maxRows 时不计算（返回 null）
+     */
+    @Override
+    public List<String> exactTopK(String collectionName, SearchRequest request, long maxRows) {
+        String scope = scopeExpr(collectionName, request);
+        String base = scope == null || scope.isEmpty() ? "id != ''" : "(" + scope + ")";
+        long rows = countMatching(collectionName, base, ConsistencyLevelEnum.BOUNDED);
+        if (rows < 0 || rows > maxRows) {
+            return null;
+        }
+        float[] query = VectorKernels.normalize(request.getVector());
+        PriorityQueue<Map.Entry<String, Float>> best = new PriorityQueue<>(Map.Entry.comparingByValue());
+        String after = null;
+        while (true) {
+            String expr = after == null ? base : base + " and id > " + FilterCompiler.quote(after);
+            R<QueryResults> response = milvusClient.query(
+                QueryParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withExpr(expr)
+                    .withOutFields(List.of("id", "embedding"))
+                    .withLimit((long) EXACT_PAGE_SIZE)
+                    .withConsistencyLevel(ConsistencyLevelEnum.BOUNDED)
+                    .build()
+            );
+            if (response.getStatus() != R.Status.Success.getCode()) {
+                throw new IllegalStateException("Failed to scan collection " + collectionName + ": "
+                    + response.getException().getMessage());
+            }
+            QueryResultsWrapper wrapper = new QueryResultsWrapper(response.getData());
+            List<?> ids = wrapper.getFieldWrapper("id").getFieldData();
+            List<?> embeddings = wrapper.getFieldWrapper("embedding").getFieldData();
+            for (int i = 0; i < ids.size(); i++) {
+                String id = (String) ids.get(i);
+                @SuppressWarnings("unchecked")
+                float[] vector = VectorKernels.normalize(FloatVectors.toArray((List<Float>) embeddings.get(i)));
+                best.offer(Map.entry(id, VectorKernels.dot(query, vector)));
+                if (best.size() > request.getTopK()) {
+                    best.poll();
+                }
+                if (after == null || id.compareTo(after) > 0) {
+                    after = id;
+                }
+            }
+            if (ids.size() < EXACT_PAGE_SIZE) {
+                break;
+            }
+        }
+        List<String> topK = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            topK.add(best.poll().getKey());
+        }
+        Collections.reverse(topK);
+        return topK;
+    }
+
+    /**
+     * 向量索引已构建行数 / 总行数（只统计已封存的段，调用前应先 flush）
+     */
+    @Override
+    public double indexProgress(String collectionName) {
+        try {
+            R<DescribeIndexResponse> response = milvusClient.describeIndex(
+                DescribeIndexParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .build()
+            );
+            if (response.getStatus() != R.Status.Success.getCode()) {
+                return 0;
+            }
+            for (IndexDescription description : response.getData().getIndexDescriptionsList()) {
+                if ("embedding".equals(description.getFieldName())) {
+                    long total = description.getTotalRows();
+                    return total == 0 ? 1.0 : (double) description.getIndexedRows() / total;
+                }
+            }
+            return 0;
+        } catch (Exception e) {
+            log.warn("Error describing index of collection {}: {}", collectionName, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * describeCollection 对别名返回实际的 Collection 名
+     */
+    @Override
+    public String resolveAlias(String name) {
+        R<DescribeCollectionResponse> response = milvusClient.describeCollection(
+            DescribeCollectionParam.newBuilder()
+                .withCollectionName(name)
+                .build()
+        );
+        if (response.getStatus() != R.Status.Success.getCode()) {
+            throw new IllegalStateException("Failed to describe collection " + name + ": "
+                + response.getException().getMessage());
+        }
+        String collectionName = response.getData().getCollectionName();
+        return collectionName.isEmpty() ? name : collectionName;
+    }
+
+    /**
+     * 已是别名时 alterAlias 原子切换。
+     * 别名与物理 Collection 同名（未以别名方式创建的旧 Collection）时，先将其改名为 name_retired_时间戳 再创建别名，
+     * 两步之间有毫秒级的窗口该名称不可用
+     */
+    @Override
+    public String swapAlias(String alias, String collectionName) {
+        try {
+            String previous = resolveAlias(alias);
+            R<RpcStatus> response;
+            if (!previous.equals(alias)) {
+                response = milvusClient.alterAlias(
+                    AlterAliasParam.newBuilder()
+                        .withAlias(alias)
+                        .withCollectionName(collectionName)
+                        .build()
+                );
+            } else {
+                String retired = alias + "_retired_" + LocalDateTime.now().format(RETIRED_SUFFIX);
+                R<RpcStatus> renamed = milvusClient.renameCollection(
+                    RenameCollectionParam.newBuilder()
+                        .withOldCollectionName(alias)
+                        .withNewCollectionName(retired)
+                        .build()
+                );
+                if (renamed.getStatus() != R.Status.Success.getCode()) {
+                    log.error("Failed to rename collection {} to {}: {}", alias, retired, renamed.getMessage());
+                    return null;
+                }
+                previous = retired;
+                response = milvusClient.createAlias(
+                    CreateAliasParam.newBuilder()
+                        .withAlias(alias)
+                        .withCollectionName(collectionName)
+                        .build()
+                );
+                if (response.getStatus() != R.Status.Success.getCode()) {
+                    // 别名创建失败，改回原名恢复服务
+                    milvusClient.renameCollection(
+                        RenameCollectionParam.newBuilder()
+                            .withOldCollectionName(retired)
+                            .withNewCollectionName(alias)
+                            .build()
+                    );
+                }
+            }
+            if (response.getStatus() != R.Status.Success.getCode()) {
+                log.error("Failed to point alias {} to {}: {}", alias, collectionName, response.getMessage());
+                return null;
+            }
+            // 别名背后的 schema 与索引已变化，丢弃按名称缓存的信息
+            schemas.invalidate(alias);
+            compressions.invalidate(alias);
+            log.info("Alias {} now points to {} (was {})", alias, collectionName, previous);
+            return previous;
+        } catch (Exception e) {
+            log.error("Error swapping alias {}: {}", alias, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Collection 的路由与过滤相关 schema
+     *
+     * @param partitioned  是否带 partition_key 字段
+     * @param promotedKeys 已提升为 meta_xxx 列的 metadata 键
+     */
+    private record SchemaInfo(boolean partitioned, Set<String> promotedKeys) {
+
+        static final SchemaInfo FLAT = new SchemaInfo(false, Set.of());
+    }
+}
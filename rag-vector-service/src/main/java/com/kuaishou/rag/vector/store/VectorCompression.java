@@ -0,0 +1,48 @@
+package com.kuaishou.rag.vector.store;
+
+import io.milvus.param.IndexType;
+
+/**
+ * Collection 向量存储/索引方式
+ *
+ * - NONE：全精度 FloatVector + HNSW（默认）
+ * - IVF_SQ8：标量量化，每维 1 字节，约 4 倍压缩
+ * - IVF_PQ：乘积量化，压缩比更高（1536 维 m=96 时约 64 倍），精度损失更大
+ *
+ * 压缩索引的候选由 VectorStoreService 用本地全精度向量重排。
+ * 当前 Milvus 2.3 不支持 HNSW_SQ，需要图索引 + 量化时待升级后再加。
+ */
+public enum VectorCompression {
+
+    NONE(IndexType.HNSW),
+
+    IVF_SQ8(IndexType.IVF_SQ8),
+
+    IVF_PQ(IndexType.IVF_PQ);
+
+    private final IndexType indexType;
+
+    VectorCompression(IndexType indexType) {
+        this.indexType = indexType;
+    }
+
+    public IndexType indexType() {
+        return indexType;
+    }
+
+    public boolean isCompressed() {
+        return this != NONE;
+    }
+
+    /**
+     * 由 Milvus 索引类型反查，无法识别时视为 NONE
+     */
+    public static VectorCompression fromIndexType(String indexType) {
+        for (VectorCompression compression : values()) {
+            if (compression.indexType.name().equalsIgnoreCase(indexType)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,180 @@
+package com.kuaishou.rag.vector.store;
+
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.dto.InsertResponse;
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 向量引擎抽象
+ *
+ * 实现：
+ * - MilvusVectorStore：远程 Milvus（默认）
+ * - HnswVectorStore：进程内 HNSW，适合可全部放入内存的小租户知识库和测试
+ *
+ * 由 vector.engine 选择（milvus / local）。缓存、合批、写入缓冲等在 VectorStoreService 中，与引擎无关。
+ *
+ * scan / upsert / countRows / indexProgress / resolveAlias / swapAlias 供在线迁移（CollectionMigrator）使用，
+ * 默认实现不支持迁移（supportsMigration 为 false，迁移在发起时即被拒绝）。
+ */
+public interface VectorStore {
+
+    /**
+     * 创建 Collection（已存在时直接返回 true）
+     */
+    boolean createCollection(String collectionName, int dimension, String desc);
+
+    /**
+     * 按指定存储方式创建 Collection
+     *
+     * 不支持压缩的引擎忽略 compression，始终全精度存储
+     */
+    default boolean createCollection(String collectionName, int dimension, String desc, VectorCompression compression) {
+        return createCollection(collectionName, dimension, desc);
+    }
+
+    /**
+     * 按指定维度与索引参数创建 Collection，不支持自定义索引参数的引擎只使用维度与存储方式
+     */
+    default boolean createCollection(String collectionName, String desc, IndexSpec spec) {
+        return createCollection(collectionName, spec.dimension(), desc, spec.compression());
+    }
+
+    /**
+     * Collection 的存储方式，压缩存储时搜索结果需要全精度重排
+     */
+    default VectorCompression compression(String collectionName) {
+        return VectorCompression.NONE;
+    }
+
+    /**
+     * 已提升为独立标量列的 metadata 键，FilterCompiler 对这些键直接比较列值
+     */
+    default Set<String> promotedMetadataKeys(String collectionName) {
+        return Collections.emptySet();
+    }
+
+    /**
+     * 加载 Collection 以供查询
+     */
+    boolean loadCollection(String collectionName);
+
+    /**
+     * 批量插入（不保证已持久化）
+     */
+    InsertResponse insert(String collectionName, InsertRequest request);
+
+    /**
+     * 持久化已插入数据
+     */
+    boolean flush(String collectionName);
+
+    /**
+     * 搜索一组查询，调用方保证同组 topK、ef 与过滤条件相同
+     *
+     * @return 与 requests 顺序一一对应的结果
+     */
+    List<SearchResponse> search(String collectionName, List<SearchRequest> requests);
+
+    /**
+     * 精确（暴力）TopK，只返回 id，按相似度降序；用作召回率评估的 ground truth
+     *
+     * @param maxRows 检索范围内行数上限，超过时不计算
+     * @return 不支持或超过 maxRows 时返回 null
+     */
+    default List<String> exactTopK(String collectionName, SearchRequest request, long maxRows) {
+        return null;
+    }
+
+    boolean deleteByIds(String collectionName, List<String> ids);
+
+    boolean deleteByDocId(String collectionName, String docId);
+
+    /**
+     * 按 doc_id 批量删除，默认逐个删除
+     */
+    default boolean deleteByDocIds(String collectionName, List<String> docIds) {
+        boolean deleted = true;
+        for (String docId : docIds) {
+            deleted &= deleteByDocId(collectionName, docId);
+        }
+        return deleted;
+    }
+
+    /**
+     * Collection 是否带 partition_key 字段（按路由键分区存储）
+     */
+    default boolean isPartitioned(String collectionName) {
+        return false;
+    }
+
+    /**
+     * Collection（别名时为其指向的 Collection）中向量的维度，由首行向量得出；为空或引擎不支持 scan 时返回 -1
+     */
+    default int dimension(String collectionName) {
+        if (!supportsMigration()) {
+            return -1;
+        }
+        InsertRequest first = scan(collectionName, null, 1);
+        return first.getIds().isEmpty() ? -1 : first.getVectors().get(0).length;
+    }
+
+    // ==================== 在线迁移 ====================
+
+    /**
+     * 是否实现了 scan / swapAlias 等迁移所需的操作
+     */
+    default boolean supportsMigration() {
+        return false;
+    }
+
+    /**
+     * 按主键顺序读取 afterId 之后的至多 limit 行（含向量与全部标量列），afterId 为空时从头读取
+     *
+     * @return 读取到的行，没有更多数据时 ids 为空
+     */
+    default InsertRequest scan(String collectionName, String afterId, int limit) {
+        throw new UnsupportedOperationException("scan is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * 按主键覆盖写入，同一行重复写入不产生重复数据；默认等同 insert
+     */
+    default InsertResponse upsert(String collectionName, InsertRequest request) {
+        return insert(collectionName, request);
+    }
+
+    /**
+     * Collection 行数（已持久化部分），未知时返回 -1
+     */
+    default long countRows(String collectionName) {
+        return -1;
+    }
+
+    /**
+     * 向量索引构建进度 [0, 1]
+     */
+    default double indexProgress(String collectionName) {
+        return 1.0;
+    }
+
+    /**
+     * 别名指向的物理 Collection，不是别名时返回原名
+     */
+    default String resolveAlias(String name) {
+        return name;
+    }
+
+    /**
+     * 将别名原子地切换到 collectionName
+     *
+     * @return 切换前别名指向的物理 Collection（保留用于回滚），失败返回 null
+     */
+    default String swapAlias(String alias, String collectionName) {
+        throw new UnsupportedOperationException("aliases are not supported by " + getClass().getSimpleName());
+    }
+}
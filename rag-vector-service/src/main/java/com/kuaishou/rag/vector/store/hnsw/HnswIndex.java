@@ -0,0 +1,474 @@
+package com.kuaishou.rag.vector.store.hnsw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 进程内 HNSW 索引（余弦相似度，向量需预先归一化）
+ *
+ * 参数与 Milvus 侧 createIndex 一致：M=16，efConstruction=200，第 0 层最大连接数 2M。
+ * 并发模型（参考 hnswlib）：
+ * - 新节点只在需要抬升最高层时持有全局锁，其余插入并发进行
+ * - 修改某个节点的邻居表时对该节点加锁，邻居表以不可变 int[] 整体替换，查询无锁读取
+ * - 删除为逻辑删除，节点仍参与图遍历，但不出现在结果中；slot 不回收，由上层按 deletedCount 重建索引压缩
+ */
+public final class HnswIndex {
+
+    private static final int[] NO_LINKS = new int[0];
+
+    private final int m;
+
+    private final int maxM0;
+
+    private final int efConstruction;
+
+    private final double levelMultiplier;
+
+    private final int maxElements;
+
+    private final OffHeapVectorStorage vectors;
+
+    private final Object allocLock = new Object();
+
+    private volatile Node[] nodes = new Node[1024];
+
+    private int size;
+
+    private final ReentrantLock topLock = new ReentrantLock();
+
+    /**
+     * 入口节点与最高层作为一个不可变对象整体发布；分成两个 volatile 时查询可能读到新的 maxLevel 和旧的入口节点，
+     * 在入口节点不存在的层上遍历
+     */
+    private volatile EntryPoint entry;
+
+    private final AtomicInteger deleted = new AtomicInteger();
+
+    private final ThreadLocal<VisitedSet> visited = ThreadLocal.withInitial(VisitedSet::new);
+
+    public HnswIndex(int dimension, int m, int efConstruction, int maxElements) {
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.maxElements = maxElements;
+        this.vectors = new OffHeapVectorStorage(dimension);
+    }
+
+    public int dimension() {
+        return vectors.dimension();
+    }
+
+    public int size() {
+        synchronized (allocLock) {
+            return size;
+        }
+    }
+
+    public int maxElements() {
+        return maxElements;
+    }
+
+    /**
+     * 已逻辑删除、仍占用 slot 的节点数
+     */
+    public int deletedCount() {
+        return deleted.get();
+    }
+
+    /**
+     * 读取 slot 的归一化向量（复制），用于重建索引
+     */
+    public float[] vector(int slot) {
+        return vectors.get(slot);
+    }
+
+    /**
+     * 插入归一化向量
+     *
+     * @return 分配的 slot
+     * @throws IllegalStateException 超过 maxElements
+     */
+    public int add(float[] unitVector) {
+        int level = randomLevel();
+        Node node = new Node(level);
+        int slot = allocate(node, unitVector);
+
+        topLock.lock();
+        EntryPoint current = entry;
+        if (current == null) {
+            entry = new EntryPoint(slot, level);
+            topLock.unlock();
+            return slot;
+        }
+        int ep = current.slot();
+        int top = current.level();
+        boolean raiseTop = level > top;
+        if (!raiseTop) {
+            topLock.unlock();
+        }
+
+        try {
+            int cur = ep;
+            for (int layer = top; layer > level; layer--) {
+                cur = greedyClosest(unitVector, cur, layer);
+            }
+            for (int layer = Math.min(level, top); layer >= 0; layer--) {
+                ScoredHeap candidates = searchLayer(unitVector, cur, efConstruction, layer);
+                cur = best(candidates);
+                int[] neighbors = selectNeighbors(candidates, layer == 0 ? maxM0 : m);
+                synchronized (node) {
+                    node.links.set(layer, neighbors);
+                }
+                for (int neighbor : neighbors) {
+                    connect(neighbor, slot, layer);
+                }
+            }
+            if (raiseTop) {
+                entry = new EntryPoint(slot, level);
+            }
+        } finally {
+            if (raiseTop) {
+                topLock.unlock();
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * 逻辑删除
+     */
+    public void markDeleted(int slot) {
+        Node node = nodes[slot];
+        synchronized (node) {
+            if (!node.deleted) {
+                node.deleted = true;
+                deleted.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 近似最近邻搜索
+     *
+     * @param unitVector 归一化查询向量
+     * @param k          返回数量
+     * @param ef         搜索宽度，越大召回越高
+     * @return 按相似度降序排列的结果（不含已删除节点）
+     */
+    public List<Neighbor> search(float[] unitVector, int k, int ef) {
+        EntryPoint current = entry;
+        if (current == null) {
+            return Collections.emptyList();
+        }
+        int cur = current.slot();
+        for (int layer = current.level(); layer > 0; layer--) {
+            cur = greedyClosest(unitVector, cur, layer);
+        }
+        ScoredHeap results = searchLayer(unitVector, cur, Math.max(ef, k), 0);
+
+        Node[] snapshot = nodes;
+        List<Neighbor> neighbors = new ArrayList<>(results.size());
+        while (results.size() > 0) {
+            int slot = results.topId();
+            float score = results.topScore();
+            results.pop();
+            if (!snapshot[slot].deleted) {
+                neighbors.add(new Neighbor(slot, score));
+            }
+        }
+        // 最小堆弹出为升序，反转后截取前 k 个
+        Collections.reverse(neighbors);
+        return neighbors.size() > k ? neighbors.subList(0, k) : neighbors;
+    }
+
+    private int allocate(Node node, float[] unitVector) {
+        synchronized (allocLock) {
+            if (size >= maxElements) {
+                throw new IllegalStateException("HNSW index is full, max elements: " + maxElements);
+            }
+            int slot = size;
+            if (slot == nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+            }
+            vectors.set(slot, unitVector);
+            nodes[slot] = node;
+            size++;
+            return slot;
+        }
+    }
+
+    private int randomLevel() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return (int) (-Math.log(1 - r) * levelMultiplier);
+    }
+
+    /**
+     * 在某一层贪心移动到与查询最相似的节点
+     */
+    private int greedyClosest(float[] query, int start, int layer) {
+        Node[] snapshot = nodes;
+        int cur = start;
+        float curScore = vectors.dot(cur, query);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int neighbor : snapshot[cur].links.get(layer)) {
+                float score = vectors.dot(neighbor, query);
+                if (score > curScore) {
+                    curScore = score;
+                    cur = neighbor;
+                    changed = true;
+                }
+            }
+            snapshot = nodes;
+        }
+        return cur;
+    }
+
+    /**
+     * 单层 beam search，返回最多 ef 个最相似节点（最小堆，堆顶为最差）
+     */
+    private ScoredHeap searchLayer(float[] query, int entry, int ef, int layer) {
+        VisitedSet visitedSet = visited.get();
+        visitedSet.reset();
+
+        ScoredHeap candidates = new ScoredHeap(true, ef * 2);
+        ScoredHeap results = new ScoredHeap(false, ef + 1);
+        float entryScore = vectors.dot(entry, query);
+        visitedSet.visit(entry);
+        candidates.push(entry, entryScore);
+        results.push(entry, entryScore);
+
+        while (candidates.size() > 0) {
+            int current = candidates.topId();
+            float currentScore = candidates.topScore();
+            candidates.pop();
+            if (results.size() >= ef && currentScore < results.topScore()) {
+                break;
+            }
+            for (int neighbor : nodes[current].links.get(layer)) {
+                if (!visitedSet.visit(neighbor)) {
+                    continue;
+                }
+                float score = vectors.dot(neighbor, query);
+                if (results.size() < ef || score > results.topScore()) {
+                    candidates.push(neighbor, score);
+                    results.push(neighbor, score);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 启发式选邻居：候选按相似度从高到低，与已选邻居更相似的候选被跳过，保证邻居方向分散
+     */
+    private int[] selectNeighbors(ScoredHeap candidates, int maxConnections) {
+        int count = candidates.size();
+        int[] ids = new int[count];
+        float[] scores = new float[count];
+        // 最小堆弹出为升序，倒序填充得到降序
+        for (int i = count - 1; i >= 0; i--) {
+            ids[i] = candidates.topId();
+            scores[i] = candidates.topScore();
+            candidates.pop();
+        }
+
+        int[] selected = new int[Math.min(maxConnections, count)];
+        int selectedCount = 0;
+        for (int i = 0; i < count && selectedCount < selected.length; i++) {
+            boolean keep = true;
+            for (int j = 0; j < selectedCount; j++) {
+                if (vectors.dot(ids[i], selected[j]) > scores[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[selectedCount++] = ids[i];
+            }
+        }
+        return selectedCount == selected.length ? selected : Arrays.copyOf(selected, selectedCount);
+    }
+
+    /**
+     * 把 newSlot 加入 target 在某层的邻居表，超出上限时重新裁剪
+     */
+    private void connect(int target, int newSlot, int layer) {
+        Node node = nodes[target];
+        int maxConnections = layer == 0 ? maxM0 : m;
+        synchronized (node) {
+            int[] current = node.links.get(layer);
+            if (current.length < maxConnections) {
+                int[] next = Arrays.copyOf(current, current.length + 1);
+                next[current.length] = newSlot;
+                node.links.set(layer, next);
+                return;
+            }
+            ScoredHeap candidates = new ScoredHeap(false, current.length + 1);
+            for (int neighbor : current) {
+                candidates.push(neighbor, vectors.dot(target, neighbor));
+            }
+            candidates.push(newSlot, vectors.dot(target, newSlot));
+            node.links.set(layer, selectNeighbors(candidates, maxConnections));
+        }
+    }
+
+    private static int best(ScoredHeap results) {
+        int bestId = -1;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.scoreAt(i) > bestScore) {
+                bestScore = results.scoreAt(i);
+                bestId = results.idAt(i);
+            }
+        }
+        return bestId;
+    }
+
+    /**
+     * 搜索结果
+     */
+    public record Neighbor(int slot, float score) {
+    }
+
+    /**
+     * 图的入口：入口节点及其层数（即图的最高层）
+     */
+    private record EntryPoint(int slot, int level) {
+    }
+
+    private static final class Node {
+
+        private final AtomicReferenceArray<int[]> links;
+
+        private volatile boolean deleted;
+
+        private Node(int level) {
+            this.links = new AtomicReferenceArray<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                links.set(i, NO_LINKS);
+            }
+        }
+    }
+
+    /**
+     * 线程复用的访问标记，用递增的 stamp 代替每次清零
+     */
+    private static final class VisitedSet {
+
+        private int[] marks = new int[1024];
+
+        private int stamp;
+
+        void reset() {
+            if (++stamp == 0) {
+                Arrays.fill(marks, 0);
+                stamp = 1;
+            }
+        }
+
+        boolean visit(int slot) {
+            if (slot >= marks.length) {
+                marks = Arrays.copyOf(marks, Math.max(slot + 1, marks.length * 2));
+            }
+            if (marks[slot] == stamp) {
+                return false;
+            }
+            marks[slot] = stamp;
+            return true;
+        }
+    }
+
+    /**
+     * 基本类型二叉堆（id + score），避免装箱
+     */
+    private static final class ScoredHeap {
+
+        private final boolean maxFirst;
+        private int[] ids;
+        private float[] scores;
+        private int size;
+
+        private ScoredHeap(boolean maxFirst, int capacity) {
+            this.maxFirst = maxFirst;
+            this.ids = new int[Math.max(capacity, 4)];
+            this.scores = new float[ids.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int topId() {
+            return ids[0];
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        int idAt(int i) {
+            return ids[i];
+        }
+
+        float scoreAt(int i) {
+            return scores[i];
+        }
+
+        void push(int id, float score) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(score, scores[parent])) {
+                    break;
+                }
+                ids[i] = ids[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        }
+
+        void pop() {
+            int lastId = ids[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && before(scores[right], scores[child])) {
+                    child = right;
+                }
+                if (!before(scores[child], lastScore)) {
+                    break;
+                }
+                ids[i] = ids[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            ids[i] = lastId;
+            scores[i] = lastScore;
+        }
+
+        private boolean before(float a, float b) {
+            return maxFirst ? a > b : a < b;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.kuaishou.rag.vector.store.hnsw;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * 堆外连续向量存储
+ *
+ * 按块分配 DirectByteBuffer，每块连续存放 VECTORS_PER_CHUNK 个向量；扩容只追加新块，不复制已有数据。
+ * 向量不占 Java 堆，不参与 GC 扫描。写入在发布 slot 之前完成，之后只读，读操作无锁。
+ */
+public final class OffHeapVectorStorage {
+
+    private static final int VECTORS_PER_CHUNK = 4096;
+
+    private final int dimension;
+
+    private volatile FloatBuffer[] chunks = new FloatBuffer[0];
+
+    public OffHeapVectorStorage(int dimension) {
+        this.dimension = dimension;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * 写入 slot 位置的向量，调用方需保证对同一 slot 的写入串行
+     */
+    public void set(int slot, float[] vector) {
+        ensureCapacity(slot + 1);
+        chunks[slot / VECTORS_PER_CHUNK].put((slot % VECTORS_PER_CHUNK) * dimension, vector);
+    }
+
+    /**
+     * 读取 slot 位置的向量（复制）
+     */
+    public float[] get(int slot) {
+        float[] vector = new float[dimension];
+        chunks[slot / VECTORS_PER_CHUNK].get((slot % VECTORS_PER_CHUNK) * dimension, vector);
+        return vector;
+    }
+
+    /**
+     * slot 向量与查询向量的点积
+     */
+    public float dot(int slot, float[] query) {
+        return VectorKernels.dot(chunks[slot / VECTORS_PER_CHUNK], (slot % VECTORS_PER_CHUNK) * dimension, query);
+    }
+
+    /**
+     * 两个 slot 向量的点积
+     */
+    public float dot(int slotA, int slotB) {
+        FloatBuffer[] current = chunks;
+        return VectorKernels.dot(
+            current[slotA / VECTORS_PER_CHUNK], (slotA % VECTORS_PER_CHUNK) * dimension,
+            current[slotB / VECTORS_PER_CHUNK], (slotB % VECTORS_PER_CHUNK) * dimension,
+            dimension);
+    }
+
+    private void ensureCapacity(int slots) {
+        int needed = (slots + VECTORS_PER_CHUNK - 1) / VECTORS_PER_CHUNK;
+        if (needed <= chunks.length) {
+            return;
+        }
+        synchronized (this) {
+            FloatBuffer[] current = chunks;
+            if (needed <= current.length) {
+                return;
+            }
+            FloatBuffer[] grown = Arrays.copyOf(current, needed);
+            for (int i = current.length; i < needed; i++) {
+                grown[i] = ByteBuffer.allocateDirect(VECTORS_PER_CHUNK * dimension * Float.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+            }
+            chunks = grown;
+        }
+    }
+}
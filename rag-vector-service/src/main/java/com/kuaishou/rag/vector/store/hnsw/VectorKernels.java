@@ -0,0 +1,82 @@
+package com.kuaishou.rag.vector.store.hnsw;
+
+import java.nio.FloatBuffer;
+
+/**
+ * 向量计算内核
+ *
+ * 存储的向量都已归一化，余弦相似度 = 点积。
+ * 循环按 4 路展开、使用独立累加器，打破浮点加法的依赖链，便于 JIT 生成 SIMD/流水线友好的代码。
+ * （JDK 17 的 Vector API 仍是孵化模块，需要编译和运行时都加 --add-modules，这里不依赖）
+ */
+public final class VectorKernels {
+
+    private VectorKernels() {
+    }
+
+    public static float dot(float[] a, float[] b) {
+        int n = a.length;
+        int upper = n & ~3;
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (int i = 0; i < upper; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (int i = upper; i < n; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * buffer[offset, offset + q.length) 与 q 的点积
+     */
+    public static float dot(FloatBuffer buffer, int offset, float[] q) {
+        int n = q.length;
+        int upper = n & ~3;
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (int i = 0; i < upper; i += 4) {
+            s0 += buffer.get(offset + i) * q[i];
+            s1 += buffer.get(offset + i + 1) * q[i + 1];
+            s2 += buffer.get(offset + i + 2) * q[i + 2];
+            s3 += buffer.get(offset + i + 3) * q[i + 3];
+        }
+        for (int i = upper; i < n; i++) {
+            s0 += buffer.get(offset + i) * q[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static float dot(FloatBuffer a, int offsetA, FloatBuffer b, int offsetB, int dimension) {
+        int upper = dimension & ~3;
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (int i = 0; i < upper; i += 4) {
+            s0 += a.get(offsetA + i) * b.get(offsetB + i);
+            s1 += a.get(offsetA + i + 1) * b.get(offsetB + i + 1);
+            s2 += a.get(offsetA + i + 2) * b.get(offsetB + i + 2);
+            s3 += a.get(offsetA + i + 3) * b.get(offsetB + i + 3);
+        }
+        for (int i = upper; i < dimension; i++) {
+            s0 += a.get(offsetA + i) * b.get(offsetB + i);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * 返回归一化后的副本，零向量原样返回
+     */
+    public static float[] normalize(float[] vector) {
+        float norm = (float) Math.sqrt(dot(vector, vector));
+        float[] unit = new float[vector.length];
+        if (norm == 0) {
+            return unit;
+        }
+        float scale = 1 / norm;
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+}
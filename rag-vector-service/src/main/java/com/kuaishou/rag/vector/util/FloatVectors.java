@@ -0,0 +1,67 @@
+package com.kuaishou.rag.vector.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * float[] 向量工具
+ *
+ * 服务内部统一使用 float[] 表示向量（1536 维约 6 KB，List&lt;Float&gt; 约 24 KB）。
+ * Milvus SDK 2.3.x 的 FloatVector 字段只接受 List&lt;List&lt;Float&gt;&gt;，
+ * 这里提供只读视图，在 SDK 序列化时才逐个装箱，不在堆上保留整份装箱数据。
+ */
+public final class FloatVectors {
+
+    private FloatVectors() {
+    }
+
+    /**
+     * 单个向量的 List&lt;Float&gt; 只读视图（不复制）
+     */
+    public static List<Float> asList(float[] vector) {
+        return new FloatArrayView(vector);
+    }
+
+    /**
+     * 多个向量的 List&lt;List&lt;Float&gt;&gt; 视图，用于 InsertParam / SearchParam
+     */
+    public static List<List<Float>> asLists(List<float[]> vectors) {
+        List<List<Float>> lists = new ArrayList<>(vectors.size());
+        for (float[] vector : vectors) {
+            lists.add(new FloatArrayView(vector));
+        }
+        return lists;
+    }
+
+    /**
+     * SDK 返回的 List&lt;Float&gt; 转为 float[]
+     */
+    public static float[] toArray(List<Float> list) {
+        float[] vector = new float[list.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = list.get(i);
+        }
+        return vector;
+    }
+
+    private static final class FloatArrayView extends AbstractList<Float> implements RandomAccess {
+
+        private final float[] array;
+
+        private FloatArrayView(float[] array) {
+            this.array = array;
+        }
+
+        @Override
+        public Float get(int index) {
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return array.length;
+        }
+    }
+}
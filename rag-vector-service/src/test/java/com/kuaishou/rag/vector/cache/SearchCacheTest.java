@@ -0,0 +1,149 @@
+package com.kuaishou.rag.vector.cache;
+
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * SearchCache 测试：共享层使用进程内替身 InMemorySharedCacheTier，模拟两个实例共享同一层
+ */
+class SearchCacheTest {
+
+    private static final String COLLECTION = "rag_documents";
+
+    private InMemorySharedCacheTier sharedTier;
+
+    private SearchCache cache;
+
+    @BeforeEach
+    void setUp() {
+        sharedTier = new InMemorySharedCacheTier();
+        cache = newCache(sharedTier);
+    }
+
+    @Test
+    void hitsAfterPut() {
+        SearchRequest request = request(1f, 0f, 0f);
+        SearchCache.Lookup miss = cache.lookup(COLLECTION, request);
+        assertNull(miss.getResponse());
+
+        cache.put(miss, result());
+
+        assertNotNull(cache.lookup(COLLECTION, request).getResponse());
+    }
+
+    @Test
+    void nearDuplicateVectorHits() {
+        SearchCache.Lookup miss = cache.lookup(COLLECTION, request(1f, 0f, 0f));
+        cache.put(miss, result());
+
+        assertNotNull(cache.lookup(COLLECTION, request(1f, 0.01f, 0f)).getResponse());
+    }
+
+    @Test
+    void invalidateDropsEntries() {
+        SearchRequest request = request(1f, 0f, 0f);
+        cache.put(cache.lookup(COLLECTION, request), result());
+
+        cache.invalidate(COLLECTION);
+
+        assertNull(cache.lookup(COLLECTION, request).getResponse());
+    }
+
+    @Test
+    void invalidateDuringSearchDoesNotCacheStaleResult() {
+        SearchRequest request = request(1f, 0f, 0f);
+        SearchCache.Lookup miss = cache.lookup(COLLECTION, request);
+
+        // 搜索执行期间有写入
+        cache.invalidate(COLLECTION);
+        cache.put(miss, result());
+
+        assertNull(cache.lookup(COLLECTION, request).getResponse());
+        assertNull(newCache(sharedTier).lookup(COLLECTION, request).getResponse());
+    }
+
+    @Test
+    void sharedTierServesOtherInstance() {
+        SearchRequest request = request(0f, 1f, 0f);
+        cache.put(cache.lookup(COLLECTION, request), result());
+
+        SearchCache other = newCache(sharedTier);
+        assertNotNull(other.lookup(COLLECTION, request).getResponse());
+
+        other.invalidate(COLLECTION);
+        assertNull(newCache(sharedTier).lookup(COLLECTION, request).getResponse());
+    }
+
+    @Test
+    void invalidateOnOtherInstanceDropsLocalEntries() {
+        SearchRequest request = request(0f, 1f, 1f);
+        cache.put(cache.lookup(COLLECTION, request), result());
+        assertNotNull(cache.lookup(COLLECTION, request).getResponse());
+
+        newCache(sharedTier).invalidate(COLLECTION);
+
+        assertNull(cache.lookup(COLLECTION, request).getResponse());
+        // 近似匹配同样按共享层 generation 分桶
+        assertNull(cache.lookup(COLLECTION, request(0f, 1f, 1.01f)).getResponse());
+    }
+
+    @Test
+    void exportsHitRate() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SearchCache metered = newCache(sharedTier, registry);
+        SearchRequest request = request(1f, 1f, 0f);
+        metered.put(metered.lookup(COLLECTION, request), result());
+        metered.lookup(COLLECTION, request);
+
+        assertEquals(0.5, registry.get("vector.search.cache.hit.rate").gauge().value(), 1e-9);
+        assertEquals(1, registry.get("vector.search.cache.requests").tag("result", "local").functionCounter().count());
+        assertEquals(1, registry.get("vector.search.cache.requests").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void failedResponseIsNotCached() {
+        SearchRequest request = request(0f, 0f, 1f);
+        cache.put(cache.lookup(COLLECTION, request), SearchResponse.error("boom"));
+
+        assertNull(cache.lookup(COLLECTION, request).getResponse());
+    }
+
+    private static SearchCache newCache(SharedCacheTier sharedTier) {
+        return newCache(sharedTier, null);
+    }
+
+    private static SearchCache newCache(SharedCacheTier sharedTier, MeterRegistry meterRegistry) {
+        SearchCache cache = new SearchCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "maxSize", 1000L);
+        ReflectionTestUtils.setField(cache, "similarityThreshold", 0.98);
+        ReflectionTestUtils.setField(cache, "nearDuplicateWindow", 16);
+        ReflectionTestUtils.setField(cache, "sharedTier", sharedTier);
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        cache.init();
+        return cache;
+    }
+
+    private static SearchRequest request(float... vector) {
+        SearchRequest request = new SearchRequest();
+        request.setVector(vector);
+        request.setTopK(5);
+        return request;
+    }
+
+    private static SearchResponse result() {
+        return SearchResponse.success(Collections.emptyList());
+    }
+}
@@ -0,0 +1,275 @@
+package com.kuaishou.rag.vector.client;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.milvus.client.MilvusClient;
+import io.milvus.grpc.CheckHealthResponse;
+import io.milvus.grpc.SearchResults;
+import io.milvus.param.R;
+import io.milvus.param.dml.SearchParam;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MilvusClientPool 测试：最少在途路由、连续传输失败摘除与健康检查恢复、对冲只发往不同 endpoint
+ *
+ * 假客户端的 search 返回以 endpoint 为 collectionName 的结果，用来判断请求落在哪个成员
+ */
+class MilvusClientPoolTest {
+
+    private MilvusClientPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.client().close();
+        }
+    }
+
+    @Test
+    void routesToLeastOutstandingMember() throws Exception {
+        FakeClient a = new FakeClient("a");
+        FakeClient b = new FakeClient("b");
+        FakeClient c = new FakeClient("c");
+        pool = newPool(false, 60_000, a, b, c);
+
+        // 一个请求卡在某个成员上，之后的请求都应避开它
+        CountDownLatch release = new CountDownLatch(1);
+        for (FakeClient fake : List.of(a, b, c)) {
+            fake.blockUntil = release;
+        }
+        CompletableFuture<String> stuck = CompletableFuture.supplyAsync(() -> search(pool.client()));
+        FakeClient busy = awaitBusy(a, b, c);
+        for (FakeClient fake : List.of(a, b, c)) {
+            fake.blockUntil = null;
+        }
+
+        for (int i = 0; i < 10; i++) {
+            search(pool.client());
+        }
+
+        assertEquals(1, busy.calls.get());
+        for (FakeClient fake : List.of(a, b, c)) {
+            if (fake != busy) {
+                // 在途数相同时轮询，两个空闲成员都会分到请求
+                assertTrue(fake.calls.get() > 0);
+            }
+        }
+        assertEquals(11, a.calls.get() + b.calls.get() + c.calls.get());
+        release.countDown();
+        assertEquals(busy.endpoint, stuck.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void ejectsMemberAfterConsecutiveTransportFailures() {
+        FakeClient bad = new FakeClient("bad");
+        FakeClient good = new FakeClient("good");
+        bad.failing = true;
+        pool = newPool(false, 60_000, bad, good);
+
+        for (int i = 0; i < 20; i++) {
+            try {
+                search(pool.client());
+            } catch (StatusRuntimeException ignored) {
+                // 摘除前落到 bad 上的请求直接失败
+            }
+        }
+
+        assertEquals(2, bad.calls.get());
+        assertEquals(18, good.calls.get());
+    }
+
+    @Test
+    void nonTransportErrorsDoNotEject() {
+        FakeClient bad = new FakeClient("bad");
+        FakeClient good = new FakeClient("good");
+        bad.failure = Status.INVALID_ARGUMENT;
+        bad.failing = true;
+        pool = newPool(false, 60_000, bad, good);
+
+        for (int i = 0; i < 20; i++) {
+            try {
+                search(pool.client());
+            } catch (StatusRuntimeException ignored) {
+                // 参数错误不代表节点不可用
+            }
+        }
+
+        assertEquals(10, bad.calls.get());
+    }
+
+    @Test
+    void healthCheckEjectsAndRestoresMember() throws Exception {
+        FakeClient flaky = new FakeClient("flaky");
+        FakeClient good = new FakeClient("good");
+        flaky.healthy = false;
+        pool = newPool(false, 20, flaky, good);
+        // 第 2 次检查开始时，第 1 次的结果已经生效
+        awaitTrue(() -> flaky.healthChecks.get() >= 2);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("good", search(pool.client()));
+        }
+
+        flaky.healthy = true;
+        int before = flaky.healthChecks.get();
+        awaitTrue(() -> flaky.healthChecks.get() >= before + 2);
+        for (int i = 0; i < 10; i++) {
+            search(pool.client());
+        }
+        assertEquals(5, flaky.calls.get());
+    }
+
+    @Test
+    void hedgesSlowSearchToAnotherEndpoint() throws Exception {
+        FakeClient a = new FakeClient("a");
+        FakeClient b = new FakeClient("b");
+        // 只有最先到达的一次调用卡住，即被对冲的主请求
+        AtomicBoolean blockFirst = new AtomicBoolean(true);
+        a.blockFirst = blockFirst;
+        b.blockFirst = blockFirst;
+        pool = newPool(true, 60_000, a, b);
+
+        long start = System.nanoTime();
+        String endpoint = search(pool.client());
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        FakeClient winner = endpoint.equals("a") ? a : b;
+        FakeClient loser = winner == a ? b : a;
+        assertEquals(1, a.calls.get());
+        assertEquals(1, b.calls.get());
+        // 慢的那次被中断，不再占用线程
+        awaitTrue(() -> loser.interrupted.get() == 1);
+        assertEquals(0, winner.interrupted.get());
+    }
+
+    @Test
+    void doesNotHedgeWithinOneEndpoint() {
+        FakeClient first = new FakeClient("a");
+        FakeClient second = new FakeClient("a");
+        first.delayMillis = 200;
+        second.delayMillis = 200;
+        pool = newPool(true, 60_000, first, second);
+
+        long start = System.nanoTime();
+        search(pool.client());
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(1, first.calls.get() + second.calls.get());
+    }
+
+    private MilvusClientPool newPool(boolean hedge, long healthCheckMillis, FakeClient... fakes) {
+        List<MilvusClientPool.Member> members = Arrays.stream(fakes)
+            .map(fake -> new MilvusClientPool.Member(fake.endpoint, fake.client()))
+            .toList();
+        return new MilvusClientPool(members, 2, 60_000, hedge, 20, 4, healthCheckMillis);
+    }
+
+    private static String search(MilvusClient client) {
+        R<SearchResults> response = client.search((SearchParam) null);
+        return response.getData().getCollectionName();
+    }
+
+    private static FakeClient awaitBusy(FakeClient... fakes) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (System.nanoTime() < deadline) {
+            for (FakeClient fake : fakes) {
+                if (fake.calls.get() == 1) {
+                    return fake;
+                }
+            }
+            Thread.sleep(1);
+        }
+        throw new AssertionError("no member received the request");
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * 假 MilvusClient（动态代理），checkHealth 按 healthy 返回；search 可以：
+     * - 阻塞在 blockUntil 上，或多个成员共享 blockFirst 时只阻塞最先到达的一次
+     * - 延迟 delayMillis，或以 gRPC 状态 failure 失败
+     */
+    private static final class FakeClient {
+
+        final String endpoint;
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        final AtomicInteger interrupted = new AtomicInteger();
+
+        final AtomicInteger healthChecks = new AtomicInteger();
+
+        volatile boolean failing;
+
+        volatile Status failure = Status.UNAVAILABLE;
+
+        volatile boolean healthy = true;
+
+        volatile CountDownLatch blockUntil;
+
+        volatile AtomicBoolean blockFirst;
+
+        volatile long delayMillis;
+
+        FakeClient(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        MilvusClient client() {
+            return (MilvusClient) Proxy.newProxyInstance(MilvusClient.class.getClassLoader(),
+                new Class<?>[]{MilvusClient.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "search" -> search();
+                    case "checkHealth" -> {
+                        healthChecks.incrementAndGet();
+                        yield R.success(CheckHealthResponse.newBuilder().setIsHealthy(healthy).build());
+                    }
+                    case "close" -> null;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        }
+
+        private R<SearchResults> search() throws InterruptedException {
+            calls.incrementAndGet();
+            if (failing) {
+                throw new StatusRuntimeException(failure);
+            }
+            CountDownLatch latch = blockUntil;
+            AtomicBoolean first = blockFirst;
+            if (first != null && first.compareAndSet(true, false)) {
+                latch = new CountDownLatch(1);
+            }
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                    throw e;
+                }
+            }
+            if (delayMillis > 0) {
+                Thread.sleep(delayMillis);
+            }
+            return R.success(SearchResults.newBuilder().setCollectionName(endpoint).build());
+        }
+    }
+}
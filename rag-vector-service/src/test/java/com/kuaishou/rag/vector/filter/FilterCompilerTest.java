@@ -0,0 +1,157 @@
+package com.kuaishou.rag.vector.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * FilterCompiler 测试：转义、列表运算符、范围操作数校验、like 退化、计划缓存与谓词排序
+ */
+class FilterCompilerTest {
+
+    private static final Set<String> PROMOTED = Set.of("category", "year");
+
+    private FilterCompiler compiler;
+
+    @BeforeEach
+    void setUp() {
+        compiler = new FilterCompiler();
+        ReflectionTestUtils.setField(compiler, "planCacheSize", 16L);
+        compiler.init();
+    }
+
+    @Test
+    void emptyFiltersCompileToNull() {
+        assertNull(compiler.compile(null, PROMOTED));
+        assertNull(compiler.compile(Map.of(), PROMOTED));
+    }
+
+    @Test
+    void quotesAndEscapesValues() {
+        assertEquals("doc_id == 'd\\'1'", compiler.compile(Map.of("doc_id", "d'1"), PROMOTED));
+        assertEquals("doc_id == 'a\\\\b'", compiler.compile(Map.of("doc_id", "a\\b"), PROMOTED));
+        // 注入尝试整体作为字符串字面量
+        assertEquals("doc_id == 'x\\' or id != \\'0'",
+            compiler.compile(Map.of("doc_id", "x' or id != '0"), PROMOTED));
+    }
+
+    @Test
+    void arrayCompilesToIn() {
+        assertEquals("doc_id in ['d1', 'd2']", compiler.compile(Map.of("doc_id", List.of("d1", "d2")), PROMOTED));
+    }
+
+    @Test
+    void inAndNinOperators() {
+        assertEquals("meta_category in ['a', 'b']",
+            compiler.compile(Map.of("metadata.category", Map.of("$in", List.of("a", "b"))), PROMOTED));
+        assertEquals("meta_category not in ['x', 'y\\'z']",
+            compiler.compile(Map.of("metadata.category", Map.of("$nin", List.of("x", "y'z"))), PROMOTED));
+    }
+
+    @Test
+    void listOperatorRequiresArray() {
+        assertThrows(IllegalArgumentException.class,
+            () -> compiler.compile(Map.of("doc_id", Map.of("$in", "d1")), PROMOTED));
+        assertThrows(IllegalArgumentException.class,
+            () -> compiler.compile(Map.of("doc_id", Map.of("$eq", List.of("d1"))), PROMOTED));
+    }
+
+    @Test
+    void rangeAcceptsStringOperands() {
+        assertEquals("meta_year >= '2023'",
+            compiler.compile(Map.of("metadata.year", Map.of("$gte", "2023")), PROMOTED));
+    }
+
+    @Test
+    void rejectsNumericRangeOperands() {
+        assertThrows(IllegalArgumentException.class,
+            () -> compiler.compile(Map.of("metadata.year", Map.of("$gte", 2023)), PROMOTED));
+        assertThrows(IllegalArgumentException.class,
+            () -> compiler.compile(Map.of("doc_id", Map.of("$lt", 1.5)), PROMOTED));
+    }
+
+    @Test
+    void numericEqualityIsComparedAsString() {
+        assertEquals("meta_year == '2023'", compiler.compile(Map.of("metadata.year", 2023), PROMOTED));
+    }
+
+    @Test
+    void unpromotedMetadataFallsBackToLike() {
+        assertEquals("metadata like '%\"lang\":\"zh\"%'", compiler.compile(Map.of("metadata.lang", "zh"), PROMOTED));
+        // 数字值后可能是逗号或右括号
+        assertEquals("(metadata like '%\"n\":5,%' or metadata like '%\"n\":5}%')",
+            compiler.compile(Map.of("metadata.n", 5), PROMOTED));
+        // like 通配符转义后再按字面量转义
+        assertEquals("metadata like '%\"my\\\\_key\":\"50\\\\%\"%'",
+            compiler.compile(Map.of("metadata.my_key", "50%"), PROMOTED));
+    }
+
+    @Test
+    void likeFallbackOnlySupportsEquality() {
+        assertThrows(IllegalArgumentException.class,
+            () -> compiler.compile(Map.of("metadata.lang", Map.of("$ne", "zh")), PROMOTED));
+        assertThrows(IllegalArgumentException.class,
+            () -> compiler.compile(Map.of("metadata.lang", Map.of("$gt", "a")), PROMOTED));
+    }
+
+    @Test
+    void rejectsUnknownFieldsAndOperators() {
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(Map.of("content", "x"), PROMOTED));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(Map.of("metadata.a-b", "x"), PROMOTED));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(Map.of("metadata.a' or '1", "x"), PROMOTED));
+        assertThrows(IllegalArgumentException.class,
+            () -> compiler.compile(Map.of("doc_id", Map.of("$regex", ".*")), PROMOTED));
+        assertThrows(IllegalArgumentException.class,
+            () -> compiler.compile(Map.of("doc_id", Map.of("nested", "x")), PROMOTED));
+    }
+
+    @Test
+    void planIsReusedAcrossValues() {
+        assertEquals("doc_id == 'a'", compiler.compile(Map.of("doc_id", "a"), PROMOTED));
+        assertEquals("doc_id == 'b'", compiler.compile(Map.of("doc_id", "b"), PROMOTED));
+        assertEquals(1, plans().estimatedSize());
+
+        // 单值与数组是不同形状
+        assertEquals("doc_id in ['a']", compiler.compile(Map.of("doc_id", List.of("a")), PROMOTED));
+        assertEquals(2, plans().estimatedSize());
+
+        // 提升字段集合不同时不能复用计划
+        assertEquals("metadata like '%\"category\":\"x\"%'", compiler.compile(Map.of("metadata.category", "x"), Set.of()));
+        assertEquals("meta_category == 'x'", compiler.compile(Map.of("metadata.category", "x"), PROMOTED));
+    }
+
+    @Test
+    void ordersPredicatesBySelectivity() {
+        Map<String, Object> filters = new LinkedHashMap<>();
+        filters.put("metadata.lang", "zh");
+        filters.put("metadata.year", Map.of("$gte", "2023"));
+        filters.put("doc_id", "d1");
+        filters.put("metadata.category", "tech");
+        filters.put("id", "1");
+
+        assertEquals("id == '1' and doc_id == 'd1' and meta_category == 'tech' and meta_year >= '2023'"
+            + " and metadata like '%\"lang\":\"zh\"%'", compiler.compile(filters, PROMOTED));
+    }
+
+    @Test
+    void andSkipsEmptySides() {
+        assertEquals("a", FilterCompiler.and("a", null));
+        assertEquals("b", FilterCompiler.and("", "b"));
+        assertEquals("(a) and (b)", FilterCompiler.and("a", "b"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<String, ?> plans() {
+        return (Cache<String, ?>) ReflectionTestUtils.getField(compiler, "plans");
+    }
+}
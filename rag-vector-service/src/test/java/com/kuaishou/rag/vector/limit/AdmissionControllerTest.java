@@ -0,0 +1,186 @@
+package com.kuaishou.rag.vector.limit;
+
+import com.kuaishou.rag.common.limit.VegasLimit;
+import com.kuaishou.rag.vector.limit.AdmissionController.Lane;
+import com.kuaishou.rag.vector.limit.AdmissionController.Permit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AdmissionController 测试：交互通道优先、批量通道占比、排队已满与等待超时拒绝、上限随成功 / 失败调整
+ */
+class AdmissionControllerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void interactiveIsWokenBeforeEarlierBulk() throws Exception {
+        AdmissionController admission = newController(1);
+        ReflectionTestUtils.setField(admission, "limit", new VegasLimit(1, 1, 1, 3, 6, 60_000));
+        Permit held = admission.acquire(Lane.INTERACTIVE);
+
+        Future<Permit> bulk = executor.submit(() -> admission.acquire(Lane.BULK));
+        awaitTrue(() -> admission.getWaiting(Lane.BULK) == 1);
+        Future<Permit> interactive = executor.submit(() -> admission.acquire(Lane.INTERACTIVE));
+        awaitTrue(() -> admission.getWaiting(Lane.INTERACTIVE) == 1);
+
+        held.release(true);
+
+        Permit next = interactive.get(1, TimeUnit.SECONDS);
+        assertFalse(bulk.isDone());
+        next.release(true);
+        bulk.get(1, TimeUnit.SECONDS).release(true);
+        assertEquals(0, admission.getInflight(Lane.INTERACTIVE));
+        assertEquals(0, admission.getInflight(Lane.BULK));
+    }
+
+    @Test
+    void bulkWaitsWhileInteractiveIsQueued() throws Exception {
+        AdmissionController admission = newController(2);
+        // 固定上限，避免释放时的延迟样本把上限调大
+        ReflectionTestUtils.setField(admission, "limit", new VegasLimit(2, 2, 2, 3, 6, 60_000));
+        Permit first = admission.acquire(Lane.INTERACTIVE);
+        Permit second = admission.acquire(Lane.INTERACTIVE);
+        Future<Permit> interactive = executor.submit(() -> admission.acquire(Lane.INTERACTIVE));
+        awaitTrue(() -> admission.getWaiting(Lane.INTERACTIVE) == 1);
+
+        Future<Permit> bulk = executor.submit(() -> admission.acquire(Lane.BULK));
+        awaitTrue(() -> admission.getWaiting(Lane.BULK) == 1);
+        first.release(true);
+
+        interactive.get(1, TimeUnit.SECONDS);
+        assertFalse(bulk.isDone());
+        second.release(true);
+        bulk.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void bulkIsCappedByShare() {
+        AdmissionController admission = newController(4);
+        ReflectionTestUtils.setField(admission, "bulkMaxWaitMs", 20L);
+
+        admission.acquire(Lane.BULK);
+        admission.acquire(Lane.BULK);
+
+        assertThrows(OverloadedException.class, () -> admission.acquire(Lane.BULK));
+        // 剩余名额仍留给交互通道
+        admission.acquire(Lane.INTERACTIVE);
+        admission.acquire(Lane.INTERACTIVE);
+        assertEquals(2, admission.getInflight(Lane.BULK));
+        assertEquals(2, admission.getInflight(Lane.INTERACTIVE));
+    }
+
+    @Test
+    void fullQueueRejectsImmediately() {
+        AdmissionController admission = newController(1);
+        ReflectionTestUtils.setField(admission, "interactiveMaxQueue", 0);
+        ReflectionTestUtils.setField(admission, "interactiveMaxWaitMs", 5000L);
+        admission.acquire(Lane.INTERACTIVE);
+
+        long start = System.nanoTime();
+        OverloadedException e = assertThrows(OverloadedException.class, () -> admission.acquire(Lane.INTERACTIVE));
+
+        assertTrue(e.getMessage().contains("queue full"));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1.0, rejected("interactive"));
+    }
+
+    @Test
+    void waitTimeoutRejects() {
+        AdmissionController admission = newController(1);
+        ReflectionTestUtils.setField(admission, "interactiveMaxWaitMs", 30L);
+        admission.acquire(Lane.INTERACTIVE);
+
+        OverloadedException e = assertThrows(OverloadedException.class, () -> admission.acquire(Lane.INTERACTIVE));
+
+        assertTrue(e.getMessage().contains("wait timeout"));
+        assertEquals(0, admission.getWaiting(Lane.INTERACTIVE));
+        assertEquals(1.0, rejected("interactive"));
+    }
+
+    @Test
+    void failureShrinksLimit() {
+        AdmissionController admission = newController(10);
+
+        admission.acquire(Lane.BULK).release(false);
+
+        assertEquals(9, admission.getLimit());
+    }
+
+    @Test
+    void fastInteractiveSamplesGrowLimit() {
+        AdmissionController admission = newController(2);
+        Permit first = admission.acquire(Lane.INTERACTIVE);
+        Permit second = admission.acquire(Lane.INTERACTIVE);
+
+        // 满载时无排队的样本 +1；第二个释放时在途数已低于上限一半，不再增长
+        first.release(true);
+        second.release(true);
+
+        assertEquals(3, admission.getLimit());
+    }
+
+    @Test
+    void bulkSuccessDoesNotMoveLimit() {
+        AdmissionController admission = newController(2);
+        ReflectionTestUtils.setField(admission, "bulkShare", 1.0);
+        Permit first = admission.acquire(Lane.BULK);
+        Permit second = admission.acquire(Lane.BULK);
+
+        first.release(true);
+        second.release(true);
+
+        assertEquals(2, admission.getLimit());
+    }
+
+    private AdmissionController newController(int initialLimit) {
+        AdmissionController admission = new AdmissionController();
+        ReflectionTestUtils.setField(admission, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(admission, "enabled", true);
+        ReflectionTestUtils.setField(admission, "initialLimit", initialLimit);
+        ReflectionTestUtils.setField(admission, "minLimit", 1);
+        ReflectionTestUtils.setField(admission, "maxLimit", 100);
+        ReflectionTestUtils.setField(admission, "alpha", 3);
+        ReflectionTestUtils.setField(admission, "beta", 6);
+        ReflectionTestUtils.setField(admission, "rttWindowMs", 60_000L);
+        ReflectionTestUtils.setField(admission, "bulkShare", 0.5);
+        ReflectionTestUtils.setField(admission, "interactiveMaxQueue", 10);
+        ReflectionTestUtils.setField(admission, "interactiveMaxWaitMs", 5000L);
+        ReflectionTestUtils.setField(admission, "bulkMaxQueue", 10);
+        ReflectionTestUtils.setField(admission, "bulkMaxWaitMs", 5000L);
+        admission.init();
+        return admission;
+    }
+
+    private double rejected(String lane) {
+        return meterRegistry.get("vector.admission.rejected").tag("lane", lane).counter().count();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(1);
+        }
+    }
+}
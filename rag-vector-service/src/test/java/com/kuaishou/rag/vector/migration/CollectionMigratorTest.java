@@ -0,0 +1,555 @@
+package com.kuaishou.rag.vector.migration;
+
+import com.kuaishou.rag.vector.cache.SearchCache;
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.dto.InsertResponse;
+import com.kuaishou.rag.vector.dto.MigrationRequest;
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import com.kuaishou.rag.vector.limit.AdmissionController;
+import com.kuaishou.rag.vector.store.VectorStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CollectionMigrator 测试：状态机、回填期间的双写、切换别名等待进行中的写入、删除重放、校验阈值、取消
+ *
+ * 引擎使用进程内替身 FakeStore（按主键有序存储，暴力检索），可在 scan / insert 中暂停以构造并发时序
+ */
+class CollectionMigratorTest {
+
+    private static final String COLLECTION = "rag_documents";
+
+    private static final int DIMENSION = 8;
+
+    private FakeStore store;
+
+    private CollectionMigrator migrator;
+
+    private final List<CollectionMigratedEvent> events = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        store = new FakeStore();
+        store.createCollection(COLLECTION, DIMENSION, "source");
+        store.insert(COLLECTION, rows("r", 30, new Random(7)));
+
+        AdmissionController admission = new AdmissionController();
+        ReflectionTestUtils.setField(admission, "enabled", false);
+        SearchCache searchCache = new SearchCache();
+
+        migrator = new CollectionMigrator();
+        ReflectionTestUtils.setField(migrator, "vectorStore", store);
+        ReflectionTestUtils.setField(migrator, "admission", admission);
+        ReflectionTestUtils.setField(migrator, "searchCache", searchCache);
+        ReflectionTestUtils.setField(migrator, "meterRegistry", new SimpleMeterRegistry());
+        ApplicationEventPublisher publisher = event -> events.add((CollectionMigratedEvent) event);
+        ReflectionTestUtils.setField(migrator, "eventPublisher", publisher);
+        ReflectionTestUtils.setField(migrator, "dimension", DIMENSION);
+        ReflectionTestUtils.setField(migrator, "batchSize", 10);
+        ReflectionTestUtils.setField(migrator, "parallelism", 2);
+        ReflectionTestUtils.setField(migrator, "maxRowsPerSecond", 0L);
+        ReflectionTestUtils.setField(migrator, "indexTimeoutMs", 10_000L);
+        ReflectionTestUtils.setField(migrator, "indexPollMs", 10L);
+        ReflectionTestUtils.setField(migrator, "sampleQueries", 20);
+        ReflectionTestUtils.setField(migrator, "verifyTopK", 5);
+        ReflectionTestUtils.setField(migrator, "verifyEf", 64);
+        ReflectionTestUtils.setField(migrator, "minRecall", 0.9);
+        ReflectionTestUtils.setField(migrator, "maxRowDiff", 0.0);
+        migrator.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.releaseAll();
+        migrator.destroy();
+    }
+
+    @Test
+    void copiesVerifiesAndSwapsAlias() throws Exception {
+        CollectionMigration migration = migrator.start(COLLECTION, new MigrationRequest());
+
+        awaitFinished(migration);
+
+        assertEquals(CollectionMigration.Phase.SWAPPED, migration.getPhase());
+        assertEquals(migration.getTarget(), store.resolveAlias(COLLECTION));
+        assertEquals(COLLECTION, migration.getPrevious());
+        assertEquals(30, store.countRows(migration.getTarget()));
+        assertEquals(30, migration.getCopiedRows().get());
+        assertEquals(1.0, migration.getRecall(), 1e-9);
+        // 阶段在事件发布之前切换为 SWAPPED，等事件送达
+        long deadline = System.currentTimeMillis() + 1000;
+        while (events.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, events.size());
+        assertEquals(migration.getTarget(), events.get(0).target());
+    }
+
+    @Test
+    void rejectsSecondMigrationWhileRunning() throws Exception {
+        store.pauseScan();
+        CollectionMigration migration = migrator.start(COLLECTION, new MigrationRequest());
+        store.awaitScanPaused();
+
+        assertThrows(IllegalStateException.class, () -> migrator.start(COLLECTION, new MigrationRequest()));
+
+        store.resumeScan();
+        awaitFinished(migration);
+        assertEquals(CollectionMigration.Phase.SWAPPED, migration.getPhase());
+    }
+
+    @Test
+    void mirrorsWritesDuringBackfill() throws Exception {
+        store.pauseScan();
+        CollectionMigration migration = migrator.start(COLLECTION, new MigrationRequest());
+        store.awaitScanPaused();
+        assertEquals(CollectionMigration.Phase.BACKFILLING, migration.getPhase());
+
+        InsertResponse response = migrator.insert(COLLECTION, rows("w", 3, new Random(11)));
+
+        assertTrue(response.isSuccess());
+        assertEquals(3, migration.getMirroredRows().get());
+        assertTrue(store.contains(migration.getTarget(), "w-00"));
+
+        store.resumeScan();
+        awaitFinished(migration);
+        assertEquals(CollectionMigration.Phase.SWAPPED, migration.getPhase());
+        assertEquals(33, store.countRows(migration.getTarget()));
+    }
+
+    @Test
+    void swapWaitsForInflightWrite() throws Exception {
+        store.pauseScan();
+        CollectionMigration migration = migrator.start(COLLECTION, new MigrationRequest());
+        store.awaitScanPaused();
+
+        // 主写入在读锁内阻塞：回填与校验照常进行，切换别名必须等它连同镜像写入一起完成
+        store.pauseInsert(id -> id.startsWith("slow"));
+        Thread writer = new Thread(() -> migrator.insert(COLLECTION, rows("slow", 1, new Random(13))));
+        writer.start();
+        store.awaitInsertPaused();
+        store.resumeScan();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (migration.getPhase() != CollectionMigration.Phase.VERIFYING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(200);
+        assertEquals(CollectionMigration.Phase.VERIFYING, migration.getPhase());
+        assertEquals(COLLECTION, store.resolveAlias(COLLECTION));
+
+        store.resumeInsert();
+        writer.join(5_000);
+        awaitFinished(migration);
+        assertEquals(CollectionMigration.Phase.SWAPPED, migration.getPhase());
+        assertTrue(store.contains(migration.getTarget(), "slow-00"));
+    }
+
+    @Test
+    void replaysDeletesOverBackfilledRows() throws Exception {
+        // 第一页读出后、写入目标前暂停，期间删除其中一行：回填会把它写回，结束后由删除重放去掉
+        store.pauseScan();
+        CollectionMigration migration = migrator.start(COLLECTION, new MigrationRequest());
+        store.awaitScanPaused();
+
+        assertTrue(migrator.deleteByIds(COLLECTION, List.of("r-00")));
+        assertTrue(migrator.deleteByDocId(COLLECTION, "doc-r-01"));
+
+        store.resumeScan();
+        awaitFinished(migration);
+
+        assertEquals(CollectionMigration.Phase.SWAPPED, migration.getPhase());
+        assertFalse(store.contains(migration.getTarget(), "r-00"));
+        assertFalse(store.contains(migration.getTarget(), "r-01"));
+        assertEquals(28, store.countRows(migration.getTarget()));
+        assertEquals(0, migration.getMirrorFailures().get());
+    }
+
+    @Test
+    void failsWhenRowCountDiffers() throws Exception {
+        store.dropUpserts(id -> id.equals("r-05"));
+
+        CollectionMigration migration = migrator.start(COLLECTION, new MigrationRequest());
+        awaitFinished(migration);
+
+        assertEquals(CollectionMigration.Phase.FAILED, migration.getPhase());
+        assertTrue(migration.getError().contains("行数不一致"), migration.getError());
+        assertEquals(COLLECTION, store.resolveAlias(COLLECTION));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void failsWhenRecallBelowThreshold() throws Exception {
+        store.scrambleUpserts();
+
+        CollectionMigration migration = migrator.start(COLLECTION, new MigrationRequest());
+        awaitFinished(migration);
+
+        assertEquals(CollectionMigration.Phase.FAILED, migration.getPhase());
+        assertTrue(migration.getError().contains("召回率"), migration.getError());
+        assertTrue(migration.getRecall() < 0.9);
+        assertEquals(COLLECTION, store.resolveAlias(COLLECTION));
+    }
+
+    @Test
+    void failsWhenMirrorWriteFailed() throws Exception {
+        store.pauseScan();
+        CollectionMigration migration = migrator.start(COLLECTION, new MigrationRequest());
+        store.awaitScanPaused();
+        store.failUpserts(true);
+
+        assertTrue(migrator.insert(COLLECTION, rows("w", 1, new Random(17))).isSuccess());
+        assertEquals(1, migration.getMirrorFailures().get());
+
+        store.failUpserts(false);
+        store.resumeScan();
+        awaitFinished(migration);
+        assertEquals(CollectionMigration.Phase.FAILED, migration.getPhase());
+        assertTrue(migration.getError().contains("双写失败"), migration.getError());
+    }
+
+    @Test
+    void cancelStopsWithoutSwapping() throws Exception {
+        store.pauseScan();
+        CollectionMigration migration = migrator.start(COLLECTION, new MigrationRequest());
+        store.awaitScanPaused();
+
+        assertTrue(migrator.cancel(COLLECTION));
+        store.resumeScan();
+        awaitFinished(migration);
+
+        assertEquals(CollectionMigration.Phase.CANCELLED, migration.getPhase());
+        assertEquals(COLLECTION, store.resolveAlias(COLLECTION));
+        assertFalse(migrator.cancel(COLLECTION));
+        // 取消后写入不再镜像
+        migrator.insert(COLLECTION, rows("late", 1, new Random(19)));
+        assertFalse(store.contains(migration.getTarget(), "late-00"));
+    }
+
+    @Test
+    void rejectsDimensionChangeWithoutReembed() {
+        MigrationRequest request = new MigrationRequest();
+        request.setDimension(DIMENSION * 2);
+        request.setReembed(false);
+
+        assertThrows(IllegalArgumentException.class, () -> migrator.start(COLLECTION, request));
+
+        request.setReembed(null);
+        // 维度变化需要重新生成向量，本进程没有 VectorTransform
+        assertThrows(IllegalArgumentException.class, () -> migrator.start(COLLECTION, request));
+    }
+
+    private static void awaitFinished(CollectionMigration migration) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (migration.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(migration.isRunning(), "migration still running in phase " + migration.getPhase());
+    }
+
+    private static InsertRequest rows(String prefix, int count, Random random) {
+        InsertRequest request = new InsertRequest();
+        List<String> ids = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        List<String> docIds = new ArrayList<>();
+        List<String> metadata = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String id = String.format("%s-%02d", prefix, i);
+            ids.add(id);
+            vectors.add(vector(random));
+            contents.add("content " + id);
+            docIds.add("doc-" + id);
+            metadata.add("{}");
+        }
+        request.setIds(ids);
+        request.setVectors(vectors);
+        request.setContents(contents);
+        request.setDocIds(docIds);
+        request.setMetadataList(metadata);
+        return request;
+    }
+
+    private static float[] vector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private record Row(float[] vector, String content, String docId, String metadata) {
+    }
+
+    /**
+     * 进程内引擎替身：支持迁移所需的 scan / upsert / 别名，可在 scan 返回前、insert 写入前暂停
+     */
+    private static class FakeStore implements VectorStore {
+
+        private final Map<String, TreeMap<String, Row>> collections = new ConcurrentHashMap<>();
+
+        private final Map<String, String> aliases = new ConcurrentHashMap<>();
+
+        private final Random scramble = new Random(23);
+
+        private volatile CountDownLatch scanPaused;
+        private volatile CountDownLatch scanResume;
+
+        private volatile Predicate<String> insertPause;
+        private volatile CountDownLatch insertPaused;
+        private volatile CountDownLatch insertResume;
+
+        private volatile Predicate<String> droppedUpserts = id -> false;
+        private volatile boolean scrambled;
+        private volatile boolean failing;
+
+        void pauseScan() {
+            scanPaused = new CountDownLatch(1);
+            scanResume = new CountDownLatch(1);
+        }
+
+        void awaitScanPaused() throws InterruptedException {
+            assertTrue(scanPaused.await(5, TimeUnit.SECONDS));
+        }
+
+        void resumeScan() {
+            scanResume.countDown();
+        }
+
+        void pauseInsert(Predicate<String> ids) {
+            insertPaused = new CountDownLatch(1);
+            insertResume = new CountDownLatch(1);
+            insertPause = ids;
+        }
+
+        void awaitInsertPaused() throws InterruptedException {
+            assertTrue(insertPaused.await(5, TimeUnit.SECONDS));
+        }
+
+        void resumeInsert() {
+            insertResume.countDown();
+        }
+
+        void releaseAll() {
+            if (scanResume != null) {
+                scanResume.countDown();
+            }
+            if (insertResume != null) {
+                insertResume.countDown();
+            }
+        }
+
+        void dropUpserts(Predicate<String> ids) {
+            droppedUpserts = ids;
+        }
+
+        void scrambleUpserts() {
+            scrambled = true;
+        }
+
+        void failUpserts(boolean failing) {
+            this.failing = failing;
+        }
+
+        boolean contains(String collectionName, String id) {
+            TreeMap<String, Row> rows = rows(collectionName);
+            synchronized (rows) {
+                return rows.containsKey(id);
+            }
+        }
+
+        private TreeMap<String, Row> rows(String collectionName) {
+            return collections.get(resolveAlias(collectionName));
+        }
+
+        @Override
+        public boolean createCollection(String collectionName, int dimension, String desc) {
+            collections.putIfAbsent(collectionName, new TreeMap<>());
+            return true;
+        }
+
+        @Override
+        public boolean loadCollection(String collectionName) {
+            return true;
+        }
+
+        @Override
+        public InsertResponse insert(String collectionName, InsertRequest request) {
+            Predicate<String> pause = insertPause;
+            if (pause != null && request.getIds().stream().anyMatch(pause)) {
+                insertPause = null;
+                insertPaused.countDown();
+                await(insertResume);
+            }
+            write(collectionName, request, false);
+            return InsertResponse.success(request.getIds().size(), null);
+        }
+
+        @Override
+        public InsertResponse upsert(String collectionName, InsertRequest request) {
+            if (failing) {
+                return InsertResponse.error("upsert failed");
+            }
+            write(collectionName, request, true);
+            return InsertResponse.success(request.getIds().size(), null);
+        }
+
+        private void write(String collectionName, InsertRequest request, boolean upsert) {
+            TreeMap<String, Row> rows = rows(collectionName);
+            synchronized (rows) {
+                for (int i = 0; i < request.getIds().size(); i++) {
+                    String id = request.getIds().get(i);
+                    if (upsert && droppedUpserts.test(id)) {
+                        continue;
+                    }
+                    float[] vector = upsert && scrambled ? vector(scramble) : request.getVectors().get(i);
+                    rows.put(id, new Row(vector, request.getContents().get(i), request.getDocIds().get(i),
+                        request.getMetadataList().get(i)));
+                }
+            }
+        }
+
+        @Override
+        public boolean flush(String collectionName) {
+            return true;
+        }
+
+        @Override
+        public List<SearchResponse> search(String collectionName, List<SearchRequest> requests) {
+            TreeMap<String, Row> rows = rows(collectionName);
+            List<SearchResponse> responses = new ArrayList<>();
+            for (SearchRequest request : requests) {
+                List<SearchResponse.SearchResult> results = new ArrayList<>();
+                synchronized (rows) {
+                    rows.forEach((id, row) -> {
+                        SearchResponse.SearchResult result = new SearchResponse.SearchResult();
+                        result.setId(id);
+                        result.setScore(dot(request.getVector(), row.vector()));
+                        results.add(result);
+                    });
+                }
+                results.sort(Comparator.comparing(SearchResponse.SearchResult::getScore).reversed());
+                responses.add(SearchResponse.success(
+                    new ArrayList<>(results.subList(0, Math.min(request.getTopK(), results.size())))));
+            }
+            return responses;
+        }
+
+        @Override
+        public boolean deleteByIds(String collectionName, List<String> ids) {
+            TreeMap<String, Row> rows = rows(collectionName);
+            synchronized (rows) {
+                ids.forEach(rows::remove);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean deleteByDocId(String collectionName, String docId) {
+            TreeMap<String, Row> rows = rows(collectionName);
+            synchronized (rows) {
+                rows.values().removeIf(row -> row.docId().equals(docId));
+            }
+            return true;
+        }
+
+        @Override
+        public boolean supportsMigration() {
+            return true;
+        }
+
+        @Override
+        public InsertRequest scan(String collectionName, String afterId, int limit) {
+            InsertRequest page = new InsertRequest();
+            List<String> ids = new ArrayList<>();
+            List<float[]> vectors = new ArrayList<>();
+            List<String> contents = new ArrayList<>();
+            List<String> docIds = new ArrayList<>();
+            List<String> metadata = new ArrayList<>();
+            TreeMap<String, Row> rows = rows(collectionName);
+            synchronized (rows) {
+                Map<String, Row> tail = afterId == null ? rows : rows.tailMap(afterId, false);
+                for (Map.Entry<String, Row> entry : tail.entrySet()) {
+                    if (ids.size() >= limit) {
+                        break;
+                    }
+                    ids.add(entry.getKey());
+                    vectors.add(entry.getValue().vector());
+                    contents.add(entry.getValue().content());
+                    docIds.add(entry.getValue().docId());
+                    metadata.add(entry.getValue().metadata());
+                }
+            }
+            page.setIds(ids);
+            page.setVectors(vectors);
+            page.setContents(contents);
+            page.setDocIds(docIds);
+            page.setMetadataList(metadata);
+            // 迁移发起时读首行判断维度（limit 1）不暂停，只暂停回填的第一页
+            CountDownLatch paused = scanPaused;
+            if (paused != null && limit > 1 && paused.getCount() > 0) {
+                paused.countDown();
+                await(scanResume);
+            }
+            return page;
+        }
+
+        @Override
+        public long countRows(String collectionName) {
+            TreeMap<String, Row> rows = rows(collectionName);
+            synchronized (rows) {
+                return rows.size();
+            }
+        }
+
+        @Override
+        public String resolveAlias(String name) {
+            return aliases.getOrDefault(name, name);
+        }
+
+        @Override
+        public String swapAlias(String alias, String collectionName) {
+            String previous = resolveAlias(alias);
+            aliases.put(alias, collectionName);
+            return previous;
+        }
+
+        private static float dot(float[] a, float[] b) {
+            float sum = 0;
+            for (int i = 0; i < a.length; i++) {
+                sum += a[i] * b[i];
+            }
+            return sum;
+        }
+
+        private static void await(CountDownLatch latch) {
+            try {
+                latch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.kuaishou.rag.vector.rerank;
+
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.kuaishou.rag.vector.rerank.LexicalBlendScorerTest.candidate;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CandidateReranker 测试：检索分数按候选集归一化，预算耗尽时分数仍与顺序一致
+ */
+class CandidateRerankerTest {
+
+    private static final float DELTA = 1e-6f;
+
+    private CandidateReranker reranker;
+
+    @AfterEach
+    void tearDown() {
+        if (reranker != null) {
+            reranker.destroy();
+        }
+    }
+
+    @Test
+    void normalizesSimilarityScores() {
+        List<SearchResponse.SearchResult> candidates = list(candidate("a", 0.9f), candidate("b", 0.7f), candidate("c", 0.5f));
+
+        CandidateReranker.normalize(candidates);
+
+        assertScores(candidates, 1f, 0.5f, 0f);
+    }
+
+    @Test
+    void normalizesDistanceScores() {
+        // L2 距离越小越好，检索顺序为升序
+        List<SearchResponse.SearchResult> candidates = list(candidate("a", 0.2f), candidate("b", 0.6f), candidate("c", 1.0f));
+
+        CandidateReranker.normalize(candidates);
+
+        assertScores(candidates, 1f, 0.5f, 0f);
+    }
+
+    @Test
+    void equalScoresNormalizeToOne() {
+        List<SearchResponse.SearchResult> candidates = list(candidate("a", 0.016f), candidate("b", 0.016f));
+
+        CandidateReranker.normalize(candidates);
+
+        assertScores(candidates, 1f, 1f);
+    }
+
+    @Test
+    void lexicalMatchLiftsDistanceRankedCandidate() {
+        reranker = newReranker(0.5, 1000);
+        List<SearchResponse.SearchResult> candidates = list(
+            candidate("generic text", 0.10f), candidate("error E1024 disk", 0.11f), candidate("other", 0.50f));
+
+        List<SearchResponse.SearchResult> reranked = reranker.rerank("E1024", candidates, 2);
+
+        assertEquals("error E1024 disk", reranked.get(0).getContent());
+        assertEquals(2, reranked.size());
+    }
+
+    @Test
+    void rrfScoresAreNotDrownedByLexicalWeight() {
+        // RRF 分数量级约 1/60，未归一化时只要覆盖率稍高就会压过检索排序
+        reranker = newReranker(0.3, 1000);
+        List<SearchResponse.SearchResult> candidates = list(
+            candidate("alpha beta", 1f / 61), candidate("alpha", 1f / 62), candidate("alpha beta", 1f / 90));
+
+        List<SearchResponse.SearchResult> reranked = reranker.rerank("alpha beta", candidates, 3);
+
+        assertEquals(1f, reranked.get(0).getScore(), DELTA);
+        assertEquals("alpha beta", reranked.get(0).getContent());
+        assertEquals("alpha", reranked.get(1).getContent());
+    }
+
+    @Test
+    void exhaustedBudgetKeepsOrderAndConsistentScores() {
+        reranker = newReranker(0.3, 0);
+        List<SearchResponse.SearchResult> candidates = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            candidates.add(candidate("text " + i, 1f - i * 0.01f));
+        }
+
+        List<SearchResponse.SearchResult> reranked = reranker.rerank("text", candidates, 40);
+
+        assertEquals(40, reranked.size());
+        for (int i = 1; i < reranked.size(); i++) {
+            assertTrue(reranked.get(i).getScore() <= reranked.get(i - 1).getScore(), "scores out of order at " + i);
+            assertTrue(reranked.get(i).getScore() >= 0 && reranked.get(i).getScore() <= 1);
+        }
+    }
+
+    private static CandidateReranker newReranker(double lexicalWeight, long budgetMs) {
+        CandidateReranker reranker = new CandidateReranker();
+        ReflectionTestUtils.setField(reranker, "scorer", new LexicalBlendScorer(lexicalWeight));
+        ReflectionTestUtils.setField(reranker, "enabled", true);
+        ReflectionTestUtils.setField(reranker, "threads", 2);
+        ReflectionTestUtils.setField(reranker, "queueCapacity", 16);
+        ReflectionTestUtils.setField(reranker, "chunkSize", 16);
+        ReflectionTestUtils.setField(reranker, "budgetMs", budgetMs);
+        ReflectionTestUtils.setField(reranker, "maxCandidates", 200);
+        reranker.init();
+        return reranker;
+    }
+
+    private static List<SearchResponse.SearchResult> list(SearchResponse.SearchResult... results) {
+        return new ArrayList<>(List.of(results));
+    }
+
+    private static void assertScores(List<SearchResponse.SearchResult> candidates, float... expected) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], candidates.get(i).getScore(), DELTA);
+        }
+    }
+}
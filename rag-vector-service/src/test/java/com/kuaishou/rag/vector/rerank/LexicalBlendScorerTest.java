@@ -0,0 +1,76 @@
+package com.kuaishou.rag.vector.rerank;
+
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LexicalBlendScorer 测试：确定性打分，覆盖率与归一化检索分数按权重混合
+ */
+class LexicalBlendScorerTest {
+
+    private static final float DELTA = 1e-6f;
+
+    @Test
+    void blendsCoverageWithAnnScore() {
+        LexicalBlendScorer scorer = new LexicalBlendScorer(0.5);
+
+        float[] scores = scorer.score("error code E1024", List.of(
+            candidate("error code E1024 means disk full", 0.2f),
+            candidate("unrelated text", 1f)));
+
+        assertEquals(0.5f * 1 + 0.5f * 0.2f, scores[0], DELTA);
+        assertEquals(0.5f * 0 + 0.5f * 1f, scores[1], DELTA);
+    }
+
+    @Test
+    void partialCoverage() {
+        LexicalBlendScorer scorer = new LexicalBlendScorer(1.0);
+
+        float[] scores = scorer.score("alpha beta", List.of(candidate("alpha gamma", 0f)));
+
+        assertEquals(0.5f, scores[0], DELTA);
+    }
+
+    @Test
+    void zeroWeightKeepsAnnScore() {
+        LexicalBlendScorer scorer = new LexicalBlendScorer(0);
+
+        float[] scores = scorer.score("alpha", List.of(candidate("alpha", 0.3f), candidate(null, 0.7f)));
+
+        assertArrayEquals(new float[]{0.3f, 0.7f}, scores, DELTA);
+    }
+
+    @Test
+    void sameInputSameOutput() {
+        LexicalBlendScorer scorer = new LexicalBlendScorer(0.3);
+        List<SearchResponse.SearchResult> candidates = List.of(
+            candidate("向量检索 召回率", 0.9f), candidate("召回", 0.4f), candidate("", 0.1f));
+
+        assertArrayEquals(scorer.score("向量检索的召回率", candidates), scorer.score("向量检索的召回率", candidates));
+    }
+
+    @Test
+    void scoresStayInUnitRange() {
+        LexicalBlendScorer scorer = new LexicalBlendScorer(0.3);
+
+        // 未归一化的分数（如 L2 距离）被截断到 [0, 1]，不会压过覆盖率
+        float[] scores = scorer.score("alpha", List.of(candidate("alpha", 42f), candidate("beta", -3f)));
+
+        for (float score : scores) {
+            assertTrue(score >= 0 && score <= 1, "score out of range: " + score);
+        }
+    }
+
+    static SearchResponse.SearchResult candidate(String content, Float score) {
+        SearchResponse.SearchResult result = new SearchResponse.SearchResult();
+        result.setContent(content);
+        result.setScore(score);
+        return result;
+    }
+}
@@ -0,0 +1,169 @@
+package com.kuaishou.rag.vector.service;
+
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.dto.InsertResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * InsertBuffer 测试：合并、按行数 / 按时间发送、按调用方确认、失败扇出、单个调用方的非法请求隔离
+ */
+class InsertBufferTest {
+
+    private static final String COLLECTION = "rag_documents";
+
+    private final List<InsertRequest> written = new CopyOnWriteArrayList<>();
+
+    private InsertBuffer buffer;
+
+    @AfterEach
+    void tearDown() {
+        if (buffer != null) {
+            buffer.shutdown();
+        }
+    }
+
+    @Test
+    void mergesCallersIntoOneBatch() {
+        buffer = newBuffer(recording(), 100, 60_000);
+
+        CompletableFuture<InsertResponse> first = buffer.submit(COLLECTION, request("a", 2));
+        CompletableFuture<InsertResponse> second = buffer.submit(COLLECTION, request("b", 3));
+        InsertResponse drained = buffer.drain(COLLECTION).join();
+
+        assertTrue(drained.isSuccess());
+        assertEquals(5, drained.getInsertCount());
+        assertEquals(1, written.size());
+        assertEquals(List.of("a-0", "a-1", "b-0", "b-1", "b-2"), written.get(0).getIds());
+        // 缺省列按行数补默认值
+        assertEquals(Collections.nCopies(5, "{}"), written.get(0).getMetadataList());
+        assertSame(first.join(), second.join());
+    }
+
+    @Test
+    void sendsWhenBatchIsFull() throws Exception {
+        buffer = newBuffer(recording(), 4, 60_000);
+
+        CompletableFuture<InsertResponse> first = buffer.submit(COLLECTION, request("a", 2));
+        assertFalse(first.isDone());
+        CompletableFuture<InsertResponse> second = buffer.submit(COLLECTION, request("b", 2));
+
+        assertTrue(second.get(5, TimeUnit.SECONDS).isSuccess());
+        assertTrue(first.isDone());
+        assertEquals(4, written.get(0).getIds().size());
+    }
+
+    @Test
+    void sendsWhenOldestRowExpires() throws Exception {
+        buffer = newBuffer(recording(), 1000, 50);
+
+        InsertResponse response = buffer.submit(COLLECTION, request("a", 1)).get(5, TimeUnit.SECONDS);
+
+        assertTrue(response.isSuccess());
+        assertEquals(List.of("a-0"), written.get(0).getIds());
+    }
+
+    @Test
+    void acksBelongToTheCallersBatch() throws Exception {
+        buffer = newBuffer(recording(), 2, 60_000);
+
+        CompletableFuture<InsertResponse> first = buffer.submit(COLLECTION, request("a", 2));
+        CompletableFuture<InsertResponse> second = buffer.submit(COLLECTION, request("b", 1));
+
+        assertEquals(2, first.get(5, TimeUnit.SECONDS).getInsertCount());
+        assertFalse(second.isDone());
+        assertEquals(1, buffer.drain(COLLECTION).join().getInsertCount());
+        assertEquals(1, second.join().getInsertCount());
+        assertNotSame(first.join(), second.join());
+    }
+
+    @Test
+    void failedBatchFansOutToAllCallers() {
+        buffer = newBuffer((collection, request) -> InsertResponse.error("engine down"), 100, 60_000);
+
+        CompletableFuture<InsertResponse> first = buffer.submit(COLLECTION, request("a", 1));
+        CompletableFuture<InsertResponse> second = buffer.submit(COLLECTION, request("b", 1));
+        InsertResponse drained = buffer.drain(COLLECTION).join();
+
+        assertFalse(drained.isSuccess());
+        assertEquals("engine down", first.join().getMessage());
+        assertEquals("engine down", second.join().getMessage());
+    }
+
+    @Test
+    void writerExceptionFansOutToAllCallers() {
+        buffer = newBuffer((collection, request) -> {
+            throw new IllegalStateException("boom");
+        }, 100, 60_000);
+
+        CompletableFuture<InsertResponse> first = buffer.submit(COLLECTION, request("a", 1));
+        CompletableFuture<InsertResponse> second = buffer.submit(COLLECTION, request("b", 1));
+        buffer.drain(COLLECTION);
+
+        assertThrows(CompletionException.class, first::join);
+        assertThrows(CompletionException.class, second::join);
+    }
+
+    @Test
+    void rejectsOnlyTheMalformedCaller() {
+        buffer = newBuffer(recording(), 100, 60_000);
+
+        CompletableFuture<InsertResponse> good = buffer.submit(COLLECTION, request("a", 2));
+        InsertRequest malformed = request("b", 2);
+        malformed.setContents(List.of("only one"));
+        CompletableFuture<InsertResponse> bad = buffer.submit(COLLECTION, malformed);
+
+        assertTrue(bad.isDone());
+        assertFalse(bad.join().isSuccess());
+        assertTrue(bad.join().getMessage().contains("长度不一致"));
+
+        assertTrue(buffer.drain(COLLECTION).join().isSuccess());
+        assertTrue(good.join().isSuccess());
+        assertEquals(List.of("a-0", "a-1"), written.get(0).getIds());
+        assertEquals(2, written.get(0).getContents().size());
+    }
+
+    @Test
+    void drainWithoutDataSucceeds() {
+        buffer = newBuffer(recording(), 100, 60_000);
+
+        assertTrue(buffer.drain(COLLECTION).join().isSuccess());
+        assertTrue(written.isEmpty());
+    }
+
+    private BiFunction<String, InsertRequest, InsertResponse> recording() {
+        return (collection, request) -> {
+            written.add(request);
+            return InsertResponse.success(request.getIds().size(), null);
+        };
+    }
+
+    private static InsertBuffer newBuffer(BiFunction<String, InsertRequest, InsertResponse> writer,
+                                          int batchRows, long maxDelayMillis) {
+        return new InsertBuffer(writer, batchRows, maxDelayMillis, 10_000, 2);
+    }
+
+    private static InsertRequest request(String prefix, int rows) {
+        InsertRequest request = new InsertRequest();
+        request.setIds(IntStream.range(0, rows).mapToObj(i -> prefix + "-" + i).toList());
+        request.setVectors(IntStream.range(0, rows).mapToObj(i -> new float[]{i, 1f}).toList());
+        request.setContents(Collections.nCopies(rows, "content"));
+        return request;
+    }
+}
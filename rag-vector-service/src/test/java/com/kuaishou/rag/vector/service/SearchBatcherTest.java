@@ -0,0 +1,143 @@
+package com.kuaishou.rag.vector.service;
+
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * SearchBatcher 测试：窗口内合批、达到批大小立即发送、结果按下标拆回、批次之间的失败隔离、停止时发送未到期批次
+ *
+ * 执行函数把每个请求的 topK 作为结果消息返回，用来核对结果与调用方一一对应
+ */
+class SearchBatcherTest {
+
+    private final List<Batch> batches = new CopyOnWriteArrayList<>();
+
+    private SearchBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+    }
+
+    @Test
+    void requestsWithinWindowShareOneBatch() throws Exception {
+        batcher = new SearchBatcher(echo(), 50, 100, 2);
+
+        List<CompletableFuture<SearchResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(batcher.submit("docs", request(i)));
+        }
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(String.valueOf(i), futures.get(i).get(1, TimeUnit.SECONDS).getMessage());
+        }
+        assertEquals(1, batches.size());
+        assertEquals(5, batches.get(0).size());
+    }
+
+    @Test
+    void fullBatchIsSentWithoutWaitingForWindow() throws Exception {
+        batcher = new SearchBatcher(echo(), 60_000, 3, 2);
+
+        List<CompletableFuture<SearchResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(batcher.submit("docs", request(i)));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.valueOf(i), futures.get(i).get(1, TimeUnit.SECONDS).getMessage());
+        }
+        // 第 4 个请求进入新批次，窗口未到不发送
+        assertFalse(futures.get(3).isDone());
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).size());
+    }
+
+    @Test
+    void collectionsAreBatchedSeparately() throws Exception {
+        batcher = new SearchBatcher(echo(), 30, 100, 2);
+
+        CompletableFuture<SearchResponse> a = batcher.submit("a", request(1));
+        CompletableFuture<SearchResponse> b = batcher.submit("b", request(2));
+
+        assertEquals("1", a.get(1, TimeUnit.SECONDS).getMessage());
+        assertEquals("2", b.get(1, TimeUnit.SECONDS).getMessage());
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    void failedBatchFailsOnlyItsOwnCallers() throws Exception {
+        BiFunction<String, List<SearchRequest>, List<SearchResponse>> echo = echo();
+        batcher = new SearchBatcher((collection, requests) -> {
+            if (collection.equals("broken")) {
+                throw new IllegalStateException("engine down");
+            }
+            return echo.apply(collection, requests);
+        }, 30, 100, 2);
+
+        CompletableFuture<SearchResponse> failed1 = batcher.submit("broken", request(1));
+        CompletableFuture<SearchResponse> failed2 = batcher.submit("broken", request(2));
+        CompletableFuture<SearchResponse> ok = batcher.submit("docs", request(3));
+
+        assertEquals("3", ok.get(1, TimeUnit.SECONDS).getMessage());
+        for (CompletableFuture<SearchResponse> future : List.of(failed1, failed2)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+            assertEquals("engine down", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    void shutdownFlushesPendingBatch() throws Exception {
+        batcher = new SearchBatcher(echo(), 60_000, 100, 2);
+        CompletableFuture<SearchResponse> future = batcher.submit("docs", request(7));
+
+        batcher.shutdown();
+
+        assertEquals("7", future.get(1, TimeUnit.SECONDS).getMessage());
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).size());
+    }
+
+    private BiFunction<String, List<SearchRequest>, List<SearchResponse>> echo() {
+        return (collection, requests) -> {
+            batches.add(new Batch(collection, List.copyOf(requests)));
+            List<SearchResponse> responses = new ArrayList<>(requests.size());
+            for (SearchRequest request : requests) {
+                SearchResponse response = SearchResponse.success(List.of());
+                response.setMessage(String.valueOf(request.getTopK()));
+                responses.add(response);
+            }
+            return responses;
+        };
+    }
+
+    private static SearchRequest request(int topK) {
+        SearchRequest request = new SearchRequest();
+        request.setVector(new float[]{1f, 0f});
+        request.setTopK(topK);
+        return request;
+    }
+
+    private record Batch(String collection, List<SearchRequest> requests) {
+
+        int size() {
+            return requests.size();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.kuaishou.rag.vector.service;
+
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.dto.InsertResponse;
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import com.kuaishou.rag.vector.limit.AdmissionController;
+import com.kuaishou.rag.vector.store.VectorStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * SearchEfController 测试：按本轮延迟 / 召回率调整 scale，没有新数据的轮次不调整，显式 ef 与过滤查询的初始值
+ *
+ * 引擎替身按 approxHits 返回近似结果中与精确 TopK 重合的条数，exactTopK 返回 null 模拟范围超过上限
+ */
+class SearchEfControllerTest {
+
+    private static final String COLLECTION = "rag_documents";
+
+    private static final int TOP_K = 10;
+
+    private final FakeStore store = new FakeStore();
+
+    private SearchEfController controller;
+
+    @BeforeEach
+    void setUp() {
+        AdmissionController admission = new AdmissionController();
+        ReflectionTestUtils.setField(admission, "enabled", false);
+
+        controller = new SearchEfController();
+        ReflectionTestUtils.setField(controller, "vectorStore", store);
+        ReflectionTestUtils.setField(controller, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(controller, "admission", admission);
+        ReflectionTestUtils.setField(controller, "baseEf", 100);
+        ReflectionTestUtils.setField(controller, "enabled", true);
+        ReflectionTestUtils.setField(controller, "minEf", 10);
+        ReflectionTestUtils.setField(controller, "maxEf", 1000);
+        ReflectionTestUtils.setField(controller, "latencySloMs", 50.0);
+        ReflectionTestUtils.setField(controller, "targetRecall", 0.95);
+        ReflectionTestUtils.setField(controller, "filteredBoost", 1.5);
+        ReflectionTestUtils.setField(controller, "recallSampleRate", 0.0);
+        ReflectionTestUtils.setField(controller, "recallSamplesPerRound", 4);
+        ReflectionTestUtils.setField(controller, "groundTruthMaxRows", 5000L);
+        ReflectionTestUtils.setField(controller, "minLatencySamples", 20);
+    }
+
+    @Test
+    void explicitEfIsKept() {
+        SearchRequest request = request();
+        request.setEf(77);
+
+        assertEquals(77, controller.chooseEf(COLLECTION, request));
+        assertSame(request, controller.withChosenEf(COLLECTION, request));
+    }
+
+    @Test
+    void chosenEfIsSetOnACopy() {
+        SearchRequest request = request();
+
+        SearchRequest tuned = controller.withChosenEf(COLLECTION, request);
+
+        assertNotSame(request, tuned);
+        assertNull(request.getEf());
+        assertEquals(100, tuned.getEf());
+    }
+
+    @Test
+    void filteredQueriesStartWithBoost() {
+        SearchRequest filtered = request();
+        filtered.setFilterExpr("doc_id == 'd1'");
+
+        assertEquals(150, controller.chooseEf(COLLECTION, filtered));
+        assertEquals(100, controller.chooseEf(COLLECTION, request()));
+    }
+
+    @Test
+    void slowRoundShrinksEfOnceThenIdleRoundsKeepIt() {
+        recordLatencies(30, 80);
+
+        adjust();
+        assertEquals(80, controller.chooseEf(COLLECTION, request()));
+
+        // 没有新样本：旧的慢查询不会继续下调
+        adjust();
+        adjust();
+        assertEquals(80, controller.chooseEf(COLLECTION, request()));
+    }
+
+    @Test
+    void fewNewSamplesAreCarriedOverToNextRound() {
+        recordLatencies(10, 80);
+        adjust();
+        assertEquals(100, controller.chooseEf(COLLECTION, request()));
+
+        recordLatencies(10, 80);
+        adjust();
+        assertEquals(80, controller.chooseEf(COLLECTION, request()));
+    }
+
+    @Test
+    void fastRoundAfterSlowRoundDoesNotShrink() {
+        recordLatencies(30, 80);
+        adjust();
+        recordLatencies(30, 5);
+        adjust();
+
+        assertEquals(80, controller.chooseEf(COLLECTION, request()));
+    }
+
+    @Test
+    void lowRecallGrowsEf() {
+        ReflectionTestUtils.setField(controller, "recallSampleRate", 1.0);
+        store.approxHits = 5;
+        controller.record(COLLECTION, request(), TimeUnit.MILLISECONDS.toNanos(5));
+
+        adjust();
+
+        assertEquals(125, controller.chooseEf(COLLECTION, request()));
+        // 本轮没有新的召回评估，不再上调
+        adjust();
+        assertEquals(125, controller.chooseEf(COLLECTION, request()));
+    }
+
+    @Test
+    void surplusRecallWithFastLatencyShrinksSlowly() {
+        ReflectionTestUtils.setField(controller, "recallSampleRate", 1.0);
+        store.approxHits = TOP_K;
+        recordLatencies(30, 5);
+
+        adjust();
+
+        assertEquals(95, controller.chooseEf(COLLECTION, request()));
+    }
+
+    @Test
+    void oversizedGroundTruthIsSkipped() {
+        ReflectionTestUtils.setField(controller, "recallSampleRate", 1.0);
+        store.approxHits = 0;
+        store.exactAvailable = false;
+        controller.record(COLLECTION, request(), TimeUnit.MILLISECONDS.toNanos(5));
+
+        adjust();
+
+        assertEquals(100, controller.chooseEf(COLLECTION, request()));
+        assertEquals(5000L, store.lastMaxRows);
+    }
+
+    @Test
+    void efStaysWithinBounds() {
+        for (int round = 0; round < 50; round++) {
+            recordLatencies(30, 500);
+            adjust();
+        }
+
+        // scale 下限 minEf / baseEf，ef 也不低于 topK
+        assertEquals(TOP_K, controller.chooseEf(COLLECTION, request()));
+    }
+
+    private void recordLatencies(int count, long millis) {
+        for (int i = 0; i < count; i++) {
+            controller.record(COLLECTION, request(), TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+
+    private void adjust() {
+        ReflectionTestUtils.invokeMethod(controller, "adjustAll");
+    }
+
+    private static SearchRequest request() {
+        SearchRequest request = new SearchRequest();
+        request.setVector(new float[]{1f, 0f});
+        request.setTopK(TOP_K);
+        request.setCandidateMultiplier(1);
+        return request;
+    }
+
+    /**
+     * 近似搜索返回 approxHits 条与精确 TopK（e0..e9）重合的结果，其余为不在精确结果中的 id
+     */
+    private static class FakeStore implements VectorStore {
+
+        volatile int approxHits;
+
+        volatile boolean exactAvailable = true;
+
+        volatile long lastMaxRows;
+
+        @Override
+        public List<String> exactTopK(String collectionName, SearchRequest request, long maxRows) {
+            lastMaxRows = maxRows;
+            return exactAvailable ? IntStream.range(0, TOP_K).mapToObj(i -> "e" + i).toList() : null;
+        }
+
+        @Override
+        public List<SearchResponse> search(String collectionName, List<SearchRequest> requests) {
+            List<SearchResponse.SearchResult> results = new ArrayList<>();
+            for (int i = 0; i < TOP_K; i++) {
+                SearchResponse.SearchResult result = new SearchResponse.SearchResult();
+                result.setId(i < approxHits ? "e" + i : "x" + i);
+                results.add(result);
+            }
+            return List.of(SearchResponse.success(results));
+        }
+
+        @Override
+        public boolean createCollection(String collectionName, int dimension, String desc) {
+            return true;
+        }
+
+        @Override
+        public boolean loadCollection(String collectionName) {
+            return true;
+        }
+
+        @Override
+        public InsertResponse insert(String collectionName, InsertRequest request) {
+            return InsertResponse.success(request.getIds().size(), null);
+        }
+
+        @Override
+        public boolean flush(String collectionName) {
+            return true;
+        }
+
+        @Override
+        public boolean deleteByIds(String collectionName, List<String> ids) {
+            return true;
+        }
+
+        @Override
+        public boolean deleteByDocId(String collectionName, String docId) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.kuaishou.rag.vector.store;
+
+import com.kuaishou.rag.vector.dto.InsertRequest;
+import com.kuaishou.rag.vector.dto.InsertResponse;
+import com.kuaishou.rag.vector.dto.SearchRequest;
+import com.kuaishou.rag.vector.dto.SearchResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HnswVectorStore 测试：按路由键分图、覆盖写、删除触发压缩、写满时整批拒绝、召回率
+ */
+class HnswVectorStoreTest {
+
+    private static final String COLLECTION = "rag_documents";
+
+    private static final int DIMENSION = 16;
+
+    private HnswVectorStore store;
+
+    private Random random;
+
+    @BeforeEach
+    void setUp() {
+        store = newStore(1000);
+        random = new Random(17);
+    }
+
+    @Test
+    void searchIsScopedToPartitionGraph() {
+        List<float[]> vectors = vectors(40);
+        assertTrue(store.insert(COLLECTION, request(ids("a-", 0, 20), vectors.subList(0, 20), "a")).isSuccess());
+        assertTrue(store.insert(COLLECTION, request(ids("b-", 0, 20), vectors.subList(20, 40), "b")).isSuccess());
+
+        SearchResponse scoped = search(vectors.get(25), 10, "a");
+        assertEquals(10, scoped.getResults().size());
+        assertTrue(scoped.getResults().stream().allMatch(r -> r.getId().startsWith("a-")));
+
+        SearchResponse merged = search(vectors.get(25), 10, null);
+        assertEquals(10, merged.getResults().size());
+        assertEquals("b-5", merged.getResults().get(0).getId());
+        for (int i = 1; i < merged.getResults().size(); i++) {
+            assertTrue(merged.getResults().get(i - 1).getScore() >= merged.getResults().get(i).getScore());
+        }
+
+        assertTrue(search(vectors.get(0), 10, "missing").getResults().isEmpty());
+    }
+
+    @Test
+    void overwriteReplacesPreviousRow() {
+        List<float[]> vectors = vectors(2);
+        store.insert(COLLECTION, request(List.of("id-1"), List.of(vectors.get(0)), ""));
+        store.insert(COLLECTION, request(List.of("id-1"), List.of(vectors.get(1)), ""));
+
+        List<SearchResponse.SearchResult> results = search(vectors.get(1), 10, null).getResults();
+        assertEquals(1, results.size());
+        assertEquals("id-1", results.get(0).getId());
+        assertEquals(1f, results.get(0).getScore(), 1e-4f);
+    }
+
+    @Test
+    void compactionReclaimsDeletedSlots() {
+        store = newStore(100);
+        List<float[]> vectors = vectors(130);
+        List<String> ids = ids("id-", 0, 100);
+        assertTrue(store.insert(COLLECTION, request(ids, vectors.subList(0, 100), "")).isSuccess());
+
+        // 删除 30%，超过 compaction-ratio，重建后 slot 回收
+        assertTrue(store.deleteByIds(COLLECTION, ids.subList(0, 30)));
+        InsertResponse refill = store.insert(COLLECTION, request(ids("new-", 0, 30), vectors.subList(100, 130), ""));
+        assertTrue(refill.isSuccess(), refill.getMessage());
+
+        for (int i = 0; i < 30; i++) {
+            Set<String> found = resultIds(search(vectors.get(i), 5, null));
+            assertFalse(found.contains("id-" + i));
+        }
+        assertEquals("id-50", search(vectors.get(50), 1, null).getResults().get(0).getId());
+        assertEquals("new-10", search(vectors.get(110), 1, null).getResults().get(0).getId());
+    }
+
+    @Test
+    void fullPartitionRejectsWholeBatch() {
+        store = newStore(10);
+        List<float[]> vectors = vectors(16);
+        assertTrue(store.insert(COLLECTION, request(ids("a-", 0, 8), vectors.subList(0, 8), "a")).isSuccess());
+
+        // a 只剩 2 个 slot：跨 a / b 的批次整批拒绝，b 的行也不写入
+        List<String> batchIds = new ArrayList<>(ids("a-", 8, 13));
+        batchIds.add("b-0");
+        InsertRequest batch = request(batchIds, vectors.subList(8, 14), "a");
+        List<String> keys = new ArrayList<>(Collections.nCopies(5, "a"));
+        keys.add("b");
+        batch.setPartitionKeys(keys);
+
+        InsertResponse response = store.insert(COLLECTION, batch);
+
+        assertFalse(response.isSuccess());
+        assertTrue(response.getMessage().contains("full"));
+        assertEquals(8, search(vectors.get(0), 20, "a").getResults().size());
+        assertTrue(search(vectors.get(13), 20, "b").getResults().isEmpty());
+        // 放得下的批次仍可写入
+        assertTrue(store.insert(COLLECTION, request(ids("a-", 8, 10), vectors.subList(8, 10), "a")).isSuccess());
+    }
+
+    @Test
+    void deleteByDocIdRemovesRows() {
+        List<float[]> vectors = vectors(4);
+        InsertRequest request = request(ids("id-", 0, 4), vectors, "");
+        request.setDocIds(List.of("doc-1", "doc-1", "doc-2", "doc-2"));
+        store.insert(COLLECTION, request);
+
+        store.deleteByDocId(COLLECTION, "doc-1");
+
+        assertEquals(Set.of("id-2", "id-3"), resultIds(search(vectors.get(0), 10, null)));
+    }
+
+    @Test
+    void recallAgainstExactTopK() {
+        List<float[]> vectors = vectors(2000);
+        store.insert(COLLECTION, request(ids("id-", 0, 1000), vectors.subList(0, 1000), "a"));
+        store.insert(COLLECTION, request(ids("id-", 1000, 2000), vectors.subList(1000, 2000), "b"));
+
+        int hits = 0;
+        int queries = 30;
+        for (int q = 0; q < queries; q++) {
+            SearchRequest request = searchRequest(vectors(1).get(0), 10, null);
+            request.setEf(100);
+            Set<String> truth = new HashSet<>(store.exactTopK(COLLECTION, request, 10_000));
+            hits += (int) resultIds(store.search(COLLECTION, List.of(request)).get(0)).stream()
+                .filter(truth::contains).count();
+        }
+        assertTrue(hits / (double) (queries * 10) >= 0.9);
+    }
+
+    @Test
+    void rejectsDimensionMismatch() {
+        InsertResponse insert = store.insert(COLLECTION, request(List.of("x"), List.of(new float[DIMENSION + 1]), ""));
+        assertFalse(insert.isSuccess());
+
+        SearchResponse search = search(new float[DIMENSION + 1], 5, null);
+        assertFalse(search.isSuccess());
+        assertTrue(search.isInvalidRequest());
+    }
+
+    private HnswVectorStore newStore(int maxElements) {
+        HnswVectorStore local = new HnswVectorStore();
+        ReflectionTestUtils.setField(local, "m", 16);
+        ReflectionTestUtils.setField(local, "efConstruction", 100);
+        ReflectionTestUtils.setField(local, "maxElements", maxElements);
+        ReflectionTestUtils.setField(local, "compactionRatio", 0.2);
+        local.createCollection(COLLECTION, DIMENSION, "test");
+        return local;
+    }
+
+    private SearchResponse search(float[] vector, int topK, String partitionKey) {
+        return store.search(COLLECTION, List.of(searchRequest(vector, topK, partitionKey))).get(0);
+    }
+
+    private static SearchRequest searchRequest(float[] vector, int topK, String partitionKey) {
+        SearchRequest request = new SearchRequest();
+        request.setVector(vector);
+        request.setTopK(topK);
+        request.setPartitionKey(partitionKey);
+        return request;
+    }
+
+    private static InsertRequest request(List<String> ids, List<float[]> vectors, String partitionKey) {
+        InsertRequest request = new InsertRequest();
+        request.setIds(ids);
+        request.setVectors(vectors);
+        request.setContents(Collections.nCopies(ids.size(), "content"));
+        request.setDocIds(ids);
+        request.setPartitionKeys(Collections.nCopies(ids.size(), partitionKey));
+        return request;
+    }
+
+    private static List<String> ids(String prefix, int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> prefix + i).toList();
+    }
+
+    private List<float[]> vectors(int count) {
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] vector = new float[DIMENSION];
+            for (int d = 0; d < DIMENSION; d++) {
+                vector[d] = (float) random.nextGaussian();
+            }
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+
+    private static Set<String> resultIds(SearchResponse response) {
+        Set<String> ids = new HashSet<>();
+        response.getResults().forEach(result -> ids.add(result.getId()));
+        return ids;
+    }
+}
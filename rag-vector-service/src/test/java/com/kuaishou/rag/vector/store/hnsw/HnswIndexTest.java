@@ -0,0 +1,170 @@
+package com.kuaishou.rag.vector.store.hnsw;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HnswIndex 测试：与暴力检索对比召回率，并发插入与查询，逻辑删除与容量上限
+ */
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+
+    @Test
+    void emptyIndexReturnsNothing() {
+        assertTrue(new HnswIndex(DIMENSION, 16, 200, 10).search(randomUnit(new Random(1)), 5, 50).isEmpty());
+    }
+
+    @Test
+    void recallAgainstBruteForce() {
+        Random random = new Random(42);
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 200, 5000);
+        List<float[]> data = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            float[] vector = randomUnit(random);
+            data.add(vector);
+            assertEquals(i, index.add(vector));
+        }
+
+        assertTrue(recall(index, data, random, 50, 10, 100) >= 0.95);
+    }
+
+    @Test
+    void concurrentAddAndSearch() throws Exception {
+        int writers = 4;
+        int perWriter = 1000;
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 100, writers * perWriter);
+        List<List<float[]>> batches = new ArrayList<>();
+        Random random = new Random(7);
+        for (int w = 0; w < writers; w++) {
+            List<float[]> batch = new ArrayList<>();
+            for (int i = 0; i < perWriter; i++) {
+                batch.add(randomUnit(random));
+            }
+            batches.add(batch);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (List<float[]> batch : batches) {
+                writes.add(pool.submit(() -> {
+                    start.await();
+                    batch.forEach(index::add);
+                    return null;
+                }));
+            }
+            // 读线程在构图期间持续查询：入口节点与最高层必须一致，否则会在入口不存在的层上遍历而越界
+            List<Future<Integer>> reads = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                long seed = r;
+                reads.add(pool.submit(() -> {
+                    Random queries = new Random(seed);
+                    start.await();
+                    int searches = 0;
+                    while (writing.get()) {
+                        List<HnswIndex.Neighbor> result = index.search(randomUnit(queries), 10, 64);
+                        for (int i = 1; i < result.size(); i++) {
+                            assertTrue(result.get(i - 1).score() >= result.get(i).score());
+                        }
+                        searches++;
+                    }
+                    return searches;
+                }));
+            }
+            start.countDown();
+            for (Future<?> write : writes) {
+                write.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<Integer> read : reads) {
+                assertTrue(read.get(60, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(writers * perWriter, index.size());
+        List<float[]> data = new ArrayList<>();
+        for (int slot = 0; slot < index.size(); slot++) {
+            data.add(index.vector(slot));
+        }
+        assertTrue(recall(index, data, new Random(11), 50, 10, 100) >= 0.9);
+    }
+
+    @Test
+    void deletedNodesAreSkipped() {
+        Random random = new Random(3);
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 200, 100);
+        List<float[]> data = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            data.add(randomUnit(random));
+            index.add(data.get(i));
+        }
+
+        index.markDeleted(5);
+        index.markDeleted(5);
+
+        assertEquals(1, index.deletedCount());
+        List<HnswIndex.Neighbor> result = index.search(data.get(5), 10, 100);
+        assertFalse(result.stream().anyMatch(neighbor -> neighbor.slot() == 5));
+        assertEquals(10, result.size());
+    }
+
+    @Test
+    void rejectsInsertBeyondCapacity() {
+        Random random = new Random(5);
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 200, 3);
+        IntStream.range(0, 3).forEach(i -> index.add(randomUnit(random)));
+
+        assertThrows(IllegalStateException.class, () -> index.add(randomUnit(random)));
+        assertEquals(3, index.size());
+    }
+
+    /**
+     * 召回率：HNSW top-k 与暴力检索 top-k 的交集占比
+     */
+    static double recall(HnswIndex index, List<float[]> data, Random random, int queries, int k, int ef) {
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomUnit(random);
+            Set<Integer> truth = new HashSet<>(IntStream.range(0, data.size()).boxed()
+                .sorted(Comparator.comparingDouble((Integer slot) -> VectorKernels.dot(query, data.get(slot))).reversed())
+                .limit(k).toList());
+            for (HnswIndex.Neighbor neighbor : index.search(query, k, ef)) {
+                if (truth.contains(neighbor.slot())) {
+                    hits++;
+                }
+            }
+        }
+        return hits / (double) (queries * k);
+    }
+
+    static float[] randomUnit(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorKernels.normalize(vector);
+    }
+}